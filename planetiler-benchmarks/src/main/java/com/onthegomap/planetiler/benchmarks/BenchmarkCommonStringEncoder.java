@@ -0,0 +1,63 @@
+package com.onthegomap.planetiler.benchmarks;
+
+import static io.prometheus.client.Collector.NANOSECONDS_PER_SECOND;
+
+import com.onthegomap.planetiler.stats.Timer;
+import com.onthegomap.planetiler.util.CommonStringEncoder;
+import com.onthegomap.planetiler.util.Format;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Measures how many attribute keys per second render threads can encode through a shared {@link CommonStringEncoder}
+ * compared to going through a {@link CommonStringEncoder#forThread()} cache on each thread.
+ */
+public class BenchmarkCommonStringEncoder {
+
+  private static final int NUM_KEYS = 500;
+  private static final long ITERATIONS = 20_000_000;
+
+  public static void main(String[] args) throws InterruptedException {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < NUM_KEYS; i++) {
+      keys.add("key" + i);
+    }
+    for (int i = 0; i < 3; i++) {
+      var shared = new CommonStringEncoder(100_000);
+      run("shared    ", threads, keys, () -> shared::encode);
+      var cached = new CommonStringEncoder(100_000);
+      run("forThread ", threads, keys, () -> cached.forThread()::encode);
+    }
+  }
+
+  private static void run(String name, int threads, List<String> keys,
+    Supplier<ToIntFunction<String>> encoderForThread) throws InterruptedException {
+    AtomicLong sum = new AtomicLong(0);
+    List<Thread> workers = new ArrayList<>();
+    var timer = Timer.start();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      workers.add(Thread.ofPlatform().start(() -> {
+        ToIntFunction<String> encoder = encoderForThread.get();
+        long result = 0;
+        for (long j = 0; j < ITERATIONS; j++) {
+          result += encoder.applyAsInt(keys.get((int) ((j + offset) % NUM_KEYS)));
+        }
+        sum.addAndGet(result);
+      }));
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    var elapsed = timer.stop().elapsed().wall();
+    System.err.println(
+      name + threads + " threads took " + Format.defaultInstance().duration(elapsed) + " (" +
+        Format.defaultInstance().numeric(threads * ITERATIONS * 1d / (elapsed.toNanos() / NANOSECONDS_PER_SECOND)) +
+        "/s) " + sum.get()
+    );
+  }
+}
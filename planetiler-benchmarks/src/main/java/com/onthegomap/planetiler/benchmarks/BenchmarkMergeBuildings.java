@@ -0,0 +1,102 @@
+package com.onthegomap.planetiler.benchmarks;
+
+import com.onthegomap.planetiler.FeatureMerge;
+import com.onthegomap.planetiler.VectorTile;
+import com.onthegomap.planetiler.geo.GeometryException;
+import com.onthegomap.planetiler.mbtiles.Mbtiles;
+import com.onthegomap.planetiler.util.Format;
+import com.onthegomap.planetiler.util.FunctionThatThrows;
+import com.onthegomap.planetiler.util.Gzip;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * Measures how long it takes to group and merge nearby polygons in dense z13 building tiles.
+ * <p>
+ * Includes a JTS {@link STRtree} neighbor search for comparison with the grid that
+ * {@link FeatureMerge#groupPolygonsByProximity(List, double)} uses.
+ */
+public class BenchmarkMergeBuildings {
+  private static long numItems;
+
+  public static void main(String[] args) throws Exception {
+    var boston = read("bostonbuildings.mbtiles", 2477, 3028, 13);
+    var jakarta = read("jakartabuildings.mbtiles", 6527, 4240, 13);
+    var bostonGeoms = decode(boston);
+    var jakartaGeoms = decode(jakarta);
+    System.err.println("boston: " + boston.size() + " jakarta: " + jakarta.size());
+    for (int i = 0; i < 10; i++) {
+      System.err.println(String.join("\t",
+        "  STRtree neighbors",
+        timeMillis(bostonGeoms, geoms -> strTreeNeighbors(geoms, 0.5)),
+        timeMillis(jakartaGeoms, geoms -> strTreeNeighbors(geoms, 0.5))
+      ));
+      System.err.println(String.join("\t",
+        "group by proximity",
+        timeMillis(bostonGeoms, geoms -> FeatureMerge.groupPolygonsByProximity(geoms, 0.5).size()),
+        timeMillis(jakartaGeoms, geoms -> FeatureMerge.groupPolygonsByProximity(geoms, 0.5).size())
+      ));
+      System.err.println(String.join("\t",
+        "     merge polygons",
+        timeMillis(boston, features -> FeatureMerge.mergeNearbyPolygons(features, 4, 0, 0.5, 0.5).size()),
+        timeMillis(jakarta, features -> FeatureMerge.mergeNearbyPolygons(features, 4, 0, 0.5, 0.5).size())
+      ));
+    }
+    System.err.println(numItems);
+  }
+
+  /** Finds nearby pairs using the envelope index that groupPolygonsByProximity used before switching to a grid. */
+  private static int strTreeNeighbors(List<Geometry> geometries, double minDist) {
+    STRtree envelopeIndex = new STRtree();
+    for (int i = 0; i < geometries.size(); i++) {
+      Envelope env = geometries.get(i).getEnvelopeInternal().copy();
+      env.expandBy(minDist);
+      envelopeIndex.insert(env, i);
+    }
+    int count = 0;
+    for (Geometry a : geometries) {
+      for (Object j : envelopeIndex.query(a.getEnvelopeInternal())) {
+        if (a.isWithinDistance(geometries.get((Integer) j), minDist)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static <T> String timeMillis(T input, FunctionThatThrows<T, Integer> fn) throws Exception {
+    long start = System.nanoTime();
+    long end = start + Duration.ofSeconds(1).toNanos();
+    int num = 0;
+    for (; System.nanoTime() < end;) {
+      numItems += fn.apply(input);
+      num++;
+    }
+    // equivalent of toPrecision(3)
+    long nanosPer = (System.nanoTime() - start) / num;
+    var bd = new BigDecimal(nanosPer, new MathContext(3));
+    return Format.padRight(Duration.ofNanos(bd.longValue()).toString().replace("PT", ""), 6);
+  }
+
+  private static List<VectorTile.Feature> read(String fileName, int x, int y, int z) throws Exception {
+    var path = Path.of("planetiler-core", "src", "test", "resources", fileName);
+    try (var db = Mbtiles.newReadOnlyDatabase(path)) {
+      return VectorTile.decode(Gzip.gunzip(db.getTile(x, y, z)));
+    }
+  }
+
+  private static List<Geometry> decode(List<VectorTile.Feature> features) throws GeometryException {
+    List<Geometry> result = new ArrayList<>(features.size());
+    for (var feature : features) {
+      result.add(feature.geometry().decode());
+    }
+    return result;
+  }
+}
@@ -1,21 +1,33 @@
 package com.onthegomap.planetiler.benchmarks;
 
 import com.onthegomap.planetiler.geo.DouglasPeuckerSimplifier;
+import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.VWSimplifier;
 import com.onthegomap.planetiler.util.Format;
 import com.onthegomap.planetiler.util.FunctionThatThrows;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.time.Duration;
+import java.util.Random;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateXY;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.util.GeometricShapeFactory;
 
+/**
+ * Compares throughput of simplification algorithms on different size inputs.
+ * <p>
+ * Run with and without {@code --add-modules jdk.incubator.vector} to compare the SIMD and scalar Douglas-Peucker
+ * implementations.
+ */
 public class BenchmarkSimplify {
   private static int numLines;
 
   public static void main(String[] args) throws Exception {
+    System.err.println("DP vector API: " + DouglasPeuckerSimplifier.usesVectorApi());
     for (int i = 0; i < 10; i++) {
+      timeNoisy("  noisy DP(0.1)", geom -> DouglasPeuckerSimplifier.simplify(geom, 0.1));
+      timeNoisy(" noisy DP(0.01)", geom -> DouglasPeuckerSimplifier.simplify(geom, 0.01));
       time("    DP(0.1)", geom -> DouglasPeuckerSimplifier.simplify(geom, 0.1));
       time("      DP(1)", geom -> DouglasPeuckerSimplifier.simplify(geom, 1));
       time("     DP(20)", geom -> DouglasPeuckerSimplifier.simplify(geom, 20));
@@ -42,6 +54,16 @@ public class BenchmarkSimplify {
     ));
   }
 
+  private static void timeNoisy(String name, FunctionThatThrows<Geometry, Geometry> fn) throws Exception {
+    System.err.println(String.join("\t",
+      name,
+      timePerSec(makeNoisyLine(100), fn),
+      timePerSec(makeNoisyLine(1_000), fn),
+      timePerSec(makeNoisyLine(10_000), fn),
+      timePerSec(makeNoisyLine(100_000), fn)
+    ));
+  }
+
   private static String timePerSec(Geometry geometry, FunctionThatThrows<Geometry, Geometry> fn)
     throws Exception {
     long start = System.nanoTime();
@@ -81,4 +103,18 @@ public class BenchmarkSimplify {
     shapeFactory.setSize(10);
     return shapeFactory.createCircle();
   }
+
+  /** Returns a jagged line that simplification needs to recurse deeper into, like dense coastlines or contours. */
+  private static Geometry makeNoisyLine(int points) {
+    Random random = new Random(points);
+    Coordinate[] coords = new Coordinate[points];
+    for (int i = 0; i < points; i++) {
+      double angle = Math.PI * 2 * i / points;
+      coords[i] = new CoordinateXY(
+        10 * Math.cos(angle) + random.nextGaussian() * 0.05,
+        10 * Math.sin(angle) + random.nextGaussian() * 0.05
+      );
+    }
+    return GeoUtils.JTS_FACTORY.createLineString(coords);
+  }
 }
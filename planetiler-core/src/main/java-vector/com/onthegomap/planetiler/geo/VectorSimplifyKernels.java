@@ -0,0 +1,64 @@
+package com.onthegomap.planetiler.geo;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementations of {@link SimplifyKernels} using the incubating vector API.
+ * <p>
+ * This lives in a separate source root that is the only code compiled with {@code --add-modules jdk.incubator.vector}.
+ * {@link SimplifyKernels} loads it reflectively when the JVM was started with that module, so nothing else in core
+ * depends on an incubator module.
+ */
+final class VectorSimplifyKernels implements SimplifyKernels.FurthestPoint {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  // below this many points the setup cost outweighs the benefit of processing several points at once
+  private static final int MIN_POINTS = SPECIES.length() * 4;
+
+  VectorSimplifyKernels() {}
+
+  @Override
+  public boolean isSupported() {
+    return SPECIES.length() > 1;
+  }
+
+  /** Vectorized version of {@link SimplifyKernels#furthestPointScalar}. */
+  @Override
+  public int furthestPoint(double[] xs, double[] ys, int from, int to, double p1x, double p1y, double p2x,
+    double p2y, double sqDistThreshold) {
+    if (to - from < MIN_POINTS) {
+      return SimplifyKernels.furthestPointScalar(xs, ys, from, to, p1x, p1y, p2x, p2y, sqDistThreshold);
+    }
+    double dx = p2x - p1x;
+    double dy = p2y - p1y;
+    double sqLen = dx * dx + dy * dy;
+    double maxSqDist = sqDistThreshold;
+    int index = -1;
+    int i = from;
+    int bound = from + SPECIES.loopBound(to - from);
+    for (; i < bound; i += SPECIES.length()) {
+      var px = DoubleVector.fromArray(SPECIES, xs, i);
+      var py = DoubleVector.fromArray(SPECIES, ys, i);
+      // same operations as getSqSegDist so results are bit-for-bit identical, when p1 == p2 then t is NaN so both
+      // masks are false and distance gets measured to p1
+      var t = px.sub(p1x).mul(dx).add(py.sub(p1y).mul(dy)).div(sqLen);
+      VectorMask<Double> pastP1 = t.compare(VectorOperators.GT, 0);
+      VectorMask<Double> pastP2 = t.compare(VectorOperators.GT, 1);
+      var x = DoubleVector.broadcast(SPECIES, p1x).blend(t.mul(dx).add(p1x), pastP1).blend(p2x, pastP2);
+      var y = DoubleVector.broadcast(SPECIES, p1y).blend(t.mul(dy).add(p1y), pastP1).blend(p2y, pastP2);
+      var ddx = px.sub(x);
+      var ddy = py.sub(y);
+      var sqDist = ddx.mul(ddx).add(ddy.mul(ddy));
+      double blockMax = sqDist.reduceLanes(VectorOperators.MAX);
+      if (blockMax > maxSqDist) {
+        maxSqDist = blockMax;
+        index = i + sqDist.compare(VectorOperators.EQ, blockMax).firstTrue();
+      }
+    }
+    int rest = SimplifyKernels.furthestPointScalar(xs, ys, i, to, p1x, p1y, p2x, p2y, maxSqDist);
+    return rest >= 0 ? rest : index;
+  }
+}
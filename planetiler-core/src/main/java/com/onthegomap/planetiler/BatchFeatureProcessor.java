@@ -0,0 +1,32 @@
+package com.onthegomap.planetiler;
+
+import com.onthegomap.planetiler.reader.SourceFeature;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Optional interface for a {@link Profile} to handle input features from columnar sources (i.e. geoparquet) in batches
+ * of consecutive rows from the same block instead of one {@link SourceFeature} at a time.
+ * <p>
+ * This lets profiles look at attributes across a whole batch to filter it or compute shared values once before
+ * emitting output features for each row. Readers that don't support batches still call
+ * {@link Profile#processFeature(SourceFeature, FeatureCollector)}.
+ */
+@FunctionalInterface
+public interface BatchFeatureProcessor {
+
+  /**
+   * Generates output features for a batch of input features from the same block of a source file.
+   * <p>
+   * Get a collector for each input feature that should appear in the map from {@link FeatureCollector.Factory#get}, add
+   * output features to it, then pass it to {@code emit}. Multiple threads may invoke this method concurrently for
+   * different batches so implementations should ensure thread-safe access to any shared data structures. If this throws
+   * an exception, the reader logs it and moves on to the next batch.
+   *
+   * @param sourceFeatures    consecutive input features from one block of a source dataset
+   * @param featureCollectors factory for collectors to generate output map features for each input feature
+   * @param emit              consumer that renders the output features from each collector
+   */
+  void processFeatureBatch(List<? extends SourceFeature> sourceFeatures, FeatureCollector.Factory featureCollectors,
+    Consumer<FeatureCollector> emit);
+}
@@ -17,6 +17,7 @@ import com.onthegomap.planetiler.stats.DefaultStats;
 import com.onthegomap.planetiler.stats.Stats;
 import com.onthegomap.planetiler.util.LoopLineMerger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
@@ -35,7 +36,6 @@ import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.geom.Polygonal;
 import org.locationtech.jts.geom.TopologyException;
 import org.locationtech.jts.geom.util.GeometryFixer;
-import org.locationtech.jts.index.strtree.STRtree;
 import org.locationtech.jts.operation.buffer.BufferOp;
 import org.locationtech.jts.operation.buffer.BufferParameters;
 import org.locationtech.jts.operation.linemerge.LineMerger;
@@ -56,6 +56,8 @@ import org.slf4j.LoggerFactory;
 public class FeatureMerge {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FeatureMerge.class);
+  /** Layers with at least this many features in a tile merge groups with the same attributes in parallel. */
+  private static volatile int parallelMergeThreshold = Integer.MAX_VALUE;
   private static final BufferParameters bufferOps = new BufferParameters();
   // this is slightly faster than Comparator.comparingInt
   private static final Comparator<WithIndex<?>> BY_HILBERT_INDEX =
@@ -68,6 +70,17 @@ public class FeatureMerge {
   /** Don't instantiate */
   private FeatureMerge() {}
 
+  /**
+   * Merge groups of features with the same attributes on the fork-join common pool when a layer has at least
+   * {@code minFeatures} features in a tile, or never if it is 0.
+   * <p>
+   * Only applies to merges that don't call back into the profile, like a {@code lengthLimitCalculator} or
+   * {@link GeometryPipeline}, since those run sequentially on the thread that calls them.
+   */
+  public static void setParallelMinFeatures(int minFeatures) {
+    parallelMergeThreshold = minFeatures <= 0 ? Integer.MAX_VALUE : minFeatures;
+  }
+
   /**
    * Modifies a feature ID to end in 0, indicating the feature was created by merging and doesn't correspond to a single
    * source element.
@@ -100,7 +113,8 @@ public class FeatureMerge {
    */
   public static List<VectorTile.Feature> mergeLineStrings(List<VectorTile.Feature> features,
     double minLength, double tolerance, double buffer, boolean resimplify) {
-    return mergeLineStrings(features, attrs -> minLength, tolerance, buffer, resimplify, null);
+    return mergeLineStrings(features, attrs -> minLength, tolerance, buffer, resimplify, null,
+      parallelMergeThreshold);
   }
 
   /**
@@ -174,60 +188,74 @@ public class FeatureMerge {
   /**
    * Merges linestrings with the same attributes as {@link #mergeLineStrings(List, double, double, double, boolean)}
    * except with a dynamic length limit computed by {@code lengthLimitCalculator} for the attributes of each group.
+   * <p>
+   * Groups always get merged on the calling thread, so {@code lengthLimitCalculator} does not need to be thread-safe.
    */
   public static List<VectorTile.Feature> mergeLineStrings(List<VectorTile.Feature> features,
     Function<Map<String, Object>, Double> lengthLimitCalculator, double tolerance, double buffer, boolean resimplify,
     GeometryPipeline pipeline) {
+    return mergeLineStrings(features, lengthLimitCalculator, tolerance, buffer, resimplify, pipeline,
+      Integer.MAX_VALUE);
+  }
+
+  static List<VectorTile.Feature> mergeLineStrings(List<VectorTile.Feature> features,
+    Function<Map<String, Object>, Double> lengthLimitCalculator, double tolerance, double buffer, boolean resimplify,
+    GeometryPipeline pipeline, int parallelThreshold) {
     List<VectorTile.Feature> result = new ArrayList<>(features.size());
     var groupedByAttrs = groupByAttrs(features, result, GeometryType.LINE);
-    for (List<VectorTile.Feature> groupedFeatures : groupedByAttrs) {
-      VectorTile.Feature feature1 = groupedFeatures.getFirst();
-      double lengthLimit = lengthLimitCalculator.apply(feature1.tags());
-
-      // as a shortcut, can skip line merging only if:
-      // - only 1 element in the group
-      // - it doesn't need to be clipped
-      // - and it can't possibly be filtered out for being too short
-      // - and it does not need to be simplified
-      if (groupedFeatures.size() == 1 && buffer <= 0d && lengthLimit <= 0 && (!resimplify || tolerance <= 0)) {
-        result.add(feature1);
-      } else {
-        LoopLineMerger merger = new LoopLineMerger()
-          .setTolerance(tolerance)
-          .setMergeStrokes(true)
-          .setMinLength(lengthLimit)
-          .setLoopMinLength(lengthLimit)
-          .setStubMinLength(Math.min(0.5, lengthLimit))
-          .setSegmentTransform(pipeline);
-        for (VectorTile.Feature feature : groupedFeatures) {
-          try {
-            merger.add(feature.geometry().decode());
-          } catch (GeometryException e) {
-            e.log("Error decoding vector tile feature for line merge: " + feature);
-          }
-        }
-        List<LineString> outputSegments = new ArrayList<>();
-        for (var line : merger.getMergedLineStrings()) {
-          if (buffer >= 0) {
-            removeDetailOutsideTile(line, buffer, outputSegments);
-          } else {
-            outputSegments.add(line);
-          }
-        }
+    mergeGroups(groupedByAttrs, features.size(), pipeline == null ? parallelThreshold : Integer.MAX_VALUE, result,
+      groupedFeatures -> mergeLineStringGroup(groupedFeatures, lengthLimitCalculator, tolerance, buffer, resimplify,
+        pipeline));
+    return result;
+  }
 
-        if (!outputSegments.isEmpty()) {
-          outputSegments = sortByHilbertIndex(outputSegments);
-          Geometry newGeometry = GeoUtils.combineLineStrings(outputSegments);
-          if (groupedFeatures.size() > 1) {
-            result.add(feature1.copyWithIdAndGeometry(makeMergedId(feature1.id()),
-              VectorTile.encodeGeometry(newGeometry)));
-          } else {
-            result.add(feature1.copyWithNewGeometry(newGeometry));
-          }
-        }
+  private static VectorTile.Feature mergeLineStringGroup(List<VectorTile.Feature> groupedFeatures,
+    Function<Map<String, Object>, Double> lengthLimitCalculator, double tolerance, double buffer, boolean resimplify,
+    GeometryPipeline pipeline) {
+    VectorTile.Feature feature1 = groupedFeatures.getFirst();
+    double lengthLimit = lengthLimitCalculator.apply(feature1.tags());
+
+    // as a shortcut, can skip line merging only if:
+    // - only 1 element in the group
+    // - it doesn't need to be clipped
+    // - and it can't possibly be filtered out for being too short
+    // - and it does not need to be simplified
+    if (groupedFeatures.size() == 1 && buffer <= 0d && lengthLimit <= 0 && (!resimplify || tolerance <= 0)) {
+      return feature1;
+    }
+    LoopLineMerger merger = new LoopLineMerger()
+      .setTolerance(tolerance)
+      .setMergeStrokes(true)
+      .setMinLength(lengthLimit)
+      .setLoopMinLength(lengthLimit)
+      .setStubMinLength(Math.min(0.5, lengthLimit))
+      .setSegmentTransform(pipeline);
+    for (VectorTile.Feature feature : groupedFeatures) {
+      try {
+        merger.add(feature.geometry().decode());
+      } catch (GeometryException e) {
+        e.log("Error decoding vector tile feature for line merge: " + feature);
       }
     }
-    return result;
+    List<LineString> outputSegments = new ArrayList<>();
+    for (var line : merger.getMergedLineStrings()) {
+      if (buffer >= 0) {
+        removeDetailOutsideTile(line, buffer, outputSegments);
+      } else {
+        outputSegments.add(line);
+      }
+    }
+
+    if (outputSegments.isEmpty()) {
+      return null;
+    }
+    outputSegments = sortByHilbertIndex(outputSegments);
+    Geometry newGeometry = GeoUtils.combineLineStrings(outputSegments);
+    if (groupedFeatures.size() > 1) {
+      return feature1.copyWithIdAndGeometry(makeMergedId(feature1.id()), VectorTile.encodeGeometry(newGeometry));
+    } else {
+      return feature1.copyWithNewGeometry(newGeometry);
+    }
   }
 
   /**
@@ -323,74 +351,86 @@ public class FeatureMerge {
   public static List<VectorTile.Feature> mergeNearbyPolygons(List<VectorTile.Feature> features, double minArea,
     double minHoleArea, double minDist, double buffer, Stats stats, GeometryPipeline pipeline)
     throws GeometryException {
+    return mergeNearbyPolygons(features, minArea, minHoleArea, minDist, buffer, stats, pipeline,
+      parallelMergeThreshold);
+  }
+
+  static List<VectorTile.Feature> mergeNearbyPolygons(List<VectorTile.Feature> features, double minArea,
+    double minHoleArea, double minDist, double buffer, Stats stats, GeometryPipeline pipeline, int parallelThreshold)
+    throws GeometryException {
     List<VectorTile.Feature> result = new ArrayList<>(features.size());
     Collection<List<VectorTile.Feature>> groupedByAttrs = groupByAttrs(features, result, GeometryType.POLYGON);
-    for (List<VectorTile.Feature> groupedFeatures : groupedByAttrs) {
-      List<Polygon> outPolygons = new ArrayList<>();
-      VectorTile.Feature feature1 = groupedFeatures.getFirst();
-      List<Geometry> geometries = new ArrayList<>(groupedFeatures.size());
-      for (var feature : groupedFeatures) {
-        try {
-          geometries.add(feature.geometry().decode());
-        } catch (GeometryException e) {
-          e.log("Error decoding vector tile feature for polygon merge: " + feature);
-        }
+    mergeGroups(groupedByAttrs, features.size(), pipeline == null ? parallelThreshold : Integer.MAX_VALUE, result,
+      groupedFeatures -> mergePolygonGroup(groupedFeatures, minArea, minHoleArea, minDist, buffer, stats, pipeline));
+    return result;
+  }
+
+  private static VectorTile.Feature mergePolygonGroup(List<VectorTile.Feature> groupedFeatures, double minArea,
+    double minHoleArea, double minDist, double buffer, Stats stats, GeometryPipeline pipeline)
+    throws GeometryException {
+    List<Polygon> outPolygons = new ArrayList<>();
+    VectorTile.Feature feature1 = groupedFeatures.getFirst();
+    List<Geometry> geometries = new ArrayList<>(groupedFeatures.size());
+    for (var feature : groupedFeatures) {
+      try {
+        geometries.add(feature.geometry().decode());
+      } catch (GeometryException e) {
+        e.log("Error decoding vector tile feature for polygon merge: " + feature);
       }
-      Collection<List<Geometry>> groupedByProximity = groupPolygonsByProximity(geometries, minDist);
-      for (List<Geometry> polygonGroup : groupedByProximity) {
-        Geometry merged;
-        if (polygonGroup.size() > 1) {
-          if (buffer > 0) {
-            // there are 2 ways to merge polygons:
-            // 1) bufferUnbuffer: merged.buffer(amount).buffer(-amount)
-            // 2) bufferUnionUnbuffer: polygon.buffer(amount) on each polygon then merged.union().buffer(-amount)
-            // #1 is faster on average, but can become very slow and use a lot of memory when there is a large overlap
-            // between buffered polygons (i.e. most of them are smaller than the buffer amount) so we use #2 to avoid
-            // spinning for a very long time on very dense tiles.
-            // TODO use some heuristic to choose bufferUnbuffer vs. bufferUnionUnbuffer based on the number small
-            //      polygons in the group?
-            merged = bufferUnionUnbuffer(buffer, polygonGroup, stats);
-          } else {
-            merged = buffer(buffer, GeoUtils.createGeometryCollection(polygonGroup));
-          }
-          if (!(merged instanceof Polygonal) || merged.getEnvelopeInternal().getArea() < minArea) {
-            continue;
-          }
-          if (pipeline != null) {
-            merged = pipeline.apply(merged);
-            if (!(merged instanceof Polygonal)) {
-              continue;
-            }
-          }
-          merged = GeoUtils.snapAndFixPolygon(merged, stats, "merge").reverse();
+    }
+    Collection<List<Geometry>> groupedByProximity = groupPolygonsByProximity(geometries, minDist);
+    for (List<Geometry> polygonGroup : groupedByProximity) {
+      Geometry merged;
+      if (polygonGroup.size() > 1) {
+        if (buffer > 0) {
+          // there are 2 ways to merge polygons:
+          // 1) bufferUnbuffer: merged.buffer(amount).buffer(-amount)
+          // 2) bufferUnionUnbuffer: polygon.buffer(amount) on each polygon then merged.union().buffer(-amount)
+          // #1 is faster on average, but can become very slow and use a lot of memory when there is a large overlap
+          // between buffered polygons (i.e. most of them are smaller than the buffer amount) so we use #2 to avoid
+          // spinning for a very long time on very dense tiles.
+          // TODO use some heuristic to choose bufferUnbuffer vs. bufferUnionUnbuffer based on the number small
+          //      polygons in the group?
+          merged = bufferUnionUnbuffer(buffer, polygonGroup, stats);
         } else {
-          merged = polygonGroup.getFirst();
-          if (!(merged instanceof Polygonal) || merged.getEnvelopeInternal().getArea() < minArea) {
+          merged = buffer(buffer, GeoUtils.createGeometryCollection(polygonGroup));
+        }
+        if (!(merged instanceof Polygonal) || merged.getEnvelopeInternal().getArea() < minArea) {
+          continue;
+        }
+        if (pipeline != null) {
+          merged = pipeline.apply(merged);
+          if (!(merged instanceof Polygonal)) {
             continue;
           }
-          if (pipeline != null) {
-            Geometry after = pipeline.apply(merged);
-            if (!(after instanceof Polygonal)) {
-              continue;
-            } else if (after != merged) {
-              merged = GeoUtils.snapAndFixPolygon(after, stats, "merge_after_pipeline").reverse();
-            }
-          }
         }
-        extractPolygons(merged, outPolygons, minArea, minHoleArea);
-      }
-      if (!outPolygons.isEmpty()) {
-        outPolygons = sortByHilbertIndex(outPolygons);
-        Geometry combined = GeoUtils.combinePolygons(outPolygons);
-        if (groupedFeatures.size() > 1) {
-          result.add(feature1.copyWithIdAndGeometry(makeMergedId(feature1.id()),
-            VectorTile.encodeGeometry(combined)));
-        } else {
-          result.add(feature1.copyWithNewGeometry(combined));
+        merged = GeoUtils.snapAndFixPolygon(merged, stats, "merge").reverse();
+      } else {
+        merged = polygonGroup.getFirst();
+        if (!(merged instanceof Polygonal) || merged.getEnvelopeInternal().getArea() < minArea) {
+          continue;
+        }
+        if (pipeline != null) {
+          Geometry after = pipeline.apply(merged);
+          if (!(after instanceof Polygonal)) {
+            continue;
+          } else if (after != merged) {
+            merged = GeoUtils.snapAndFixPolygon(after, stats, "merge_after_pipeline").reverse();
+          }
         }
       }
+      extractPolygons(merged, outPolygons, minArea, minHoleArea);
+    }
+    if (outPolygons.isEmpty()) {
+      return null;
+    }
+    outPolygons = sortByHilbertIndex(outPolygons);
+    Geometry combined = GeoUtils.combinePolygons(outPolygons);
+    if (groupedFeatures.size() > 1) {
+      return feature1.copyWithIdAndGeometry(makeMergedId(feature1.id()), VectorTile.encodeGeometry(combined));
+    } else {
+      return feature1.copyWithNewGeometry(combined);
     }
-    return result;
   }
 
   private static <G extends Geometry> List<G> sortByHilbertIndex(List<G> geometries) {
@@ -423,6 +463,69 @@ public class FeatureMerge {
     }).toList();
   }
 
+  /**
+   * Merges each group of features with the same attributes using {@code merger} and adds non-null results to
+   * {@code result} in the same order as {@code groups}.
+   * <p>
+   * When the layer has at least {@code parallelThreshold} features, groups get merged in parallel on the fork-join
+   * common pool so that one very dense tile doesn't hold up the tile writer while other encoding threads sit idle. This
+   * is off unless enabled with {@link #setParallelMinFeatures(int)}.
+   */
+  private static <E extends Exception> void mergeGroups(Collection<List<VectorTile.Feature>> groups, int numFeatures,
+    int parallelThreshold, List<VectorTile.Feature> result, GroupMerger<E> merger) throws E {
+    if (numFeatures >= parallelThreshold && groups.size() > 1) {
+      List<VectorTile.Feature> merged;
+      try {
+        merged = new ArrayList<>(groups).parallelStream()
+          .map(group -> {
+            try {
+              return merger.merge(group);
+            } catch (Exception e) {
+              throw new GroupMergeException(e);
+            }
+          })
+          .toList();
+      } catch (GroupMergeException e) {
+        throw e.<E>unwrap();
+      }
+      for (var feature : merged) {
+        if (feature != null) {
+          result.add(feature);
+        }
+      }
+    } else {
+      for (var group : groups) {
+        var feature = merger.merge(group);
+        if (feature != null) {
+          result.add(feature);
+        }
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface GroupMerger<E extends Exception> {
+
+    /** Returns the merged feature for a group of features with the same attributes, or null to drop the group. */
+    VectorTile.Feature merge(List<VectorTile.Feature> group) throws E;
+  }
+
+  /** Carries checked or unchecked exceptions thrown by a {@link GroupMerger} out of a parallel stream. */
+  private static class GroupMergeException extends RuntimeException {
+
+    GroupMergeException(Exception cause) {
+      super(cause);
+    }
+
+    @SuppressWarnings("unchecked")
+    <E extends Exception> E unwrap() {
+      if (getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      return (E) getCause();
+    }
+  }
+
   /**
    * Returns each group of vector tile features that share the exact same attributes.
    *
@@ -599,30 +702,128 @@ public class FeatureMerge {
 
   /** Returns a map from index in {@code geometries} to index of every other geometry within {@code minDist}. */
   private static IntObjectMap<IntArrayList> extractAdjacencyList(List<Geometry> geometries, double minDist) {
-    STRtree envelopeIndex = new STRtree();
-    for (int i = 0; i < geometries.size(); i++) {
-      Geometry a = geometries.get(i);
-      Envelope env = a.getEnvelopeInternal().copy();
-      env.expandBy(minDist);
-      envelopeIndex.insert(env, i);
-    }
     IntObjectMap<IntArrayList> result = Hppc.newIntObjectHashMap();
-    for (int _i = 0; _i < geometries.size(); _i++) {
-      int i = _i;
+    int num = geometries.size();
+    Envelope[] envelopes = new Envelope[num];
+    for (int i = 0; i < num; i++) {
+      envelopes[i] = geometries.get(i).getEnvelopeInternal();
+    }
+    EnvelopeGrid grid = new EnvelopeGrid(envelopes, minDist);
+    // track the last geometry that each candidate was compared to since it can show up in more than one cell
+    int[] lastComparedTo = new int[num];
+    Arrays.fill(lastComparedTo, -1);
+    for (int i = 0; i < num; i++) {
       Geometry a = geometries.get(i);
-      envelopeIndex.query(a.getEnvelopeInternal(), object -> {
-        if (object instanceof Integer j) {
-          Geometry b = geometries.get(j);
-          if (a.isWithinDistance(b, minDist)) {
-            addAdjacencyEntry(result, i, j);
-            addAdjacencyEntry(result, j, i);
+      Envelope env = envelopes[i].copy();
+      env.expandBy(minDist);
+      for (int cell : grid.cellsIntersecting(env)) {
+        for (int k = grid.cellStart(cell), end = grid.cellEnd(cell); k < end; k++) {
+          int j = grid.item(k);
+          // cells are sorted by index so only compare each pair once
+          if (j > i && lastComparedTo[j] != i) {
+            lastComparedTo[j] = i;
+            if (env.intersects(envelopes[j]) && a.isWithinDistance(geometries.get(j), minDist)) {
+              addAdjacencyEntry(result, i, j);
+              addAdjacencyEntry(result, j, i);
+            }
           }
         }
-      });
+      }
     }
     return result;
   }
 
+  /**
+   * Buckets envelopes into a uniform grid over tile pixel coordinates to find candidate neighbors without building a
+   * tree.
+   * <p>
+   * Cells are at least {@code minDist} wide, and grow to the average envelope size so that each envelope only lands in a
+   * few cells, and to keep the number of cells proportional to the number of envelopes. Item indices within each cell
+   * are stored in ascending order in one flat array.
+   */
+  private static final class EnvelopeGrid {
+
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[] cellStarts;
+    private final int[] items;
+
+    EnvelopeGrid(Envelope[] envelopes, double minDist) {
+      Envelope bounds = new Envelope();
+      double totalSize = 0;
+      for (Envelope env : envelopes) {
+        bounds.expandToInclude(env);
+        totalSize += Math.max(env.getWidth(), env.getHeight());
+      }
+      int num = Math.max(1, envelopes.length);
+      double size = Math.max(minDist, totalSize / num);
+      size = Math.max(size, Math.sqrt(bounds.getArea() / num));
+      size = Math.max(size, Math.max(bounds.getWidth(), bounds.getHeight()) / num);
+      this.cellSize = size > 0 ? size : 1;
+      this.minX = bounds.isNull() ? 0 : bounds.getMinX();
+      this.minY = bounds.isNull() ? 0 : bounds.getMinY();
+      this.cols = bounds.isNull() ? 1 : (int) (bounds.getWidth() / cellSize) + 1;
+      this.rows = bounds.isNull() ? 1 : (int) (bounds.getHeight() / cellSize) + 1;
+
+      // counting sort by cell: count items per cell, then compute offsets, then fill
+      cellStarts = new int[cols * rows + 1];
+      for (Envelope env : envelopes) {
+        for (int cell : cellsIntersecting(env)) {
+          cellStarts[cell + 1]++;
+        }
+      }
+      for (int i = 1; i < cellStarts.length; i++) {
+        cellStarts[i] += cellStarts[i - 1];
+      }
+      items = new int[cellStarts[cellStarts.length - 1]];
+      int[] next = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+      for (int i = 0; i < envelopes.length; i++) {
+        for (int cell : cellsIntersecting(envelopes[i])) {
+          items[next[cell]++] = i;
+        }
+      }
+    }
+
+    private int col(double x) {
+      return (int) Math.clamp((x - minX) / cellSize, 0, cols - 1L);
+    }
+
+    private int row(double y) {
+      return (int) Math.clamp((y - minY) / cellSize, 0, rows - 1L);
+    }
+
+    /** Returns the IDs of all cells intersecting {@code env}. */
+    int[] cellsIntersecting(Envelope env) {
+      int minCol = col(env.getMinX());
+      int maxCol = col(env.getMaxX());
+      int minRow = row(env.getMinY());
+      int maxRow = row(env.getMaxY());
+      int[] result = new int[(maxCol - minCol + 1) * (maxRow - minRow + 1)];
+      int idx = 0;
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          result[idx++] = row * cols + col;
+        }
+      }
+      return result;
+    }
+
+    int cellStart(int cell) {
+      return cellStarts[cell];
+    }
+
+    int cellEnd(int cell) {
+      return cellStarts[cell + 1];
+    }
+
+    int item(int i) {
+      return items[i];
+    }
+  }
+
   private static void addAdjacencyEntry(IntObjectMap<IntArrayList> result, int from, int to) {
     IntArrayList ilist = result.get(from);
     if (ilist == null) {
@@ -4,19 +4,25 @@ import static com.onthegomap.planetiler.util.MutableCollections.makeMutable;
 
 import com.onthegomap.planetiler.config.PlanetilerConfig;
 import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.expression.MultiExpression;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.geo.TileCoord;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.reader.osm.OsmElement;
 import com.onthegomap.planetiler.reader.osm.OsmRelationInfo;
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
 import com.onthegomap.planetiler.util.MutableCollections;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 /**
  * A framework for building complex {@link Profile Profiles} that need to be broken apart into multiple handlers (i.e.
@@ -52,8 +58,18 @@ public abstract class ForwardingProfile implements Profile {
   private final List<MultiExpression.Entry<FeatureProcessor>> sourceElementProcessors = new CopyOnWriteArrayList<>();
   private final List<String> onlyLayers;
   private final List<String> excludeLayers;
+  /** True if a subclass overrides post-processing directly instead of only registering post-processors. */
+  private final boolean overridesPostProcessLayer =
+    overrides("postProcessLayerFeatures", String.class, int.class, List.class);
+  private final boolean overridesPostProcessTile = overrides("postProcessTileFeatures", TileCoord.class, Map.class);
+  /** True if a subclass handles features directly, which registered feature processors can't describe. */
+  private final boolean overridesProcessFeature =
+    overrides("processFeature", SourceFeature.class, FeatureCollector.class);
   @SuppressWarnings("java:S3077")
   private volatile MultiExpression.Index<FeatureProcessor> indexedSourceElementProcessors = null;
+  /** Time spent in each handler, or null if {@link #trackHandlerTimings(Stats)} has not been called. */
+  @SuppressWarnings("java:S3077")
+  private volatile HandlerTimings handlerTimings = null;
 
   protected ForwardingProfile(PlanetilerConfig config) {
     onlyLayers = config.arguments().getList("only_layers", "Include only certain layers", List.of());
@@ -210,6 +226,20 @@ public abstract class ForwardingProfile implements Profile {
     return result;
   }
 
+  /**
+   * Start tracking the time spent in each {@link FeatureProcessor} and {@link LayerPostProcessor}, and expose the
+   * totals through {@code stats} to see which handlers dominate processing time.
+   */
+  public void trackHandlerTimings(Stats stats) {
+    HandlerTimings timings = new HandlerTimings();
+    synchronized (sourceElementProcessors) {
+      handlerTimings = timings;
+      indexedSourceElementProcessors = null;
+    }
+    stats.counter("profile_handler_process_time_millis", "handler", () -> HandlerTimings.millis(timings.process));
+    stats.counter("profile_layer_postprocess_time_millis", "layer", () -> HandlerTimings.millis(timings.postProcess));
+  }
+
   @Override
   public void processFeature(SourceFeature sourceFeature, FeatureCollector features) {
     // delegate source feature processing to each handler for that source
@@ -224,7 +254,15 @@ public abstract class ForwardingProfile implements Profile {
       synchronized (sourceElementProcessors) {
         result = indexedSourceElementProcessors;
         if (result == null) {
-          indexedSourceElementProcessors = result = MultiExpression.of(sourceElementProcessors).index();
+          List<MultiExpression.Entry<FeatureProcessor>> entries = sourceElementProcessors;
+          HandlerTimings timings = handlerTimings;
+          if (timings != null) {
+            // wrap handlers when building the index so there is no overhead when not tracking timings
+            entries = entries.stream()
+              .map(entry -> MultiExpression.entry(timings.timed(entry.result()), entry.expression()))
+              .toList();
+          }
+          indexedSourceElementProcessors = result = MultiExpression.of(entries).index();
         }
       }
     }
@@ -243,6 +281,21 @@ public abstract class ForwardingProfile implements Profile {
       .simplify() != Expression.FALSE);
   }
 
+  /**
+   * Returns a filter on the tags that could match any {@link FeatureProcessor} registered for elements with
+   * {@code input} attributes, or {@link InterestFilter#ALL} if a subclass overrides
+   * {@link #processFeature(SourceFeature, FeatureCollector)}.
+   */
+  @Override
+  public InterestFilter interestFilter(Expression.PartialInput input) {
+    if (overridesProcessFeature) {
+      return InterestFilter.ALL;
+    }
+    return MultiExpression.of(List.copyOf(sourceElementProcessors))
+      .map(expression -> expression.partialEvaluate(input))
+      .interestFilter();
+  }
+
   @Override
   public List<VectorTile.Feature> postProcessLayerFeatures(String layer, int zoom, List<VectorTile.Feature> items)
     throws GeometryException {
@@ -250,10 +303,18 @@ public abstract class ForwardingProfile implements Profile {
     List<LayerPostProcessor> postProcessers = layerPostProcessors.get(layer);
     List<VectorTile.Feature> result = makeMutable(items);
     if (postProcessers != null) {
-      for (var handler : postProcessers) {
-        var thisResult = handler.postProcess(zoom, result);
-        if (thisResult != null && result != thisResult) {
-          result = makeMutable(thisResult);
+      HandlerTimings timings = handlerTimings;
+      long start = timings == null ? 0 : System.nanoTime();
+      try {
+        for (var handler : postProcessers) {
+          var thisResult = handler.postProcess(zoom, result);
+          if (thisResult != null && result != thisResult) {
+            result = makeMutable(thisResult);
+          }
+        }
+      } finally {
+        if (timings != null) {
+          timings.counter(timings.postProcess, layer).incBy(System.nanoTime() - start);
         }
       }
     }
@@ -274,6 +335,33 @@ public abstract class ForwardingProfile implements Profile {
     return result;
   }
 
+  /**
+   * Returns true if any {@link LayerPostProcessor} is registered for {@code layer}, or a subclass overrides
+   * {@link #postProcessLayerFeatures(String, int, List)}.
+   */
+  @Override
+  public boolean postProcessesLayer(String layer) {
+    return overridesPostProcessLayer || layerPostProcessors.containsKey(layer);
+  }
+
+  /**
+   * Returns true if any {@link TilePostProcessor} is registered, or a subclass overrides
+   * {@link #postProcessTileFeatures(TileCoord, Map)}.
+   */
+  @Override
+  public boolean postProcessesTiles() {
+    return overridesPostProcessTile || !tilePostProcessors.isEmpty();
+  }
+
+  private boolean overrides(String method, Class<?>... parameterTypes) {
+    try {
+      return getClass().getMethod(method, parameterTypes).getDeclaringClass() != ForwardingProfile.class;
+    } catch (NoSuchMethodException e) {
+      // assume the worst so post-processing never gets skipped
+      return true;
+    }
+  }
+
   @Override
   public void finish(String sourceName, FeatureCollector.Factory featureCollectors,
     Consumer<FeatureCollector.Feature> next) {
@@ -289,6 +377,51 @@ public abstract class ForwardingProfile implements Profile {
     handlers.forEach(Handler::release);
   }
 
+  /** Nanoseconds spent in each handler, grouped by layer name for handlers that implement {@link HandlerForLayer}. */
+  private static class HandlerTimings {
+    private final Map<String, Counter.MultiThreadCounter> process = new ConcurrentHashMap<>();
+    private final Map<String, Counter.MultiThreadCounter> postProcess = new ConcurrentHashMap<>();
+
+    private static Map<String, LongSupplier> millis(Map<String, Counter.MultiThreadCounter> counters) {
+      Map<String, LongSupplier> result = new TreeMap<>();
+      counters.forEach((name, counter) -> result.put(name, () -> counter.get() / 1_000_000));
+      return result;
+    }
+
+    private Counter.MultiThreadCounter counter(Map<String, Counter.MultiThreadCounter> counters, String name) {
+      return counters.computeIfAbsent(name, n -> Counter.newMultiThreadCounter());
+    }
+
+    private FeatureProcessor timed(FeatureProcessor handler) {
+      var nanos = counter(process, handlerName(handler));
+      return new FeatureProcessor() {
+        @Override
+        public void processFeature(SourceFeature sourceFeature, FeatureCollector features) {
+          long start = System.nanoTime();
+          try {
+            handler.processFeature(sourceFeature, features);
+          } finally {
+            nanos.incBy(System.nanoTime() - start);
+          }
+        }
+
+        @Override
+        public Expression filter() {
+          return handler.filter();
+        }
+      };
+    }
+
+    private static String handlerName(Handler handler) {
+      if (handler instanceof HandlerForLayer forLayer) {
+        return forLayer.name();
+      }
+      String name = handler.getClass().getSimpleName();
+      int lambda = name.indexOf("$$Lambda");
+      return lambda > 0 ? name.substring(0, lambda) : name;
+    }
+  }
+
   /** Interface for handlers that this profile forwards to should implement. */
   public interface Handler {
 
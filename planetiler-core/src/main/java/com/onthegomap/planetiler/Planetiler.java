@@ -14,6 +14,7 @@ import com.onthegomap.planetiler.reader.GeoPackageReader;
 import com.onthegomap.planetiler.reader.NaturalEarthReader;
 import com.onthegomap.planetiler.reader.ShapefileReader;
 import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.reader.flatgeobuf.FlatGeobufReader;
 import com.onthegomap.planetiler.reader.geojson.GeoJsonReader;
 import com.onthegomap.planetiler.reader.osm.OsmInputFile;
 import com.onthegomap.planetiler.reader.osm.OsmNodeBoundsProvider;
@@ -135,6 +136,7 @@ public class Planetiler {
     if (config.color() != null) {
       AnsiColors.setUseColors(config.color());
     }
+    FeatureMerge.setParallelMinFeatures(config.mergeParallelMinFeatures());
     tmpDir = config.tmpDir();
     onlyDownloadSources = arguments.getBoolean("only_download", "download source data then exit", false);
     onlyRunTests = arguments.file("tests", "run test cases in a yaml then quit", null);
@@ -445,6 +447,43 @@ public class Planetiler {
     return addGeoPackageSource(null, name, defaultPath, defaultUrl);
   }
 
+  /**
+   * Adds a new <a href="https://flatgeobuf.org/">FlatGeobuf</a> source that will be processed when {@link #run()} is
+   * called.
+   * <p>
+   * If the file does not exist and {@code download=true} argument is set, then the file will first be downloaded from
+   * {@code defaultUrl}.
+   * <p>
+   * To override the location of the {@code flatgeobuf} file, set {@code name_path=newpath.fgb} in the arguments and to
+   * override the download URL set {@code name_url=http://url/of/file.fgb}.
+   *
+   * @param projection  the Coordinate Reference System authority code to use, parsed with
+   *                    {@link org.geotools.referencing.CRS#decode(String)}, or null to use the one from the file
+   * @param name        string to use in stats and logs to identify this stage
+   * @param defaultPath path to the input file to use if {@code name_path} key is not set through arguments
+   * @param defaultUrl  remote URL that the file to download if {@code download=true} argument is set and
+   *                    {@code name_url} argument is not set
+   * @return this runner instance for chaining
+   * @see FlatGeobufReader
+   * @see Downloader
+   */
+  public Planetiler addFlatGeobufSource(String projection, String name, Path defaultPath, String defaultUrl) {
+    Path path = getPath(name, "flatgeobuf", defaultPath, defaultUrl);
+    return addStage(name, "Process features in " + path,
+      ifSourceUsed(name,
+        () -> FlatGeobufReader.process(projection, name, List.of(path), featureGroup, config, profile, stats)));
+  }
+
+  /**
+   * Adds a new <a href="https://flatgeobuf.org/">FlatGeobuf</a> source that will be processed when {@link #run()} is
+   * called, using the coordinate reference system from the file.
+   *
+   * @see #addFlatGeobufSource(String, String, Path, String)
+   */
+  public Planetiler addFlatGeobufSource(String name, Path defaultPath, String defaultUrl) {
+    return addFlatGeobufSource(null, name, defaultPath, defaultUrl);
+  }
+
   /**
    * Adds a new GeoJSON or newline-delimited GeoJSON source that will be processed when {@link #run()} is called.
    * <p>
@@ -940,6 +979,9 @@ public class Planetiler {
     }
     // must construct this after bounds providers are added in order to infer bounds from the input source if not provided
     tileArchiveMetadata = new TileArchiveMetadata(profile, config);
+    if (config.profileHandlerTimings() && profile instanceof ForwardingProfile forwardingProfile) {
+      forwardingProfile.trackHandlerTimings(stats);
+    }
 
     try (WriteableTileArchive archive = TileArchives.newWriter(output, config)) {
       featureGroup =
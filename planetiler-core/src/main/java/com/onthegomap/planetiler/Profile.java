@@ -1,6 +1,7 @@
 package com.onthegomap.planetiler;
 
 import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.geo.TileCoord;
 import com.onthegomap.planetiler.mbtiles.Mbtiles;
@@ -10,6 +11,7 @@ import com.onthegomap.planetiler.reader.osm.OsmRelationInfo;
 import com.onthegomap.planetiler.util.Wikidata;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 /**
@@ -150,6 +152,28 @@ public interface Profile extends FeatureProcessor<SourceFeature> {
     return layers;
   }
 
+  /**
+   * Returns false if {@link #postProcessLayerFeatures(String, int, List)} passes features in {@code layer} through
+   * unaltered, so that they can go straight from intermediate storage into the output tile without decoding each one
+   * into a {@link VectorTile.Feature}.
+   * <p>
+   * The default implementation returns true, so profiles that override this must also override it to return true for
+   * layers that they post-process.
+   */
+  default boolean postProcessesLayer(String layer) {
+    return true;
+  }
+
+  /**
+   * Returns false if {@link #postProcessTileFeatures(TileCoord, Map)} passes layers through unaltered so that they can
+   * skip decoding into {@link VectorTile.Feature VectorTile.Features}.
+   *
+   * @see #postProcessesLayer(String)
+   */
+  default boolean postProcessesTiles() {
+    return true;
+  }
+
   /**
    * Returns the name of the generated tileset to put into {@link Mbtiles} metadata
    *
@@ -270,6 +294,29 @@ public interface Profile extends FeatureProcessor<SourceFeature> {
     return true;
   }
 
+  /**
+   * Returns a filter on the tags of elements where {@linkplain Expression.PartialInput partial attributes} are known
+   * ahead of time that readers use to drop elements this profile ignores before constructing a {@link SourceFeature}.
+   * <p>
+   * The default implementation accepts every element. Implementations must only reject elements that
+   * {@link #processFeature(SourceFeature, FeatureCollector)} would not emit any features for.
+   */
+  default InterestFilter interestFilter(Expression.PartialInput input) {
+    return InterestFilter.ALL;
+  }
+
+  /**
+   * Returns every tag that {@link #processFeature(SourceFeature, FeatureCollector)} could read from elements where
+   * {@linkplain Expression.PartialInput partial attributes} are known ahead of time, or {@code null} if it might read
+   * any of them.
+   * <p>
+   * Readers of columnar inputs like geoparquet use this to only decode the columns in this set, so it must include tags
+   * that {@link #interestFilter(Expression.PartialInput)} depends on. The default implementation returns {@code null}.
+   */
+  default Set<String> usedTags(Expression.PartialInput input) {
+    return null;
+  }
+
   /**
    * A default implementation of {@link Profile} that emits no output elements.
    */
@@ -531,6 +531,14 @@ public class VectorTile {
     return this;
   }
 
+  /**
+   * Returns an encoder that adds features to {@code layerName} in this tile from their attributes and geometry, for
+   * callers that already have those decoded and want to avoid constructing a {@link Feature} for each one.
+   */
+  public LayerEncoder layerEncoder(String layerName) {
+    return new LayerEncoder(layerName);
+  }
+
   /**
    * Alias for {@link #toProto(boolean)} where {@code includeIds=true}
    */
@@ -1316,6 +1324,61 @@ public class VectorTile {
     }
   }
 
+  /** Adds features to a layer of this tile one attribute at a time. Create with {@link #layerEncoder(String)}. */
+  @NotThreadSafe
+  public final class LayerEncoder {
+
+    private final String layerName;
+    private final LayerAttrStats.Updater.ForZoom.ForLayer statsTracker;
+    private Layer layer = null;
+    // attributes of the next feature, only added to the layer once we know the feature has a geometry
+    private String[] keys = new String[8];
+    private Object[] values = new Object[8];
+    private int numAttrs = 0;
+
+    private LayerEncoder(String layerName) {
+      this.layerName = layerName;
+      this.statsTracker = layerStatsTracker.forLayer(layerName);
+    }
+
+    /** Sets an attribute on the next feature added with {@link #addFeature(long, VectorGeometry)}. */
+    public LayerEncoder addAttr(String key, Object value) {
+      // skip attribute without value
+      if (value != null) {
+        if (numAttrs == keys.length) {
+          keys = Arrays.copyOf(keys, numAttrs * 2);
+          values = Arrays.copyOf(values, numAttrs * 2);
+        }
+        keys[numAttrs] = key;
+        values[numAttrs] = value;
+        numAttrs++;
+      }
+      return this;
+    }
+
+    /**
+     * Adds a feature with the attributes set since the last feature was added, or discards them if {@code geometry} is
+     * empty.
+     */
+    public void addFeature(long id, VectorGeometry geometry) {
+      if (geometry.commands().length > 0) {
+        if (layer == null) {
+          layer = layers.computeIfAbsent(layerName, name -> new Layer());
+        }
+        IntArrayList tags = new IntArrayList(numAttrs * 2);
+        for (int i = 0; i < numAttrs; i++) {
+          tags.add(layer.key(keys[i]));
+          tags.add(layer.value(values[i]));
+          statsTracker.accept(keys[i], values[i]);
+        }
+        layer.encodedFeatures.add(new EncodedFeature(tags, id, geometry));
+      }
+      Arrays.fill(keys, 0, numAttrs, null);
+      Arrays.fill(values, 0, numAttrs, null);
+      numAttrs = 0;
+    }
+  }
+
   private record EncodedFeature(IntArrayList tags, long id, VectorGeometry geometry) {
 
     EncodedFeature(Feature in) {
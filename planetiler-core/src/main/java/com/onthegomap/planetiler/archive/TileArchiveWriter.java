@@ -169,8 +169,11 @@ public class TileArchiveWriter {
     output.initialize();
 
     // the tile writer will wait on the result of each batch to ensure tiles are written in order
-    WorkerPipeline<TileBatch> writeBranch = pipeline.readFromQueue(writerQueue)
-      .sinkTo("write", tileWriteThreads, writer::tileWriter);
+    // writers that block on I/O for each tile can use many more virtual threads than there are cores
+    var writeBuilder = pipeline.readFromQueue(writerQueue);
+    WorkerPipeline<TileBatch> writeBranch = config.virtualWriteThreads() && output.ioBound() ?
+      writeBuilder.sinkToVirtualThreads("write", tileWriteThreads, writer::tileWriter) :
+      writeBuilder.sinkTo("write", tileWriteThreads, writer::tileWriter);
 
     WorkerPipeline<TileBatch> layerStatsBranch = null;
 
@@ -26,6 +26,14 @@ public interface WriteableTileArchive extends Closeable {
    */
   TileOrder tileOrder();
 
+  /**
+   * Returns true if {@link TileWriter} spends most of its time blocked on I/O, for example writing each tile to a
+   * separate file, so tile writer threads can be cheap virtual threads instead of platform threads.
+   */
+  default boolean ioBound() {
+    return false;
+  }
+
   /**
    * Called before any tiles are written into {@link TileWriter}. Implementations of TileArchive should set up any
    * required state here.
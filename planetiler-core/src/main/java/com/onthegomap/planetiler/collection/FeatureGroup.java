@@ -25,20 +25,22 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import net.jcip.annotations.NotThreadSafe;
 import org.msgpack.core.MessageBufferPacker;
 import org.msgpack.core.MessagePack;
 import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.Value;
-import org.msgpack.value.ValueFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +60,7 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
   public static final int SORT_KEY_MIN = -(1 << (SORT_KEY_BITS - 1));
   private static final int SORT_KEY_MASK = (1 << SORT_KEY_BITS) - 1;
   private static final int TILE_ID_BITS = 33;
+  private static final byte FILL_RUN_MARKER = MessagePack.Code.NIL;
   private static final Logger LOGGER = LoggerFactory.getLogger(FeatureGroup.class);
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
   private final FeatureSort sorter;
@@ -133,12 +136,8 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
     } catch (IOException e) {
       throw new UncheckedIOException("Unable to load string encoders from " + path, e);
     }
-    for (var layerString : payload.layerStrings()) {
-      commonLayerStrings.encode(layerString);
-    }
-    for (var valueString : payload.valueStrings()) {
-      commonValueStrings.encode(valueString);
-    }
+    commonLayerStrings.restore(payload.layerStrings());
+    commonValueStrings.restore(payload.valueStrings());
   }
 
   /**
@@ -233,6 +232,20 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
       // FeatureRenderer ensures that a separate VectorTileEncoder.Feature is used for each zoom level
       private VectorTile.Feature lastFeature = null;
       private byte[] lastEncodedValue = null;
+      // 3) Avoid re-encoding attributes for each tile that a feature is sliced into by memoizing the encoded attributes
+      // FeatureRenderer uses the same attribute map for every tile of a feature at a zoom level
+      private final MessageBufferPacker attrPacker = MessagePack.newDefaultBufferPacker();
+      private final CommonStringEncoder.ForThread keyIds = commonValueStrings.forThread();
+      private Map<String, Object> lastAttrs = null;
+      private byte[] lastEncodedAttrs = null;
+
+      private byte[] encodeAttrs(Map<String, Object> attrs) {
+        if (attrs != lastAttrs) {
+          lastAttrs = attrs;
+          lastEncodedAttrs = FeatureGroup.this.encodeAttrs(attrs, keyIds, attrPacker);
+        }
+        return lastEncodedAttrs;
+      }
 
       @Override
       public SortableFeature apply(RenderedFeature feature) {
@@ -240,12 +253,16 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
         var thisFeature = feature.vectorTileFeature();
         byte[] encodedValue;
         if (group != null) { // don't bother memoizing if group is present
-          encodedValue = encodeValue(thisFeature, group, packer);
+          encodedValue = encodeValue(thisFeature, group, encodeAttrs(thisFeature.tags()), packer);
         } else if (lastFeature == thisFeature) {
           encodedValue = lastEncodedValue;
         } else { // feature changed, memoize new value
           lastFeature = thisFeature;
-          lastEncodedValue = encodedValue = encodeValue(feature.vectorTileFeature(), null, packer);
+          lastEncodedValue = encodedValue = encodeValue(thisFeature, null, encodeAttrs(thisFeature.tags()), packer);
+        }
+
+        if (feature.fillRun().isPresent()) {
+          encodedValue = encodeFillRun(feature.fillRun().get(), encodedValue, packer);
         }
 
         return new SortableFeature(encodeKey(feature), encodedValue);
@@ -254,6 +271,7 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
       @Override
       public void close() throws IOException {
         packer.close();
+        attrPacker.close();
       }
     };
   }
@@ -270,7 +288,40 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
     );
   }
 
-  private byte[] encodeValue(VectorTile.Feature vectorTileFeature, RenderedFeature.Group group,
+  /**
+   * Prefixes an encoded feature with a marker and the last tile ID of the run it should be repeated in.
+   * <p>
+   * Encoded features without a fill run always start with an integer (group or ID), so a leading msgpack nil
+   * unambiguously identifies a fill run.
+   */
+  private byte[] encodeFillRun(RenderedFeature.FillRun fillRun, byte[] encodedValue, MessageBufferPacker packer) {
+    packer.clear();
+    try {
+      packer.packNil();
+      packer.packLong(tileOrder.encode(fillRun.lastTile()));
+      packer.writePayload(encodedValue);
+      packer.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return packer.toByteArray();
+  }
+
+  static boolean isFillRun(byte[] encoded) {
+    return encoded.length > 0 && encoded[0] == FILL_RUN_MARKER;
+  }
+
+  /**
+   * Returns true if rendered features can contain a {@link RenderedFeature#fillRun()} to store a column of filled tiles
+   * as a single record.
+   * <p>
+   * Only supported for {@link TileOrder#TMS} where each column of tiles has consecutive tile IDs.
+   */
+  public boolean supportsFillRuns() {
+    return tileOrder == TileOrder.TMS;
+  }
+
+  private byte[] encodeValue(VectorTile.Feature vectorTileFeature, RenderedFeature.Group group, byte[] encodedAttrs,
     MessageBufferPacker packer) {
     packer.clear();
     try {
@@ -281,23 +332,7 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
       }
       packer.packLong(vectorTileFeature.id());
       packer.packByte(encodeGeomTypeAndScale(vectorTileFeature.geometry()));
-      var attrs = vectorTileFeature.tags();
-      packer.packMapHeader((int) attrs.values().stream().filter(Objects::nonNull).count());
-      for (Map.Entry<String, Object> entry : attrs.entrySet()) {
-        Object value = entry.getValue();
-        if (value != null) {
-          packer.packInt(commonValueStrings.encode(entry.getKey()));
-          packer.packValue(switch (value) {
-            case String string -> ValueFactory.newString(string);
-            case Integer integer -> ValueFactory.newInteger(integer.longValue());
-            case Long longValue -> ValueFactory.newInteger(longValue);
-            case Float floatValue -> ValueFactory.newFloat(floatValue);
-            case Double doubleValue -> ValueFactory.newFloat(doubleValue);
-            case Boolean booleanValue -> ValueFactory.newBoolean(booleanValue);
-            case Object other -> ValueFactory.newString(other.toString());
-          });
-        }
-      }
+      packer.writePayload(encodedAttrs);
       // Use the same binary format for encoding geometries in output vector tiles. Benchmarking showed
       // it was faster and smaller for encoding/decoding intermediate geometries than alternatives like WKB.
       int[] commands = vectorTileFeature.geometry().commands();
@@ -312,6 +347,43 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
     return packer.toByteArray();
   }
 
+  /**
+   * Packs attribute keys as IDs from {@link #commonValueStrings} followed by each value straight into {@code packer}
+   * without boxing them into intermediate msgpack {@link Value Values}.
+   */
+  private static byte[] encodeAttrs(Map<String, Object> attrs, CommonStringEncoder.ForThread keyIds,
+    MessageBufferPacker packer) {
+    packer.clear();
+    try {
+      int size = 0;
+      for (Object value : attrs.values()) {
+        if (value != null) {
+          size++;
+        }
+      }
+      packer.packMapHeader(size);
+      for (Map.Entry<String, Object> entry : attrs.entrySet()) {
+        Object value = entry.getValue();
+        if (value != null) {
+          packer.packInt(keyIds.encode(entry.getKey()));
+          switch (value) {
+            case String string -> packer.packString(string);
+            case Integer integer -> packer.packLong(integer);
+            case Long longValue -> packer.packLong(longValue);
+            case Float floatValue -> packer.packDouble(floatValue);
+            case Double doubleValue -> packer.packDouble(doubleValue);
+            case Boolean booleanValue -> packer.packBoolean(booleanValue);
+            case Object other -> packer.packString(other.toString());
+          }
+        }
+      }
+      packer.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return packer.toByteArray();
+  }
+
   /** Returns a new feature writer that can be used for a single thread. */
   public CloseableConsumer<SortableFeature> writerForThread() {
     return sorter.writerForThread();
@@ -344,39 +416,99 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
 
     /*
      * Features from sorter are ordered by tile, so iterate through features as long as
-     * they are in the same tile and return that group.
+     * they are in the same tile and return that group. Fill runs are stored once at their
+     * first tile, so also keep track of the ones in progress and expand them into each
+     * tile they cover, including tiles that have no other features.
      */
     SortableFeature firstFeature = entries.next();
     return new Iterator<>() {
       private SortableFeature lastFeature = firstFeature;
       private long lastTileId = extractTileFromKey(firstFeature.key());
+      private final PriorityQueue<FillRunIterator> fillRuns =
+        new PriorityQueue<>(Comparator.comparingLong(FillRunIterator::nextTile));
 
       @Override
       public boolean hasNext() {
-        return lastFeature != null;
+        return lastFeature != null || !fillRuns.isEmpty();
       }
 
       @Override
       public TileFeatures next() {
-        TileFeatures result = new TileFeatures(lastTileId);
-        result.add(lastFeature);
-        long lastTile = lastTileId;
-
-        while (entries.hasNext()) {
-          SortableFeature next = entries.next();
-          lastFeature = next;
-          lastTileId = extractTileFromKey(lastFeature.key());
-          if (lastTile != lastTileId) {
-            return result;
+        long tile = lastFeature == null ? fillRuns.element().nextTile() :
+          fillRuns.isEmpty() ? lastTileId : Math.min(lastTileId, fillRuns.element().nextTile());
+        TileFeatures result = new TileFeatures(tile);
+
+        while (lastFeature != null && lastTileId == tile) {
+          if (isFillRun(lastFeature.value())) {
+            fillRuns.add(new FillRunIterator(lastFeature));
+            result.numFeaturesProcessed.incrementAndGet();
+          } else {
+            result.add(lastFeature);
+          }
+          if (entries.hasNext()) {
+            lastFeature = entries.next();
+            lastTileId = extractTileFromKey(lastFeature.key());
+          } else {
+            lastFeature = null;
+          }
+        }
+
+        boolean addedFromFillRun = false;
+        while (!fillRuns.isEmpty() && fillRuns.element().nextTile() == tile) {
+          FillRunIterator fillRun = fillRuns.remove();
+          result.entries.add(fillRun.next());
+          addedFromFillRun = true;
+          if (fillRun.hasNext()) {
+            fillRuns.add(fillRun);
           }
-          result.add(next);
         }
-        lastFeature = null;
+        if (addedFromFillRun) {
+          // restore the same order features would have had if each tile in the run was stored separately
+          result.entries.sort(Comparator.naturalOrder());
+        }
         return result;
       }
     };
   }
 
+  /** Expands a fill run record into a copy of the feature it contains for each tile in the run. */
+  private static class FillRunIterator implements Iterator<SortableFeature> {
+
+    private final long keyWithoutTile;
+    private final long lastTile;
+    private final byte[] value;
+    private long nextTile;
+
+    FillRunIterator(SortableFeature fillRun) {
+      try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(fillRun.value())) {
+        unpacker.unpackNil();
+        lastTile = unpacker.unpackLong();
+        value = Arrays.copyOfRange(fillRun.value(), (int) unpacker.getTotalReadBytes(), fillRun.value().length);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      nextTile = extractTileFromKey(fillRun.key());
+      keyWithoutTile = fillRun.key() & (-1L >>> TILE_ID_BITS);
+    }
+
+    long nextTile() {
+      return nextTile;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextTile <= lastTile;
+    }
+
+    @Override
+    public SortableFeature next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return new SortableFeature((nextTile++ << (64 - TILE_ID_BITS)) | keyWithoutTile, value);
+    }
+  }
+
   @Override
   public long diskUsageBytes() {
     return sorter.diskUsageBytes();
@@ -420,18 +552,11 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
     }
 
     private static void unscaleAndRemovePointsOutsideBuffer(List<VectorTile.Feature> features, double maxPointBuffer) {
-      boolean checkPoints = maxPointBuffer <= 256 && maxPointBuffer >= -128;
       for (int i = 0; i < features.size(); i++) {
         var feature = features.get(i);
         if (feature != null) {
-          VectorTile.VectorGeometry geometry = feature.geometry();
-          var orig = geometry;
-          if (geometry.scale() != 0) {
-            geometry = geometry.unscale();
-          }
-          if (checkPoints && geometry.geomType() == GeometryType.POINT && !geometry.isEmpty()) {
-            geometry = geometry.filterPointsOutsideBuffer(maxPointBuffer);
-          }
+          VectorTile.VectorGeometry orig = feature.geometry();
+          var geometry = unscaleAndRemovePointsOutsideBuffer(orig, maxPointBuffer);
           if (geometry.isEmpty()) {
             features.set(i, null);
           } else if (geometry != orig) {
@@ -441,6 +566,18 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
       }
     }
 
+    private static VectorTile.VectorGeometry unscaleAndRemovePointsOutsideBuffer(VectorTile.VectorGeometry geometry,
+      double maxPointBuffer) {
+      boolean checkPoints = maxPointBuffer <= 256 && maxPointBuffer >= -128;
+      if (geometry.scale() != 0) {
+        geometry = geometry.unscale();
+      }
+      if (checkPoints && geometry.geomType() == GeometryType.POINT && !geometry.isEmpty()) {
+        geometry = geometry.filterPointsOutsideBuffer(maxPointBuffer);
+      }
+      return geometry;
+    }
+
     /** Returns the number of features read including features discarded from being over the limit in a group. */
     public long getNumFeaturesProcessed() {
       return numFeaturesProcessed.get();
@@ -495,22 +632,12 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
         Map<String, Object> attrs = HashMap.newHashMap(mapSize);
         for (int i = 0; i < mapSize; i++) {
           String key = commonValueStrings.decode(unpacker.unpackInt());
-          Value v = unpacker.unpackValue();
-          if (v.isStringValue()) {
-            attrs.put(key, v.asStringValue().asString());
-          } else if (v.isIntegerValue()) {
-            attrs.put(key, v.asIntegerValue().toLong());
-          } else if (v.isFloatValue()) {
-            attrs.put(key, v.asFloatValue().toDouble());
-          } else if (v.isBooleanValue()) {
-            attrs.put(key, v.asBooleanValue().getBoolean());
+          Object value = unpackAttrValue(unpacker);
+          if (value != null) {
+            attrs.put(key, value);
           }
         }
-        int commandSize = unpacker.unpackArrayHeader();
-        int[] commands = new int[commandSize];
-        for (int i = 0; i < commandSize; i++) {
-          commands[i] = unpacker.unpackInt();
-        }
+        int[] commands = unpackCommands(unpacker);
         String layer = commonLayerStrings.decode(extractLayerIdFromKey(entry.key()));
         return new VectorTile.Feature(
           layer,
@@ -524,6 +651,53 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
       }
     }
 
+    /**
+     * Adds a feature straight from its encoded bytes to {@code encoder} without decoding it into a
+     * {@link VectorTile.Feature}, for layers that the profile does not post-process.
+     */
+    private void encodeDirectly(VectorTile.LayerEncoder encoder, SortableFeature entry) {
+      try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(entry.value())) {
+        if (extractHasGroupFromKey(entry.key())) {
+          unpacker.unpackLong(); // group
+          unpacker.unpackInt(); // groupLimit - features over the limit were already discarded
+        }
+        long id = unpacker.unpackLong();
+        byte geomTypeAndScale = unpacker.unpackByte();
+        int mapSize = unpacker.unpackMapHeader();
+        for (int i = 0; i < mapSize; i++) {
+          String key = commonValueStrings.decode(unpacker.unpackInt());
+          encoder.addAttr(key, unpackAttrValue(unpacker));
+        }
+        var geometry = new VectorTile.VectorGeometry(unpackCommands(unpacker), decodeGeomType(geomTypeAndScale),
+          decodeScale(geomTypeAndScale));
+        encoder.addFeature(id, unscaleAndRemovePointsOutsideBuffer(geometry, config.maxPointBuffer()));
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private static Object unpackAttrValue(MessageUnpacker unpacker) throws IOException {
+      return switch (unpacker.getNextFormat().getValueType()) {
+        case STRING -> unpacker.unpackString();
+        case INTEGER -> unpacker.unpackLong();
+        case FLOAT -> unpacker.unpackDouble();
+        case BOOLEAN -> unpacker.unpackBoolean();
+        default -> {
+          unpacker.skipValue();
+          yield null;
+        }
+      };
+    }
+
+    private static int[] unpackCommands(MessageUnpacker unpacker) throws IOException {
+      int commandSize = unpacker.unpackArrayHeader();
+      int[] commands = new int[commandSize];
+      for (int i = 0; i < commandSize; i++) {
+        commands[i] = unpacker.unpackInt();
+      }
+      return commands;
+    }
+
     public VectorTile getVectorTile() {
       return getVectorTile(null);
     }
@@ -537,23 +711,31 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
         if (layerStats != null) {
           tile.trackLayerStats(layerStats.forZoom(tileCoord.z()));
         }
-        List<VectorTile.Feature> items = new ArrayList<>();
-        String currentLayer = null;
+        List<VectorTile.Feature> items = null;
+        VectorTile.LayerEncoder passthrough = null;
+        int currentLayer = Integer.MIN_VALUE;
+        boolean postProcessesTiles = profile.postProcessesTiles();
         Map<String, List<VectorTile.Feature>> layerFeatures = new TreeMap<>();
         for (SortableFeature entry : entries) {
-          var feature = decodeVectorTileFeature(entry);
-          String layer = feature.layer();
-
-          if (currentLayer == null) {
-            currentLayer = layer;
-            layerFeatures.put(currentLayer, items);
-          } else if (!currentLayer.equals(layer)) {
-            currentLayer = layer;
-            items = new ArrayList<>();
-            layerFeatures.put(layer, items);
+          byte layerId = extractLayerIdFromKey(entry.key());
+          if (layerId != currentLayer) {
+            currentLayer = layerId;
+            String layer = commonLayerStrings.decode(layerId);
+            if (!postProcessesTiles && !profile.postProcessesLayer(layer)) {
+              // the profile passes these features through unaltered, so skip materializing them
+              passthrough = tile.layerEncoder(layer);
+            } else {
+              passthrough = null;
+              items = new ArrayList<>();
+              layerFeatures.put(layer, items);
+            }
           }
 
-          items.add(feature);
+          if (passthrough != null) {
+            encodeDirectly(passthrough, entry);
+          } else {
+            items.add(decodeVectorTileFeature(entry));
+          }
         }
         // first post-process entire tile by invoking postProcessTileFeatures to allow for post-processing that combines
         // features across different layers, infers new layers, or removes layers
@@ -567,8 +749,15 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
           handlePostProcessFailure(e, "entire tile");
         }
         // then let profiles post-process each layer in isolation with postProcessLayerFeatures
-        for (var entry : layerFeatures.entrySet()) {
-          postProcessAndAddLayerFeatures(tile, entry.getKey(), entry.getValue());
+        if (shouldPostProcessLayersInParallel(layerFeatures)) {
+          postProcessLayersInParallel(tile, layerFeatures);
+        } else {
+          for (var entry : layerFeatures.entrySet()) {
+            var features = entry.getValue();
+            if (features != null && !features.isEmpty()) {
+              tile.addLayerFeatures(entry.getKey(), postProcessLayerFeatures(entry.getKey(), features));
+            }
+          }
         }
         return tile;
       } finally {
@@ -578,11 +767,54 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
       }
     }
 
-    private void postProcessAndAddLayerFeatures(VectorTile encoder, String layer,
-      List<VectorTile.Feature> features) {
-      if (features == null || features.isEmpty()) {
-        return;
+    private boolean shouldPostProcessLayersInParallel(Map<String, List<VectorTile.Feature>> layerFeatures) {
+      int minFeatures = config.postProcessParallelMinFeatures();
+      if (minFeatures <= 0 || layerFeatures.size() < 2) {
+        return false;
+      }
+      long numFeatures = 0;
+      for (var features : layerFeatures.values()) {
+        numFeatures += features == null ? 0 : features.size();
+      }
+      return numFeatures >= minFeatures;
+    }
+
+    /**
+     * Post-processes each layer of a tile with a large number of features on a separate thread, then adds the results
+     * to {@code encoder} in the same order that they would be added sequentially.
+     */
+    private void postProcessLayersInParallel(VectorTile encoder, Map<String, List<VectorTile.Feature>> layerFeatures) {
+      List<String> layers = new ArrayList<>();
+      List<List<VectorTile.Feature>> inputs = new ArrayList<>();
+      for (var entry : layerFeatures.entrySet()) {
+        var features = entry.getValue();
+        if (features != null && !features.isEmpty()) {
+          layers.add(entry.getKey());
+          inputs.add(features);
+        }
       }
+      List<List<VectorTile.Feature>> results = IntStream.range(0, layers.size()).parallel()
+        .mapToObj(i -> {
+          // the calling thread may also run some of these, so put back whatever tile it was working on
+          TileCoord previousTile = CURRENT_TILE == null ? null : CURRENT_TILE.get();
+          try {
+            if (CURRENT_TILE != null) {
+              CURRENT_TILE.set(tileCoord);
+            }
+            return postProcessLayerFeatures(layers.get(i), inputs.get(i));
+          } finally {
+            if (CURRENT_TILE != null) {
+              CURRENT_TILE.set(previousTile);
+            }
+          }
+        })
+        .toList();
+      for (int i = 0; i < layers.size(); i++) {
+        encoder.addLayerFeatures(layers.get(i), results.get(i));
+      }
+    }
+
+    private List<VectorTile.Feature> postProcessLayerFeatures(String layer, List<VectorTile.Feature> features) {
       try {
         List<VectorTile.Feature> postProcessed = makeMutable(profile
           .postProcessLayerFeatures(layer, tileCoord.z(), makeMutable(features)));
@@ -596,7 +828,7 @@ public final class FeatureGroup implements Iterable<FeatureGroup.TileFeatures>,
       } catch (Throwable e) { // NOSONAR - OK to catch Throwable since we re-throw Errors
         handlePostProcessFailure(e, layer);
       }
-      encoder.addLayerFeatures(layer, features);
+      return features;
     }
 
     private void handlePostProcessFailure(Throwable e, String entity) {
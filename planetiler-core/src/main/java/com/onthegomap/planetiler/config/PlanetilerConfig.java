@@ -74,7 +74,12 @@ public record PlanetilerConfig(
   int featureSourceIdMultiplier,
   List<String> extraNameTags,
   boolean reuseFeatureDb,
-  boolean parallelTempIO
+  boolean parallelTempIO,
+  boolean profileHandlerTimings,
+  int postProcessParallelMinFeatures,
+  int mergeParallelMinFeatures,
+  boolean adaptiveThreads,
+  boolean virtualWriteThreads
 ) {
 
   public static final int MIN_MINZOOM = 0;
@@ -259,7 +264,22 @@ public record PlanetilerConfig(
       arguments.getBoolean("reuse_featuredb",
         "Reuse existing feature DB on disk, skipping source reading stages (for iterating on post-processing logic)",
         false),
-      parallelTempIO
+      parallelTempIO,
+      arguments.getBoolean("profile_handler_timings",
+        "Track time spent in each handler of profiles that forward to multiple handlers (i.e. one per layer)", false),
+      arguments.getInteger("postprocess_parallel_min_features",
+        "Post-process layers of a tile in parallel when it has at least this many features, or 0 to disable - " +
+          "requires the profile's postProcessLayerFeatures to be thread-safe",
+        0),
+      arguments.getInteger("merge_parallel_min_features",
+        "Merge groups of features with the same attributes in parallel when a layer has at least this many features " +
+          "in a tile, or 0 to disable",
+        0),
+      arguments.getBoolean("adaptive_threads",
+        "Move threads between the read and process steps of split sources at runtime based on which one is blocked",
+        false),
+      arguments.getBoolean("virtual_write_threads",
+        "Use virtual threads for tile_write_threads when the output writes each tile to a separate file", false)
     );
   }
 
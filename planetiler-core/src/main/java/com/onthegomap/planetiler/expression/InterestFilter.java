@@ -0,0 +1,114 @@
+package com.onthegomap.planetiler.expression;
+
+import com.onthegomap.planetiler.reader.WithTags;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A conservative filter on the tags of input elements that could cause any expression in a {@link MultiExpression} to
+ * match, so readers can drop other elements before constructing a {@link com.onthegomap.planetiler.reader.SourceFeature
+ * SourceFeature} for them.
+ * <p>
+ * An element that {@link #test(Map)} rejects can never match, but elements it accepts might still not match anything.
+ * Create with {@link MultiExpression#interestFilter()}.
+ */
+public final class InterestFilter {
+
+  /** A filter that accepts every element, for when the expressions can match elements without any particular tag. */
+  public static final InterestFilter ALL = new InterestFilter(null, Map.of());
+  /** A filter that rejects every element. */
+  public static final InterestFilter NONE = new InterestFilter(Set.of(), Map.of());
+
+  // keys where any value could cause a match, or null to accept every element
+  private final Set<String> anyValueKeys;
+  // keys where only certain string values could cause a match
+  private final Map<String, Set<String>> valuesByKey;
+
+  InterestFilter(Set<String> anyValueKeys, Map<String, Set<String>> valuesByKey) {
+    this.anyValueKeys = anyValueKeys == null ? null : Set.copyOf(anyValueKeys);
+    this.valuesByKey = Map.copyOf(valuesByKey);
+  }
+
+  /** Returns true if this filter accepts every element so there is no point in testing them. */
+  public boolean acceptsAll() {
+    return anyValueKeys == null;
+  }
+
+  /** Returns true if this filter rejects every element so there is no point in reading them. */
+  public boolean rejectsAll() {
+    return anyValueKeys != null && anyValueKeys.isEmpty() && valuesByKey.isEmpty();
+  }
+
+  /** Returns true if an element with tag {@code key} could match, depending on its value. */
+  public boolean caresAboutKey(String key) {
+    return anyValueKeys == null || anyValueKeys.contains(key) || valuesByKey.containsKey(key);
+  }
+
+  /** Returns true if any of {@code keys}, for example the columns of a tabular input file, could cause a match. */
+  public boolean caresAboutAnyKey(Collection<String> keys) {
+    if (anyValueKeys == null) {
+      return true;
+    }
+    for (String key : keys) {
+      if (caresAboutKey(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if an element with tag {@code key=value} could match. */
+  public boolean caresAbout(String key, Object value) {
+    if (anyValueKeys == null || anyValueKeys.contains(key)) {
+      return true;
+    }
+    Set<String> values = valuesByKey.get(key);
+    // expressions on exact string values might still match numbers, lists, etc. after type conversion
+    return values != null && (!(value instanceof String string) || values.contains(string));
+  }
+
+  /**
+   * Returns a copy of this filter that accepts any value for {@code keys} it cares about, for when values get converted
+   * before matching.
+   */
+  public InterestFilter withAnyValue(Collection<String> keys) {
+    if (anyValueKeys == null || keys.stream().noneMatch(valuesByKey::containsKey)) {
+      return this;
+    }
+    Set<String> newAnyValueKeys = new HashSet<>(anyValueKeys);
+    Map<String, Set<String>> newValuesByKey = new HashMap<>(valuesByKey);
+    for (String key : keys) {
+      if (newValuesByKey.remove(key) != null) {
+        newAnyValueKeys.add(key);
+      }
+    }
+    return new InterestFilter(newAnyValueKeys, newValuesByKey);
+  }
+
+  /** Returns true if an element with {@code tags} could match. */
+  public boolean test(Map<String, Object> tags) {
+    if (anyValueKeys == null) {
+      return true;
+    }
+    for (var entry : tags.entrySet()) {
+      if (caresAbout(entry.getKey(), entry.getValue())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if {@code element} could match. */
+  public boolean test(WithTags element) {
+    return anyValueKeys == null || test(element.tags());
+  }
+
+  @Override
+  public String toString() {
+    return acceptsAll() ? "InterestFilter[all]" :
+      "InterestFilter[anyValue=" + anyValueKeys + ", byValue=" + valuesByKey + "]";
+  }
+}
@@ -9,6 +9,8 @@ import com.onthegomap.planetiler.reader.WithSource;
 import com.onthegomap.planetiler.reader.WithSourceLayer;
 import com.onthegomap.planetiler.reader.WithTags;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -16,7 +18,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
@@ -83,24 +84,70 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
     };
   }
 
-  /** Calls {@code acceptKey} for every tag that could possibly cause {@code exp} to match an input element. */
-  private static void getRelevantKeys(Expression exp, Consumer<String> acceptKey) {
+  /**
+   * Returns the tags that could possibly cause {@code exp} to match an input element, so when none of them are present
+   * on an element the expression does not need to be evaluated.
+   */
+  private static List<Trigger> getTriggers(Expression exp) {
     // if a sub-expression must always be evaluated, then either the whole expression must always be evaluated
     // or there is another part of the expression that limits the elements on which it must be evaluated, so we can
     // ignore keys from this sub-expression.
-    if (!mustAlwaysEvaluate(exp)) {
-      if (exp instanceof Expression.And and) {
-        and.children().forEach(child -> getRelevantKeys(child, acceptKey));
-      } else if (exp instanceof Expression.Or or) {
-        or.children().forEach(child -> getRelevantKeys(child, acceptKey));
-      } else if (exp instanceof Expression.MatchField field) {
-        acceptKey.accept(field.field());
-      } else if (exp instanceof Expression.MatchAny any && !any.mustAlwaysEvaluate()) {
-        acceptKey.accept(any.field());
-      }
+    if (mustAlwaysEvaluate(exp)) {
+      return List.of();
+    }
+    return switch (exp) {
+      case Expression.Or(var children) -> children.stream().flatMap(child -> getTriggers(child).stream()).toList();
+      // every child needs to match, so only need to check for the triggers of the most selective one
+      case Expression.And(var children) when children.stream().anyMatch(MultiExpression::hasCompleteTriggers) ->
+        children.stream()
+          .filter(MultiExpression::hasCompleteTriggers)
+          .map(MultiExpression::getTriggers)
+          .min(Comparator.comparingLong(MultiExpression::selectivity))
+          .orElseThrow();
+      case Expression.And(var children) -> children.stream().flatMap(child -> getTriggers(child).stream()).toList();
+      case Expression.MatchField(var field) -> List.of(new Trigger(field, null));
+      case Expression.MatchAny any when canIndexValues(any) ->
+        any.exactMatches().stream().map(value -> new Trigger(any.field(), value)).toList();
+      case Expression.MatchAny any -> List.of(new Trigger(any.field(), null));
       // ignore not case since not(matchAny("field", "")) should track "field" as a relevant key, but that gets
       // simplified to matchField("field") so don't need to handle that here
+      default -> List.of();
+    };
+  }
+
+  /**
+   * Returns true if {@code exp} can only match an element when one of its {@link #getTriggers(Expression)} is present,
+   * which does not hold for sub-expressions like {@code not(...)} that get ignored.
+   */
+  private static boolean hasCompleteTriggers(Expression exp) {
+    return switch (exp) {
+      case Expression.Or(var children) -> children.stream().allMatch(MultiExpression::hasCompleteTriggers);
+      case Expression.And(var children) -> children.stream().anyMatch(MultiExpression::hasCompleteTriggers);
+      case Expression.MatchField field -> true;
+      case Expression.MatchAny any -> !any.mustAlwaysEvaluate();
+      case null, default -> false;
+    };
+  }
+
+  /** Returns a lower number when {@code triggers} are likely to match fewer elements. */
+  private static long selectivity(List<Trigger> triggers) {
+    long result = 0;
+    for (var trigger : triggers) {
+      // any value of a key is much more likely than one specific value
+      result += trigger.value == null ? 1L << 32 : 1;
     }
+    return result;
+  }
+
+  /**
+   * Returns true if {@code any} can only match a string tag value equal to one of its exact matches, so it only needs
+   * to be evaluated on elements with one of those values.
+   */
+  private static boolean canIndexValues(Expression.MatchAny any) {
+    return any.pattern() == null &&
+      (any.valueGetter() == DataType.GET_TAG || any.valueGetter() == DataType.GET_STRING) &&
+      // nested keys can match through a parent key
+      !any.field().contains(".");
   }
 
   /** Returns an optimized index for matching {@link #expressions()} against each input element. */
@@ -116,7 +163,7 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
     return index(true);
   }
 
-  private Index<T> index(boolean warn) {
+  private BaseIndex<T> index(boolean warn) {
     if (expressions.isEmpty()) {
       return new EmptyIndex<>();
     }
@@ -130,6 +177,43 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
     return new KeyIndex<>(simplify(), warn);
   }
 
+  /**
+   * Returns a filter that rejects input elements when none of their tags could cause any of these expressions to match,
+   * using the same triggers that {@link #index()} uses to limit which expressions it evaluates.
+   * <p>
+   * The filter accepts every element when any expression must always be evaluated, so readers that use it should
+   * {@link Expression#partialEvaluate(Expression.PartialInput) partially evaluate} the expressions on the source or
+   * layer that they read first.
+   */
+  public InterestFilter interestFilter() {
+    Set<String> anyValueKeys = new HashSet<>();
+    Map<String, Set<String>> valuesByKey = new HashMap<>();
+    for (var entry : simplify().expressions) {
+      Expression expression = entry.expression;
+      if (FALSE.equals(expression)) {
+        continue;
+      } else if (mustAlwaysEvaluate(expression) || !hasCompleteTriggers(expression)) {
+        return InterestFilter.ALL;
+      }
+      for (var trigger : getTriggers(expression)) {
+        if (trigger.value != null) {
+          valuesByKey.computeIfAbsent(trigger.key, k -> new HashSet<>()).add(trigger.value);
+        } else {
+          for (String key = trigger.key; !key.isBlank(); key = parentKey(key)) {
+            anyValueKeys.add(key);
+          }
+        }
+      }
+    }
+    valuesByKey.keySet().removeAll(anyValueKeys);
+    return new InterestFilter(anyValueKeys, valuesByKey);
+  }
+
+  /** Returns {@code key} without its last nested segment, for example {@code a} for {@code a.b} or {@code a[].b}. */
+  private static String parentKey(String key) {
+    return key.replaceAll("(^|(\\[])?\\.)[^.]*$", "");
+  }
+
   private boolean contains(Predicate<Expression> test) {
     return expressions.stream().anyMatch(entry -> entry.expression.contains(test));
   }
@@ -220,21 +304,123 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
       return !getMatchesWithTriggers(input).isEmpty();
     }
 
+    /**
+     * Calls {@code visitor} with the data value and tag keys that caused the match for each expression that matches an
+     * input element, in the same order as {@link #getMatchesWithTriggers(WithTags)}, until it returns {@code false}.
+     * <p>
+     * The list of keys passed to {@code visitor} gets reused for the next match, so copy it to retain it.
+     *
+     * @return {@code false} if {@code visitor} stopped early, {@code true} otherwise
+     */
+    default boolean forEachMatch(WithTags input, MatchVisitor<O> visitor) {
+      for (var match : getMatchesWithTriggers(input)) {
+        if (!visitor.visit(match.match, match.keys)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     default boolean isEmpty() {
       return false;
     }
   }
 
+  /** Callback for {@link Index#forEachMatch(WithTags, MatchVisitor)}. */
+  @FunctionalInterface
+  public interface MatchVisitor<O> {
+
+    /**
+     * Handles a matching expression.
+     *
+     * @param match the data value associated with the expression
+     * @param keys  the input element tag keys that triggered the match, only valid until this method returns
+     * @return {@code true} to continue visiting matches, {@code false} to stop
+     */
+    boolean visit(O match, List<String> keys);
+  }
+
   private interface WithId {
 
     int id();
   }
 
-  private static class EmptyIndex<T> implements Index<T> {
+  /** Receives the ID of each matching expression along with its value and keys, for merging results from indexes. */
+  @FunctionalInterface
+  private interface IdVisitor<T> {
+
+    boolean visit(T match, List<String> keys, int id);
+  }
+
+  /**
+   * Base class for indexes that implement every lookup using {@link #visit(WithTags, boolean, IdVisitor)} so that
+   * callers that only need the first match or do not need the keys that triggered each match do less work.
+   */
+  private abstract static class BaseIndex<T> implements Index<T> {
+
+    /**
+     * Calls {@code visitor} for each expression that matches {@code input} in order of ID until it returns false.
+     *
+     * @param trackKeys false to skip collecting tag keys that triggered each match and pass an empty list instead
+     * @return {@code false} if {@code visitor} stopped early, {@code true} otherwise
+     */
+    abstract boolean visit(WithTags input, boolean trackKeys, IdVisitor<T> visitor);
 
     @Override
     public List<Match<T>> getMatchesWithTriggers(WithTags input) {
-      return new ArrayList<>();
+      List<Match<T>> result = new ArrayList<>();
+      visit(input, true, (match, keys, id) -> result.add(new Match<>(match, new ArrayList<>(keys), id)));
+      return result;
+    }
+
+    @Override
+    public List<T> getMatches(WithTags input) {
+      List<T> result = new ArrayList<>();
+      visit(input, false, (match, keys, id) -> result.add(match));
+      return result;
+    }
+
+    @Override
+    public T getOrElse(WithTags input, T defaultValue) {
+      FirstMatch<T> first = new FirstMatch<>();
+      visit(input, false, first);
+      return first.found ? first.match : defaultValue;
+    }
+
+    @Override
+    public T getOrElse(Map<String, Object> tags, T defaultValue) {
+      return getOrElse(WithTags.from(tags), defaultValue);
+    }
+
+    @Override
+    public boolean matches(WithTags input) {
+      return !visit(input, false, (match, keys, id) -> false);
+    }
+
+    @Override
+    public boolean forEachMatch(WithTags input, MatchVisitor<T> visitor) {
+      return visit(input, true, (match, keys, id) -> visitor.visit(match, keys));
+    }
+  }
+
+  /** Stops at the first match and stores its value. */
+  private static class FirstMatch<T> implements IdVisitor<T> {
+    T match;
+    boolean found = false;
+
+    @Override
+    public boolean visit(T match, List<String> keys, int id) {
+      this.match = match;
+      found = true;
+      return false;
+    }
+  }
+
+  private static class EmptyIndex<T> extends BaseIndex<T> {
+
+    @Override
+    boolean visit(WithTags input, boolean trackKeys, IdVisitor<T> visitor) {
+      return true;
     }
 
     @Override
@@ -244,37 +430,48 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
   }
 
   /** Index that limits the search space of expressions based on keys present on an input element. */
-  private static class KeyIndex<T> implements Index<T> {
+  private static class KeyIndex<T> extends BaseIndex<T> {
 
     private final int numExpressions;
+    private final List<EntryWithId<T>> expressionsById;
+    // reuse candidate bitsets and key lists between calls on the same thread, since matching happens on every element
+    private final ThreadLocal<Scratch> scratch;
     // index from source feature tag key to the expressions that include it so that
     // we can limit the number of expressions we need to evaluate for each input,
     // improves matching performance by ~5x
-    private final Map<String, List<EntryWithId<T>>> keyToExpressionsMap;
+    private final Map<String, KeyExpressions> keyToExpressionsMap;
     // same as keyToExpressionsMap but as a list (optimized for iteration when # source feature keys > # tags we care about)
-    private final List<Map.Entry<String, List<EntryWithId<T>>>> keyToExpressionsList;
+    private final List<Map.Entry<String, KeyExpressions>> keyToExpressionsList;
     // expressions that must always be evaluated on each input element
-    private final List<EntryWithId<T>> alwaysEvaluateExpressionList;
+    private final int[] alwaysEvaluateExpressionList;
 
     private KeyIndex(MultiExpression<T> expressions, boolean warn) {
       int id = 1;
       // build the indexes
+      List<EntryWithId<T>> byId = new ArrayList<>();
       Map<String, Set<EntryWithId<T>>> keyToExpressions = new HashMap<>();
+      Map<String, Map<String, Set<EntryWithId<T>>>> keyValueToExpressions = new HashMap<>();
       List<EntryWithId<T>> always = new ArrayList<>();
 
       for (var entry : expressions.expressions) {
         Expression expression = entry.expression;
         EntryWithId<T> expressionValue = new EntryWithId<>(entry.result, expression, id++);
+        byId.add(expressionValue);
         if (mustAlwaysEvaluate(expression)) {
           always.add(expressionValue);
         } else {
-          getRelevantKeys(expression,
-            key -> {
-              while (!key.isBlank()) {
+          for (var trigger : getTriggers(expression)) {
+            String key = trigger.key;
+            if (trigger.value != null) {
+              keyValueToExpressions.computeIfAbsent(key, k -> new HashMap<>())
+                .computeIfAbsent(trigger.value, v -> new HashSet<>())
+                .add(expressionValue);
+            } else {
+              for (; !key.isBlank(); key = parentKey(key)) {
                 keyToExpressions.computeIfAbsent(key, k -> new HashSet<>()).add(expressionValue);
-                key = key.replaceAll("(^|(\\[])?\\.)[^.]*$", "");
               }
-            });
+            }
+          }
         }
       }
       // create immutable copies for fast iteration at matching time
@@ -284,64 +481,107 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
           LOGGER.warn("    {}: {}", expression.result, expression.expression);
         }
       }
-      alwaysEvaluateExpressionList = List.copyOf(always);
-      keyToExpressionsMap = keyToExpressions.entrySet().stream().collect(Collectors.toUnmodifiableMap(
-        Map.Entry::getKey,
-        entry -> entry.getValue().stream().toList()
+      alwaysEvaluateExpressionList = ids(always);
+      Set<String> keys = new HashSet<>(keyToExpressions.keySet());
+      keys.addAll(keyValueToExpressions.keySet());
+      keyToExpressionsMap = keys.stream().collect(Collectors.toUnmodifiableMap(
+        key -> key,
+        key -> KeyExpressions.from(keyToExpressions.get(key), keyValueToExpressions.get(key))
       ));
       keyToExpressionsList = List.copyOf(keyToExpressionsMap.entrySet());
       numExpressions = id;
+      expressionsById = List.copyOf(byId);
+      scratch = ThreadLocal.withInitial(() -> new Scratch(numExpressions));
     }
 
-    /**
-     * Evaluates a list of expressions on an input element, storing the matches into {@code result} and using
-     * {@code visited} to avoid evaluating an expression more than once.
-     */
-    private static <T> void visitExpressions(WithTags input, List<Match<T>> result,
-      boolean[] visited, List<EntryWithId<T>> expressions) {
+    /** Marks the expressions with IDs in {@code ids} as candidates to evaluate. */
+    private static void addCandidates(long[] candidates, int[] ids) {
+      if (ids != null) {
+        for (int id : ids) {
+          candidates[id >> 6] |= 1L << id;
+        }
+      }
+    }
+
+    /** Marks the expressions that could match an input element with tag {@code key} as candidates to evaluate. */
+    private static void addCandidates(long[] candidates, WithTags input, String key, KeyExpressions expressions) {
       if (expressions != null) {
-        for (EntryWithId<T> expressionValue : expressions) {
-          if (!visited[expressionValue.id]) {
-            visited[expressionValue.id] = true;
-            List<String> matchKeys = new ArrayList<>();
-            if (expressionValue.expression().evaluate(input, matchKeys)) {
-              result.add(new Match<>(expressionValue.result, matchKeys, expressionValue.id));
-            }
-          }
+        addCandidates(candidates, expressions.anyValue);
+        if (!expressions.byValue.isEmpty()) {
+          // only need to evaluate expressions that could match this value, unless it's a number, list, etc.
+          Object value = input.getTag(key);
+          addCandidates(candidates,
+            value instanceof String string ? expressions.byValue.get(string) : expressions.allByValue);
         }
       }
     }
 
     /** Lookup matches in this index for expressions that match a certain type. */
     @Override
-    public List<Match<T>> getMatchesWithTriggers(WithTags input) {
-      List<Match<T>> result = new ArrayList<>();
-      boolean[] visited = new boolean[numExpressions];
-      visitExpressions(input, result, visited, alwaysEvaluateExpressionList);
-      Map<String, Object> tags = input.tags();
-      if (tags.size() < keyToExpressionsMap.size()) {
-        for (String inputKey : tags.keySet()) {
-          visitExpressions(input, result, visited, keyToExpressionsMap.get(inputKey));
+    boolean visit(WithTags input, boolean trackKeys, IdVisitor<T> visitor) {
+      Scratch state = scratch.get();
+      if (state.inUse) {
+        // visitor is matching another element against this same index
+        state = new Scratch(numExpressions);
+      }
+      state.inUse = true;
+      long[] candidates = state.candidates;
+      try {
+        addCandidates(candidates, alwaysEvaluateExpressionList);
+        Map<String, Object> tags = input.tags();
+        if (tags.size() < keyToExpressionsMap.size()) {
+          for (String inputKey : tags.keySet()) {
+            addCandidates(candidates, input, inputKey, keyToExpressionsMap.get(inputKey));
+          }
+        } else {
+          for (var entry : keyToExpressionsList) {
+            if (tags.containsKey(entry.getKey())) {
+              addCandidates(candidates, input, entry.getKey(), entry.getValue());
+            }
+          }
         }
-      } else {
-        for (var entry : keyToExpressionsList) {
-          if (tags.containsKey(entry.getKey())) {
-            visitExpressions(input, result, visited, entry.getValue());
+        // evaluate candidates in order of ID so matches come out sorted, and callers can stop at the first one
+        List<String> keys = trackKeys ? state.keys : Expression.dummyList;
+        for (int word = 0; word < candidates.length; word++) {
+          long bits = candidates[word];
+          while (bits != 0) {
+            int id = (word << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            EntryWithId<T> expressionValue = expressionsById.get(id - 1);
+            keys.clear();
+            if (expressionValue.expression.evaluate(input, keys) &&
+              !visitor.visit(expressionValue.result, keys, id)) {
+              return false;
+            }
           }
         }
+        return true;
+      } finally {
+        Arrays.fill(candidates, 0);
+        state.keys.clear();
+        state.inUse = false;
+      }
+    }
+
+    /** Per-thread state reused between calls to {@link #visit(WithTags, boolean, IdVisitor)}. */
+    private static class Scratch {
+      final long[] candidates;
+      final List<String> keys = new ArrayList<>();
+      boolean inUse = false;
+
+      Scratch(int numExpressions) {
+        candidates = new long[(numExpressions + 63) >> 6];
       }
-      result.sort(BY_ID);
-      return result;
     }
   }
 
   /** Index that limits the search space of expressions based on geometry type of an input element. */
-  private static class GeometryTypeIndex<T> implements Index<T> {
+  private static class GeometryTypeIndex<T> extends BaseIndex<T> {
 
-    private final Index<T> pointIndex;
-    private final Index<T> lineIndex;
-    private final Index<T> polygonIndex;
-    private final Index<T> otherIndex;
+    private final BaseIndex<T> pointIndex;
+    private final BaseIndex<T> lineIndex;
+    private final BaseIndex<T> polygonIndex;
+    private final BaseIndex<T> otherIndex;
 
     private GeometryTypeIndex(MultiExpression<T> expressions, boolean warn) {
       // build an index per type then search in each of those indexes based on the geometry type of each input element
@@ -352,7 +592,7 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
       otherIndex = indexForType(expressions, Expression.UNKNOWN_GEOMETRY_TYPE, warn);
     }
 
-    private Index<T> indexForType(MultiExpression<T> expressions, String type, boolean warn) {
+    private BaseIndex<T> indexForType(MultiExpression<T> expressions, String type, boolean warn) {
       return expressions
         .replace(matchType(type), TRUE)
         .replace(e -> e instanceof Expression.MatchType, FALSE)
@@ -361,37 +601,46 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
     }
 
     /**
-     * Returns all data values associated with expressions that match an input element, along with the tag keys that
-     * caused the match.
+     * Visits data values associated with expressions that match an input element, along with the tag keys that caused
+     * the match.
      */
-    public List<Match<T>> getMatchesWithTriggers(WithTags input) {
-      List<Match<T>> result;
+    @Override
+    boolean visit(WithTags input, boolean trackKeys, IdVisitor<T> visitor) {
       if (input instanceof WithGeometryType withGeometryType) {
         if (withGeometryType.isPoint()) {
-          result = pointIndex.getMatchesWithTriggers(input);
+          return pointIndex.visit(input, trackKeys, visitor);
         } else if (withGeometryType.canBeLine()) {
-          result = lineIndex.getMatchesWithTriggers(input);
           // closed ways can be lines or polygons, unless area=yes or no
           if (withGeometryType.canBePolygon()) {
-            result.addAll(polygonIndex.getMatchesWithTriggers(input));
+            return visitLineAndPolygon(input, trackKeys, visitor);
           }
+          return lineIndex.visit(input, trackKeys, visitor);
         } else if (withGeometryType.canBePolygon()) {
-          result = polygonIndex.getMatchesWithTriggers(input);
-        } else {
-          result = otherIndex.getMatchesWithTriggers(input);
+          return polygonIndex.visit(input, trackKeys, visitor);
         }
-      } else {
-        result = otherIndex.getMatchesWithTriggers(input);
       }
+      return otherIndex.visit(input, trackKeys, visitor);
+    }
+
+    private boolean visitLineAndPolygon(WithTags input, boolean trackKeys, IdVisitor<T> visitor) {
+      List<Match<T>> result = new ArrayList<>();
+      IdVisitor<T> collector = (match, keys, id) -> result.add(new Match<>(match, new ArrayList<>(keys), id));
+      lineIndex.visit(input, trackKeys, collector);
+      polygonIndex.visit(input, trackKeys, collector);
       result.sort(BY_ID);
-      return result;
+      for (var match : result) {
+        if (!visitor.visit(match.match, match.keys, match.id)) {
+          return false;
+        }
+      }
+      return true;
     }
   }
 
-  private abstract static class StringFieldIndex<T> implements Index<T> {
+  private abstract static class StringFieldIndex<T> extends BaseIndex<T> {
 
-    private final Map<String, Index<T>> sourceIndex;
-    private final Index<T> allSourcesIndex;
+    private final Map<String, BaseIndex<T>> sourceIndex;
+    private final BaseIndex<T> allSourcesIndex;
 
     private StringFieldIndex(MultiExpression<T> expressions, boolean warn, Function<Expression, String> extract,
       Function<String, Expression> make) {
@@ -421,23 +670,14 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
     abstract String extract(WithTags input);
 
     /**
-     * Returns all data values associated with expressions that match an input element, along with the tag keys that
-     * caused the match.
+     * Visits data values associated with expressions that match an input element, along with the tag keys that caused
+     * the match.
      */
-    public List<Match<T>> getMatchesWithTriggers(WithTags input) {
-      List<Match<T>> result = null;
+    @Override
+    boolean visit(WithTags input, boolean trackKeys, IdVisitor<T> visitor) {
       String key = extract(input);
-      if (key != null) {
-        var index = sourceIndex.get(key);
-        if (index != null) {
-          result = index.getMatchesWithTriggers(input);
-        }
-      }
-      if (result == null) {
-        result = allSourcesIndex.getMatchesWithTriggers(input);
-      }
-      result.sort(BY_ID);
-      return result;
+      BaseIndex<T> index = key == null ? null : sourceIndex.get(key);
+      return (index != null ? index : allSourcesIndex).visit(input, trackKeys, visitor);
     }
   }
 
@@ -471,6 +711,39 @@ public record MultiExpression<T>(List<Entry<T>> expressions) implements Simplifi
     }
   }
 
+  /** A tag {@code key} that could cause an expression to match, when it has {@code value} or any value if null. */
+  private record Trigger(String key, String value) {}
+
+  /**
+   * Expressions to evaluate when an input element has a certain tag.
+   *
+   * @param anyValue   IDs of expressions to evaluate for any value of the tag
+   * @param byValue    IDs of expressions to evaluate only when the tag has a certain string value
+   * @param allByValue IDs of every expression in {@code byValue}, to evaluate when the tag has a non-string value
+   */
+  private record KeyExpressions(int[] anyValue, Map<String, int[]> byValue, int[] allByValue) {
+
+    static <T> KeyExpressions from(Set<EntryWithId<T>> anyValue, Map<String, Set<EntryWithId<T>>> byValue) {
+      Set<EntryWithId<T>> allByValue = new HashSet<>();
+      Map<String, int[]> byValueIds = new HashMap<>();
+      if (byValue != null) {
+        for (var entry : byValue.entrySet()) {
+          byValueIds.put(entry.getKey(), ids(entry.getValue()));
+          allByValue.addAll(entry.getValue());
+        }
+      }
+      return new KeyExpressions(
+        anyValue == null ? new int[0] : ids(anyValue),
+        Map.copyOf(byValueIds),
+        ids(allByValue)
+      );
+    }
+  }
+
+  private static int[] ids(Collection<? extends WithId> items) {
+    return items.stream().mapToInt(WithId::id).toArray();
+  }
+
   /** An expression/value pair with unique ID to store whether we evaluated it yet. */
   private record EntryWithId<T>(T result, Expression expression, @Override int id) implements WithId {}
 
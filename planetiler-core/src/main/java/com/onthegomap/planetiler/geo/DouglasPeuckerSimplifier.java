@@ -11,7 +11,9 @@
  */
 package com.onthegomap.planetiler.geo;
 
+import com.carrotsearch.hppc.IntArrayList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateSequence;
@@ -88,6 +90,39 @@ public class DouglasPeuckerSimplifier extends GeometryTransformer implements Geo
   }
 
 
+  /**
+   * Returns the indices of points to keep from the line with coordinates {@code xs} and {@code ys}, simplified using
+   * Douglas Peucker Algorithm.
+   *
+   * @param xs                x coordinates of each point
+   * @param ys                y coordinates of each point, same length as {@code xs}
+   * @param distanceTolerance the threshold below which we discard points
+   * @param area              true if this is a polygon to retain at least 4 points to avoid collapse
+   * @return the ascending indices of points to keep, always including the first and last point
+   */
+  public static int[] simplifyIndices(double[] xs, double[] ys, double distanceTolerance, boolean area) {
+    int size = xs.length;
+    int minPoints = area ? 4 : 2;
+    if (size <= minPoints) {
+      int[] result = new int[size];
+      Arrays.setAll(result, i -> i);
+      return result;
+    }
+    IntArrayList result = new IntArrayList();
+    result.add(0);
+    (new DouglasPeuckerSimplifier(distanceTolerance)).subsimplify(xs, ys, result, 0, size - 1, minPoints - 2);
+    result.add(size - 1);
+    return result.toArray();
+  }
+
+  /**
+   * Returns {@code true} if long coordinate sequences get simplified using SIMD instructions, which requires starting
+   * the JVM with {@code --add-modules jdk.incubator.vector}.
+   */
+  public static boolean usesVectorApi() {
+    return SimplifyKernels.USE_VECTOR_API;
+  }
+
   /**
    * Returns the square of the number of units that (px, p1) is away from the line segment from (p1x, py1) to (p2x,
    * p2y).
@@ -188,6 +223,23 @@ public class DouglasPeuckerSimplifier extends GeometryTransformer implements Geo
     }
   }
 
+  private void subsimplify(double[] xs, double[] ys, IntArrayList out, int first, int last, int numForcedPoints) {
+    // numForcePoints lets us keep some points even if they are below simplification threshold
+    boolean force = numForcedPoints > 0;
+    int index = SimplifyKernels.furthestPoint(xs, ys, first + 1, last, xs[first], ys[first], xs[last], ys[last],
+      force ? -1 : sqTolerance);
+
+    if (index >= 0) {
+      if (index - first > 1) {
+        subsimplify(xs, ys, out, first, index, numForcedPoints - 1);
+      }
+      out.add(index);
+      if (last - index > 1) {
+        subsimplify(xs, ys, out, index, last, numForcedPoints - 2);
+      }
+    }
+  }
+
   protected List<Coordinate> transformCoordinateList(List<Coordinate> coords, boolean area) {
     int minPoints = area ? 4 : 2;
     if (coords.size() <= minPoints) {
@@ -215,7 +267,23 @@ public class DouglasPeuckerSimplifier extends GeometryTransformer implements Geo
     result.forceAddPoint(coords.getX(0), coords.getY(0));
     // for polygons, additionally keep at least 2 intermediate points even if they are below simplification threshold
     // to avoid collapse.
-    subsimplify(coords, result, 0, coords.size() - 1, minPoints - 2);
+    if (SimplifyKernels.useVectorApi(coords.size())) {
+      // copy to packed arrays so the inner loop can process several points at once with SIMD instructions
+      int size = coords.size();
+      double[] xs = new double[size];
+      double[] ys = new double[size];
+      for (int i = 0; i < size; i++) {
+        xs[i] = coords.getX(i);
+        ys[i] = coords.getY(i);
+      }
+      IntArrayList indices = new IntArrayList();
+      subsimplify(xs, ys, indices, 0, size - 1, minPoints - 2);
+      for (var cursor : indices) {
+        result.forceAddPoint(xs[cursor.value], ys[cursor.value]);
+      }
+    } else {
+      subsimplify(coords, result, 0, coords.size() - 1, minPoints - 2);
+    }
     result.forceAddPoint(coords.getX(coords.size() - 1), coords.getY(coords.size() - 1));
     return result;
   }
@@ -0,0 +1,77 @@
+package com.onthegomap.planetiler.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inner loops of {@link DouglasPeuckerSimplifier} over packed coordinate arrays.
+ * <p>
+ * When the JVM is started with {@code --add-modules jdk.incubator.vector} these delegate to SIMD implementations in
+ * {@code VectorSimplifyKernels}, otherwise they fall back to equivalent scalar loops. Both implementations perform the
+ * same floating-point operations in the same order so they return identical results. Callers should check
+ * {@link #useVectorApi(int)} first since copying short sequences to packed arrays costs more than it saves.
+ */
+final class SimplifyKernels {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SimplifyKernels.class);
+  private static final String VECTOR_IMPLEMENTATION = "com.onthegomap.planetiler.geo.VectorSimplifyKernels";
+  private static final FurthestPoint VECTOR = loadVectorImplementation();
+  static final boolean USE_VECTOR_API = VECTOR != null;
+  private static final int MIN_VECTOR_POINTS = 256;
+
+  private SimplifyKernels() {}
+
+  /** An implementation of {@link #furthestPoint} that may not be supported on the current platform. */
+  interface FurthestPoint {
+
+    boolean isSupported();
+
+    int furthestPoint(double[] xs, double[] ys, int from, int to, double p1x, double p1y, double p2x, double p2y,
+      double sqDistThreshold);
+  }
+
+  private static FurthestPoint loadVectorImplementation() {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return null;
+    }
+    try {
+      var implementation = (FurthestPoint) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+      boolean supported = implementation.isSupported();
+      LOGGER.debug("Using vector API for geometry simplification: {}", supported);
+      return supported ? implementation : null;
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LOGGER.debug("Vector API unavailable for geometry simplification", e);
+      return null;
+    }
+  }
+
+  /** Returns true if a sequence of {@code numPoints} should be simplified using the SIMD implementations. */
+  static boolean useVectorApi(int numPoints) {
+    return USE_VECTOR_API && numPoints >= MIN_VECTOR_POINTS;
+  }
+
+  /**
+   * Returns the index of the first point in {@code [from, to)} furthest from the line segment from (p1x, p1y) to (p2x,
+   * p2y), or {@code -1} if no point is more than {@code sqDistThreshold} squared units away.
+   */
+  static int furthestPoint(double[] xs, double[] ys, int from, int to, double p1x, double p1y, double p2x,
+    double p2y, double sqDistThreshold) {
+    return USE_VECTOR_API ?
+      VECTOR.furthestPoint(xs, ys, from, to, p1x, p1y, p2x, p2y, sqDistThreshold) :
+      furthestPointScalar(xs, ys, from, to, p1x, p1y, p2x, p2y, sqDistThreshold);
+  }
+
+  static int furthestPointScalar(double[] xs, double[] ys, int from, int to, double p1x, double p1y, double p2x,
+    double p2y, double sqDistThreshold) {
+    double maxSqDist = sqDistThreshold;
+    int index = -1;
+    for (int i = from; i < to; i++) {
+      double sqDist = DouglasPeuckerSimplifier.getSqSegDist(xs[i], ys[i], p1x, p1y, p2x, p2y);
+      if (sqDist > maxSqDist) {
+        index = i;
+        maxSqDist = sqDist;
+      }
+    }
+    return index;
+  }
+}
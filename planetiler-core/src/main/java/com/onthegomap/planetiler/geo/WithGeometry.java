@@ -2,6 +2,7 @@ package com.onthegomap.planetiler.geo;
 
 import com.onthegomap.planetiler.reader.WithGeometryType;
 import org.locationtech.jts.algorithm.construct.MaximumInscribedCircle;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Lineal;
@@ -56,6 +57,19 @@ public abstract class WithGeometry implements WithGeometryType {
    */
   public abstract Geometry latLonGeometry() throws GeometryException;
 
+  /**
+   * Returns the bounding box of this geometry in latitude/longitude degree coordinates.
+   * <p>
+   * Subclasses can override this to compute it without materializing {@link #latLonGeometry()}, so callers can check
+   * bounds before paying to decode the full geometry.
+   *
+   * @return the latitude/longitude bounding box
+   * @throws GeometryException if an error occurs reading the geometry
+   */
+  public Envelope latLonEnvelope() throws GeometryException {
+    return latLonGeometry().getEnvelopeInternal();
+  }
+
 
   /**
    * Returns and caches the result of {@link Geometry#getArea()} of this feature in world web mercator coordinates where
@@ -4,20 +4,25 @@ import com.onthegomap.planetiler.Profile;
 import com.onthegomap.planetiler.collection.FeatureGroup;
 import com.onthegomap.planetiler.config.Bounds;
 import com.onthegomap.planetiler.config.PlanetilerConfig;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.stats.Stats;
 import com.onthegomap.planetiler.util.FileUtils;
+import com.onthegomap.planetiler.util.ZipExtractor;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageManager;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.features.index.FeatureIndexManager;
 import mil.nga.geopackage.features.index.FeatureIndexType;
 import mil.nga.geopackage.features.user.FeatureColumns;
@@ -38,9 +43,19 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Utility that reads {@link SourceFeature SourceFeatures} from the vector geometries contained in a GeoPackage file.
+ * <p>
+ * Large GeoPackage files get split into ranges of primary keys from each table that separate readers with their own
+ * SQLite connections read in parallel. When the reader has bounds, it uses the R-tree spatial index of each table (if
+ * present) to skip features outside of them. Features get IDs from their primary key offset by the range of keys in
+ * preceding tables, so they are the same whether the file gets split or not.
+ * <p>
+ * GeoPackage files inside a zip file need to be extracted before SQLite can open them. {@link #process} extracts each
+ * one once in the background while earlier ones are being read, and shares the extracted file between every reader of
+ * it.
  */
 public class GeoPackageReader extends SimpleReader<SimpleFeature> {
   private static final Logger LOGGER = LoggerFactory.getLogger(GeoPackageReader.class);
+  private static final long SPLIT_ROWS = 100_000;
 
   private final boolean keepUnzipped;
   private final String sourceProjection;
@@ -49,6 +64,7 @@ public class GeoPackageReader extends SimpleReader<SimpleFeature> {
   private final GeoPackage geoPackage;
 
   private final Bounds bounds;
+  private boolean loggedMissingGeometry = false;
 
   GeoPackageReader(String sourceProjection, String sourceName, Path input, Path tmpDir, boolean keepUnzipped,
     Bounds bounds) {
@@ -102,7 +118,7 @@ public class GeoPackageReader extends SimpleReader<SimpleFeature> {
    * @param sourceProjection code for the coordinate reference system of the input data, to be parsed by
    *                         {@link CRS#decode(String)}
    * @param sourceName       string ID for this reader to use in logs and stats
-   * @param sourcePaths      paths to the {@code .gpkg} files on disk
+   * @param sourcePaths      paths to the {@code .gpkg} files on disk or inside zip files
    * @param tmpDir           path to temporary directory for extracting data from zip files
    * @param writer           consumer for rendered features
    * @param config           user-defined parameters controlling number of threads and log interval
@@ -113,12 +129,15 @@ public class GeoPackageReader extends SimpleReader<SimpleFeature> {
    */
   public static void process(String sourceProjection, String sourceName, List<Path> sourcePaths, Path tmpDir,
     FeatureGroup writer, PlanetilerConfig config, Profile profile, Stats stats, boolean keepUnzipped) {
-    SourceFeatureProcessor.processFiles(
-      sourceName,
-      sourcePaths,
-      path -> new GeoPackageReader(sourceProjection, sourceName, path, tmpDir, keepUnzipped, config.bounds()),
-      writer, config, profile, stats
-    );
+    try (var unzipped = new ZipExtractor(tmpDir, keepUnzipped, sourcePaths)) {
+      SourceFeatureProcessor.processFiles(
+        sourceName,
+        sourcePaths,
+        path -> new GeoPackageReader(sourceProjection, sourceName, unzipped.get(path), tmpDir, keepUnzipped,
+          config.bounds()),
+        writer, config, profile, stats
+      );
+    }
   }
 
   @Override
@@ -134,87 +153,179 @@ public class GeoPackageReader extends SimpleReader<SimpleFeature> {
 
   @Override
   public void readFeatures(Consumer<SimpleFeature> next) throws Exception {
-    var destCrs = CRS.decode("EPSG:4326", true);
-    long id = 0;
-    boolean loggedMissingGeometry = false;
+    for (var keys : tableKeys()) {
+      readTable(keys.table, null, null, feature -> keys.idOffset + feature.getId(), next);
+    }
+  }
 
+  /**
+   * Returns the range of primary keys in each non-empty feature table, offset so that IDs start at 1 in the first table
+   * and continue after the last key of the preceding table.
+   */
+  private List<TableKeys> tableKeys() {
+    List<TableKeys> result = new ArrayList<>();
+    long nextId = 1;
     for (var featureName : geoPackage.getFeatureTables()) {
       FeatureDao features = geoPackage.getFeatureDao(featureName);
+      long count = features.count();
+      if (count == 0) {
+        continue;
+      }
+      String table = CoreSQLUtils.quoteWrap(featureName);
+      String pk = CoreSQLUtils.quoteWrap(features.getPkColumnName());
+      long min = ((Number) features.querySingleResult("SELECT MIN(" + pk + ") FROM " + table, null)).longValue();
+      long max = ((Number) features.querySingleResult("SELECT MAX(" + pk + ") FROM " + table, null)).longValue();
+      result.add(new TableKeys(featureName, count, min, max, nextId - min));
+      nextId += max - min + 1;
+    }
+    return result;
+  }
 
-      // GeoPackage spec allows this to be 0 (undefined geographic CRS) or
-      // -1 (undefined cartesian CRS). Both cases will throw when trying to
-      // call CRS.decode
-      CoordinateReferenceSystem sourceCrs = null;
-      if (features.getSrs() != null && features.getSrs().getDefinition() != null) {
-        String wkt = features.getSrs().getDefinition();
-        if (wkt != null && !wkt.isBlank()) {
-          try {
-            sourceCrs = CRS.parseWKT(wkt);
-          } catch (FactoryException e) {
-            // sourceCrs is null
-          }
-        }
+  /**
+   * Returns ranges of about 100k primary keys from each table, or an empty list if the file is small enough to read at
+   * once or this reader extracted it from a zip file itself.
+   * <p>
+   * Features read from a split get the same IDs that {@link #readFeatures(Consumer)} assigns.
+   */
+  @Override
+  public List<KeyRange> getSplits() {
+    return getSplits(SPLIT_ROWS);
+  }
+
+  List<KeyRange> getSplits(long splitRows) {
+    if (extractedPath != null || getFeatureCount() <= splitRows) {
+      return List.of();
+    }
+    List<KeyRange> result = new ArrayList<>();
+    for (var keys : tableKeys()) {
+      // primary keys are usually dense, so split the key space evenly instead of paying to find exact boundaries
+      long numSplits = Math.ceilDiv(keys.count, splitRows);
+      long step = Math.ceilDiv(keys.maxKey - keys.minKey + 1, numSplits);
+      for (long start = keys.minKey; start <= keys.maxKey; start += step) {
+        result.add(new KeyRange(keys.table, start, Math.min(keys.maxKey, start + step - 1), keys.idOffset));
       }
+    }
+    return result;
+  }
+
+  @Override
+  public void readSplit(Split split, Consumer<SimpleFeature> next) throws Exception {
+    var range = (KeyRange) split;
+    String pk = CoreSQLUtils.quoteWrap(geoPackage.getFeatureDao(range.table).getPkColumnName());
+    readTable(range.table, pk + " >= ? AND " + pk + " <= ?",
+      new String[]{Long.toString(range.minKey), Long.toString(range.maxKey)},
+      feature -> range.idOffset + feature.getId(), next);
+  }
+
+  private void readTable(String featureName, String where, String[] whereArgs, ToLongFunction<FeatureRow> ids,
+    Consumer<SimpleFeature> next) throws Exception {
+    var destCrs = CRS.decode("EPSG:4326", true);
+    FeatureDao features = geoPackage.getFeatureDao(featureName);
 
-      if (sourceProjection != null) {
+    // GeoPackage spec allows this to be 0 (undefined geographic CRS) or
+    // -1 (undefined cartesian CRS). Both cases will throw when trying to
+    // call CRS.decode
+    CoordinateReferenceSystem sourceCrs = null;
+    if (features.getSrs() != null && features.getSrs().getDefinition() != null) {
+      String wkt = features.getSrs().getDefinition();
+      if (wkt != null && !wkt.isBlank()) {
         try {
-          sourceCrs = GeoUtils.decodeCRS(sourceProjection, sourceCrs);
+          sourceCrs = CRS.parseWKT(wkt);
         } catch (FactoryException e) {
-          throw new FileFormatException("Bad reference system", e);
+          // sourceCrs is null
         }
-      } else if (sourceCrs == null) {
-        LOGGER.warn("No reference system provided in {}, please set it explicitly. Defaulting to EPSG:4326",
-          input.getFileName());
-        sourceCrs = destCrs;
       }
+    }
 
-      MathTransform transform = GeoUtils.findMathTransform(sourceCrs, destCrs, true);
+    if (sourceProjection != null) {
+      try {
+        sourceCrs = GeoUtils.decodeCRS(sourceProjection, sourceCrs);
+      } catch (FactoryException e) {
+        throw new FileFormatException("Bad reference system", e);
+      }
+    } else if (sourceCrs == null) {
+      LOGGER.warn("No reference system provided in {}, please set it explicitly. Defaulting to EPSG:4326",
+        input.getFileName());
+      sourceCrs = destCrs;
+    }
 
-      FeatureIndexManager indexer = new FeatureIndexManager(geoPackage, features);
+    MathTransform transform = GeoUtils.findMathTransform(sourceCrs, destCrs, true);
+    var interest = interestFilter(featureName);
 
-      Iterable<FeatureRow> results;
+    FeatureIndexManager indexer = new FeatureIndexManager(geoPackage, features);
 
-      if (this.bounds != null && indexer.isIndexed()) {
-        var l = this.bounds.latLon();
-        indexer.setIndexLocation(FeatureIndexType.RTREE);
-        var bbox = new ReferencedEnvelope(l.getMinX(), l.getMaxX(), l.getMinY(), l.getMaxY(), destCrs);
-        var bbox2 = CRS.transform(transform.inverse(), bbox);
-        results =
-          indexer.query(
-            new GeometryEnvelope(bbox2.getMinimum(0), bbox2.getMinimum(1), bbox2.getMaximum(0), bbox2.getMaximum(1)));
-      } else {
-        results = features.queryForAll();
-      }
+    Iterable<FeatureRow> results;
+
+    if (this.bounds != null && indexer.isIndexed()) {
+      var l = this.bounds.latLon();
+      indexer.setIndexLocation(FeatureIndexType.RTREE);
+      var bbox = new ReferencedEnvelope(l.getMinX(), l.getMaxX(), l.getMinY(), l.getMaxY(), destCrs);
+      var bbox2 = CRS.transform(transform.inverse(), bbox);
+      var envelope =
+        new GeometryEnvelope(bbox2.getMinimum(0), bbox2.getMinimum(1), bbox2.getMaximum(0), bbox2.getMaximum(1));
+      results = where == null ? indexer.query(envelope) : indexer.query(envelope, where, whereArgs);
+    } else {
+      results = where == null ? features.queryForAll() : features.query(where, whereArgs);
+    }
 
-      for (FeatureRow feature : results) {
-        GeoPackageGeometryData geometryData = feature.getGeometry();
-        byte[] wkb;
-        if (geometryData == null || (wkb = geometryData.getWkb()).length == 0) {
-          if (!loggedMissingGeometry) {
-            loggedMissingGeometry = true;
-            LOGGER.warn("Geopackage file contains empty geometry: {}", geoPackage.getPath());
-          }
-          continue;
+    for (FeatureRow feature : results) {
+      GeoPackageGeometryData geometryData = feature.getGeometry();
+      byte[] wkb;
+      if (geometryData == null || (wkb = geometryData.getWkb()).length == 0) {
+        if (!loggedMissingGeometry) {
+          loggedMissingGeometry = true;
+          LOGGER.warn("Geopackage file contains empty geometry: {}", geoPackage.getPath());
         }
+        continue;
+      }
+
+      long featureId = ids.applyAsLong(feature);
+      FeatureColumns columns = feature.getColumns();
+      // check attributes before paying to decode and reproject the geometry
+      if (!caresAbout(interest, feature, columns)) {
+        continue;
+      }
 
-        Geometry featureGeom = (new WKBReader()).read(wkb);
-        Geometry latLonGeom = (transform.isIdentity()) ? featureGeom : JTS.transform(featureGeom, transform);
+      Geometry featureGeom = (new WKBReader()).read(wkb);
+      Geometry latLonGeom = (transform.isIdentity()) ? featureGeom : JTS.transform(featureGeom, transform);
 
-        FeatureColumns columns = feature.getColumns();
-        SimpleFeature geom = SimpleFeature.create(latLonGeom, HashMap.newHashMap(columns.columnCount()),
-          sourceName, featureName, ++id);
+      SimpleFeature geom = SimpleFeature.create(latLonGeom, HashMap.newHashMap(columns.columnCount()),
+        sourceName, featureName, featureId);
 
-        for (int i = 0; i < columns.columnCount(); ++i) {
-          if (i != columns.getGeometryIndex()) {
-            geom.setTag(columns.getColumnName(i), feature.getValue(i));
-          }
+      for (int i = 0; i < columns.columnCount(); ++i) {
+        if (i != columns.getGeometryIndex()) {
+          geom.setTag(columns.getColumnName(i), feature.getValue(i));
         }
+      }
+
+      next.accept(geom);
+    }
+  }
 
-        next.accept(geom);
+  private static boolean caresAbout(InterestFilter interest, FeatureRow feature, FeatureColumns columns) {
+    if (interest.acceptsAll()) {
+      return true;
+    }
+    for (int i = 0; i < columns.columnCount(); ++i) {
+      if (i != columns.getGeometryIndex() && interest.caresAbout(columns.getColumnName(i), feature.getValue(i))) {
+        return true;
       }
     }
+    return false;
   }
 
+  /**
+   * An inclusive range of primary keys from one table in a GeoPackage file.
+   *
+   * @param table    name of the feature table
+   * @param minKey   first primary key in the range
+   * @param maxKey   last primary key in the range
+   * @param idOffset amount to add to primary keys in this table to get feature IDs
+   */
+  public record KeyRange(String table, long minKey, long maxKey, long idOffset) implements Split {}
+
+  private record TableKeys(String table, long count, long minKey, long maxKey, long idOffset) {}
+
   @Override
   public void close() throws IOException {
     geoPackage.close();
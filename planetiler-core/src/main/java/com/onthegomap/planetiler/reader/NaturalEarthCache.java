@@ -0,0 +1,312 @@
+package com.onthegomap.planetiler.reader;
+
+import com.onthegomap.planetiler.util.ByteBufferUtil;
+import com.onthegomap.planetiler.util.FileUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary copy of the geometries and attributes in a Natural Earth sqlite file that {@link NaturalEarthReader} can
+ * memory-map on later runs instead of extracting the zip file and querying every table through JDBC.
+ * <p>
+ * The file starts with a header that records the size and modification time of the input it was built from, followed
+ * by one section per table with each feature's attributes and WKB geometry, and a directory of the tables at the end.
+ * A cache whose header does not match the current input gets ignored and rebuilt.
+ */
+class NaturalEarthCache implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NaturalEarthCache.class);
+  private static final long MAGIC = 0x4e45_4341_4348_4531L; // "NECACHE1"
+  private static final int HEADER_BYTES = 4 * Long.BYTES;
+
+  // value types
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte STRING = 4;
+  private static final byte BYTES = 5;
+
+  private final FileChannel channel;
+  private final List<Table> tables;
+
+  /**
+   * A table from the sqlite file.
+   *
+   * @param name        name of the table
+   * @param columns     names of the attribute columns, excluding the geometry
+   * @param numFeatures number of features in the table with a geometry
+   * @param offset      position of the first feature in the cache file
+   * @param length      number of bytes used by the features in the cache file
+   */
+  record Table(String name, List<String> columns, long numFeatures, long offset, long length) {}
+
+  /** Handler for features read from the cache. */
+  @FunctionalInterface
+  interface Row {
+
+    /**
+     * Invoked for each feature with {@code values} of each column in {@link Table#columns()} and a buffer that has the
+     * WKB-encoded geometry between its position and limit.
+     */
+    void accept(Object[] values, ByteBuffer wkb) throws Exception;
+  }
+
+  private NaturalEarthCache(FileChannel channel, List<Table> tables) {
+    this.channel = channel;
+    this.tables = tables;
+  }
+
+  /** Returns the cache at {@code path} if it was built from the current version of {@code input}, otherwise null. */
+  static NaturalEarthCache open(Path path, Path input) {
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      channel.read(header, 0);
+      header.flip();
+      if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC || header.getLong() != Files.size(input) ||
+        header.getLong() != FileUtils.getLastModifiedTime(input)) {
+        channel.close();
+        return null;
+      }
+      long directoryOffset = header.getLong();
+      ByteBuffer directory = ByteBuffer.allocate((int) (channel.size() - directoryOffset));
+      channel.read(directory, directoryOffset);
+      directory.flip();
+      int numTables = directory.getInt();
+      List<Table> tables = new ArrayList<>(numTables);
+      for (int i = 0; i < numTables; i++) {
+        String name = readString(directory);
+        int numColumns = directory.getInt();
+        List<String> columns = new ArrayList<>(numColumns);
+        for (int c = 0; c < numColumns; c++) {
+          columns.add(readString(directory));
+        }
+        tables.add(new Table(name, List.copyOf(columns), directory.getLong(), directory.getLong(),
+          directory.getLong()));
+      }
+      return new NaturalEarthCache(channel, List.copyOf(tables));
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Ignoring unreadable natural earth cache {}: {}", path, e.toString());
+      try {
+        if (channel != null) {
+          channel.close();
+        }
+      } catch (IOException ignored) {
+        // already failed
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Writes the features with a geometry from each of {@code tableNames} in {@code conn} to a cache at {@code path} for
+   * the current version of {@code input}.
+   * <p>
+   * The cache gets written to a temporary file first then moved into place so an interrupted run never leaves a
+   * partial cache behind.
+   */
+  static void write(Path path, Path input, Connection conn, List<String> tableNames) throws IOException, SQLException {
+    LOGGER.info("caching {} to {}", input.toAbsolutePath(), path);
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    FileUtils.createParentDirectories(tmp);
+    List<Table> tables = new ArrayList<>();
+    try (var out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)) {
+      long offset = HEADER_BYTES;
+      out.position(offset);
+      for (String table : tableNames) {
+        var section = new ByteArrayOutputStream();
+        var data = new DataOutputStream(section);
+        Table written = writeTable(conn, table, offset, data);
+        if (written != null) {
+          data.flush();
+          writeFully(out, ByteBuffer.wrap(section.toByteArray()));
+          tables.add(written);
+          offset += written.length();
+        }
+      }
+      var directory = new ByteArrayOutputStream();
+      var data = new DataOutputStream(directory);
+      data.writeInt(tables.size());
+      for (Table table : tables) {
+        writeString(data, table.name());
+        data.writeInt(table.columns().size());
+        for (String column : table.columns()) {
+          writeString(data, column);
+        }
+        data.writeLong(table.numFeatures());
+        data.writeLong(table.offset());
+        data.writeLong(table.length());
+      }
+      data.flush();
+      writeFully(out, ByteBuffer.wrap(directory.toByteArray()));
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+        .putLong(MAGIC)
+        .putLong(Files.size(input))
+        .putLong(FileUtils.getLastModifiedTime(input))
+        .putLong(offset)
+        .flip();
+      out.position(0);
+      writeFully(out, header);
+    }
+    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** Writes the features from {@code table} and returns its directory entry, or null if it has no geometry column. */
+  private static Table writeTable(Connection conn, String table, long offset, DataOutputStream out)
+    throws SQLException, IOException {
+    try (
+      Statement statement = conn.createStatement();
+      @SuppressWarnings("java:S2077") // table name checked against a regex
+      ResultSet rs = statement.executeQuery("SELECT * FROM %s;".formatted(table))
+    ) {
+      int numColumns = rs.getMetaData().getColumnCount();
+      int geometryColumn = -1;
+      List<String> columns = new ArrayList<>();
+      for (int c = 0; c < numColumns; c++) {
+        String name = rs.getMetaData().getColumnName(c + 1);
+        if ("GEOMETRY".equals(name)) {
+          geometryColumn = c;
+        } else {
+          columns.add(name);
+        }
+      }
+      if (geometryColumn < 0) {
+        return null;
+      }
+      long numFeatures = 0;
+      while (rs.next()) {
+        byte[] geometry = rs.getBytes(geometryColumn + 1);
+        if (geometry == null) {
+          continue;
+        }
+        numFeatures++;
+        for (int c = 0; c < numColumns; c++) {
+          if (c != geometryColumn) {
+            writeValue(out, rs.getObject(c + 1));
+          }
+        }
+        out.writeInt(geometry.length);
+        out.write(geometry);
+      }
+      return new Table(table, List.copyOf(columns), numFeatures, offset, out.size());
+    }
+  }
+
+  List<Table> tables() {
+    return tables;
+  }
+
+  long featureCount() {
+    return tables.stream().mapToLong(Table::numFeatures).sum();
+  }
+
+  /** Maps the section of the cache for {@code table} and invokes {@code row} on each feature in order. */
+  void read(Table table, Row row) throws Exception {
+    MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, table.offset(), table.length());
+    try {
+      Object[] values = new Object[table.columns().size()];
+      for (long i = 0; i < table.numFeatures(); i++) {
+        for (int c = 0; c < values.length; c++) {
+          values[c] = readValue(buf);
+        }
+        int length = buf.getInt();
+        int end = buf.position() + length;
+        row.accept(values, buf.slice(buf.position(), length));
+        buf.position(end);
+      }
+    } finally {
+      ByteBufferUtil.free(buf);
+    }
+  }
+
+  private static void writeFully(FileChannel out, ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      out.write(buf);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buf) {
+    byte[] bytes = new byte[buf.getInt()];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    switch (value) {
+      case null -> out.writeByte(NULL);
+      case Integer i -> {
+        out.writeByte(INT);
+        out.writeInt(i);
+      }
+      case Long l -> {
+        out.writeByte(LONG);
+        out.writeLong(l);
+      }
+      case Double d -> {
+        out.writeByte(DOUBLE);
+        out.writeDouble(d);
+      }
+      case byte[] bytes -> {
+        out.writeByte(BYTES);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      default -> {
+        out.writeByte(STRING);
+        writeString(out, value.toString());
+      }
+    }
+  }
+
+  private static Object readValue(ByteBuffer buf) {
+    byte type = buf.get();
+    return switch (type) {
+      case NULL -> null;
+      case INT -> buf.getInt();
+      case LONG -> buf.getLong();
+      case DOUBLE -> buf.getDouble();
+      case STRING -> readString(buf);
+      case BYTES -> {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        yield bytes;
+      }
+      default -> throw new FileFormatException("Unexpected value type in natural earth cache: " + type);
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
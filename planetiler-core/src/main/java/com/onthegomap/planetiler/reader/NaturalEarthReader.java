@@ -21,6 +21,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.function.Consumer;
@@ -32,6 +33,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Utility that reads {@link SourceFeature SourceFeatures} from the geometries contained in a Natural Earth sqlite
  * distribution.
+ * <p>
+ * When unzipped files are kept between runs, the first run also writes the features to a binary cache next to the
+ * extracted sqlite file, and later runs memory-map that cache instead of reading the sqlite file as long as the input
+ * has not changed.
  *
  * @see <a href="https://www.naturalearthdata.com/">Natural Earth</a>
  */
@@ -41,6 +46,7 @@ public class NaturalEarthReader extends SimpleReader<SimpleFeature> {
   private static final Logger LOGGER = LoggerFactory.getLogger(NaturalEarthReader.class);
 
   private final Connection conn;
+  private final NaturalEarthCache cache;
   private final boolean keepUnzipped;
   private Path extracted;
 
@@ -59,7 +65,19 @@ public class NaturalEarthReader extends SimpleReader<SimpleFeature> {
 
     LogUtil.setStage(sourceName);
     try {
-      conn = open(input, tmpDir);
+      NaturalEarthCache existing = null;
+      if (keepUnzipped) {
+        Path cachePath = tmpDir.resolve(URLEncoder.encode(input.getFileName() + ".cache", StandardCharsets.UTF_8));
+        existing = NaturalEarthCache.open(cachePath, input);
+        if (existing == null) {
+          try (var source = open(input, tmpDir)) {
+            NaturalEarthCache.write(cachePath, input, source, tableNames(source));
+          }
+          existing = NaturalEarthCache.open(cachePath, input);
+        }
+      }
+      cache = existing;
+      conn = cache == null ? open(input, tmpDir) : null;
     } catch (IOException | SQLException e) {
       throw new IllegalArgumentException(e);
     }
@@ -118,7 +136,7 @@ public class NaturalEarthReader extends SimpleReader<SimpleFeature> {
     return DriverManager.getConnection(uri);
   }
 
-  private List<String> tableNames() {
+  private static List<String> tableNames(Connection conn) {
     List<String> result = new ArrayList<>();
     try (ResultSet rs = conn.getMetaData().getTables(null, null, null, null)) {
       while (rs.next()) {
@@ -135,8 +153,11 @@ public class NaturalEarthReader extends SimpleReader<SimpleFeature> {
 
   @Override
   public long getFeatureCount() {
+    if (cache != null) {
+      return cache.featureCount();
+    }
     long numFeatures = 0;
-    for (String table : tableNames()) {
+    for (String table : tableNames(conn)) {
       try (
         var stmt = conn.createStatement();
         @SuppressWarnings("java:S2077") // table name checked against a regex
@@ -152,9 +173,13 @@ public class NaturalEarthReader extends SimpleReader<SimpleFeature> {
 
   @Override
   public void readFeatures(Consumer<SimpleFeature> next) throws Exception {
+    if (cache != null) {
+      readCachedFeatures(next);
+      return;
+    }
     long id = 0;
     // pass every element in every table through the profile
-    var tables = tableNames();
+    var tables = tableNames(conn);
     for (int i = 0; i < tables.size(); i++) {
       String table = tables.get(i);
       LOGGER.trace("Naturalearth loading {}/{}: {}", i, tables.size(), table);
@@ -171,23 +196,37 @@ public class NaturalEarthReader extends SimpleReader<SimpleFeature> {
             geometryColumn = c;
           }
         }
-        if (geometryColumn >= 0) {
+        var interest = interestFilter(table);
+        if (geometryColumn >= 0 && !interest.caresAboutAnyKey(Arrays.asList(column))) {
+          // skip decoding tables the profile ignores, but keep IDs the same as if they had been read
+          id += countFeatures(statement, table);
+        } else if (geometryColumn >= 0) {
           var wkbReader = GeoUtils.wkbReader();
+          Object[] values = new Object[column.length];
           while (rs.next()) {
             byte[] geometry = rs.getBytes(geometryColumn + 1);
             if (geometry == null) {
               continue;
             }
+            long featureId = ++id;
+            boolean interesting = interest.acceptsAll();
+            for (int c = 0; c < column.length; c++) {
+              if (c != geometryColumn) {
+                values[c] = rs.getObject(c + 1);
+                interesting = interesting || interest.caresAbout(column[c], values[c]);
+              }
+            }
+            if (!interesting) {
+              continue;
+            }
 
             // create the feature and pass to next stage
             Geometry latLonGeometry = wkbReader.read(geometry);
             SimpleFeature readerGeometry = SimpleFeature.create(latLonGeometry, HashMap.newHashMap(column.length - 1),
-              sourceName, table, ++id);
+              sourceName, table, featureId);
             for (int c = 0; c < column.length; c++) {
               if (c != geometryColumn) {
-                Object value = rs.getObject(c + 1);
-                String key = column[c];
-                readerGeometry.setTag(key, value);
+                readerGeometry.setTag(column[c], values[c]);
               }
             }
             next.accept(readerGeometry);
@@ -197,13 +236,59 @@ public class NaturalEarthReader extends SimpleReader<SimpleFeature> {
     }
   }
 
+  private void readCachedFeatures(Consumer<SimpleFeature> next) throws Exception {
+    long firstId = 0;
+    var wkbReader = GeoUtils.wkbReader();
+    for (var table : cache.tables()) {
+      var interest = interestFilter(table.name());
+      if (interest.caresAboutAnyKey(table.columns())) {
+        List<String> column = table.columns();
+        long[] id = {firstId};
+        cache.read(table, (values, wkb) -> {
+          long featureId = ++id[0];
+          boolean interesting = interest.acceptsAll();
+          for (int c = 0; c < values.length && !interesting; c++) {
+            interesting = interest.caresAbout(column.get(c), values[c]);
+          }
+          if (interesting) {
+            byte[] geometry = new byte[wkb.remaining()];
+            wkb.get(geometry);
+            SimpleFeature feature = SimpleFeature.create(wkbReader.read(geometry),
+              HashMap.newHashMap(values.length), sourceName, table.name(), featureId);
+            for (int c = 0; c < values.length; c++) {
+              feature.setTag(column.get(c), values[c]);
+            }
+            next.accept(feature);
+          }
+        });
+      }
+      // skipped tables still use up IDs so they stay the same as when reading every table
+      firstId += table.numFeatures();
+    }
+  }
+
+  private static long countFeatures(Statement statement, String table) throws SQLException {
+    @SuppressWarnings("java:S2077") // table name checked against a regex
+    ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM %s WHERE GEOMETRY IS NOT NULL;".formatted(table));
+    return rs.next() ? rs.getLong(1) : 0;
+  }
+
   @Override
   public void close() {
     try {
-      conn.close();
+      if (conn != null) {
+        conn.close();
+      }
     } catch (SQLException e) {
       LOGGER.error("Error closing sqlite file", e);
     }
+    try {
+      if (cache != null) {
+        cache.close();
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error closing natural earth cache", e);
+    }
     if (!keepUnzipped && extracted != null) {
       FileUtils.deleteFile(extracted);
     }
@@ -4,11 +4,20 @@ import com.onthegomap.planetiler.Profile;
 import com.onthegomap.planetiler.collection.FeatureGroup;
 import com.onthegomap.planetiler.config.Bounds;
 import com.onthegomap.planetiler.config.PlanetilerConfig;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.stats.Stats;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.function.Consumer;
@@ -21,9 +30,11 @@ import org.geotools.api.referencing.operation.MathTransform;
 import org.geotools.api.referencing.operation.OperationNotFoundException;
 import org.geotools.api.referencing.operation.TransformException;
 import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureCollection;
-import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.GeometryCoordinateSequenceTransformer;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.util.factory.GeoTools;
@@ -35,7 +46,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Utility that reads {@link SourceFeature SourceFeatures} from the geometries contained in an ESRI shapefile.
  * <p>
- * Shapefile processing handled by geotools {@link ShapefileDataStore}.
+ * Shapefile processing handled by geotools {@link ShapefileDataStore}. Large shapefiles on disk with a {@code .shx}
+ * index get split into ranges of records that can be read in parallel using the lower-level geotools
+ * {@link org.geotools.data.shapefile.shp.ShapefileReader} and {@link DbaseFileReader}.
  *
  * @see <a href=
  *      "https://www.esri.com/content/dam/esrisites/sitecore-archive/Files/Pdfs/library/whitepapers/pdfs/shapefile.pdf">ESRI
@@ -43,12 +56,18 @@ import org.slf4j.LoggerFactory;
  */
 public class ShapefileReader extends SimpleReader<SimpleFeature> {
   private static final Logger LOGGER = LoggerFactory.getLogger(ShapefileReader.class);
+  private static final long SPLIT_BYTES = 32L * 1024 * 1024;
+  private static final int SHX_HEADER_BYTES = 100;
 
   private final FeatureCollection<SimpleFeatureType, org.geotools.api.feature.simple.SimpleFeature> inputSource;
   private final String[] attributeNames;
   private final ShapefileDataStore dataStore;
+  private final Path input;
   private final String layer;
-  private MathTransform transformToLatLon;
+  // bounds to read in the shapefile's coordinate reference system, or null to read everything
+  private Envelope sourceBounds = null;
+  // reused for every feature this reader reprojects, so each thread reading a split gets its own
+  private GeometryCoordinateSequenceTransformer transformToLatLon;
 
   public ShapefileReader(String sourceProjection, String sourceName, Path input) {
     this(sourceProjection, sourceName, input, Bounds.WORLD);
@@ -56,6 +75,7 @@ public class ShapefileReader extends SimpleReader<SimpleFeature> {
 
   public ShapefileReader(String sourceProjection, String sourceName, Path input, Bounds bounds) {
     super(sourceName);
+    this.input = input;
     this.layer = input.getFileName().toString().replaceAll("\\.shp$", "");
     dataStore = open(input);
     try {
@@ -66,9 +86,10 @@ public class ShapefileReader extends SimpleReader<SimpleFeature> {
       CoordinateReferenceSystem src =
         sourceProjection == null ? sourceCrs : GeoUtils.decodeCRS(sourceProjection, sourceCrs);
       CoordinateReferenceSystem dest = CRS.decode("EPSG:4326", true);
-      transformToLatLon = findMathTransform(input, src, dest);
-      if (transformToLatLon.isIdentity()) {
-        transformToLatLon = null;
+      MathTransform mathTransform = findMathTransform(input, src, dest);
+      if (!mathTransform.isIdentity()) {
+        transformToLatLon = new GeometryCoordinateSequenceTransformer();
+        transformToLatLon.setMathTransform(mathTransform);
       }
 
       Filter filter = Filter.INCLUDE;
@@ -84,6 +105,7 @@ public class ShapefileReader extends SimpleReader<SimpleFeature> {
         try {
           var bbox2 = bbox.transform(schema.getGeometryDescriptor().getCoordinateReferenceSystem(), true);
           filter = ff.bbox(ff.property(geometryPropertyName), bbox2);
+          sourceBounds = bbox2;
         } catch (TransformException e) {
           // just use include filter
         }
@@ -156,18 +178,26 @@ public class ShapefileReader extends SimpleReader<SimpleFeature> {
 
   @Override
   public void readFeatures(Consumer<SimpleFeature> next) throws TransformException {
-    long id = 0;
+    long recordNumber = 0;
+    var interest = interestFilter(layer);
+    if (!interest.caresAboutAnyKey(Arrays.asList(attributeNames))) {
+      // none of the DBF columns could cause the profile to emit anything
+      return;
+    }
     try (var iter = inputSource.features()) {
       while (iter.hasNext()) {
         org.geotools.api.feature.simple.SimpleFeature feature = iter.next();
+        // use the record number so IDs stay the same when records get skipped, and when reading splits
+        long featureId = parseRecordNumber(feature.getID(), recordNumber + 1);
+        recordNumber = featureId;
         Geometry source = (Geometry) feature.getDefaultGeometry();
-        Geometry latLonGeometry = source;
-        if (transformToLatLon != null) {
-          latLonGeometry = JTS.transform(source, transformToLatLon);
+        if (source == null) {
+          continue;
         }
-        if (latLonGeometry != null) {
-          SimpleFeature geom = SimpleFeature.create(latLonGeometry, HashMap.newHashMap(attributeNames.length),
-            sourceName, layer, ++id);
+        // check DBF attributes before paying to reproject the geometry
+        if (caresAbout(interest, feature)) {
+          SimpleFeature geom = SimpleFeature.create(toLatLon(source), HashMap.newHashMap(attributeNames.length),
+            sourceName, layer, featureId);
           for (int i = 1; i < attributeNames.length; i++) {
             geom.setTag(attributeNames[i], feature.getAttribute(i));
           }
@@ -177,6 +207,160 @@ public class ShapefileReader extends SimpleReader<SimpleFeature> {
     }
   }
 
+  /**
+   * Returns the 1-based record number from a geotools feature ID like {@code stations.12}, or {@code fallback} if it
+   * does not end with a number.
+   */
+  private static long parseRecordNumber(String featureId, long fallback) {
+    int dot = featureId == null ? -1 : featureId.lastIndexOf('.');
+    try {
+      return dot < 0 ? fallback : Long.parseLong(featureId, dot + 1, featureId.length(), 10);
+    } catch (NumberFormatException e) {
+      return fallback;
+    }
+  }
+
+  private Geometry toLatLon(Geometry source) throws TransformException {
+    return transformToLatLon == null ? source : transformToLatLon.transform(source);
+  }
+
+  /**
+   * Returns ranges of about 32MB of records from the {@code .shx} index, or an empty list if the shapefile has no index,
+   * is not on the default filesystem, or has records past the 2GB limit on shapefile offsets.
+   * <p>
+   * Features read from a split get their record number as an ID, the same as {@link #readFeatures(Consumer)}.
+   */
+  @Override
+  public List<RecordRange> getSplits() {
+    return getSplits(SPLIT_BYTES);
+  }
+
+  List<RecordRange> getSplits(long splitBytes) {
+    Path shx = input.resolveSibling(layer + ".shx");
+    if (input.getFileSystem() != FileSystems.getDefault() || !Files.isRegularFile(shx)) {
+      return List.of();
+    }
+    List<RecordRange> result = new ArrayList<>();
+    try (var channel = FileChannel.open(shx, StandardOpenOption.READ)) {
+      int numRecords = (int) ((channel.size() - SHX_HEADER_BYTES) / 8);
+      // each index entry is a big-endian offset and content length of the record in 16-bit words
+      ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, SHX_HEADER_BYTES, numRecords * 8L);
+      int start = 0;
+      int startOffset = 0;
+      for (int i = 0; i < numRecords; i++) {
+        long offset = Integer.toUnsignedLong(entries.getInt(i * 8)) * 2;
+        if (offset > Integer.MAX_VALUE) {
+          // geotools can only seek to int offsets
+          LOGGER.warn("{} is larger than 2GB, reading the whole file at once", input);
+          return List.of();
+        }
+        if (i == 0) {
+          startOffset = (int) offset;
+        } else if (offset - startOffset >= splitBytes) {
+          result.add(new RecordRange(start, i - start, startOffset));
+          start = i;
+          startOffset = (int) offset;
+        }
+      }
+      if (numRecords > start) {
+        result.add(new RecordRange(start, numRecords - start, startOffset));
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to read shapefile index {}, reading the whole file at once", shx, e);
+      return List.of();
+    }
+    return result;
+  }
+
+  @Override
+  public void readSplit(Split split, Consumer<SimpleFeature> next) throws IOException, TransformException {
+    var range = (RecordRange) split;
+    var interest = interestFilter(layer);
+    if (!interest.caresAboutAnyKey(Arrays.asList(attributeNames))) {
+      return;
+    }
+    ShpFiles files = new ShpFiles(input.toUri().toURL());
+    try (
+      var shp = new org.geotools.data.shapefile.shp.ShapefileReader(files, true, false, GeoUtils.JTS_FACTORY);
+      var dbf = new DbaseFileReader(files, false, dbfCharset())
+    ) {
+      shp.goTo(range.offset());
+      dbf.goTo(range.firstRecord() + 1);
+      Object[] values = new Object[attributeNames.length];
+      for (int i = 0; i < range.numRecords() && shp.hasNext(); i++) {
+        var record = shp.nextRecord();
+        long recordNumber = range.firstRecord() + i + 1L;
+        if (sourceBounds != null && !sourceBounds.intersects(record.envelope())) {
+          dbf.skip();
+          continue;
+        }
+        var row = dbf.readRow();
+        if (row.isDeleted() || !(record.shape() instanceof Geometry source)) {
+          continue;
+        }
+        for (int j = 1; j < attributeNames.length; j++) {
+          values[j] = row.read(j - 1);
+        }
+        if (caresAbout(interest, values)) {
+          SimpleFeature geom = SimpleFeature.create(toLatLon(source), HashMap.newHashMap(attributeNames.length),
+            sourceName, layer, recordNumber);
+          for (int j = 1; j < attributeNames.length; j++) {
+            geom.setTag(attributeNames[j], values[j]);
+          }
+          next.accept(geom);
+        }
+      }
+    } finally {
+      files.dispose();
+    }
+  }
+
+  /** Returns the charset from a {@code .cpg} file next to the shapefile like {@link ShapefileDataStore} does. */
+  private Charset dbfCharset() {
+    Path cpg = input.resolveSibling(layer + ".cpg");
+    if (Files.isRegularFile(cpg)) {
+      try {
+        return Charset.forName(Files.readString(cpg).trim());
+      } catch (IOException | IllegalArgumentException e) {
+        LOGGER.warn("Unable to read charset from {}", cpg, e);
+      }
+    }
+    return dataStore.getCharset();
+  }
+
+  private boolean caresAbout(InterestFilter interest, Object[] values) {
+    if (interest.acceptsAll()) {
+      return true;
+    }
+    for (int i = 1; i < attributeNames.length; i++) {
+      if (interest.caresAbout(attributeNames[i], values[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A range of consecutive records in a shapefile.
+   *
+   * @param firstRecord index of the first record
+   * @param numRecords  number of records in the range
+   * @param offset      byte offset of the first record in the {@code .shp} file
+   */
+  public record RecordRange(int firstRecord, int numRecords, int offset) implements Split {}
+
+  private boolean caresAbout(InterestFilter interest, org.geotools.api.feature.simple.SimpleFeature feature) {
+    if (interest.acceptsAll()) {
+      return true;
+    }
+    for (int i = 1; i < attributeNames.length; i++) {
+      if (interest.caresAbout(attributeNames[i], feature.getAttribute(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public void close() {
     dataStore.dispose();
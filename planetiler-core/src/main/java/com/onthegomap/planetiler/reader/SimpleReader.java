@@ -1,7 +1,14 @@
 package com.onthegomap.planetiler.reader;
 
+import com.onthegomap.planetiler.Profile;
+import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.reader.osm.OsmReader;
 import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 
@@ -10,20 +17,68 @@ import java.util.function.Consumer;
  * can be read in a single pass, like {@link ShapefileReader} but not {@link OsmReader} which requires complex
  * multi-pass processing.
  * <p>
- * Implementations provide features through {@link #readFeatures(Consumer)}} and {@link #getFeatureCount()}}.
+ * Implementations provide features through {@link #readFeatures(Consumer)}} and {@link #getFeatureCount()}}. Readers
+ * for large single-file inputs can also override {@link #getSplits()} and {@link #readSplit(Split, Consumer)} to let
+ * {@link SourceFeatureProcessor} read parts of the file on multiple threads.
  */
 public abstract class SimpleReader<F extends SourceFeature> implements Closeable {
 
   protected final String sourceName;
+  private final Map<String, InterestFilter> interestFilters = new HashMap<>();
+  private Profile profile = null;
 
   protected SimpleReader(String sourceName) {
     this.sourceName = sourceName;
   }
 
+  /**
+   * Lets {@link #readFeatures(Consumer)} skip features that {@code profile} would not emit any map features for before
+   * constructing them.
+   */
+  public void setProfile(Profile profile) {
+    this.profile = profile;
+    interestFilters.clear();
+  }
+
+  /**
+   * Returns the filter on tags of features from {@code layer} that the profile could emit map features for, or
+   * {@link InterestFilter#ALL} if no profile was set.
+   */
+  protected InterestFilter interestFilter(String layer) {
+    if (profile == null) {
+      return InterestFilter.ALL;
+    }
+    return interestFilters.computeIfAbsent(layer, l -> profile.interestFilter(new Expression.PartialInput(
+      Set.of(sourceName), l == null ? Set.of() : Set.of(l), Map.of(), Set.of())));
+  }
+
   /** Returns the number of features to be read from this reader to use for displaying progress. */
   public abstract long getFeatureCount();
 
   /** Reads all features in this data provider, submitting each to {@code next} for further processing. */
   @SuppressWarnings("java:S112")
   public abstract void readFeatures(Consumer<F> next) throws Exception;
+
+  /**
+   * Returns parts of the input that can be read independently with {@link #readSplit(Split, Consumer)}, or an empty
+   * list if it can only be read all at once with {@link #readFeatures(Consumer)}.
+   * <p>
+   * Splits get read by other reader instances for the same input, so they should only contain plain data like offsets,
+   * and together they must cover every feature that {@link #readFeatures(Consumer)} would emit.
+   */
+  public List<? extends Split> getSplits() {
+    return List.of();
+  }
+
+  /**
+   * Reads the features in {@code split}, one of the values returned from {@link #getSplits()} on a reader for the same
+   * input, submitting each to {@code next} for further processing.
+   */
+  @SuppressWarnings("java:S112")
+  public void readSplit(Split split, Consumer<F> next) throws Exception {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support splits");
+  }
+
+  /** A part of an input file that a {@link SimpleReader} can read independently from the rest of it. */
+  public interface Split {}
 }
@@ -8,10 +8,13 @@ import com.onthegomap.planetiler.config.PlanetilerConfig;
 import com.onthegomap.planetiler.render.FeatureRenderer;
 import com.onthegomap.planetiler.stats.ProgressLoggers;
 import com.onthegomap.planetiler.stats.Stats;
+import com.onthegomap.planetiler.worker.ThreadBalancer;
 import com.onthegomap.planetiler.worker.WorkerPipeline;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
@@ -25,17 +28,25 @@ import org.slf4j.LoggerFactory;
  * name.
  * <p>
  * The paths will be processed in parallel according to the {@link #profile} using {@link SimpleReader} objects
- * constructed by {@link #readerFactory}.
+ * constructed by {@link #readerFactory}. Inputs that a reader can split into parts get read in parallel as well. With
+ * {@link PlanetilerConfig#adaptiveThreads()} set, a {@link ThreadBalancer} moves threads between the read and process
+ * steps while the source is being processed.
  */
 public class SourceFeatureProcessor<F extends SourceFeature> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SourceFeatureProcessor.class);
+  private static final Duration BALANCE_INTERVAL = Duration.ofSeconds(1);
 
   private final Profile profile;
   private final Stats stats;
   private final String sourceName;
   private final Function<Path, SimpleReader<F>> readerFactory;
 
+  /** A path to read, and the part of it to read or {@code null} to read the whole thing. */
+  private record ReadTask(Path path, SimpleReader.Split split) {}
+
+  private record ReadPlan(long featureCount, List<ReadTask> tasks) {}
+
   protected SourceFeatureProcessor(String sourceName, Function<Path, SimpleReader<F>> readerFactory, Profile profile,
     Stats stats) {
     this.profile = profile;
@@ -75,24 +86,37 @@ public class SourceFeatureProcessor<F extends SourceFeature> {
    */
   public final void processFiles(List<Path> sourcePaths, FeatureGroup writer, PlanetilerConfig config) {
     var timer = stats.startStage(sourceName);
-    long featureCount = getFeatureCount(sourcePaths);
+    var plan = planReads(sourcePaths);
+    long featureCount = plan.featureCount();
     int readThreads = config.featureReadThreads();
     int writeThreads = config.featureWriteThreads();
     int processThreads = config.featureProcessThreads();
+    if (plan.tasks().size() > sourcePaths.size()) {
+      // readers do most of the work parsing large splittable inputs so let them use up to half the threads
+      readThreads = Math.max(readThreads, Math.min(plan.tasks().size(), config.threads() / 2));
+    }
     Envelope latLonBounds = config.bounds().latLon();
     AtomicLong featuresRead = new AtomicLong(0);
+    // with more than one task to read, let threads move between reading and processing
+    var balancer = config.adaptiveThreads() && plan.tasks().size() > 1 ?
+      new ThreadBalancer(sourceName, stats, readThreads, processThreads, plan.tasks().size()) : null;
+    if (balancer != null) {
+      readThreads = balancer.producerThreads();
+      processThreads = balancer.consumerThreads();
+    }
 
     var pipeline = WorkerPipeline.start(sourceName, stats)
-      .readFromTiny("source_paths", sourcePaths)
-      .addWorker("read", readThreads, readPaths())
+      .readFromTiny("source_paths", plan.tasks())
+      .addWorker("read", readThreads, readPaths(balancer))
       .addBuffer("process_queue", 1000, 1)
-      .processAndWrite(config.parallelTempIO(), processThreads, writeThreads, writer, (prev, next) -> {
+      .processAndWrite(config.parallelTempIO(), processThreads, writeThreads, writer, (input, next) -> {
+        var prev = balancer == null ? input : balancer.consumers().limit(input);
         var featureCollectors = new FeatureCollector.Factory(config, stats);
         try (FeatureRenderer renderer = newFeatureRenderer(writer, config, next)) {
           for (SourceFeature sourceFeature : prev) {
             featuresRead.incrementAndGet();
             FeatureCollector features = featureCollectors.get(sourceFeature);
-            if (sourceFeature.latLonGeometry().getEnvelopeInternal().intersects(latLonBounds)) {
+            if (sourceFeature.latLonEnvelope().intersects(latLonBounds)) {
               try {
                 profile.processFeature(sourceFeature, features);
                 for (FeatureCollector.Feature renderable : features) {
@@ -115,7 +139,14 @@ public class SourceFeatureProcessor<F extends SourceFeature> {
       .newLine()
       .addPipelineStats(pipeline);
 
-    pipeline.awaitAndLog(loggers, config.logInterval());
+    if (balancer != null) {
+      try (balancer) {
+        balancer.start(pipeline.inputQueue("process"), BALANCE_INTERVAL);
+        pipeline.awaitAndLog(loggers, config.logInterval());
+      }
+    } else {
+      pipeline.awaitAndLog(loggers, config.logInterval());
+    }
 
     // hook for profile to do any post-processing after this source is read
     try (
@@ -137,29 +168,50 @@ public class SourceFeatureProcessor<F extends SourceFeature> {
       config,
       rendered -> next.accept(encoder.apply(rendered)),
       stats,
-      encoder
+      encoder,
+      writer.supportsFillRuns()
     );
   }
 
   protected long getFeatureCount(List<Path> sourcePaths) {
+    return planReads(sourcePaths).featureCount();
+  }
+
+  /** Counts features in each input and splits it up into parts that can be read in parallel when possible. */
+  private ReadPlan planReads(List<Path> sourcePaths) {
     long featureCount = 0;
+    List<ReadTask> tasks = new ArrayList<>();
     for (var path : sourcePaths) {
       try (var reader = readerFactory.apply(path)) {
         featureCount += reader.getFeatureCount();
+        var splits = reader.getSplits();
+        if (splits.size() > 1) {
+          for (var split : splits) {
+            tasks.add(new ReadTask(path, split));
+          }
+        } else {
+          tasks.add(new ReadTask(path, null));
+        }
       } catch (IOException e) {
         throw new UncheckedIOException(e);
       }
     }
 
-    return featureCount;
+    return new ReadPlan(featureCount, tasks);
   }
 
   /** Returns a source that initiates a {@link WorkerPipeline} with elements from this data provider. */
-  private WorkerPipeline.WorkerStep<Path, F> readPaths() {
-    return (paths, consumer) -> {
-      for (var path : paths) {
-        try (var reader = readerFactory.apply(path)) {
-          reader.readFeatures(consumer);
+  private WorkerPipeline.WorkerStep<ReadTask, F> readPaths(ThreadBalancer balancer) {
+    return (input, consumer) -> {
+      var tasks = balancer == null ? input : balancer.producers().limit(input);
+      for (var task : tasks) {
+        try (var reader = readerFactory.apply(task.path())) {
+          reader.setProfile(profile);
+          if (task.split() == null) {
+            reader.readFeatures(consumer);
+          } else {
+            reader.readSplit(task.split(), consumer);
+          }
         }
       }
     };
@@ -0,0 +1,101 @@
+package com.onthegomap.planetiler.reader.flatgeobuf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal accessor for fields of a table in a <a href="https://flatbuffers.dev/internals/">flatbuffer</a>, reading
+ * values in place from {@code buf} without copying.
+ * <p>
+ * Fields are addressed by their index in the schema, so callers need to know the layout of the table they read.
+ *
+ * @param buf little-endian buffer where position 0 is the start of the flatbuffer
+ * @param pos position of the table in {@code buf}
+ */
+record FlatBufferTable(ByteBuffer buf, int pos) {
+
+  /** Returns the root table of the flatbuffer that starts at position 0 in {@code buf}. */
+  static FlatBufferTable root(ByteBuffer buf) {
+    buf.order(ByteOrder.LITTLE_ENDIAN);
+    return new FlatBufferTable(buf, buf.getInt(0));
+  }
+
+  private int fieldOffset(int field) {
+    int vtable = pos - buf.getInt(pos);
+    int vtableSize = Short.toUnsignedInt(buf.getShort(vtable));
+    int entry = 4 + 2 * field;
+    return entry < vtableSize ? Short.toUnsignedInt(buf.getShort(vtable + entry)) : 0;
+  }
+
+  /** Returns the position of the string, vector, or table that {@code field} references, or -1 if it is missing. */
+  private int target(int field) {
+    int offset = fieldOffset(field);
+    if (offset == 0) {
+      return -1;
+    }
+    int ref = pos + offset;
+    return ref + buf.getInt(ref);
+  }
+
+  boolean has(int field) {
+    return fieldOffset(field) != 0;
+  }
+
+  int getUByte(int field, int defaultValue) {
+    int offset = fieldOffset(field);
+    return offset == 0 ? defaultValue : Byte.toUnsignedInt(buf.get(pos + offset));
+  }
+
+  boolean getBool(int field, boolean defaultValue) {
+    int offset = fieldOffset(field);
+    return offset == 0 ? defaultValue : buf.get(pos + offset) != 0;
+  }
+
+  int getUShort(int field, int defaultValue) {
+    int offset = fieldOffset(field);
+    return offset == 0 ? defaultValue : Short.toUnsignedInt(buf.getShort(pos + offset));
+  }
+
+  int getInt(int field, int defaultValue) {
+    int offset = fieldOffset(field);
+    return offset == 0 ? defaultValue : buf.getInt(pos + offset);
+  }
+
+  long getLong(int field, long defaultValue) {
+    int offset = fieldOffset(field);
+    return offset == 0 ? defaultValue : buf.getLong(pos + offset);
+  }
+
+  String getString(int field) {
+    int target = target(field);
+    if (target < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[buf.getInt(target)];
+    buf.get(target + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  FlatBufferTable getTable(int field) {
+    int target = target(field);
+    return target < 0 ? null : new FlatBufferTable(buf, target);
+  }
+
+  /** Returns the number of elements in the vector that {@code field} references, or 0 if it is missing. */
+  int vectorLength(int field) {
+    int target = target(field);
+    return target < 0 ? 0 : buf.getInt(target);
+  }
+
+  /** Returns the position of the first element in the vector that {@code field} references. */
+  int vectorStart(int field) {
+    return target(field) + 4;
+  }
+
+  /** Returns the {@code i}th table from the vector of tables that {@code field} references. */
+  FlatBufferTable getTable(int field, int i) {
+    int ref = vectorStart(field) + 4 * i;
+    return new FlatBufferTable(buf, ref + buf.getInt(ref));
+  }
+}
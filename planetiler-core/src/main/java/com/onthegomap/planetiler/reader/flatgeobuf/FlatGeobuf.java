@@ -0,0 +1,216 @@
+package com.onthegomap.planetiler.reader.flatgeobuf;
+
+import com.onthegomap.planetiler.geo.GeoUtils;
+import com.onthegomap.planetiler.geo.GeometryException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Utilities for decoding geometries and attributes from <a href="https://flatgeobuf.org/">FlatGeobuf</a> features
+ * directly into JTS geometries backed by {@link PackedCoordinateSequence PackedCoordinateSequences}.
+ */
+class FlatGeobuf {
+  // geometry types
+  static final int UNKNOWN = 0;
+  static final int POINT = 1;
+  static final int LINESTRING = 2;
+  static final int POLYGON = 3;
+  static final int MULTIPOINT = 4;
+  static final int MULTILINESTRING = 5;
+  static final int MULTIPOLYGON = 6;
+  static final int GEOMETRYCOLLECTION = 7;
+
+  // column types
+  static final int BYTE = 0;
+  static final int UBYTE = 1;
+  static final int BOOL = 2;
+  static final int SHORT = 3;
+  static final int USHORT = 4;
+  static final int INT = 5;
+  static final int UINT = 6;
+  static final int LONG = 7;
+  static final int ULONG = 8;
+  static final int FLOAT = 9;
+  static final int DOUBLE = 10;
+  static final int STRING = 11;
+  static final int JSON = 12;
+  static final int DATETIME = 13;
+  static final int BINARY = 14;
+
+  // feature fields
+  private static final int FEATURE_GEOMETRY = 0;
+  private static final int FEATURE_PROPERTIES = 1;
+  private static final int FEATURE_COLUMNS = 2;
+
+  // geometry fields
+  private static final int GEOMETRY_ENDS = 0;
+  private static final int GEOMETRY_XY = 1;
+  private static final int GEOMETRY_Z = 2;
+  private static final int GEOMETRY_TYPE = 6;
+  private static final int GEOMETRY_PARTS = 7;
+
+  private FlatGeobuf() {}
+
+  /**
+   * Returns the attributes of {@code feature}, using the columns from the feature if it has any or {@code columns} from
+   * the header otherwise.
+   */
+  static Map<String, Object> properties(FlatBufferTable feature, List<FlatGeobufHeader.Column> columns) {
+    int length = feature.vectorLength(FEATURE_PROPERTIES);
+    if (length == 0) {
+      return new HashMap<>();
+    }
+    if (feature.vectorLength(FEATURE_COLUMNS) > 0) {
+      List<FlatGeobufHeader.Column> featureColumns = new ArrayList<>();
+      for (int i = 0; i < feature.vectorLength(FEATURE_COLUMNS); i++) {
+        var column = feature.getTable(FEATURE_COLUMNS, i);
+        featureColumns.add(new FlatGeobufHeader.Column(column.getString(0), column.getUByte(1, 0)));
+      }
+      columns = featureColumns;
+    }
+    var buf = feature.buf();
+    Map<String, Object> result = HashMap.newHashMap(columns.size());
+    int pos = feature.vectorStart(FEATURE_PROPERTIES);
+    int end = pos + length;
+    while (pos < end) {
+      var column = columns.get(Short.toUnsignedInt(buf.getShort(pos)));
+      pos += 2;
+      Object value = switch (column.type()) {
+        case BYTE -> (int) buf.get(pos);
+        case UBYTE -> Byte.toUnsignedInt(buf.get(pos));
+        case BOOL -> buf.get(pos) != 0;
+        case SHORT -> (int) buf.getShort(pos);
+        case USHORT -> Short.toUnsignedInt(buf.getShort(pos));
+        case INT -> buf.getInt(pos);
+        case UINT -> Integer.toUnsignedLong(buf.getInt(pos));
+        case LONG, ULONG -> buf.getLong(pos);
+        case FLOAT -> buf.getFloat(pos);
+        case DOUBLE -> buf.getDouble(pos);
+        case STRING, JSON, DATETIME, BINARY -> {
+          byte[] bytes = new byte[buf.getInt(pos)];
+          buf.get(pos + 4, bytes);
+          yield column.type() == BINARY ? bytes : new String(bytes, StandardCharsets.UTF_8);
+        }
+        default -> throw new IllegalArgumentException("Unsupported column type: " + column.type());
+      };
+      pos += switch (column.type()) {
+        case BYTE, UBYTE, BOOL -> 1;
+        case SHORT, USHORT -> 2;
+        case INT, UINT, FLOAT -> 4;
+        case LONG, ULONG, DOUBLE -> 8;
+        default -> 4 + buf.getInt(pos);
+      };
+      result.put(column.name(), value);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the geometry of {@code feature}, where {@code type} is the geometry type from the header or
+   * {@link #UNKNOWN} to use the type from the feature.
+   */
+  static Geometry geometry(FlatBufferTable feature, int type) throws GeometryException {
+    var geometry = feature.getTable(FEATURE_GEOMETRY);
+    if (geometry == null) {
+      throw new GeometryException("fgb_missing_geometry", "FlatGeobuf feature has no geometry");
+    }
+    return decode(geometry, type);
+  }
+
+  private static Geometry decode(FlatBufferTable geometry, int type) throws GeometryException {
+    if (type == UNKNOWN) {
+      type = geometry.getUByte(GEOMETRY_TYPE, UNKNOWN);
+    }
+    int numPoints = geometry.vectorLength(GEOMETRY_XY) / 2;
+    return switch (type) {
+      case POINT -> numPoints == 0 ? GeoUtils.JTS_FACTORY.createPoint() :
+        GeoUtils.JTS_FACTORY.createPoint(coordinates(geometry, 0, 1));
+      case MULTIPOINT -> GeoUtils.JTS_FACTORY.createMultiPoint(coordinates(geometry, 0, numPoints));
+      case LINESTRING -> GeoUtils.JTS_FACTORY.createLineString(coordinates(geometry, 0, numPoints));
+      case MULTILINESTRING -> {
+        List<LineString> lines = new ArrayList<>();
+        int start = 0;
+        for (int end : ends(geometry, numPoints)) {
+          lines.add(GeoUtils.JTS_FACTORY.createLineString(coordinates(geometry, start, end)));
+          start = end;
+        }
+        yield GeoUtils.createMultiLineString(lines);
+      }
+      case POLYGON -> polygon(geometry, numPoints);
+      case MULTIPOLYGON -> {
+        List<Polygon> polygons = new ArrayList<>();
+        for (int i = 0; i < geometry.vectorLength(GEOMETRY_PARTS); i++) {
+          var part = geometry.getTable(GEOMETRY_PARTS, i);
+          polygons.add(polygon(part, part.vectorLength(GEOMETRY_XY) / 2));
+        }
+        yield GeoUtils.createMultiPolygon(polygons);
+      }
+      case GEOMETRYCOLLECTION -> {
+        List<Geometry> parts = new ArrayList<>();
+        for (int i = 0; i < geometry.vectorLength(GEOMETRY_PARTS); i++) {
+          parts.add(decode(geometry.getTable(GEOMETRY_PARTS, i), UNKNOWN));
+        }
+        yield GeoUtils.createGeometryCollection(parts);
+      }
+      default -> throw new GeometryException("fgb_unsupported_geometry", "Unsupported FlatGeobuf geometry " + type);
+    };
+  }
+
+  private static Polygon polygon(FlatBufferTable geometry, int numPoints) {
+    if (numPoints == 0) {
+      return GeoUtils.JTS_FACTORY.createPolygon();
+    }
+    LinearRing shell = null;
+    List<LinearRing> holes = new ArrayList<>();
+    int start = 0;
+    for (int end : ends(geometry, numPoints)) {
+      var ring = GeoUtils.JTS_FACTORY.createLinearRing(coordinates(geometry, start, end));
+      if (shell == null) {
+        shell = ring;
+      } else {
+        holes.add(ring);
+      }
+      start = end;
+    }
+    return GeoUtils.createPolygon(shell, holes);
+  }
+
+  /** Returns the index after the last point in each part, or just {@code numPoints} if there is only one part. */
+  private static int[] ends(FlatBufferTable geometry, int numPoints) {
+    int length = geometry.vectorLength(GEOMETRY_ENDS);
+    if (length == 0) {
+      return new int[]{numPoints};
+    }
+    int[] result = new int[length];
+    int start = geometry.vectorStart(GEOMETRY_ENDS);
+    for (int i = 0; i < length; i++) {
+      result[i] = geometry.buf().getInt(start + 4 * i);
+    }
+    return result;
+  }
+
+  private static PackedCoordinateSequence.Double coordinates(FlatBufferTable geometry, int start, int end) {
+    var buf = geometry.buf();
+    int xy = geometry.vectorStart(GEOMETRY_XY);
+    boolean hasZ = geometry.vectorLength(GEOMETRY_Z) > 0;
+    int z = hasZ ? geometry.vectorStart(GEOMETRY_Z) : 0;
+    int dimension = hasZ ? 3 : 2;
+    double[] coords = new double[(end - start) * dimension];
+    for (int i = start, j = 0; i < end; i++) {
+      coords[j++] = buf.getDouble(xy + 16 * i);
+      coords[j++] = buf.getDouble(xy + 16 * i + 8);
+      if (hasZ) {
+        coords[j++] = buf.getDouble(z + 8 * i);
+      }
+    }
+    return new PackedCoordinateSequence.Double(coords, dimension, 0);
+  }
+}
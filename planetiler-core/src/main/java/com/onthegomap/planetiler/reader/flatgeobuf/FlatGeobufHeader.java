@@ -0,0 +1,103 @@
+package com.onthegomap.planetiler.reader.flatgeobuf;
+
+import com.onthegomap.planetiler.reader.FileFormatException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Metadata from the header of a <a href="https://flatgeobuf.org/">FlatGeobuf</a> file.
+ *
+ * @param name          name of the dataset
+ * @param geometryType  type of every geometry in the file, or {@link FlatGeobuf#UNKNOWN} if each feature has its own
+ * @param columns       attributes that features in the file can have
+ * @param featuresCount number of features in the file
+ * @param indexNodeSize number of children of each node in the spatial index, or 0 if the file has no index
+ * @param crs           coordinate reference system of geometries in the file, or null if not specified
+ * @param size          number of bytes from the start of the file to the end of the header
+ */
+record FlatGeobufHeader(
+  String name,
+  int geometryType,
+  List<Column> columns,
+  long featuresCount,
+  int indexNodeSize,
+  Crs crs,
+  long size
+) {
+
+  private static final byte[] MAGIC = {'f', 'g', 'b', 3};
+  private static final int MAGIC_BYTES = 8;
+
+  // header fields
+  private static final int NAME = 0;
+  private static final int GEOMETRY_TYPE = 2;
+  private static final int COLUMNS = 7;
+  private static final int FEATURES_COUNT = 8;
+  private static final int INDEX_NODE_SIZE = 9;
+  private static final int CRS = 10;
+
+  // column fields
+  private static final int COLUMN_NAME = 0;
+  private static final int COLUMN_TYPE = 1;
+
+  // crs fields
+  private static final int CRS_ORG = 0;
+  private static final int CRS_CODE = 1;
+  private static final int CRS_WKT = 4;
+
+  /** Number of bytes at the start of the file to read before {@link #parse(ByteBuffer)} can determine the size. */
+  static final int PREFIX_BYTES = MAGIC_BYTES + 4;
+
+  /**
+   * An attribute of features in the file.
+   *
+   * @param name name of the attribute
+   * @param type one of the column type constants in {@link FlatGeobuf} that determines how values are encoded
+   */
+  record Column(String name, int type) {}
+
+  /**
+   * A coordinate reference system from the file header.
+   *
+   * @param org  authority that defines {@code code}, i.e. {@code EPSG}
+   * @param code numeric code for the reference system, or 0 if unknown
+   * @param wkt  well-known text definition of the reference system, or null if not specified
+   */
+  record Crs(String org, int code, String wkt) {}
+
+  /** Returns the total number of bytes in the header given the first {@link #PREFIX_BYTES} of the file. */
+  static long size(ByteBuffer prefix) {
+    byte[] magic = new byte[MAGIC.length];
+    prefix.get(0, magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new FileFormatException("Not a FlatGeobuf v3 file");
+    }
+    return PREFIX_BYTES + Integer.toUnsignedLong(prefix.order(ByteOrder.LITTLE_ENDIAN).getInt(MAGIC_BYTES));
+  }
+
+  /** Parses the header from a buffer that contains the start of the file up to at least {@link #size(ByteBuffer)}. */
+  static FlatGeobufHeader parse(ByteBuffer buf) {
+    long size = size(buf);
+    var header = FlatBufferTable.root(buf.slice(PREFIX_BYTES, (int) (size - PREFIX_BYTES)));
+    List<Column> columns = new ArrayList<>();
+    for (int i = 0; i < header.vectorLength(COLUMNS); i++) {
+      var column = header.getTable(COLUMNS, i);
+      columns.add(new Column(column.getString(COLUMN_NAME), column.getUByte(COLUMN_TYPE, 0)));
+    }
+    var crsTable = header.getTable(CRS);
+    Crs crs = crsTable == null ? null :
+      new Crs(crsTable.getString(CRS_ORG), crsTable.getInt(CRS_CODE, 0), crsTable.getString(CRS_WKT));
+    return new FlatGeobufHeader(
+      header.getString(NAME),
+      header.getUByte(GEOMETRY_TYPE, FlatGeobuf.UNKNOWN),
+      List.copyOf(columns),
+      header.getLong(FEATURES_COUNT, 0),
+      header.getUShort(INDEX_NODE_SIZE, 16),
+      crs,
+      size
+    );
+  }
+}
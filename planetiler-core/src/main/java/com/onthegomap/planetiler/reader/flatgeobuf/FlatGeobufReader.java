@@ -0,0 +1,277 @@
+package com.onthegomap.planetiler.reader.flatgeobuf;
+
+import com.onthegomap.planetiler.Profile;
+import com.onthegomap.planetiler.collection.FeatureGroup;
+import com.onthegomap.planetiler.config.Bounds;
+import com.onthegomap.planetiler.config.PlanetilerConfig;
+import com.onthegomap.planetiler.expression.InterestFilter;
+import com.onthegomap.planetiler.geo.GeoUtils;
+import com.onthegomap.planetiler.reader.FileFormatException;
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import com.onthegomap.planetiler.reader.SimpleReader;
+import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.reader.SourceFeatureProcessor;
+import com.onthegomap.planetiler.stats.Stats;
+import com.onthegomap.planetiler.util.ByteBufferUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.geotools.api.referencing.FactoryException;
+import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
+import org.geotools.api.referencing.operation.MathTransform;
+import org.geotools.api.referencing.operation.TransformException;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Utility that reads {@link SourceFeature SourceFeatures} from the vector geometries contained in a
+ * <a href="https://flatgeobuf.org/">FlatGeobuf</a> file.
+ * <p>
+ * The file gets memory-mapped and features are decoded in place from the mapped buffer. When the reader has bounds
+ * and the file has a spatial index, only features whose bounding box intersects them get decoded. Files with an index
+ * also get split into ranges of consecutive features that can be read in parallel. Files that don't record how many
+ * features they contain get read until the end of the file.
+ */
+public class FlatGeobufReader extends SimpleReader<SimpleFeature> {
+
+  private static final long SPLIT_BYTES = 32L * 1024 * 1024;
+  private static final long WINDOW_BYTES = 128L * 1024 * 1024;
+  // feature count to read until the end of the file
+  private static final long UNTIL_END = -1;
+
+  private final FileChannel channel;
+  private final FlatGeobufHeader header;
+  private final String layer;
+  private final long featuresStart;
+  private final long fileSize;
+  private final PackedRTree index;
+  // transform from the file's coordinate reference system to lat/lon, or null if it is already lat/lon
+  private final MathTransform transformToLatLon;
+  // bounds to read in the file's coordinate reference system, or null to read everything
+  private final Envelope sourceBounds;
+  // region of the file that is currently mapped
+  private MappedByteBuffer window = null;
+  private long windowStart = 0;
+  private long windowEnd = 0;
+
+  public FlatGeobufReader(String sourceProjection, String sourceName, Path input, Bounds bounds) {
+    super(sourceName);
+    this.layer = input.getFileName().toString().replaceFirst("\\.[^.]+$", "");
+    try {
+      channel = FileChannel.open(input, StandardOpenOption.READ);
+      fileSize = channel.size();
+      ByteBuffer prefix = ByteBuffer.allocate(FlatGeobufHeader.PREFIX_BYTES);
+      channel.read(prefix, 0);
+      long headerSize = FlatGeobufHeader.size(prefix);
+      var headerBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize);
+      try {
+        header = FlatGeobufHeader.parse(headerBuffer);
+      } finally {
+        ByteBufferUtil.free(headerBuffer);
+      }
+      long indexStart = header.size();
+      if (header.indexNodeSize() > 0 && header.featuresCount() > 0) {
+        index = PackedRTree.map(channel, indexStart, header.featuresCount(), header.indexNodeSize());
+        featuresStart = indexStart + PackedRTree.size(header.featuresCount(), header.indexNodeSize());
+      } else {
+        index = null;
+        featuresStart = indexStart;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      transformToLatLon = findTransformToLatLon(sourceProjection);
+      sourceBounds = bounds == null || bounds.isWorld() ? null : sourceBounds(bounds);
+    } catch (FactoryException e) {
+      throw new FileFormatException("Bad reference system", e);
+    }
+  }
+
+  public FlatGeobufReader(String sourceProjection, String sourceName, Path input) {
+    this(sourceProjection, sourceName, input, Bounds.WORLD);
+  }
+
+  /**
+   * Renders map features for all elements from a FlatGeobuf file based on the mapping logic defined in
+   * {@code profile}.
+   *
+   * @param sourceProjection code for the coordinate reference system of the input data, to be parsed by
+   *                         {@link CRS#decode(String)}, or null to use the one from the file
+   * @param sourceName       string ID for this reader to use in logs and stats
+   * @param sourcePaths      paths to the {@code .fgb} files on disk
+   * @param writer           consumer for rendered features
+   * @param config           user-defined parameters controlling number of threads and log interval
+   * @param profile          logic that defines what map features to emit for each source feature
+   * @param stats            to keep track of counters and timings
+   * @throws IllegalArgumentException if a problem occurs reading the input file
+   */
+  public static void process(String sourceProjection, String sourceName, List<Path> sourcePaths, FeatureGroup writer,
+    PlanetilerConfig config, Profile profile, Stats stats) {
+    SourceFeatureProcessor.processFiles(
+      sourceName,
+      sourcePaths,
+      path -> new FlatGeobufReader(sourceProjection, sourceName, path, config.bounds()),
+      writer, config, profile, stats
+    );
+  }
+
+  private MathTransform findTransformToLatLon(String sourceProjection) throws FactoryException {
+    CoordinateReferenceSystem sourceCrs = null;
+    var crs = header.crs();
+    if (crs != null && crs.code() > 0 && (crs.org() == null || "EPSG".equalsIgnoreCase(crs.org()))) {
+      sourceCrs = crs.code() == 4326 ? null : CRS.decode("EPSG:" + crs.code(), true);
+    } else if (crs != null && crs.wkt() != null && !crs.wkt().isBlank()) {
+      sourceCrs = CRS.parseWKT(crs.wkt());
+    }
+    if (sourceProjection != null) {
+      sourceCrs = GeoUtils.decodeCRS(sourceProjection, sourceCrs);
+    }
+    if (sourceCrs == null) {
+      return null;
+    }
+    var transform = GeoUtils.findMathTransform(sourceCrs, CRS.decode("EPSG:4326", true), true);
+    return transform.isIdentity() ? null : transform;
+  }
+
+  private Envelope sourceBounds(Bounds bounds) throws FactoryException {
+    var latLon = bounds.latLon();
+    if (transformToLatLon == null) {
+      return latLon;
+    }
+    var bbox = new ReferencedEnvelope(latLon.getMinX(), latLon.getMaxX(), latLon.getMinY(), latLon.getMaxY(),
+      CRS.decode("EPSG:4326", true));
+    try {
+      var transformed = CRS.transform(transformToLatLon.inverse(), bbox);
+      return new Envelope(transformed.getMinimum(0), transformed.getMaximum(0), transformed.getMinimum(1),
+        transformed.getMaximum(1));
+    } catch (TransformException e) {
+      // just read everything
+      return null;
+    }
+  }
+
+  /** Returns the number of features from the header, or 0 if the file doesn't specify it. */
+  @Override
+  public long getFeatureCount() {
+    return header.featuresCount();
+  }
+
+  @Override
+  public void readFeatures(Consumer<SimpleFeature> next) throws Exception {
+    // a count of 0 means unknown, and those files can't have an index
+    readFeatures(0, header.featuresCount() > 0 ? header.featuresCount() : UNTIL_END, next);
+  }
+
+  /**
+   * Returns ranges of about 32MB of consecutive features using offsets from the spatial index, or an empty list if the
+   * file has no index.
+   * <p>
+   * Features get their position in the file as an ID, so the ones read from a split match the IDs that
+   * {@link #readFeatures(Consumer)} assigns.
+   */
+  @Override
+  public List<FeatureRange> getSplits() {
+    return getSplits(SPLIT_BYTES);
+  }
+
+  List<FeatureRange> getSplits(long splitBytes) {
+    if (index == null) {
+      return List.of();
+    }
+    List<FeatureRange> result = new ArrayList<>();
+    long start = 0;
+    long startOffset = 0;
+    for (long i = 1; i < header.featuresCount(); i++) {
+      long offset = index.featureOffset(i);
+      if (offset - startOffset >= splitBytes) {
+        result.add(new FeatureRange(start, i - start));
+        start = i;
+        startOffset = offset;
+      }
+    }
+    result.add(new FeatureRange(start, header.featuresCount() - start));
+    return result;
+  }
+
+  @Override
+  public void readSplit(Split split, Consumer<SimpleFeature> next) throws Exception {
+    var range = (FeatureRange) split;
+    readFeatures(range.firstFeature, range.firstFeature + range.numFeatures, next);
+  }
+
+  private void readFeatures(long first, long end, Consumer<SimpleFeature> next) throws Exception {
+    var interest = interestFilter(layer);
+    if (index != null && sourceBounds != null) {
+      index.search(sourceBounds, first, end, (i, offset) -> readFeature(interest, i, offset, next));
+    } else {
+      long offset = first == 0 ? 0 : index.featureOffset(first);
+      long dataSize = fileSize - featuresStart;
+      for (long i = first; end == UNTIL_END ? offset < dataSize : i < end; i++) {
+        offset += readFeature(interest, i, offset, next);
+      }
+    }
+  }
+
+  /** Reads the feature at {@code offset} from the start of feature data and returns the number of bytes it uses. */
+  private int readFeature(InterestFilter interest, long i, long offset, Consumer<SimpleFeature> next)
+    throws Exception {
+    long position = featuresStart + offset;
+    map(position, 4);
+    int size = window.getInt((int) (position - windowStart));
+    map(position + 4, size);
+    var feature = FlatBufferTable.root(window.slice((int) (position + 4 - windowStart), size));
+    var properties = FlatGeobuf.properties(feature, header.columns());
+    // check attributes before paying to decode and reproject the geometry
+    if (interest.test(properties)) {
+      Geometry geometry = FlatGeobuf.geometry(feature, header.geometryType());
+      if (transformToLatLon != null) {
+        geometry = JTS.transform(geometry, transformToLatLon);
+      }
+      next.accept(SimpleFeature.create(geometry, properties, sourceName, layer, i + 1));
+    }
+    return 4 + size;
+  }
+
+  /** Ensures that bytes {@code [position, position + length)} of the file are in the mapped window. */
+  private void map(long position, long length) throws IOException {
+    if (window == null || position < windowStart || position + length > windowEnd) {
+      ByteBufferUtil.free(window);
+      windowStart = position;
+      windowEnd = Math.min(fileSize, position + Math.max(length, WINDOW_BYTES));
+      if (position + length > windowEnd) {
+        throw new FileFormatException("FlatGeobuf feature extends past the end of the file");
+      }
+      window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+      window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  /**
+   * A range of consecutive features in a FlatGeobuf file.
+   *
+   * @param firstFeature index of the first feature
+   * @param numFeatures  number of features in the range
+   */
+  public record FeatureRange(long firstFeature, long numFeatures) implements Split {}
+
+  @Override
+  public void close() throws IOException {
+    ByteBufferUtil.free(window);
+    if (index != null) {
+      index.close();
+    }
+    channel.close();
+  }
+}
@@ -0,0 +1,138 @@
+package com.onthegomap.planetiler.reader.flatgeobuf;
+
+import com.onthegomap.planetiler.util.ByteBufferUtil;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Memory-mapped view of the <a href="https://github.com/flatgeobuf/flatgeobuf/blob/master/src/ts/packedrtree.ts">packed
+ * Hilbert R-tree</a> spatial index in a FlatGeobuf file.
+ * <p>
+ * Nodes are stored root-first, one level after another, with the leaves at the end in the same order as features in
+ * the file. Each node has a bounding box and either the index of its first child node or the byte offset of the
+ * feature that a leaf refers to.
+ */
+class PackedRTree implements Closeable {
+  static final int NODE_ITEM_BYTES = 40;
+  // segments hold a whole number of nodes so none of them span two segments
+  private static final long SEGMENT_NODES = 1 << 24;
+
+  private final int nodeSize;
+  private final long numItems;
+  // start and end node index of each level, starting from the leaves
+  private final long[] levelStarts;
+  private final long[] levelEnds;
+  // number of leaves under each node on a level
+  private final long[] levelSpans;
+  private final MappedByteBuffer[] segments;
+
+  /** Handler for features that intersect a search. */
+  @FunctionalInterface
+  interface Hit {
+    void accept(long featureIndex, long featureOffset) throws Exception;
+  }
+
+  private PackedRTree(FileChannel channel, long start, long numItems, int nodeSize) throws IOException {
+    this.numItems = numItems;
+    this.nodeSize = nodeSize;
+    List<Long> levelNumNodes = levelNumNodes(numItems, nodeSize);
+    int levels = levelNumNodes.size();
+    levelStarts = new long[levels];
+    levelEnds = new long[levels];
+    levelSpans = new long[levels];
+    long end = levelNumNodes.stream().mapToLong(Long::longValue).sum();
+    long span = 1;
+    for (int i = 0; i < levels; i++) {
+      levelEnds[i] = end;
+      levelStarts[i] = end - levelNumNodes.get(i);
+      levelSpans[i] = span;
+      end = levelStarts[i];
+      span = span > Long.MAX_VALUE / nodeSize ? Long.MAX_VALUE : span * nodeSize;
+    }
+    long numNodes = levelEnds[0];
+    segments = new MappedByteBuffer[(int) ((numNodes + SEGMENT_NODES - 1) / SEGMENT_NODES)];
+    for (int i = 0; i < segments.length; i++) {
+      long segmentNodes = Math.min(SEGMENT_NODES, numNodes - i * SEGMENT_NODES);
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + i * SEGMENT_NODES * NODE_ITEM_BYTES,
+        segmentNodes * NODE_ITEM_BYTES);
+      segments[i].order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  /** Maps the index of {@code numItems} features that starts at byte {@code start} of {@code channel}. */
+  static PackedRTree map(FileChannel channel, long start, long numItems, int nodeSize) throws IOException {
+    return new PackedRTree(channel, start, numItems, nodeSize);
+  }
+
+  private static List<Long> levelNumNodes(long numItems, int nodeSize) {
+    if (nodeSize < 2) {
+      throw new IllegalArgumentException("Invalid index node size: " + nodeSize);
+    } else if (numItems <= 0) {
+      throw new IllegalArgumentException("Cannot index " + numItems + " items");
+    }
+    List<Long> result = new ArrayList<>();
+    long n = numItems;
+    result.add(n);
+    do {
+      n = (n + nodeSize - 1) / nodeSize;
+      result.add(n);
+    } while (n != 1);
+    return result;
+  }
+
+  /** Returns the number of bytes in the index for {@code numItems} features with {@code nodeSize} children per node. */
+  static long size(long numItems, int nodeSize) {
+    return levelNumNodes(numItems, nodeSize).stream().mapToLong(Long::longValue).sum() * NODE_ITEM_BYTES;
+  }
+
+  private double get(long node, int offset) {
+    return segments[(int) (node / SEGMENT_NODES)].getDouble((int) ((node % SEGMENT_NODES) * NODE_ITEM_BYTES) + offset);
+  }
+
+  private long offset(long node) {
+    return segments[(int) (node / SEGMENT_NODES)].getLong((int) ((node % SEGMENT_NODES) * NODE_ITEM_BYTES) + 32);
+  }
+
+  /** Returns the byte offset of feature {@code i} from the start of the feature data. */
+  long featureOffset(long i) {
+    return offset(levelStarts[0] + i);
+  }
+
+  /**
+   * Invokes {@code hit} in ascending order for every feature with index in {@code [first, end)} whose bounding box
+   * intersects {@code bounds}.
+   */
+  void search(Envelope bounds, long first, long end, Hit hit) throws Exception {
+    search(0, levelStarts.length - 1, bounds, Math.max(0, first), Math.min(end, numItems), hit);
+  }
+
+  private void search(long nodeIndex, int level, Envelope bounds, long first, long end, Hit hit) throws Exception {
+    long levelEnd = Math.min(nodeIndex + nodeSize, levelEnds[level]);
+    for (long node = nodeIndex; node < levelEnd; node++) {
+      long leafStart = (node - levelStarts[level]) * levelSpans[level];
+      if (leafStart >= end || levelSpans[level] <= first - leafStart) {
+        continue;
+      }
+      if (get(node, 0) > bounds.getMaxX() || get(node, 8) > bounds.getMaxY() ||
+        get(node, 16) < bounds.getMinX() || get(node, 24) < bounds.getMinY()) {
+        continue;
+      }
+      if (level == 0) {
+        hit.accept(leafStart, offset(node));
+      } else {
+        search(offset(node), level - 1, bounds, first, end, hit);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    ByteBufferUtil.free(segments);
+  }
+}
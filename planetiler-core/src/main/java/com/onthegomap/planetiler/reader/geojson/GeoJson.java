@@ -1,13 +1,17 @@
 package com.onthegomap.planetiler.reader.geojson;
 
+import com.google.common.io.ByteStreams;
 import com.onthegomap.planetiler.reader.FileFormatException;
+import com.onthegomap.planetiler.reader.SimpleReader;
 import com.onthegomap.planetiler.util.CloseableIterator;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,12 +22,18 @@ import org.slf4j.LoggerFactory;
  * <p>
  * This emits every top-level feature or feature contained within a {@code FeatureCollection}. Invalid json syntax will
  * throw an exception, but unexpected geojson objects will just log a warning and emit empty geometries.
+ * <p>
+ * {@link #index()} quickly scans the document to count features and split it into {@link Chunk Chunks} of consecutive
+ * features that can be parsed on separate threads with {@link #iterator(Chunk)}.
  *
  * @see <a href="https://stevage.github.io/ndgeojson/">Newline-delimted geojson</a>
  * @see <a href="https://datatracker.ietf.org/doc/html/rfc7946">GeoJSON specification (RFC 7946)</a>
  */
 public class GeoJson implements Iterable<GeoJsonFeature> {
   private static final Logger LOGGER = LoggerFactory.getLogger(GeoJson.class);
+  static final long DEFAULT_CHUNK_BYTES = 32L * 1024 * 1024;
+  private static final byte[] COLLECTION_START = "{\"features\":[".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] COLLECTION_END = "]}".getBytes(StandardCharsets.UTF_8);
 
   private final InputStreamSupplier inputStreamSupplier;
   private final String name;
@@ -62,17 +72,70 @@ public class GeoJson implements Iterable<GeoJsonFeature> {
     }
   }
 
+  /** Returns an iterator over the features in {@code chunk} from {@link #index()} on this document. */
+  public CloseableIterator<GeoJsonFeature> iterator(Chunk chunk) {
+    try {
+      InputStream inputStream = inputStreamSupplier.get();
+      try {
+        inputStream.skipNBytes(chunk.start);
+      } catch (IOException e) {
+        inputStream.close();
+        throw e;
+      }
+      inputStream = ByteStreams.limit(inputStream, chunk.end - chunk.start);
+      if (chunk.inFeatureCollection) {
+        // wrap features from the middle of a "features" array in a new collection so they parse the same way
+        inputStream = new SequenceInputStream(
+          new SequenceInputStream(new ByteArrayInputStream(COLLECTION_START), inputStream),
+          new ByteArrayInputStream(COLLECTION_END)
+        );
+      }
+      return new GeoJsonFeatureIterator(inputStream, name == null ? null : (name + "@" + chunk.start));
+    } catch (IOException e) {
+      throw new FileFormatException("Unable to read geojson file", e);
+    }
+  }
+
   /** Returns the number of geojson features in this document. */
   public long count() {
-    try {
-      LOGGER.info("Counting geojson features in {}", name);
-      return GeoJsonFeatureCounter.count(inputStreamSupplier.get());
+    return index().count;
+  }
+
+  /** Returns the number of geojson features in this document and chunks of about 32MB that contain them. */
+  public Index index() {
+    return index(DEFAULT_CHUNK_BYTES);
+  }
+
+  Index index(long chunkBytes) {
+    LOGGER.info("Indexing geojson features in {}", name);
+    try (var inputStream = inputStreamSupplier.get()) {
+      return GeoJsonFeatureIndex.index(inputStream, chunkBytes);
     } catch (IOException e) {
-      LOGGER.warn("Unable to feature count", e);
-      return 0;
+      LOGGER.warn("Unable to index features", e);
+      return new Index(0, List.of());
     }
   }
 
+  /**
+   * A range of bytes containing consecutive features from a geojson document.
+   *
+   * @param start               offset of the first feature
+   * @param end                 offset just past the last feature
+   * @param firstId             number of features in the document that come before this chunk
+   * @param inFeatureCollection {@code true} if the features are elements of a FeatureCollection's "features" array
+   *                            instead of top-level objects
+   */
+  public record Chunk(long start, long end, long firstId, boolean inFeatureCollection) implements SimpleReader.Split {}
+
+  /**
+   * The features in a geojson document.
+   *
+   * @param count  number of features in the document
+   * @param chunks ranges of the document that contain all of its features in order, or an empty list if it can only
+   *               be parsed all at once
+   */
+  public record Index(long count, List<Chunk> chunks) {}
+
   @FunctionalInterface
   public interface InputStreamSupplier {
     InputStream get() throws IOException;
@@ -0,0 +1,192 @@
+package com.onthegomap.planetiler.reader.geojson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Internal utility that scans the raw bytes of a geojson document to count its features and find ranges of
+ * consecutive features that can be parsed independently.
+ * <p>
+ * This only tracks strings and nesting of objects and arrays without parsing values, so it is much faster than
+ * tokenizing the document. It counts top-level objects with a "geometry" field, and objects with a "geometry" field
+ * inside a top-level object's "features" array. This will result in the correct count for valid geojson, but may be
+ * off for invalid geojson. If the document contains a FeatureCollection that has its own geometry, the index contains
+ * no chunks so the whole document gets parsed at once.
+ */
+class GeoJsonFeatureIndex {
+
+  private static final byte[] GEOMETRY = "geometry".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] FEATURES = "features".getBytes(StandardCharsets.US_ASCII);
+  private static final int OTHER_KEY = 0;
+  private static final int GEOMETRY_KEY = 1;
+  private static final int FEATURES_KEY = 2;
+
+  private final long chunkBytes;
+  private final List<GeoJson.Chunk> chunks = new ArrayList<>();
+  private long count = 0;
+  private boolean splittable = true;
+
+  // the chunk currently being built
+  private long chunkStart = -1;
+  private long chunkEnd;
+  private long chunkFirstId;
+  private boolean chunkInCollection;
+
+  // the top-level object currently being scanned
+  private long objectStart;
+  private boolean hasGeometry;
+  private boolean hasFeatures;
+  // the object currently being scanned in a "features" array
+  private long featureStart;
+  private boolean featureHasGeometry;
+
+  private GeoJsonFeatureIndex(long chunkBytes) {
+    this.chunkBytes = chunkBytes;
+  }
+
+  static GeoJson.Index index(InputStream inputStream, long chunkBytes) throws IOException {
+    var index = new GeoJsonFeatureIndex(chunkBytes);
+    index.scan(inputStream);
+    index.flush();
+    return new GeoJson.Index(index.count, index.splittable ? List.copyOf(index.chunks) : List.of());
+  }
+
+  private void scan(InputStream inputStream) throws IOException {
+    byte[] buffer = new byte[1 << 16];
+    long offset = 0;
+    int depth = 0;
+    // depth of the "features" array in a top-level object, or -1 when outside of one
+    int featuresDepth = -1;
+    boolean inString = false;
+    boolean escaped = false;
+    // state for matching the key of a field on an object that might be a feature
+    int keyPos = -1;
+    boolean keyMatchesGeometry = false;
+    boolean keyMatchesFeatures = false;
+    int lastString = OTHER_KEY;
+    int pendingKey = OTHER_KEY;
+    int n;
+    while ((n = inputStream.read(buffer)) > 0) {
+      for (int i = 0; i < n; i++, offset++) {
+        byte b = buffer[i];
+        if (inString) {
+          if (escaped) {
+            escaped = false;
+            keyMatchesGeometry = keyMatchesFeatures = false;
+          } else if (b == '\\') {
+            escaped = true;
+          } else if (b == '"') {
+            inString = false;
+            if (keyPos >= 0) {
+              lastString = keyMatchesGeometry && keyPos == GEOMETRY.length ? GEOMETRY_KEY :
+                keyMatchesFeatures && keyPos == FEATURES.length ? FEATURES_KEY : OTHER_KEY;
+              keyPos = -1;
+            }
+          } else if (keyPos >= 0) {
+            keyMatchesGeometry &= keyPos < GEOMETRY.length && GEOMETRY[keyPos] == b;
+            keyMatchesFeatures &= keyPos < FEATURES.length && FEATURES[keyPos] == b;
+            keyPos++;
+          }
+          continue;
+        }
+        boolean featureDepth = depth == 1 || (featuresDepth >= 0 && depth == featuresDepth + 1);
+        switch (b) {
+          case ' ', '\n', '\r', '\t' -> {
+            continue;
+          }
+          case '"' -> {
+            inString = true;
+            if (featureDepth) {
+              keyPos = 0;
+              keyMatchesGeometry = keyMatchesFeatures = true;
+            }
+          }
+          case ':' -> {
+            if (featureDepth) {
+              if (lastString == GEOMETRY_KEY && depth == 1) {
+                hasGeometry = true;
+              } else if (lastString == GEOMETRY_KEY) {
+                featureHasGeometry = true;
+              }
+              pendingKey = lastString;
+            }
+          }
+          case '{', '[' -> {
+            if (depth == 0 && b == '{') {
+              objectStart = offset;
+              hasGeometry = hasFeatures = false;
+            } else if (featuresDepth >= 0 && depth == featuresDepth && b == '{') {
+              featureStart = offset;
+              featureHasGeometry = false;
+            } else if (depth == 1 && b == '[' && pendingKey == FEATURES_KEY) {
+              startFeatures();
+              featuresDepth = depth + 1;
+            }
+            depth++;
+          }
+          case '}', ']' -> {
+            depth--;
+            if (depth == 0 && b == '}') {
+              endTopLevelObject(offset + 1);
+            } else if (featuresDepth >= 0 && depth == featuresDepth && b == '}') {
+              endFeature(featureStart, offset + 1, featureHasGeometry, true);
+            } else if (featuresDepth >= 0 && depth == featuresDepth - 1) {
+              flush();
+              featuresDepth = -1;
+            }
+          }
+          default -> {
+            // values and commas
+          }
+        }
+        lastString = b == '"' ? lastString : OTHER_KEY;
+        if (b != ':') {
+          pendingKey = OTHER_KEY;
+        }
+      }
+    }
+  }
+
+  private void startFeatures() {
+    hasFeatures = true;
+    flush();
+  }
+
+  private void endTopLevelObject(long end) {
+    if (hasFeatures) {
+      if (hasGeometry) {
+        // the iterator emits a feature for the collection itself that no chunk would cover
+        count++;
+        splittable = false;
+      }
+    } else {
+      endFeature(objectStart, end, hasGeometry, false);
+    }
+  }
+
+  private void endFeature(long start, long end, boolean isFeature, boolean inCollection) {
+    if (!isFeature) {
+      return;
+    }
+    if (chunkStart < 0) {
+      chunkStart = start;
+      chunkFirstId = count;
+      chunkInCollection = inCollection;
+    }
+    chunkEnd = end;
+    count++;
+    if (chunkEnd - chunkStart >= chunkBytes) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    if (chunkStart >= 0) {
+      chunks.add(new GeoJson.Chunk(chunkStart, chunkEnd, chunkFirstId, chunkInCollection));
+      chunkStart = -1;
+    }
+  }
+}
@@ -10,26 +10,34 @@ import com.onthegomap.planetiler.reader.SourceFeatureProcessor;
 import com.onthegomap.planetiler.stats.Stats;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
 
 /**
  * Utility that reads {@link SourceFeature SourceFeatures} from the vector geometries contained in a GeoJSON file.
  * <p>
- * The file can contain newline-delimited features, or features in a feature collection.
+ * The file can contain newline-delimited features, or features in a feature collection. Large files get split into
+ * chunks of consecutive features that can be read in parallel.
  *
  * @see <a href="https://stevage.github.io/ndgeojson/">Newline-delimted geojson</a>
  * @see <a href="https://datatracker.ietf.org/doc/html/rfc7946">GeoJSON specification (RFC 7946)</a>
  */
 public class GeoJsonReader extends SimpleReader<SimpleFeature> {
 
-  private volatile long count = -1;
+  private final long chunkBytes;
+  private GeoJson.Index index = null;
   private final String layer;
   private final GeoJson file;
 
   GeoJsonReader(String sourceName, Path input) {
+    this(sourceName, input, GeoJson.DEFAULT_CHUNK_BYTES);
+  }
+
+  GeoJsonReader(String sourceName, Path input, long chunkBytes) {
     super(sourceName);
     this.file = GeoJson.from(input);
+    this.chunkBytes = chunkBytes;
     layer = input.getFileName().toString().replaceFirst("\\.[^.]+$", ""); // remove file extention.
   }
 
@@ -60,19 +68,46 @@ public class GeoJsonReader extends SimpleReader<SimpleFeature> {
     // the file is opened/closed independently from operations that read it
   }
 
-  @Override
-  public synchronized long getFeatureCount() {
-    if (count < 0) {
-      count = file.count();
+  private synchronized GeoJson.Index index() {
+    if (index == null) {
+      index = file.index(chunkBytes);
     }
-    return count;
+    return index;
+  }
+
+  @Override
+  public long getFeatureCount() {
+    return index().count();
+  }
+
+  @Override
+  public List<GeoJson.Chunk> getSplits() {
+    return index().chunks();
   }
 
   @Override
   public void readFeatures(Consumer<SimpleFeature> next) throws Exception {
-    long id = 0;
-    for (var feature : file) {
-      next.accept(SimpleFeature.create(feature.geometry(), feature.tags(), sourceName, layer, id++));
+    try (var iterator = file.iterator()) {
+      readFeatures(iterator, 0, next);
+    }
+  }
+
+  @Override
+  public void readSplit(Split split, Consumer<SimpleFeature> next) throws Exception {
+    var chunk = (GeoJson.Chunk) split;
+    try (var iterator = file.iterator(chunk)) {
+      readFeatures(iterator, chunk.firstId(), next);
+    }
+  }
+
+  private void readFeatures(Iterator<GeoJsonFeature> iterator, long id, Consumer<SimpleFeature> next) {
+    var interest = interestFilter(layer);
+    while (iterator.hasNext()) {
+      var feature = iterator.next();
+      if (interest.test(feature.tags())) {
+        next.accept(SimpleFeature.create(feature.geometry(), feature.tags(), sourceName, layer, id));
+      }
+      id++;
     }
   }
 }
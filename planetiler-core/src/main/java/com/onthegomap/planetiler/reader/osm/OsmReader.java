@@ -17,6 +17,8 @@ import com.onthegomap.planetiler.collection.LongLongMultimap;
 import com.onthegomap.planetiler.collection.SortableFeature;
 import com.onthegomap.planetiler.collection.Storage;
 import com.onthegomap.planetiler.config.PlanetilerConfig;
+import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
@@ -105,6 +107,7 @@ public class OsmReader implements Closeable, MemoryEstimator.HasEstimate {
   private final OsmPhaser pass1Phaser = new OsmPhaser(0);
   private final OsmWaySplitter waySplitter = OsmWaySplitter.roaringBitmapSplitter();
   private final AtomicLong maxWayId = new AtomicLong(Long.MIN_VALUE);
+  private volatile InterestFilter interestFilter = null;
 
   /**
    * Constructs a new {@code OsmReader} from an {@code osmSourceProvider} that will use {@code nodeLocationDb} as a
@@ -250,6 +253,7 @@ public class OsmReader implements Closeable, MemoryEstimator.HasEstimate {
       // won't block waiting for it to print and kill the process.
       var phases = pass1Phaser.forWorker()
         .whenWorkerFinishes(OsmPhaser.Phase.NODES, nodeWriter::close);
+      InterestFilter interest = interestFilter();
       for (var block : blocks) {
         for (OsmElement element : block) {
           if (element.id() < 0) {
@@ -300,8 +304,8 @@ public class OsmReader implements Closeable, MemoryEstimator.HasEstimate {
             } catch (Exception e) {
               LOGGER.error("Error preprocessing OSM relation {}", relation.id(), e);
             }
-            // TODO allow limiting multipolygon storage to only ones that profile cares about
-            if (isMultipolygon(relation)) {
+            // only store way geometries for multipolygons that the profile could emit features for
+            if (isMultipolygon(relation) && interest.test(relation)) {
               synchronized (waysInMultipolygonLock) {
                 for (var member : relation.members()) {
                   if (member.type() == OsmElement.Type.WAY) {
@@ -360,10 +364,12 @@ public class OsmReader implements Closeable, MemoryEstimator.HasEstimate {
 
         var featureCollectors = new FeatureCollector.Factory(config, stats);
         final NodeLocationProvider nodeLocations = newNodeLocationProvider();
+        // skip constructing source features for elements without any tags the profile could match on
+        InterestFilter interest = interestFilter();
         try (var renderer = createFeatureRenderer(writer, config, next)) {
           var phaser = pass2Phaser.forWorker();
           var relationHandler = relationDistributor.forThread(relation -> {
-            var feature = processRelationPass2(relation, nodeLocations);
+            var feature = interest.test(relation) ? processRelationPass2(relation, nodeLocations) : null;
             if (feature != null) {
               render(featureCollectors, renderer, relation, feature);
             }
@@ -373,13 +379,20 @@ public class OsmReader implements Closeable, MemoryEstimator.HasEstimate {
             for (var element : block.decodeElements()) {
               if (element instanceof OsmElement.Node node) {
                 phaser.arrive(OsmPhaser.Phase.NODES);
-                SourceFeature feature = processNodePass2(node);
-                render(featureCollectors, renderer, element, feature);
+                if (interest.test(node)) {
+                  SourceFeature feature = processNodePass2(node);
+                  render(featureCollectors, renderer, element, feature);
+                }
               } else if (element instanceof OsmElement.Way way) {
                 phaser.arrive(OsmPhaser.Phase.WAYS);
-                WaySourceFeature feature = processWayPass2(way, nodeLocations);
-                for (var splitFeature : splitWayIfNecessary(way, feature, splitWayMultiplier)) {
-                  render(featureCollectors, renderer, element, splitFeature);
+                if (interest.test(way)) {
+                  WaySourceFeature feature = processWayPass2(way, nodeLocations);
+                  for (var splitFeature : splitWayIfNecessary(way, feature, splitWayMultiplier)) {
+                    render(featureCollectors, renderer, element, splitFeature);
+                  }
+                } else {
+                  // multipolygons that the profile cares about may still need this way's geometry
+                  storeMultipolygonWayGeometry(way);
                 }
               } else if (element instanceof OsmElement.Relation relation) {
                 phaser.arriveAndWaitForOthers(OsmPhaser.Phase.RELATIONS);
@@ -522,7 +535,8 @@ public class OsmReader implements Closeable, MemoryEstimator.HasEstimate {
       config,
       rendered -> next.accept(encoder.apply(rendered)),
       stats,
-      encoder
+      encoder,
+      writer.supportsFillRuns()
     );
   }
 
@@ -535,18 +549,34 @@ public class OsmReader implements Closeable, MemoryEstimator.HasEstimate {
     // ways contain an ordered list of node IDs, so we need to join that with node locations
     // from pass1 to reconstruct the geometry.
     LongArrayList nodes = way.nodes();
+    storeMultipolygonWayGeometry(way);
+    boolean closed = nodes.size() > 1 && nodes.get(0) == nodes.get(nodes.size() - 1);
+    // area tag used to differentiate between whether a closed way should be treated as a polygon or linestring
+    String area = way.getString("area");
+    List<RelationMember<OsmRelationInfo>> rels = getRelationMembershipForWay(way.id());
+    return new WaySourceFeature(way, closed, area, nodeLocations, rels);
+  }
+
+  private void storeMultipolygonWayGeometry(OsmElement.Way way) {
     if (waysInMultipolygon.contains(way.id())) {
       // if this is part of a multipolygon, store the node IDs for this way ID so that when
       // we get to the multipolygon we can go from way IDs -> node IDs -> node locations.
       synchronized (this) { // multiple threads may update this concurrently
-        multipolygonWayGeometries.replaceValues(way.id(), nodes);
+        multipolygonWayGeometries.replaceValues(way.id(), way.nodes());
       }
     }
-    boolean closed = nodes.size() > 1 && nodes.get(0) == nodes.get(nodes.size() - 1);
-    // area tag used to differentiate between whether a closed way should be treated as a polygon or linestring
-    String area = way.getString("area");
-    List<RelationMember<OsmRelationInfo>> rels = getRelationMembershipForWay(way.id());
-    return new WaySourceFeature(way, closed, area, nodeLocations, rels);
+  }
+
+  /**
+   * Returns the filter on element tags that could match anything in the profile, computed lazily since profiles may
+   * register handlers after constructing this reader.
+   */
+  private InterestFilter interestFilter() {
+    InterestFilter result = interestFilter;
+    if (result == null) {
+      interestFilter = result = profile.interestFilter(Expression.PartialInput.ofSource(name));
+    }
+    return result;
   }
 
   SourceFeature processRelationPass2(OsmElement.Relation rel, NodeLocationProvider nodeLocations) {
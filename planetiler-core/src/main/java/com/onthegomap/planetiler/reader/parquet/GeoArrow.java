@@ -4,6 +4,7 @@ import com.onthegomap.planetiler.geo.GeoUtils;
 import java.util.List;
 import java.util.function.Function;
 import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.geom.MultiLineString;
@@ -44,6 +45,25 @@ class GeoArrow {
     return GeoUtils.JTS_FACTORY.createLineString(input);
   }
 
+  /** Returns the bounding box of nested lists of coordinate sequences without building JTS geometries from them. */
+  static Envelope envelope(Object input) {
+    var envelope = new Envelope();
+    expandEnvelope(input, envelope);
+    return envelope;
+  }
+
+  private static void expandEnvelope(Object input, Envelope envelope) {
+    switch (input) {
+      case CoordinateSequence sequence -> sequence.expandEnvelope(envelope);
+      case List<?> list -> {
+        for (Object item : list) {
+          expandEnvelope(item, envelope);
+        }
+      }
+      default -> throw new IllegalArgumentException("Unexpected geoarrow value: " + input);
+    }
+  }
+
   private static LinearRing ring(CoordinateSequence input) {
     return GeoUtils.JTS_FACTORY.createLinearRing(input);
   }
@@ -115,35 +115,10 @@ public record GeoParquetMetadata(
      */
     public FilterPredicate bboxFilter(MessageType schema, Bounds bounds) {
       if (!bounds.isWorld()) {
-        var covering = covering();
-        // if covering metadata missing, use default bbox:{xmin,xmax,ymin,ymax}
-        if (covering == null) {
-          if (hasNumericField(schema, "bbox.xmin") &&
-            hasNumericField(schema, "bbox.xmax") &&
-            hasNumericField(schema, "bbox.ymin") &&
-            hasNumericField(schema, "bbox.ymax")) {
-            covering = new GeoParquetMetadata.Covering(new GeoParquetMetadata.CoveringBbox(
-              List.of("bbox.xmin"),
-              List.of("bbox.ymin"),
-              List.of("bbox.xmax"),
-              List.of("bbox.ymax")
-            ));
-          } else if (hasNumericField(schema, "bbox", "xmin") &&
-            hasNumericField(schema, "bbox", "xmax") &&
-            hasNumericField(schema, "bbox", "ymin") &&
-            hasNumericField(schema, "bbox", "ymax")) {
-            covering = new GeoParquetMetadata.Covering(new GeoParquetMetadata.CoveringBbox(
-              List.of("bbox", "xmin"),
-              List.of("bbox", "ymin"),
-              List.of("bbox", "xmax"),
-              List.of("bbox", "ymax")
-            ));
-          }
-        }
-        if (covering != null) {
+        var coveringBbox = coveringBbox(schema);
+        if (coveringBbox != null) {
           var latLonBounds = bounds.latLon();
           // TODO apply projection
-          var coveringBbox = covering.bbox();
           var coordinateType =
             schema.getColumnDescription(coveringBbox.xmax().toArray(String[]::new))
               .getPrimitiveType()
@@ -173,6 +148,40 @@ public record GeoParquetMetadata(
       return null;
     }
 
+    /**
+     * Returns the columns containing the bounding box of each geometry from covering metadata, or
+     * {@code bbox.xmin}/{@code bbox.xmax}/{@code bbox.ymin}/{@code bbox.ymax} if present, or null if neither is
+     * available.
+     */
+    public CoveringBbox coveringBbox(MessageType schema) {
+      if (covering != null) {
+        return covering.bbox();
+      }
+      // if covering metadata missing, use default bbox:{xmin,xmax,ymin,ymax}
+      if (hasNumericField(schema, "bbox.xmin") &&
+        hasNumericField(schema, "bbox.xmax") &&
+        hasNumericField(schema, "bbox.ymin") &&
+        hasNumericField(schema, "bbox.ymax")) {
+        return new GeoParquetMetadata.CoveringBbox(
+          List.of("bbox.xmin"),
+          List.of("bbox.ymin"),
+          List.of("bbox.xmax"),
+          List.of("bbox.ymax")
+        );
+      } else if (hasNumericField(schema, "bbox", "xmin") &&
+        hasNumericField(schema, "bbox", "xmax") &&
+        hasNumericField(schema, "bbox", "ymin") &&
+        hasNumericField(schema, "bbox", "ymax")) {
+        return new GeoParquetMetadata.CoveringBbox(
+          List.of("bbox", "xmin"),
+          List.of("bbox", "ymin"),
+          List.of("bbox", "xmax"),
+          List.of("bbox", "ymax")
+        );
+      }
+      return null;
+    }
+
     /** Returns the geoarrow type string of this geometry column, or null if not geoarrow. */
     public String getGeoArrowType() {
       return (encoding != null && (encoding.contains("polygon") ||
@@ -8,6 +8,7 @@ import com.onthegomap.planetiler.util.FunctionThatThrows;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 
 /**
@@ -20,12 +21,20 @@ class GeometryReader {
 
   private record FormatHandler(
     FunctionThatThrows<Object, Geometry> parse,
-    Function<Object, GeometryType> sniffType
-  ) {}
+    Function<Object, GeometryType> sniffType,
+    FunctionThatThrows<Object, Envelope> envelope
+  ) {
+    FormatHandler(FunctionThatThrows<Object, Geometry> parse, Function<Object, GeometryType> sniffType) {
+      this(parse, sniffType, obj -> {
+        var geometry = parse.apply(obj);
+        return geometry == null ? null : geometry.getEnvelopeInternal();
+      });
+    }
+  }
 
   private static <T> FormatHandler arrowHandler(GeometryType type,
     FunctionThatThrows<T, Geometry> parser) {
-    return new FormatHandler(obj -> parser.apply((T) obj), any -> type);
+    return new FormatHandler(obj -> parser.apply((T) obj), any -> type, GeoArrow::envelope);
   }
 
   GeometryReader(GeoParquetMetadata geoparquet) {
@@ -36,7 +45,8 @@ class GeometryReader {
       FormatHandler converter = switch (columnInfo.encoding()) {
         case "WKB" -> new FormatHandler(
           obj -> obj instanceof byte[] bytes ? GeoUtils.wkbReader().read(bytes) : null,
-          obj -> obj instanceof byte[] bytes ? GeometryType.fromWKB(bytes) : GeometryType.UNKNOWN
+          obj -> obj instanceof byte[] bytes ? GeometryType.fromWKB(bytes) : GeometryType.UNKNOWN,
+          obj -> obj instanceof byte[] bytes ? WkbEnvelope.read(bytes) : null
         );
         case "WKT" -> new FormatHandler(
           obj -> obj instanceof String string ? GeoUtils.wktReader().read(string) : null,
@@ -82,6 +92,20 @@ class GeometryReader {
     }
   }
 
+  Envelope parseEnvelope(Object value, String column) throws GeometryException {
+    var converter = converters.get(column);
+    if (value == null) {
+      throw new GeometryException("no_parquet_column", "Missing geometry column column " + column);
+    } else if (converter == null) {
+      throw new GeometryException("no_converter", "No geometry converter for " + column);
+    }
+    try {
+      return converter.envelope.apply(value);
+    } catch (Exception e) {
+      throw new GeometryException("error_reading", "Error reading " + column, e);
+    }
+  }
+
   GeometryType sniffGeometryType(Object value, String column) {
     var converter = converters.get(column);
     if (value != null && converter != null) {
@@ -9,6 +9,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import org.apache.parquet.schema.MessageType;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Lineal;
 import org.locationtech.jts.geom.Polygonal;
@@ -25,6 +26,7 @@ public class ParquetFeature extends SourceFeature {
   private final MessageType schema;
   private Geometry latLon;
   private Geometry world;
+  private Envelope latLonEnvelope;
   private Struct struct = null;
   private GeometryType geometryType = null;
 
@@ -52,6 +54,19 @@ public class ParquetFeature extends SourceFeature {
     return latLon == null ? latLon = geometryParser.parseGeometry(rawGeometry, geometryParser.geometryColumn) : latLon;
   }
 
+  /**
+   * Returns the bounding box of this feature, scanning the raw WKB or geoarrow coordinates unless the full geometry has
+   * already been decoded.
+   */
+  @Override
+  public Envelope latLonEnvelope() throws GeometryException {
+    if (latLonEnvelope == null) {
+      latLonEnvelope = latLon != null ? latLon.getEnvelopeInternal() :
+        geometryParser.parseEnvelope(rawGeometry, geometryParser.geometryColumn);
+    }
+    return latLonEnvelope;
+  }
+
   @Override
   public Geometry worldGeometry() throws GeometryException {
     return world != null ? world :
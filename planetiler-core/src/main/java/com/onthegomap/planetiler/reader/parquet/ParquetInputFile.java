@@ -5,6 +5,7 @@ import com.google.common.collect.Iterators;
 import com.onthegomap.planetiler.Profile;
 import com.onthegomap.planetiler.config.Bounds;
 import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.geo.GeometryType;
 import com.onthegomap.planetiler.reader.SourceFeature;
@@ -15,8 +16,11 @@ import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.AbstractMap;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -30,10 +34,12 @@ import org.apache.parquet.filter2.compat.FilterCompat;
 import org.apache.parquet.filter2.predicate.FilterApi;
 import org.apache.parquet.filter2.predicate.FilterPredicate;
 import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.io.ColumnIOFactory;
 import org.apache.parquet.io.InputFile;
 import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.schema.MessageType;
 import org.locationtech.jts.geom.Envelope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +47,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Reads {@link SourceFeature SourceFeatures} from a single
  * <a href="https://github.com/opengeospatial/geoparquet/blob/main/format-specs/geoparquet.md">geoparquet</a> file.
+ * <p>
+ * Filters skip row groups using statistics and dictionaries, and pages within row groups using column and offset
+ * indexes when the file has them. When the profile declares the tags it uses, only those columns get read and decoded.
  */
 public class ParquetInputFile {
 
@@ -60,6 +69,8 @@ public class ParquetInputFile {
   private final GeoParquetMetadata geoparquet;
   private Envelope postFilterBounds = null;
   private boolean outOfBounds = false;
+  // columns that filters and the ID generator read, or null if unknown so every column needs to be read
+  private final Set<String> requiredColumns;
 
   public ParquetInputFile(String source, String layer, Path path) {
     this(source, layer, path, null, Bounds.WORLD, null, null);
@@ -73,6 +84,9 @@ public class ParquetInputFile {
     this.path = path;
     inputFile = ParquetReader.makeInputFile(path.toFile());
     this.extraFields = extraFields;
+    Set<String> idColumns = idGenerator == null ? Set.of() : keysRead(idGenerator);
+    // arbitrary filter predicates could reference any column, so read all of them
+    requiredColumns = filter != null || idColumns == null ? null : new HashSet<>(idColumns);
     try (var file = open()) {
       metadata = file.getFooter();
       var fileMetadata = metadata.getFileMetaData();
@@ -86,6 +100,12 @@ public class ParquetInputFile {
           var bboxFilter = geoparquet.primaryColumnMetadata().bboxFilter(fileMetadata.getSchema(), bounds);
           if (bboxFilter != null) {
             filter = filter == null ? bboxFilter : FilterApi.and(filter, bboxFilter);
+            if (requiredColumns != null) {
+              var covering = geoparquet.primaryColumnMetadata().coveringBbox(fileMetadata.getSchema());
+              for (var column : List.of(covering.xmin(), covering.ymin(), covering.xmax(), covering.ymax())) {
+                requiredColumns.add(column.getFirst());
+              }
+            }
           } else {
             LOGGER.warn("No covering column specified in geoparquet metadata, fall back to post-filtering");
             postFilterBounds = bounds.latLon();
@@ -100,6 +120,41 @@ public class ParquetInputFile {
     this.filter = filter == null ? FilterCompat.NOOP : FilterCompat.get(filter);
   }
 
+  /**
+   * Returns the keys that {@code function} reads from a map passed into it, or null if it might read all of them.
+   * <p>
+   * This only works for functions that always look up the same keys, like {@code fields -> fields.get("id")}.
+   */
+  private static Set<String> keysRead(Function<Map<String, Object>, Object> function) {
+    Set<String> keys = new HashSet<>();
+    boolean[] readsAll = {false};
+    var probe = new AbstractMap<String, Object>() {
+      @Override
+      public Object get(Object key) {
+        keys.add(String.valueOf(key));
+        return null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        keys.add(String.valueOf(key));
+        return false;
+      }
+
+      @Override
+      public Set<Entry<String, Object>> entrySet() {
+        readsAll[0] = true;
+        return Set.of();
+      }
+    };
+    try {
+      function.apply(probe);
+    } catch (RuntimeException e) {
+      return null;
+    }
+    return readsAll[0] ? null : keys;
+  }
+
   private static long hashToLong(Object o) {
     return switch (o) {
       case String s -> Hashing.fnv1a64(s.getBytes(StandardCharsets.UTF_8));
@@ -118,103 +173,180 @@ public class ParquetInputFile {
   }
 
   public boolean shouldSkip(Profile profile) {
-    return outOfBounds ||
-      !profile.caresAbout(new Expression.PartialInput(Set.of(source), Set.of(layer), extraFields, geometryTypes));
+    return outOfBounds || !profile.caresAbout(partialInput());
+  }
+
+  /** Returns the filter on row values that {@code profile} could emit features for from this file. */
+  public InterestFilter interestFilter(Profile profile) {
+    return profile.interestFilter(partialInput());
+  }
+
+  /** Returns the columns that {@code profile} reads from rows in this file, or null if it might read all of them. */
+  public Set<String> usedTags(Profile profile) {
+    return profile.usedTags(partialInput());
+  }
+
+  /**
+   * Returns the schema to read for a profile that uses {@code usedTags}, with only those columns and any others needed
+   * for the geometry, filters, or IDs.
+   */
+  MessageType projection(Set<String> usedTags) {
+    var schema = metadata.getFileMetaData().getSchema();
+    if (usedTags == null || requiredColumns == null) {
+      return schema;
+    }
+    var fields = schema.getFields().stream()
+      .filter(field -> usedTags.contains(field.getName()) || requiredColumns.contains(field.getName()) ||
+        field.getName().equals(geometryReader.geometryColumn))
+      .toList();
+    return fields.size() == schema.getFieldCount() ? schema : new MessageType(schema.getName(), fields);
+  }
+
+  private Expression.PartialInput partialInput() {
+    return new Expression.PartialInput(Set.of(source), Set.of(layer), extraFields, geometryTypes);
+  }
+
+  /**
+   * Returns false if {@code interest} rejects every row in {@code block} because the columns it cares about only
+   * contain nulls, according to the row group statistics.
+   */
+  private boolean mightMatch(BlockMetaData block, InterestFilter interest) {
+    if (interest.acceptsAll() || (extraFields != null && interest.caresAboutAnyKey(extraFields.keySet()))) {
+      return true;
+    }
+    for (var column : block.getColumns()) {
+      if (interest.caresAboutKey(column.getPath().toArray()[0])) {
+        var statistics = column.getStatistics();
+        if (statistics == null || !statistics.isNumNullsSet() ||
+          statistics.getNumNulls() < column.getValueCount()) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   public BlockReader get() {
-    if (outOfBounds) {
+    return get(InterestFilter.ALL);
+  }
+
+  /**
+   * Returns the blocks in this file, skipping row groups and rows that {@code interest} rejects before constructing a
+   * {@link ParquetFeature} for them.
+   */
+  public BlockReader get(InterestFilter interest) {
+    return get(interest, null);
+  }
+
+  /**
+   * Returns the blocks in this file like {@link #get(InterestFilter)}, only reading columns in {@code usedTags} from
+   * {@link #usedTags(Profile)} or all columns if it is null.
+   */
+  public BlockReader get(InterestFilter interest, Set<String> usedTags) {
+    if (outOfBounds || interest.rejectsAll()) {
       return Collections::emptyIterator;
     }
     long fileHash = Hashing.fnv1a64(path.toString().getBytes(StandardCharsets.UTF_8));
     var schema = metadata.getFileMetaData().getSchema();
+    var projection = projection(usedTags);
     var columnIOFactory = new ColumnIOFactory(metadata.getFileMetaData().getCreatedBy(), false);
-    return () -> IntStream.range(0, metadata.getBlocks().size()).mapToObj(blockIndex -> {
-      long blockHash = Hashing.fnv1a64(fileHash, ByteBuffer.allocate(4).putInt(blockIndex).array());
-      // happens in reader thread
-      return (Block) new Block() {
-        @Override
-        public Path getFileName() {
-          return path;
-        }
-
-        @Override
-        public String layer() {
-          return layer;
-        }
+    return () -> IntStream.range(0, metadata.getBlocks().size())
+      .filter(blockIndex -> mightMatch(metadata.getBlocks().get(blockIndex), interest))
+      .mapToObj(blockIndex -> {
+        long blockHash = Hashing.fnv1a64(fileHash, ByteBuffer.allocate(4).putInt(blockIndex).array());
+        // happens in reader thread
+        return (Block) new Block() {
+          @Override
+          public Path getFileName() {
+            return path;
+          }
 
-        @Override
-        public Iterator<ParquetFeature> iterator() {
-          PageReadStore group;
-          try (var reader = open()) {
-            group = reader.readFilteredRowGroup(blockIndex);
-            if (group == null) {
-              return Collections.emptyIterator();
-            }
-          } catch (IOException e) {
-            throw new UncheckedIOException(e);
+          @Override
+          public String layer() {
+            return layer;
           }
-          MessageColumnIO columnIO = columnIOFactory.getColumnIO(schema);
-          var recordReader = columnIO.getRecordReader(group, new ParquetRecordConverter(schema, geoparquet), filter);
-          long total = group.getRowCount();
-          return Iterators.filter(new Iterator<>() {
-            long i = 0;
-
-            @Override
-            public boolean hasNext() {
-              return i < total;
+
+          @Override
+          public Iterator<ParquetFeature> iterator() {
+            PageReadStore group;
+            try (var reader = open()) {
+              reader.setRequestedSchema(projection);
+              group = reader.readFilteredRowGroup(blockIndex);
+              if (group == null) {
+                return Collections.emptyIterator();
+              }
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
             }
+            MessageColumnIO columnIO = columnIOFactory.getColumnIO(projection, schema);
+            var recordReader =
+              columnIO.getRecordReader(group, new ParquetRecordConverter(projection, geoparquet), filter);
+            long total = group.getRowCount();
+            return Iterators.filter(new Iterator<>() {
+              long i = 0;
 
-            @Override
-            public ParquetFeature next() {
-              if (!hasNext()) {
-                throw new NoSuchElementException();
+              @Override
+              public boolean hasNext() {
+                return i < total;
               }
-              i++;
 
-              var item = recordReader.read();
+              @Override
+              public ParquetFeature next() {
+                if (!hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                i++;
 
-              if (item == null) {
-                return null;
-              }
+                var item = recordReader.read();
 
-              if (extraFields != null) {
-                item.putAll(extraFields);
-              }
+                if (item == null) {
+                  return null;
+                }
+
+                if (extraFields != null) {
+                  item.putAll(extraFields);
+                }
+
+                if (!interest.test(item)) {
+                  return null;
+                }
+
+                var feature = new ParquetFeature(
+                  source,
+                  layer,
+                  idGenerator != null ? idGenerator.applyAsLong(item) :
+                    Hashing.fnv1a64(blockHash, ByteBuffer.allocate(8).putLong(i).array()),
+                  geometryReader,
+                  item,
+                  path,
+                  schema
+                );
 
-              var feature = new ParquetFeature(
-                source,
-                layer,
-                idGenerator != null ? idGenerator.applyAsLong(item) :
-                  Hashing.fnv1a64(blockHash, ByteBuffer.allocate(8).putLong(i).array()),
-                geometryReader,
-                item,
-                path,
-                schema
-              );
-
-              if (postFilterBounds != null) {
-                try {
-                  if (!feature.latLonGeometry().getEnvelopeInternal().intersects(postFilterBounds)) {
+                if (postFilterBounds != null) {
+                  try {
+                    if (!feature.latLonEnvelope().intersects(postFilterBounds)) {
+                      return null;
+                    }
+                  } catch (GeometryException e) {
+                    LOGGER.warn("Error reading geometry to post-filter bounds", e);
                     return null;
                   }
-                } catch (GeometryException e) {
-                  LOGGER.warn("Error reading geometry to post-filter bounds", e);
-                  return null;
                 }
-              }
 
-              return feature;
-            }
-          }, Objects::nonNull);
-        }
-      };
-    }).iterator();
+                return feature;
+              }
+            }, Objects::nonNull);
+          }
+        };
+      }).iterator();
   }
 
   private ParquetFileReader open() throws IOException {
     return ParquetFileReader.open(inputFile, ParquetReadOptions.builder()
       .withRecordFilter(filter)
+      .useStatsFilter(true)
+      .useDictionaryFilter(true)
+      .useColumnIndexFilter(true)
       .build());
   }
 
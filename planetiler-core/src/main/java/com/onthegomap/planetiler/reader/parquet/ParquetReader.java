@@ -2,6 +2,7 @@ package com.onthegomap.planetiler.reader.parquet;
 
 import static io.prometheus.client.Collector.NANOSECONDS_PER_SECOND;
 
+import com.onthegomap.planetiler.BatchFeatureProcessor;
 import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.Profile;
 import com.onthegomap.planetiler.collection.FeatureGroup;
@@ -18,6 +19,7 @@ import com.onthegomap.planetiler.worker.WorkerPipeline;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +39,8 @@ import org.slf4j.LoggerFactory;
  */
 public class ParquetReader {
   public static final String DEFAULT_LAYER = "features";
+  /** Number of consecutive rows from a block to pass to profiles that implement {@link BatchFeatureProcessor}. */
+  static final int BATCH_SIZE = 256;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ParquetReader.class);
   private final String sourceName;
@@ -104,7 +108,7 @@ public class ParquetReader {
     var featuresRead = Counter.newMultiThreadCounter();
     Map<String, Integer> workingOn = new ConcurrentHashMap<>();
     var inputBlocks = inputFiles.stream().<ParquetInputFile.Block>mapMulti((file, next) -> {
-      try (var blockReader = file.get()) {
+      try (var blockReader = file.get(file.interestFilter(profile), file.usedTags(profile))) {
         for (var block : blockReader) {
           next.accept(block);
         }
@@ -113,6 +117,8 @@ public class ParquetReader {
       }
     }).toList();
     Distributor<ParquetFeature> distributor = Distributor.createWithCapacity(1_000);
+    Distributor<List<ParquetFeature>> batchDistributor = Distributor.createWithCapacity(1_000 / BATCH_SIZE);
+    BatchFeatureProcessor batchProcessor = profile instanceof BatchFeatureProcessor b ? b : null;
 
     var pipeline = WorkerPipeline.start(sourceName, stats)
       .readFromTiny("blocks", inputBlocks)
@@ -121,6 +127,19 @@ public class ParquetReader {
         var elements = featuresRead.counterForThread();
         var featureCollectors = new FeatureCollector.Factory(config, stats);
         try (FeatureRenderer renderer = newFeatureRenderer(writer, config, next)) {
+          Consumer<FeatureCollector> emit = features -> {
+            for (FeatureCollector.Feature renderable : features) {
+              renderer.accept(renderable);
+            }
+          };
+          var batchConsumer = batchDistributor.forThread(batch -> {
+            try {
+              batchProcessor.processFeatureBatch(batch, featureCollectors, emit);
+            } catch (Exception e) {
+              LOGGER.error("Error processing batch of {} features starting with {}", batch.size(), batch.getFirst(), e);
+            }
+            elements.incBy(batch.size());
+          });
           var consumer = distributor.forThread(sourceFeature -> {
             FeatureCollector features = featureCollectors.get(sourceFeature);
             try {
@@ -136,12 +155,27 @@ public class ParquetReader {
           for (var block : prev) {
             String layer = block.layer();
             workingOn.merge(layer, 1, Integer::sum);
-            for (var sourceFeature : block) {
-              consumer.accept(sourceFeature);
+            if (batchProcessor != null) {
+              List<ParquetFeature> batch = new ArrayList<>(BATCH_SIZE);
+              for (var sourceFeature : block) {
+                batch.add(sourceFeature);
+                if (batch.size() >= BATCH_SIZE) {
+                  batchConsumer.accept(batch);
+                  batch = new ArrayList<>(BATCH_SIZE);
+                }
+              }
+              if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+              }
+            } else {
+              for (var sourceFeature : block) {
+                consumer.accept(sourceFeature);
+              }
             }
             blocks.inc();
             workingOn.merge(layer, -1, Integer::sum);
           }
+          batchConsumer.close();
           consumer.close();
         }
       });
@@ -206,7 +240,8 @@ public class ParquetReader {
       config,
       rendered -> next.accept(encoder.apply(rendered)),
       stats,
-      encoder
+      encoder,
+      writer.supportsFillRuns()
     );
   }
 }
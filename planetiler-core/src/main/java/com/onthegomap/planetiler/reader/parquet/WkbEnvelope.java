@@ -0,0 +1,73 @@
+package com.onthegomap.planetiler.reader.parquet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Utility to compute the bounding box of a <a href="https://libgeos.org/specifications/wkb/">WKB</a>-encoded geometry
+ * by scanning its coordinates, without allocating JTS geometries.
+ * <p>
+ * Handles ISO and extended WKB headers with Z/M dimensions and embedded SRIDs.
+ */
+class WkbEnvelope {
+  private static final int EWKB_Z = 0x80000000;
+  private static final int EWKB_M = 0x40000000;
+  private static final int EWKB_SRID = 0x20000000;
+
+  private WkbEnvelope() {}
+
+  /** Returns the envelope of all non-NaN x/y coordinates in {@code wkb}, which is a null envelope if it is empty. */
+  static Envelope read(byte[] wkb) {
+    var envelope = new Envelope();
+    read(ByteBuffer.wrap(wkb), envelope);
+    return envelope;
+  }
+
+  private static void read(ByteBuffer buf, Envelope envelope) {
+    buf.order(buf.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    int header = buf.getInt();
+    if ((header & EWKB_SRID) != 0) {
+      buf.getInt();
+    }
+    int isoType = header & 0xFFFF;
+    int type = isoType % 1000;
+    int dims = 2;
+    if ((header & EWKB_Z) != 0 || (isoType / 1000) == 1 || (isoType / 1000) == 3) {
+      dims++;
+    }
+    if ((header & EWKB_M) != 0 || (isoType / 1000) == 2 || (isoType / 1000) == 3) {
+      dims++;
+    }
+    switch (type) {
+      case 1 -> readCoordinates(buf, 1, dims, envelope);
+      case 2 -> readCoordinates(buf, buf.getInt(), dims, envelope);
+      case 3 -> {
+        int rings = buf.getInt();
+        for (int i = 0; i < rings; i++) {
+          readCoordinates(buf, buf.getInt(), dims, envelope);
+        }
+      }
+      case 4, 5, 6, 7 -> {
+        int parts = buf.getInt();
+        for (int i = 0; i < parts; i++) {
+          read(buf, envelope);
+        }
+      }
+      default -> throw new IllegalArgumentException("Unsupported WKB geometry type: " + header);
+    }
+  }
+
+  private static void readCoordinates(ByteBuffer buf, int count, int dims, Envelope envelope) {
+    for (int i = 0; i < count; i++) {
+      double x = buf.getDouble();
+      double y = buf.getDouble();
+      if (!Double.isNaN(x) && !Double.isNaN(y)) {
+        envelope.expandToInclude(x, y);
+      }
+      for (int d = 2; d < dims; d++) {
+        buf.getDouble();
+      }
+    }
+  }
+}
@@ -45,14 +45,27 @@ public class FeatureRenderer implements Consumer<FeatureCollector.Feature>, Clos
   private final Consumer<RenderedFeature> consumer;
   private final Stats stats;
   private final Closeable closeable;
+  private final boolean emitFillRuns;
 
-  /** Constructs a new feature render that will send rendered features to {@code consumer}. */
+  /**
+   * Constructs a new feature render that will send rendered features to {@code consumer}.
+   * <p>
+   * When {@code emitFillRuns} is true, completely filled interior tiles of large polygons get sent as a single
+   * {@link RenderedFeature#fillRun()} per column instead of one {@link RenderedFeature} per tile.
+   */
   public FeatureRenderer(PlanetilerConfig config, Consumer<RenderedFeature> consumer, Stats stats,
-    Closeable closeable) {
+    Closeable closeable, boolean emitFillRuns) {
     this.config = config;
     this.consumer = consumer;
     this.stats = stats;
     this.closeable = closeable;
+    this.emitFillRuns = emitFillRuns;
+  }
+
+  /** Constructs a new feature render that will send rendered features to {@code consumer}. */
+  public FeatureRenderer(PlanetilerConfig config, Consumer<RenderedFeature> consumer, Stats stats,
+    Closeable closeable) {
+    this(config, consumer, stats, closeable, false);
   }
 
   public FeatureRenderer(PlanetilerConfig config, Consumer<RenderedFeature> consumer, Stats stats) {
@@ -302,6 +315,13 @@ public class FeatureRenderer implements Consumer<FeatureCollector.Feature>, Clos
     );
 
     int emitted = 0;
+    if (emitFillRuns) {
+      for (RenderedFeature.FillRun run : sliced.getFilledTileRuns()) {
+        consumer.accept(RenderedFeature.ofFillRun(run, vectorTileFeature, feature.getSortKey()));
+        emitted += run.numTiles();
+      }
+      return emitted;
+    }
     for (TileCoord tile : sliced.getFilledTiles()) {
       consumer.accept(new RenderedFeature(
         tile,
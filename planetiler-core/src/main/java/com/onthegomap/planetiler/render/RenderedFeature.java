@@ -8,20 +8,33 @@ import java.util.Optional;
  * An encoded vector tile feature on a tile with an extra {@code sortKey} and {@code group} that define its placement in
  * the eventual output tile.
  *
- * @param tile              the tile this feature will live in
+ * @param tile              the tile this feature will live in, or the first tile in TMS order of {@code fillRun}
  * @param vectorTileFeature the encoded vector tile feature
  * @param sortKey           ordering of features in the output tile
  * @param group             if present, a group ID and limit that is used to limit features in a certain area of tile
+ * @param fillRun           if present, the column of tiles that this same feature should be repeated in
  */
 public record RenderedFeature(
   TileCoord tile,
   VectorTile.Feature vectorTileFeature,
   int sortKey,
-  Optional<Group> group
+  Optional<Group> group,
+  Optional<FillRun> fillRun
 ) {
 
   public RenderedFeature {
     assert vectorTileFeature != null;
+    assert fillRun.isEmpty() || (group.isEmpty() && fillRun.get().firstTile().equals(tile));
+  }
+
+  public RenderedFeature(TileCoord tile, VectorTile.Feature vectorTileFeature, int sortKey, Optional<Group> group) {
+    this(tile, vectorTileFeature, sortKey, group, Optional.empty());
+  }
+
+  /** Returns a feature that repeats {@code vectorTileFeature} in every tile of {@code fillRun}. */
+  public static RenderedFeature ofFillRun(FillRun fillRun, VectorTile.Feature vectorTileFeature, int sortKey) {
+    return new RenderedFeature(fillRun.firstTile(), vectorTileFeature, sortKey, Optional.empty(),
+      Optional.of(fillRun));
   }
 
   /**
@@ -33,4 +46,33 @@ public record RenderedFeature(
    *              <= 4}
    */
   public record Group(long group, int limit) {}
+
+  /**
+   * A vertical run of completely filled tiles in a single column.
+   *
+   * @param z    zoom level
+   * @param x    x coordinate of the column
+   * @param minY northern-most y coordinate in the run (inclusive)
+   * @param maxY southern-most y coordinate in the run (inclusive)
+   */
+  public record FillRun(int z, int x, int minY, int maxY) {
+
+    public FillRun {
+      assert minY <= maxY;
+    }
+
+    /** Returns the first tile of this run in TMS order, which sorts y descending. */
+    public TileCoord firstTile() {
+      return TileCoord.ofXYZ(x, maxY, z);
+    }
+
+    /** Returns the last tile of this run in TMS order, which sorts y descending. */
+    public TileCoord lastTile() {
+      return TileCoord.ofXYZ(x, minY, z);
+    }
+
+    public int numTiles() {
+      return maxY - minY + 1;
+    }
+  }
 }
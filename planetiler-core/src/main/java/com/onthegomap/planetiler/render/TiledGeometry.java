@@ -291,6 +291,65 @@ public class TiledGeometry {
         }).iterator();
   }
 
+  /**
+   * Returns the same tiles as {@link #getFilledTiles()} but grouped into runs of consecutive Y coordinates within each
+   * column, ordered by x ascending, y ascending.
+   * <p>
+   * This lets large fills like the ocean be emitted as one record per column instead of one per tile.
+   */
+  public List<RenderedFeature.FillRun> getFilledTileRuns() {
+    if (filledRanges == null) {
+      return List.of();
+    }
+    // tiles with partial geometry in them take precedence over filled tiles
+    Map<Integer, RoaringBitmap> edges = new HashMap<>();
+    for (TileCoord coord : tileContents.keySet()) {
+      if (filledRanges.containsKey(coord.x())) {
+        edges.computeIfAbsent(coord.x(), x -> new RoaringBitmap()).add(coord.y());
+      }
+    }
+    List<RenderedFeature.FillRun> result = new ArrayList<>();
+    filledRanges.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+      int x = entry.getKey();
+      if (!extents.testX(x)) {
+        return;
+      }
+      RoaringBitmap ys = entry.getValue().bitmap().selectRange(extents.minY(), extents.maxY());
+      RoaringBitmap edgesInColumn = edges.get(x);
+      if (edgesInColumn != null) {
+        ys.andNot(edgesInColumn);
+      }
+      long start = ys.nextValue(0);
+      while (start >= 0) {
+        long end = ys.nextAbsentValue((int) start) - 1;
+        if (extents.shapeFilter() == null) {
+          result.add(new RenderedFeature.FillRun(z, x, (int) start, (int) end));
+        } else {
+          addRunsInsideShape(x, (int) start, (int) end, result);
+        }
+        start = ys.nextValue((int) end + 1);
+      }
+    });
+    return result;
+  }
+
+  private void addRunsInsideShape(int x, int minY, int maxY, List<RenderedFeature.FillRun> result) {
+    int runStart = -1;
+    for (int y = minY; y <= maxY; y++) {
+      if (extents.test(x, y)) {
+        if (runStart < 0) {
+          runStart = y;
+        }
+      } else if (runStart >= 0) {
+        result.add(new RenderedFeature.FillRun(z, x, runStart, y - 1));
+        runStart = -1;
+      }
+    }
+    if (runStart >= 0) {
+      result.add(new RenderedFeature.FillRun(z, x, runStart, maxY));
+    }
+  }
+
   /** Returns the tiles touched by this geometry. */
   public CoveredTiles getCoveredTiles() {
     RoaringBitmap bitmap = new RoaringBitmap();
@@ -1,14 +1,20 @@
 package com.onthegomap.planetiler.util;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import net.jcip.annotations.NotThreadSafe;
 import net.jcip.annotations.ThreadSafe;
 
 /**
  * A utility for compressing commonly-used strings (i.e. layer name, tag attributes).
+ * <p>
+ * Lookups of strings that have already been encoded and all calls to {@link #decode(int)} are lock-free, and only
+ * assigning an ID to a new string locks. Threads that encode strings in a tight loop can use {@link #forThread()} to
+ * avoid touching the shared table at all for strings they have seen before.
  */
 @ThreadSafe
 public class CommonStringEncoder {
@@ -38,6 +44,33 @@ public class CommonStringEncoder {
     return str;
   }
 
+  /** Returns all strings in the order they were first encoded, for serialization purposes. */
+  public List<String> getStringsInOrder() {
+    return List.of(Arrays.copyOf(idToString, stringId.get()));
+  }
+
+  /**
+   * Restores strings returned from {@link #getStringsInOrder()} so that they decode from the same IDs as before.
+   *
+   * @throws IllegalStateException if this encoder already contains strings
+   */
+  public synchronized void restore(List<String> strings) {
+    if (stringId.get() != 0) {
+      throw new IllegalStateException("Can only restore strings into an empty encoder");
+    }
+    if (strings.size() > maxStrings) {
+      throw new IllegalArgumentException("Too many strings");
+    }
+    for (int id = 0; id < strings.size(); id++) {
+      String string = strings.get(id);
+      if (stringToId.putIfAbsent(string, id) != null) {
+        throw new IllegalArgumentException("Duplicate string " + string);
+      }
+      idToString[id] = string;
+    }
+    stringId.set(strings.size());
+  }
+
   /**
    * Returns a int value to each unique string passed in.
    *
@@ -45,11 +78,6 @@ public class CommonStringEncoder {
    * @return an int that can be converted back to a string by {@link #decode(int)}.
    * @throws IllegalArgumentException if called for too many values
    */
-  /** Returns all strings in the order they were first encoded, for serialization purposes. */
-  public List<String> getStringsInOrder() {
-    return List.of(Arrays.copyOf(idToString, stringId.get()));
-  }
-
   public int encode(String string) {
     // optimization to avoid more expensive computeIfAbsent call for the majority case when concurrent hash map already
     // contains the value.
@@ -67,6 +95,33 @@ public class CommonStringEncoder {
     return result;
   }
 
+  /** Returns an encoder for a single thread that caches the IDs of strings it has encoded before. */
+  public ForThread forThread() {
+    return new ForThread();
+  }
+
+  /**
+   * A cache in front of a {@link CommonStringEncoder} for one thread so that encoding repeated strings only does a
+   * lookup in a map that no other thread touches.
+   */
+  @NotThreadSafe
+  public final class ForThread {
+
+    private final Map<String, Integer> cache = new HashMap<>();
+
+    private ForThread() {}
+
+    /** Returns the same ID for {@code string} as {@link CommonStringEncoder#encode(String)}. */
+    public int encode(String string) {
+      Integer result = cache.get(string);
+      if (result == null) {
+        result = CommonStringEncoder.this.encode(string);
+        cache.put(string, result);
+      }
+      return result;
+    }
+  }
+
   /**
    * Variant of CommonStringEncoder based on byte rather than int for string indexing.
    */
@@ -85,5 +140,10 @@ public class CommonStringEncoder {
     public List<String> getStringsInOrder() {
       return encoder.getStringsInOrder();
     }
+
+    /** @see CommonStringEncoder#restore(List) */
+    public void restore(List<String> strings) {
+      encoder.restore(strings);
+    }
   }
 }
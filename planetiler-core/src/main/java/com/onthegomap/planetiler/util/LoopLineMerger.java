@@ -1,9 +1,13 @@
 package com.onthegomap.planetiler.util;
 
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
 import com.onthegomap.planetiler.geo.DouglasPeuckerSimplifier;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.GeometryPipeline;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -11,12 +15,14 @@ import java.util.Map;
 import java.util.PriorityQueue;
 import org.locationtech.jts.algorithm.Angle;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.CoordinateXY;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryComponentFilter;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
 import org.locationtech.jts.operation.linemerge.LineMerger;
 
 /**
@@ -33,6 +39,10 @@ import org.locationtech.jts.operation.linemerge.LineMerger;
  * <li>at any remaining 3+ way intersections, connect pairs of edges that form the straightest path through the node
  * <li>remove any remaining edges shorter than {@code minLength}
  * </ul>
+ * <p>
+ * When snapping to a fixed grid without a segment transform, points are stored as integer grid coordinates packed into
+ * a {@code long} and nodes are looked up in primitive hash maps, so no {@link Coordinate} objects get allocated until
+ * the merged linestrings are built.
  *
  * @see <a href= "https://oliverwipfli.ch/improving-linestring-merging-in-planetiler-2024-10-30/">Improving Linestring
  *      Merging in Planetiler</a>
@@ -185,9 +195,7 @@ public class LoopLineMerger {
     Edge b = edge1.main ? edge1 : edge2;
     node.getEdges().remove(a);
     node.getEdges().remove(b);
-    List<Coordinate> coordinates = new ArrayList<>();
-    coordinates.addAll(a.coordinates.reversed());
-    coordinates.addAll(b.coordinates.subList(1, b.coordinates.size()));
+    Points coordinates = a.coordinates.reversed().append(b.coordinates);
     Edge c = new Edge(a.to, b.to, coordinates, a.length + b.length);
     a.to.removeEdge(a.reversed);
     b.to.removeEdge(b.reversed);
@@ -259,7 +267,7 @@ public class LoopLineMerger {
   }
 
   private double shortestDistanceAStar(Node start, Node end, Node exclude, double maxLength) {
-    Map<Integer, Double> bestDistance = new HashMap<>();
+    IntDoubleHashMap bestDistance = new IntDoubleHashMap();
     record Candidate(Node node, double length, double minTotalLength) {}
     PriorityQueue<Candidate> frontier = new PriorityQueue<>(Comparator.comparingDouble(Candidate::minTotalLength));
     if (exclude != start) {
@@ -385,8 +393,12 @@ public class LoopLineMerger {
    */
   public List<LineString> getMergedLineStrings() {
     output.clear();
-    List<List<Coordinate>> edges = nodeLines(input);
-    buildNodes(edges);
+    List<GridPoints> gridEdges = pipeline == null ? nodeGridLines(input) : null;
+    if (gridEdges != null) {
+      buildGridNodes(gridEdges);
+    } else {
+      buildNodes(nodeLines(input));
+    }
 
     degreeTwoMerge();
 
@@ -420,7 +432,7 @@ public class LoopLineMerger {
     for (var node : output) {
       for (var edge : node.getEdges()) {
         if (edge.main) {
-          result.add(factory.createLineString(edge.coordinates.toArray(Coordinate[]::new)));
+          result.add(edge.coordinates.toLineString(factory));
         }
       }
     }
@@ -428,46 +440,108 @@ public class LoopLineMerger {
     return result;
   }
 
-  private static double length(List<Coordinate> edge) {
-    Coordinate last = null;
+  private static double length(Points edge) {
     double length = 0;
-    for (Coordinate coord : edge) {
-      if (last != null) {
-        length += last.distance(coord);
-      }
-      last = coord;
+    for (int i = 1; i < edge.size(); i++) {
+      length += Math.hypot(edge.x(i - 1) - edge.x(i), edge.y(i - 1) - edge.y(i));
     }
     return length;
   }
 
+  private void addEdge(Node firstNode, Node lastNode, Points coordinates) {
+    Edge edge = new Edge(firstNode, lastNode, coordinates, length(coordinates));
+
+    firstNode.addEdge(edge);
+    if (firstNode != lastNode) {
+      lastNode.addEdge(edge.reversed);
+    }
+  }
+
+  private Node getOrCreateNode(Map<Coordinate, Node> nodes, Coordinate coordinate) {
+    Node node = nodes.get(coordinate);
+    if (node == null) {
+      node = new Node(coordinate.x, coordinate.y);
+      nodes.put(coordinate, node);
+      output.add(node);
+    }
+    return node;
+  }
+
+  private Node getOrCreateNode(LongObjectHashMap<Node> nodes, GridPoints points, int index) {
+    long point = points.get(index);
+    Node node = nodes.get(point);
+    if (node == null) {
+      node = new Node(points.x(index), points.y(index));
+      nodes.put(point, node);
+      output.add(node);
+    }
+    return node;
+  }
+
   private void buildNodes(List<List<Coordinate>> edges) {
     Map<Coordinate, Node> nodes = new HashMap<>();
     for (var coordinateSequence : edges) {
-      Coordinate first = coordinateSequence.getFirst();
-      Node firstNode = nodes.get(first);
-      if (firstNode == null) {
-        firstNode = new Node(first);
-        nodes.put(first, firstNode);
-        output.add(firstNode);
-      }
-
-      Coordinate last = coordinateSequence.getLast();
-      Node lastNode = nodes.get(last);
-      if (lastNode == null) {
-        lastNode = new Node(last);
-        nodes.put(last, lastNode);
-        output.add(lastNode);
-      }
+      Node firstNode = getOrCreateNode(nodes, coordinateSequence.getFirst());
+      Node lastNode = getOrCreateNode(nodes, coordinateSequence.getLast());
+      addEdge(firstNode, lastNode, new CoordinatePoints(coordinateSequence));
+    }
+  }
 
-      double length = length(coordinateSequence);
+  private void buildGridNodes(List<GridPoints> edges) {
+    LongObjectHashMap<Node> nodes = new LongObjectHashMap<>();
+    for (var points : edges) {
+      Node firstNode = getOrCreateNode(nodes, points, 0);
+      Node lastNode = getOrCreateNode(nodes, points, points.size() - 1);
+      addEdge(firstNode, lastNode, points);
+    }
+  }
 
-      Edge edge = new Edge(firstNode, lastNode, coordinateSequence, length);
+  /**
+   * Snaps lines to integer grid coordinates and splits them where they intersect other lines, or returns {@code null}
+   * if the precision model is not a fixed grid or a point does not fit in an {@code int} grid coordinate.
+   */
+  private List<GridPoints> nodeGridLines(List<LineString> input) {
+    double scale = precisionModel.getScale();
+    // PrecisionModel rounds to a multiple of the grid size instead of multiplying by the scale when it is > 1
+    if (precisionModel.getType() != PrecisionModel.FIXED || scale < 1) {
+      return null;
+    }
+    LongIntHashMap nodeCounts = new LongIntHashMap();
+    List<long[]> lines = new ArrayList<>(input.size());
+    for (var line : input) {
+      var coordinateSequence = line.getCoordinateSequence();
+      long[] snapped = new long[coordinateSequence.size()];
+      int size = 0;
+      for (int i = 0; i < coordinateSequence.size(); i++) {
+        double x = coordinateSequence.getX(i) * scale;
+        double y = coordinateSequence.getY(i) * scale;
+        // also rejects NaN
+        if (!(Math.abs(x) < Integer.MAX_VALUE && Math.abs(y) < Integer.MAX_VALUE)) {
+          return null;
+        }
+        long point = GridPoints.pack((int) Math.round(x), (int) Math.round(y));
+        if (size == 0 || snapped[size - 1] != point) {
+          snapped[size++] = point;
+          nodeCounts.addTo(point, 1);
+        }
+      }
+      if (size >= 2) {
+        lines.add(size == snapped.length ? snapped : Arrays.copyOf(snapped, size));
+      }
+    }
 
-      firstNode.addEdge(edge);
-      if (firstNode != lastNode) {
-        lastNode.addEdge(edge.reversed);
+    List<GridPoints> result = new ArrayList<>(lines.size());
+    for (long[] line : lines) {
+      int start = 0;
+      for (int i = 1; i < line.length - 1; i++) {
+        if (nodeCounts.get(line[i]) > 1) {
+          result.add(new GridPoints(line, start, i + 1, false, scale));
+          start = i;
+        }
       }
+      result.add(new GridPoints(line, start, line.length, false, scale));
     }
+    return result;
   }
 
   private List<List<Coordinate>> nodeLines(List<LineString> input) {
@@ -512,10 +586,12 @@ public class LoopLineMerger {
   private class Node {
     final int id = numNodes++;
     final List<Edge> edge = new ArrayList<>();
-    Coordinate coordinate;
+    final double x;
+    final double y;
 
-    Node(Coordinate coordinate) {
-      this.coordinate = coordinate;
+    Node(double x, double y) {
+      this.x = x;
+      this.y = y;
     }
 
     void addEdge(Edge edge) {
@@ -541,7 +617,7 @@ public class LoopLineMerger {
     }
 
     double distance(Node end) {
-      return coordinate.distance(end.coordinate);
+      return Math.hypot(x - end.x, y - end.y);
     }
   }
 
@@ -555,16 +631,16 @@ public class LoopLineMerger {
     boolean removed;
 
     Edge reversed;
-    List<Coordinate> coordinates;
+    Points coordinates;
 
 
-    private Edge(Node from, Node to, List<Coordinate> coordinateSequence, double length) {
+    private Edge(Node from, Node to, Points coordinateSequence, double length) {
       this(numEdges, from, to, length, coordinateSequence, true, null);
       reversed = new Edge(numEdges, to, from, length, coordinateSequence.reversed(), false, this);
       numEdges++;
     }
 
-    private Edge(int id, Node from, Node to, double length, List<Coordinate> coordinates, boolean main, Edge reversed) {
+    private Edge(int id, Node from, Node to, double length, Points coordinates, boolean main, Edge reversed) {
       this.id = id;
       this.from = from;
       this.to = to;
@@ -586,8 +662,9 @@ public class LoopLineMerger {
       assert from.equals(other.from);
       assert coordinates.size() >= 2;
 
-      double angle = Angle.angle(coordinates.get(0), coordinates.get(1));
-      double angleOther = Angle.angle(other.coordinates.get(0), other.coordinates.get(1));
+      double angle = Math.atan2(coordinates.y(1) - coordinates.y(0), coordinates.x(1) - coordinates.x(0));
+      double angleOther = Math.atan2(other.coordinates.y(1) - other.coordinates.y(0),
+        other.coordinates.x(1) - other.coordinates.x(0));
 
       return Math.abs(Angle.normalize(angle - angleOther));
     }
@@ -598,11 +675,10 @@ public class LoopLineMerger {
 
     void simplify() {
       if (pipeline != null) {
-        coordinates = List.of(
-          pipeline.apply(GeoUtils.JTS_FACTORY.createLineString(coordinates.toArray(Coordinate[]::new)))
-            .getCoordinates());
+        coordinates = new CoordinatePoints(List.of(
+          pipeline.apply(coordinates.toLineString(GeoUtils.JTS_FACTORY)).getCoordinates()));
       } else if (tolerance >= 0) {
-        coordinates = DouglasPeuckerSimplifier.simplify(coordinates, tolerance, false);
+        coordinates = coordinates.simplify(tolerance);
       }
       if (reversed != null) {
         reversed.coordinates = coordinates.reversed();
@@ -611,7 +687,7 @@ public class LoopLineMerger {
 
     boolean isCollapsed() {
       return coordinates.size() < 2 ||
-        (coordinates.size() == 2 && coordinates.getFirst().equals(coordinates.getLast()));
+        (coordinates.size() == 2 && coordinates.x(0) == coordinates.x(1) && coordinates.y(0) == coordinates.y(1));
     }
 
     boolean isLoop() {
@@ -620,8 +696,193 @@ public class LoopLineMerger {
 
     @Override
     public String toString() {
-      return "Edge{" + from.id + "->" + to.id + (main ? "" : "(R)") + ": [" + coordinates.getFirst() + ".." +
-        coordinates.getLast() + "], length=" + length + '}';
+      int last = coordinates.size() - 1;
+      return "Edge{" + from.id + "->" + to.id + (main ? "" : "(R)") + ": [(" + coordinates.x(0) + ", " +
+        coordinates.y(0) + ")..(" + coordinates.x(last) + ", " + coordinates.y(last) + ")], length=" + length + '}';
+    }
+  }
+
+  /** The points along an edge. */
+  private sealed interface Points permits CoordinatePoints, GridPoints {
+
+    int size();
+
+    double x(int index);
+
+    double y(int index);
+
+    /** Returns a view of these points in the opposite order. */
+    Points reversed();
+
+    /** Returns a copy of these points followed by {@code next}, which starts with the last point of this sequence. */
+    Points append(Points next);
+
+    /** Returns these points simplified using Douglas Peucker Algorithm. */
+    Points simplify(double tolerance);
+
+    LineString toLineString(GeometryFactory factory);
+  }
+
+  /** Points stored as a list of JTS coordinates, used when points are not snapped to a grid. */
+  private record CoordinatePoints(List<Coordinate> coordinates) implements Points {
+
+    @Override
+    public int size() {
+      return coordinates.size();
+    }
+
+    @Override
+    public double x(int index) {
+      return coordinates.get(index).x;
+    }
+
+    @Override
+    public double y(int index) {
+      return coordinates.get(index).y;
+    }
+
+    @Override
+    public Points reversed() {
+      return new CoordinatePoints(coordinates.reversed());
+    }
+
+    @Override
+    public Points append(Points next) {
+      List<Coordinate> result = new ArrayList<>(coordinates);
+      List<Coordinate> nextCoordinates = ((CoordinatePoints) next).coordinates;
+      result.addAll(nextCoordinates.subList(1, nextCoordinates.size()));
+      return new CoordinatePoints(result);
+    }
+
+    @Override
+    public Points simplify(double tolerance) {
+      return new CoordinatePoints(DouglasPeuckerSimplifier.simplify(coordinates, tolerance, false));
+    }
+
+    @Override
+    public LineString toLineString(GeometryFactory factory) {
+      return factory.createLineString(coordinates.toArray(Coordinate[]::new));
+    }
+  }
+
+  /**
+   * Points stored as integer grid coordinates packed into a {@code long}, which are divided by {@code scale} to get the
+   * same coordinate that {@link PrecisionModel#makePrecise(double)} would have returned.
+   * <p>
+   * Represents the {@code [from, to)} range of {@code points}, in reverse order when {@code reversed} is true, so that
+   * lines split at intersections and reversed edges share the same array.
+   */
+  private static final class GridPoints implements Points {
+    private final long[] points;
+    private final int from;
+    private final int to;
+    private final boolean reversed;
+    private final double scale;
+
+    GridPoints(long[] points, int from, int to, boolean reversed, double scale) {
+      this.points = points;
+      this.from = from;
+      this.to = to;
+      this.reversed = reversed;
+      this.scale = scale;
+    }
+
+    static long pack(int x, int y) {
+      return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    long get(int index) {
+      return reversed ? points[to - 1 - index] : points[from + index];
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+
+    @Override
+    public double x(int index) {
+      return ((int) (get(index) >> 32)) / scale;
+    }
+
+    @Override
+    public double y(int index) {
+      return ((int) get(index)) / scale;
+    }
+
+    @Override
+    public Points reversed() {
+      return new GridPoints(points, from, to, !reversed, scale);
+    }
+
+    @Override
+    public Points append(Points next) {
+      GridPoints other = (GridPoints) next;
+      long[] result = new long[size() + other.size() - 1];
+      for (int i = 0; i < size(); i++) {
+        result[i] = get(i);
+      }
+      for (int i = 1; i < other.size(); i++) {
+        result[size() + i - 1] = other.get(i);
+      }
+      return new GridPoints(result, 0, result.length, false, scale);
+    }
+
+    @Override
+    public Points simplify(double tolerance) {
+      int size = size();
+      double[] xs = new double[size];
+      double[] ys = new double[size];
+      for (int i = 0; i < size; i++) {
+        xs[i] = x(i);
+        ys[i] = y(i);
+      }
+      int[] keep = DouglasPeuckerSimplifier.simplifyIndices(xs, ys, tolerance, false);
+      if (keep.length == size) {
+        return this;
+      }
+      long[] result = new long[keep.length];
+      for (int i = 0; i < keep.length; i++) {
+        result[i] = get(keep[i]);
+      }
+      return new GridPoints(result, 0, result.length, false, scale);
+    }
+
+    @Override
+    public LineString toLineString(GeometryFactory factory) {
+      int size = size();
+      double[] coords = new double[size * 2];
+      for (int i = 0; i < size; i++) {
+        coords[i * 2] = x(i);
+        coords[i * 2 + 1] = y(i);
+      }
+      CoordinateSequence sequence = new PackedCoordinateSequence.Double(coords, 2, 0);
+      return factory.createLineString(sequence);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GridPoints other) || other.size() != size()) {
+        return false;
+      }
+      for (int i = 0; i < size(); i++) {
+        if (get(i) != other.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = 1;
+      for (int i = 0; i < size(); i++) {
+        result = 31 * result + Long.hashCode(get(i));
+      }
+      return result;
     }
   }
 }
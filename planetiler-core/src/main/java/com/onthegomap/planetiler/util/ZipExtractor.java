@@ -0,0 +1,123 @@
+package com.onthegomap.planetiler.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts files from inside zip archives to a directory on disk in the background, for readers that need a real file
+ * to open.
+ * <p>
+ * Files get extracted one at a time in the order they were passed in, so a reader can start on the first file while
+ * later ones are still decompressing. Each file only gets extracted once no matter how many readers ask for it.
+ * Extracted files get deleted on {@link #close()} unless {@code keep} is set, in which case later runs reuse them if
+ * the zip file has not changed.
+ */
+public class ZipExtractor implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ZipExtractor.class);
+
+  private final Path dir;
+  private final boolean keep;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Map<Path, CompletableFuture<Path>> extracted = new ConcurrentHashMap<>();
+  private final List<Path> toDelete = new ArrayList<>();
+  private volatile boolean closed = false;
+
+  /**
+   * Starts extracting each of {@code paths} that is inside a zip file to {@code dir}.
+   *
+   * @param dir   directory to extract files into
+   * @param keep  to keep extracted files after {@link #close()} and reuse them on later runs
+   * @param paths files to extract, any that are not inside a zip file get left alone
+   */
+  public ZipExtractor(Path dir, boolean keep, List<Path> paths) {
+    this.dir = dir;
+    this.keep = keep;
+    CompletableFuture<Path> previous = CompletableFuture.completedFuture(null);
+    for (Path path : paths) {
+      if (isInZip(path) && !extracted.containsKey(path)) {
+        // extract even if an earlier file failed, the error gets reported to readers that ask for that file
+        previous = previous.handleAsync((result, error) -> extract(path), executor);
+        extracted.put(path, previous);
+      }
+    }
+  }
+
+  /** Returns true if {@code path} refers to a file inside a zip file. */
+  public static boolean isInZip(Path path) {
+    return "jar".equals(path.toUri().getScheme());
+  }
+
+  /**
+   * Returns the location on disk of {@code path}, waiting for it to be extracted if it is inside a zip file.
+   *
+   * @throws UncheckedIOException if an error occurs extracting the file
+   */
+  public Path get(Path path) {
+    if (!isInZip(path)) {
+      return path;
+    }
+    try {
+      return extracted.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> extract(p), executor)).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
+  private Path extract(Path path) {
+    if (closed) {
+      throw new IllegalStateException("Extractor closed before " + path + " was extracted");
+    }
+    try {
+      FileUtils.createDirectory(dir);
+      Path dest = keep ? dir.resolve(URLEncoder.encode(path.toString(), StandardCharsets.UTF_8)) :
+        Files.createTempFile(dir, "", "-" + path.getFileName());
+      if (!keep) {
+        synchronized (toDelete) {
+          toDelete.add(dest);
+        }
+      }
+      if (!keep || FileUtils.isNewer(path, dest)) {
+        LOGGER.info("unzipping {} to {}", path.toUri(), dest);
+        if (keep) {
+          Files.deleteIfExists(dest);
+        }
+        try (var inputStream = Files.newInputStream(path)) {
+          FileUtils.safeCopy(inputStream, dest);
+        }
+      }
+      return dest;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    // waits for the file currently being extracted, the rest fail fast now that this is closed
+    executor.close();
+    synchronized (toDelete) {
+      toDelete.forEach(FileUtils::deleteFile);
+      toDelete.clear();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.onthegomap.planetiler.worker;
+
+import com.onthegomap.planetiler.collection.IterableOnce;
+import com.onthegomap.planetiler.stats.Stats;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feedback controller that moves threads between a step that produces items into a {@link WorkQueue} and the step that
+ * consumes them, based on how long each side spends blocked on that queue.
+ * <p>
+ * Each step starts enough threads to take over all but one of the other step's threads, and wraps the items it works on
+ * with {@link Limit#limit(IterableOnce)} so only as many as its current limit can work at once. When producers spend
+ * most of their time blocked on a full queue, one of their permits moves to consumers, and when consumers spend most of
+ * their time waiting on an empty queue, one moves back. The total number of active threads stays the same.
+ */
+public class ThreadBalancer implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThreadBalancer.class);
+  // fraction of time a side needs to spend blocked before a thread moves away from it
+  private static final double BLOCKED_THRESHOLD = 0.5;
+
+  private final String name;
+  private final Limit producers;
+  private final Limit consumers;
+  private final int maxProducers;
+  private final int total;
+  private ScheduledExecutorService executor = null;
+  private long lastNanos;
+  private long lastEnqueueBlockNanos;
+  private long lastDequeueBlockNanos;
+
+  /**
+   * Creates a new balancer that starts with {@code producers} active producer threads and {@code consumers} active
+   * consumer threads.
+   *
+   * @param name         ID to use in logs and stats
+   * @param stats        stats to report the current limits to
+   * @param producers    initial number of active producer threads
+   * @param consumers    initial number of active consumer threads
+   * @param maxProducers most producer threads that can do useful work at once, i.e. the number of input files
+   */
+  public ThreadBalancer(String name, Stats stats, int producers, int consumers, int maxProducers) {
+    this.name = name;
+    this.total = producers + consumers;
+    this.maxProducers = Math.max(1, Math.min(maxProducers, total - 1));
+    this.producers = new Limit(Math.min(producers, this.maxProducers));
+    this.consumers = new Limit(total - this.producers.limit);
+    stats.gauge(name + "_producer_limit", () -> this.producers.limit);
+    stats.gauge(name + "_consumer_limit", () -> this.consumers.limit);
+  }
+
+  /** Returns the number of producer threads to start. */
+  public int producerThreads() {
+    return maxProducers;
+  }
+
+  /** Returns the number of consumer threads to start. */
+  public int consumerThreads() {
+    return total - 1;
+  }
+
+  public Limit producers() {
+    return producers;
+  }
+
+  public Limit consumers() {
+    return consumers;
+  }
+
+  /** Starts checking the blocked time of {@code queue} every {@code interval} and moving threads between steps. */
+  public ThreadBalancer start(WorkQueue<?> queue, Duration interval) {
+    lastNanos = System.nanoTime();
+    lastEnqueueBlockNanos = queue.getEnqueueBlockTimeNanos();
+    lastDequeueBlockNanos = queue.getDequeueBlockTimeNanos();
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, name + "-balancer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleAtFixedRate(() -> {
+      long now = System.nanoTime();
+      long enqueueBlockNanos = queue.getEnqueueBlockTimeNanos();
+      long dequeueBlockNanos = queue.getDequeueBlockTimeNanos();
+      rebalance(now - lastNanos, enqueueBlockNanos - lastEnqueueBlockNanos, dequeueBlockNanos - lastDequeueBlockNanos);
+      lastNanos = now;
+      lastEnqueueBlockNanos = enqueueBlockNanos;
+      lastDequeueBlockNanos = dequeueBlockNanos;
+    }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    return this;
+  }
+
+  /**
+   * Moves at most one thread between steps given the time producers spent blocked on a full queue and consumers spent
+   * blocked on an empty queue during the last {@code elapsedNanos}.
+   */
+  void rebalance(long elapsedNanos, long enqueueBlockNanos, long dequeueBlockNanos) {
+    if (elapsedNanos <= 0) {
+      return;
+    }
+    // only active producers can block on a full queue, but every consumer thread waits on an empty one
+    double producersBlocked = enqueueBlockNanos / ((double) elapsedNanos * producers.limit);
+    double consumersIdle = dequeueBlockNanos / ((double) elapsedNanos * consumerThreads());
+    if (producersBlocked > BLOCKED_THRESHOLD && producers.limit > 1) {
+      producers.shrink();
+      consumers.grow();
+      LOGGER.info("{}: producers blocked {}% of the time, moved a thread to consumers ({} producers {} consumers)",
+        name, Math.round(producersBlocked * 100), producers.limit, consumers.limit);
+    } else if (consumersIdle > BLOCKED_THRESHOLD && consumers.limit > 1 && producers.limit < maxProducers) {
+      consumers.shrink();
+      producers.grow();
+      LOGGER.info("{}: consumers idle {}% of the time, moved a thread to producers ({} producers {} consumers)",
+        name, Math.round(consumersIdle * 100), producers.limit, consumers.limit);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Limits the number of threads from one step that can work at the same time. */
+  public static class Limit {
+
+    private final ResizableSemaphore permits;
+    private volatile int limit;
+
+    private Limit(int limit) {
+      this.limit = limit;
+      this.permits = new ResizableSemaphore(limit);
+    }
+
+    public int limit() {
+      return limit;
+    }
+
+    private synchronized void grow() {
+      limit++;
+      permits.release();
+    }
+
+    private synchronized void shrink() {
+      limit--;
+      // threads that are already working finish their current item before this takes effect
+      permits.reducePermits(1);
+    }
+
+    /**
+     * Returns a view of {@code items} for one thread that holds a permit from when it gets an item until it asks for
+     * the next one.
+     */
+    public <T> IterableOnce<T> limit(IterableOnce<T> items) {
+      return new IterableOnce<>() {
+        private boolean holding = false;
+
+        @Override
+        public T get() {
+          if (holding) {
+            permits.release();
+            holding = false;
+          }
+          T item = items.get();
+          if (item != null) {
+            permits.acquireUninterruptibly();
+            holding = true;
+          }
+          return item;
+        }
+      };
+    }
+  }
+
+  private static class ResizableSemaphore extends Semaphore {
+
+    private ResizableSemaphore(int permits) {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
+  }
+}
@@ -131,6 +131,16 @@ public class WorkQueue<T> implements AutoCloseable, IterableOnce<T>, Consumer<T>
     return (pendingBatchesCapacity + writers.size() + readers.size()) * batchSize;
   }
 
+  /** Returns the total time that all writer threads have spent blocked waiting for space in the queue. */
+  public long getEnqueueBlockTimeNanos() {
+    return enqueueBlockTimeNanosAll.get();
+  }
+
+  /** Returns the total time that all reader threads have spent blocked waiting for items to arrive in the queue. */
+  public long getDequeueBlockTimeNanos() {
+    return dequeueBlockTimeNanosAll.get();
+  }
+
   /**
    * Caches thread-local values so that a single thread can accept new items without having to do thread-local lookups.
    */
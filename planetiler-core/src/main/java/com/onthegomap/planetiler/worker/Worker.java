@@ -50,11 +50,32 @@ public class Worker {
    * @param task    the work to do in each thread, called with the ID of this thread, from {@code 0} to
    *                {@code threads - 1}.
    */
-  @SuppressWarnings("java:S1181")
   public Worker(String prefix, Stats stats, int threads, IntConsumerThatThrows task) {
+    this(prefix, stats, threads, false, task);
+  }
+
+  /**
+   * Constructs a new reader and immediately starts {@code threads} platform or virtual threads all running
+   * {@code task}.
+   * <p>
+   * Virtual threads are cheap enough to run hundreds or thousands of tasks that spend most of their time blocked on
+   * I/O, like reading or writing many small files, without tying up an OS thread for each one. CPU-bound tasks should
+   * use platform threads.
+   *
+   * @param prefix         string ID to add to logs and stats
+   * @param stats          stats collector for this thread pool
+   * @param threads        number of parallel threads to run {@code task} in
+   * @param virtualThreads to run {@code task} in virtual threads instead of platform threads
+   * @param task           the work to do in each thread, called with the ID of this thread, from {@code 0} to
+   *                       {@code threads - 1}.
+   */
+  @SuppressWarnings("java:S1181")
+  public Worker(String prefix, Stats stats, int threads, boolean virtualThreads, IntConsumerThatThrows task) {
     this.prefix = prefix;
     stats.gauge(prefix + "_threads", threads);
-    var es = Executors.newFixedThreadPool(threads, new NamedThreadFactory(prefix));
+    var es = virtualThreads ?
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 1).factory()) :
+      Executors.newFixedThreadPool(threads, new NamedThreadFactory(prefix));
     String parentStage = LogUtil.getStage();
     List<CompletableFuture<?>> results = new ArrayList<>();
     for (int i = 0; i < threads; i++) {
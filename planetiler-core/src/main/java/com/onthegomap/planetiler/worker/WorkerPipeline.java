@@ -61,6 +61,16 @@ public record WorkerPipeline<T>(
     loggers.awaitAndLog(done, logInterval);
   }
 
+  /** Returns the queue that feeds the step called {@code stepName} in this pipeline, or null if there is none. */
+  public WorkQueue<?> inputQueue(String stepName) {
+    for (WorkerPipeline<?> step = this; step != null; step = step.previous) {
+      if (stepName.equals(step.name)) {
+        return step.inputQueue;
+      }
+    }
+    return null;
+  }
+
   /**
    * Blocks until all work has been completed by all steps of this pipeline.
    *
@@ -270,8 +280,21 @@ public record WorkerPipeline<T>(
      * Runs {@code step} simultaneously in {@code threads} threads that consumes items but does not emit any.
      */
     public WorkerPipeline<O> sinkTo(String name, int threads, SinkStep<O> step) {
+      return sinkTo(name, threads, false, step);
+    }
+
+    /**
+     * Runs {@code step} simultaneously in {@code threads} virtual threads that consume items but do not emit any, for
+     * steps that spend most of their time blocked on I/O.
+     */
+    public WorkerPipeline<O> sinkToVirtualThreads(String name, int threads, SinkStep<O> step) {
+      return sinkTo(name, threads, true, step);
+    }
+
+    private WorkerPipeline<O> sinkTo(String name, int threads, boolean virtualThreads, SinkStep<O> step) {
       var previousPipeline = build();
-      var worker = new Worker(prefix + "_" + name, stats, threads, () -> step.run(outputQueue.threadLocalReader()));
+      var worker = new Worker(prefix + "_" + name, stats, threads, virtualThreads,
+        i -> step.run(outputQueue.threadLocalReader()));
       var doneFuture = joinFutures(worker.done(), previousPipeline.done);
       return new WorkerPipeline<>(name, previousPipeline, outputQueue, worker, doneFuture);
     }
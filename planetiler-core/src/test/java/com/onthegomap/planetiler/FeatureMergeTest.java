@@ -4,6 +4,7 @@ import static com.onthegomap.planetiler.TestUtils.*;
 import static com.onthegomap.planetiler.util.Gzip.gunzip;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -18,9 +19,14 @@ import com.onthegomap.planetiler.mbtiles.Mbtiles;
 import com.onthegomap.planetiler.stats.Stats;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.UnaryOperator;
@@ -711,6 +717,56 @@ class FeatureMergeTest {
     );
   }
 
+  @ParameterizedTest
+  @ValueSource(doubles = {0, 0.5, 3, 50})
+  void testGroupPolygonsByProximityMatchesBruteForce(double minDist) {
+    var random = new Random(0);
+    List<Geometry> geometries = new ArrayList<>();
+    // one large polygon that spans many grid cells, plus a lot of small ones
+    geometries.add(rectangle(100, 100, 180, 105));
+    for (int i = 0; i < 300; i++) {
+      double x = random.nextDouble() * 256;
+      double y = random.nextDouble() * 256;
+      geometries.add(rectangle(x, y, x + random.nextDouble() * 5, y + random.nextDouble() * 5));
+    }
+    List<List<Geometry>> expected = new ArrayList<>();
+    var adjacency = Hppc.<IntArrayList>newIntObjectHashMap();
+    for (int i = 0; i < geometries.size(); i++) {
+      for (int j = 0; j < geometries.size(); j++) {
+        if (i != j && geometries.get(i).isWithinDistance(geometries.get(j), minDist)) {
+          if (!adjacency.containsKey(i)) {
+            adjacency.put(i, new IntArrayList());
+          }
+          adjacency.get(i).add(j);
+        }
+      }
+    }
+    for (var group : FeatureMerge.extractConnectedComponents(adjacency, geometries.size())) {
+      List<Geometry> geoms = new ArrayList<>();
+      for (var cursor : group) {
+        geoms.add(geometries.get(cursor.value));
+      }
+      expected.add(geoms);
+    }
+
+    var actual = FeatureMerge.groupPolygonsByProximity(geometries, minDist);
+    assertEquals(toSets(expected), toSets(actual));
+  }
+
+  private static Set<Set<Geometry>> toSets(Collection<List<Geometry>> groups) {
+    Set<Set<Geometry>> result = new HashSet<>();
+    for (var group : groups) {
+      result.add(new HashSet<>(group));
+    }
+    return result;
+  }
+
+  @Test
+  void testGroupPolygonsByProximityEmpty() {
+    assertEquals(List.of(), FeatureMerge.groupPolygonsByProximity(List.of(), 1));
+    assertEquals(List.of(List.of(newPoint(1, 1))), FeatureMerge.groupPolygonsByProximity(List.of(newPoint(1, 1)), 0));
+  }
+
   @Slow
   @ParameterizedTest
   @CsvSource({
@@ -1226,4 +1282,66 @@ class FeatureMergeTest {
     assertEquals(1, result.size());
     assertEquals(123, result.getFirst().id(), "single feature ID should not be modified");
   }
+
+  private static List<VectorTile.Feature> manyGroups(IntFunction<Geometry> geometry) {
+    List<VectorTile.Feature> features = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      features.add(feature(i * 10 + 1L, geometry.apply(i), Map.of("group", i % 37)));
+      if (i % 50 == 0) {
+        features.add(feature(i * 10 + 2L, newPoint(i % 256, i % 256), Map.of("group", i % 37)));
+      }
+    }
+    return features;
+  }
+
+  @Test
+  void mergeLineStringsInParallelMatchesSequential() {
+    var features = manyGroups(i -> newLineString(i % 20 * 10, i / 20 * 10, (i + 1) % 20 * 10, i / 20 * 10 + 5));
+    Function<Map<String, Object>, Double> minLength = attrs -> 0d;
+    var sequential = FeatureMerge.mergeLineStrings(features, minLength, 0.1, 4, false, null, Integer.MAX_VALUE);
+    var parallel = FeatureMerge.mergeLineStrings(features, minLength, 0.1, 4, false, null, 0);
+    assertEquals(sequential, parallel);
+    assertEquals(37 + 10, parallel.size());
+  }
+
+  @Test
+  void mergeNearbyPolygonsInParallelMatchesSequential() throws GeometryException {
+    var features = manyGroups(i -> rectangle(i % 20 * 10, i / 20 * 10, i % 20 * 10 + 9, i / 20 * 10 + 9));
+    var sequential =
+      FeatureMerge.mergeNearbyPolygons(features, 1, 1, 1, 1, Stats.inMemory(), null, Integer.MAX_VALUE);
+    var parallel = FeatureMerge.mergeNearbyPolygons(features, 1, 1, 1, 1, Stats.inMemory(), null, 0);
+    assertEquals(sequential, parallel);
+    assertEquals(37 + 10, parallel.size());
+  }
+
+  @Test
+  void mergeInParallelPropagatesExceptions() {
+    var features = manyGroups(i -> newLineString(i % 20 * 10, i / 20 * 10, (i + 1) % 20 * 10, i / 20 * 10 + 5));
+    Function<Map<String, Object>, Double> minLength = attrs -> {
+      if (Integer.valueOf(36).equals(attrs.get("group"))) {
+        throw new IllegalStateException("boom");
+      }
+      return 0d;
+    };
+    var error = assertThrows(IllegalStateException.class,
+      () -> FeatureMerge.mergeLineStrings(features, minLength, 0.1, 4, false, null, 0));
+    assertEquals("boom", error.getMessage());
+  }
+
+  @Test
+  void profileCallbacksRunOnCallingThreadWhenParallelMergeEnabled() {
+    var features = manyGroups(i -> newLineString(i % 20 * 10, i / 20 * 10, (i + 1) % 20 * 10, i / 20 * 10 + 5));
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    FeatureMerge.setParallelMinFeatures(1);
+    try {
+      var result = FeatureMerge.mergeLineStrings(features, attrs -> {
+        threads.add(Thread.currentThread());
+        return 0d;
+      }, 0.1, 4, false, null);
+      assertEquals(FeatureMerge.mergeLineStrings(features, 0, 0.1, 4, false), result);
+    } finally {
+      FeatureMerge.setParallelMinFeatures(0);
+    }
+    assertEquals(Set.of(Thread.currentThread()), threads);
+  }
 }
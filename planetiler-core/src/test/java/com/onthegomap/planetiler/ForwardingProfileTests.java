@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import com.onthegomap.planetiler.config.Arguments;
 import com.onthegomap.planetiler.config.PlanetilerConfig;
@@ -14,18 +17,23 @@ import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.geo.TileCoord;
 import com.onthegomap.planetiler.reader.SimpleFeature;
 import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.reader.flatgeobuf.FlatGeobufReader;
 import com.onthegomap.planetiler.reader.osm.OsmElement;
 import com.onthegomap.planetiler.reader.osm.OsmRelationInfo;
+import com.onthegomap.planetiler.stats.Stats;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 
 class ForwardingProfileTests {
 
@@ -259,6 +267,51 @@ class ForwardingProfileTests {
       profile.postProcessLayerFeatures("c", 0, List.of(feature, feature, feature, feature)));
   }
 
+  @Test
+  void testPostProcessesLayerAndTiles() {
+    assertFalse(profile.postProcessesLayer("a"));
+    assertFalse(profile.postProcessesTiles());
+    profile.registerHandler(new ForwardingProfile.LayerPostProcessor() {
+      @Override
+      public List<VectorTile.Feature> postProcess(int zoom, List<VectorTile.Feature> items) {
+        return items;
+      }
+
+      @Override
+      public String name() {
+        return "a";
+      }
+    });
+    assertTrue(profile.postProcessesLayer("a"));
+    assertFalse(profile.postProcessesLayer("b"));
+    assertFalse(profile.postProcessesTiles());
+    profile.registerHandler((ForwardingProfile.TilePostProcessor) (tileCoord, layers) -> layers);
+    assertTrue(profile.postProcessesTiles());
+  }
+
+  @Test
+  void testPostProcessesWhenSubclassOverridesPostProcessingDirectly() {
+    profile = new ForwardingProfile() {
+      @Override
+      public List<VectorTile.Feature> postProcessLayerFeatures(String layer, int zoom,
+        List<VectorTile.Feature> items) {
+        return List.of();
+      }
+    };
+    assertTrue(profile.postProcessesLayer("a"));
+    assertFalse(profile.postProcessesTiles());
+
+    profile = new ForwardingProfile() {
+      @Override
+      public Map<String, List<VectorTile.Feature>> postProcessTileFeatures(TileCoord tileCoord,
+        Map<String, List<VectorTile.Feature>> layers) {
+        return Map.of();
+      }
+    };
+    assertFalse(profile.postProcessesLayer("a"));
+    assertTrue(profile.postProcessesTiles());
+  }
+
   @Test
   void testTilePostProcesser() throws GeometryException {
     VectorTile.Feature feature = new VectorTile.Feature(
@@ -380,6 +433,97 @@ class ForwardingProfileTests {
     assertTrue(profile.caresAboutSource("e"));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  void testHandlerTimings() throws GeometryException {
+    class SlowHandler implements ForwardingProfile.FeatureProcessor, ForwardingProfile.LayerPostProcessor {
+      @Override
+      public String name() {
+        return "slow";
+      }
+
+      @Override
+      public void processFeature(SourceFeature elem, FeatureCollector features) {
+        sleep();
+        features.point("slow");
+      }
+
+      @Override
+      public List<VectorTile.Feature> postProcess(int zoom, List<VectorTile.Feature> items) {
+        sleep();
+        return items;
+      }
+
+      private static void sleep() {
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    SourceFeature a = SimpleFeature.create(GeoUtils.EMPTY_POINT, Map.of(), "srca", null, 1);
+    profile.registerHandler(new SlowHandler());
+    profile.registerSourceHandler("srca", (elem, features) -> features.point("fast"));
+    Stats stats = mock(Stats.class);
+    profile.trackHandlerTimings(stats);
+    for (int i = 0; i < 5; i++) {
+      testFeatures(List.of(Map.of("_layer", "slow"), Map.of("_layer", "fast")), a);
+      profile.postProcessLayerFeatures("slow", 0, List.of());
+      profile.postProcessLayerFeatures("fast", 0, List.of());
+    }
+
+    ArgumentCaptor<Supplier<Map<String, LongSupplier>>> process = ArgumentCaptor.forClass(Supplier.class);
+    ArgumentCaptor<Supplier<Map<String, LongSupplier>>> postProcess = ArgumentCaptor.forClass(Supplier.class);
+    verify(stats).counter(eq("profile_handler_process_time_millis"), eq("handler"), process.capture());
+    verify(stats).counter(eq("profile_layer_postprocess_time_millis"), eq("layer"), postProcess.capture());
+    var processTimes = process.getValue().get();
+    assertEquals(Set.of("slow", "ForwardingProfileTests"), processTimes.keySet());
+    assertTrue(processTimes.get("slow").getAsLong() >= 10, processTimes.get("slow").getAsLong() + " ms");
+    var postProcessTimes = postProcess.getValue().get();
+    assertEquals(Set.of("slow"), postProcessTimes.keySet());
+    assertTrue(postProcessTimes.get("slow").getAsLong() >= 10, postProcessTimes.get("slow").getAsLong() + " ms");
+  }
+
+  @Test
+  void testInterestFilter() {
+    profile.registerSourceHandler("a", new ForwardingProfile.FeatureProcessor() {
+      @Override
+      public void processFeature(SourceFeature elem, FeatureCollector features) {}
+
+      @Override
+      public Expression filter() {
+        return Expression.matchAny("key", "value");
+      }
+    });
+    var filter = profile.interestFilter(Expression.PartialInput.ofSource("a"));
+    assertTrue(filter.test(Map.of("key", "value")));
+    assertFalse(filter.test(Map.of("key", "other")));
+    assertFalse(filter.test(Map.of("other", "value")));
+    assertTrue(profile.interestFilter(Expression.PartialInput.ofSource("b")).rejectsAll());
+
+    profile.registerFeatureHandler((x, y) -> {
+    });
+    assertTrue(profile.interestFilter(Expression.PartialInput.ofSource("a")).acceptsAll());
+  }
+
+  @Test
+  void testInterestFilterWhenSubclassOverridesProcessFeature() throws Exception {
+    List<SourceFeature> processed = new ArrayList<>();
+    profile = new ForwardingProfile() {
+      @Override
+      public void processFeature(SourceFeature sourceFeature, FeatureCollector features) {
+        processed.add(sourceFeature);
+      }
+    };
+    assertTrue(profile.interestFilter(Expression.PartialInput.ofSource("a")).acceptsAll());
+    try (var reader = new FlatGeobufReader(null, "a", TestUtils.pathToResource("flatgeobuf.fgb"))) {
+      reader.setProfile(profile);
+      reader.readFeatures(feature -> profile.processFeature(feature, null));
+    }
+    assertEquals(5, processed.size());
+  }
+
   @Test
   void registerAnySourceFeatureHandler() {
     SourceFeature a = SimpleFeature.create(GeoUtils.EMPTY_POINT, Map.of(), "srca", null, 1);
@@ -16,6 +16,7 @@ import com.onthegomap.planetiler.collection.LongLongMap;
 import com.onthegomap.planetiler.collection.LongLongMultimap;
 import com.onthegomap.planetiler.config.Arguments;
 import com.onthegomap.planetiler.config.PlanetilerConfig;
+import com.onthegomap.planetiler.expression.Expression;
 import com.onthegomap.planetiler.files.ReadableFilesArchive;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.GeometryException;
@@ -1610,6 +1611,59 @@ class PlanetilerTests {
     ), results.tiles);
   }
 
+  @Test
+  void testOsmSkipsElementsProfileIgnores() throws Exception {
+    ForwardingProfile profile = new ForwardingProfile() {
+      @Override
+      public String name() {
+        return "test";
+      }
+    };
+    List<Long> processed = new CopyOnWriteArrayList<>();
+    profile.registerSourceHandler("osm", new ForwardingProfile.FeatureProcessor() {
+      @Override
+      public void processFeature(SourceFeature sourceFeature, FeatureCollector features) {
+        processed.add(sourceFeature.id());
+        features.polygon("layer").setZoomRange(0, 0);
+      }
+
+      @Override
+      public Expression filter() {
+        return Expression.matchAny("natural", "water");
+      }
+    });
+    var results = runWithOsmElements(
+      Map.of("threads", "1"),
+      List.of(
+        with(new OsmElement.Node(1, GeoUtils.getWorldLat(0.125), GeoUtils.getWorldLon(0.125)),
+          node -> node.setTag("natural", "tree")),
+        new OsmElement.Node(2, GeoUtils.getWorldLat(0.125), GeoUtils.getWorldLon(0.875)),
+        new OsmElement.Node(3, GeoUtils.getWorldLat(0.875), GeoUtils.getWorldLon(0.875)),
+        new OsmElement.Node(4, GeoUtils.getWorldLat(0.875), GeoUtils.getWorldLon(0.125)),
+        // untagged multipolygon member still needs its geometry stored
+        with(new OsmElement.Way(5), way -> way.nodes().add(1, 2, 3, 4, 1)),
+        with(new OsmElement.Way(6), way -> {
+          way.setTag("natural", "wood");
+          way.nodes().add(1, 2, 3, 4, 1);
+        }),
+        with(new OsmElement.Relation(7), rel -> {
+          rel.setTag("type", "multipolygon");
+          rel.setTag("natural", "water");
+          rel.members().add(new OsmElement.Relation.Member(OsmElement.Type.WAY, 5, "outer"));
+        })
+      ),
+      profile
+    );
+
+    // node 1 and way 6 have tags but none that could match
+    assertEquals(List.of(7L), processed);
+    assertSubmap(Map.of(
+      TileCoord.ofXYZ(0, 0, 0), List.of(
+        feature(rectangle(0.125 * 256, 0.875 * 256), Map.of())
+      )
+    ), results.tiles);
+  }
+
   static Stream<org.junit.jupiter.params.provider.Arguments> polygonCollections() {
     double x1 = 0.125;
     double y1 = 0.125;
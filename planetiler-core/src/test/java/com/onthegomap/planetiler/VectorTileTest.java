@@ -30,6 +30,7 @@ import static org.junit.jupiter.api.DynamicTest.dynamicTest;
 import com.google.common.primitives.Ints;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.GeometryException;
+import com.onthegomap.planetiler.geo.GeometryType;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -340,6 +341,32 @@ class VectorTileTest {
     assertEquals("layer2", decoded.get(2).layer());
   }
 
+  @Test
+  void testLayerEncoderMatchesAddLayerFeatures() {
+    Point point = JTS_FACTORY.createPoint(new CoordinateXY(0, 0));
+    var empty = new VectorTile.VectorGeometry(new int[0], GeometryType.POINT, 0);
+    Map<String, Object> attrs1 = Map.of("a", 1L, "b", "2");
+    Map<String, Object> attrs2 = Map.of("b", "2", "c", 1.5d, "d", true, "e", 3L, "f", "x", "g", "y", "h", "z", "i", 4L);
+    var features = List.of(
+      new VectorTile.Feature("layer1", 1L, VectorTile.encodeGeometry(point), attrs1),
+      new VectorTile.Feature("layer1", 2L, empty, attrs1),
+      new VectorTile.Feature("layer1", 3L, VectorTile.encodeGeometry(point), attrs2)
+    );
+    VectorTile tile = new VectorTile();
+    var encoder = tile.layerEncoder("layer1");
+    // the encoder should not create a layer for features without geometries
+    tile.layerEncoder("layer2").addAttr("a", 1L).addFeature(4L, empty);
+    for (var feature : features) {
+      feature.tags().forEach(encoder::addAttr);
+      encoder.addAttr("null", null);
+      encoder.addFeature(feature.id(), feature.geometry());
+    }
+
+    assertEquals(VectorTile.decode(new VectorTile().addLayerFeatures("layer1", features).encode()),
+      VectorTile.decode(tile.encode()));
+    assertEquals(List.of(1L, 3L), VectorTile.decode(tile.encode()).stream().map(VectorTile.Feature::id).toList());
+  }
+
   @ParameterizedTest
   @CsvSource({
     "true,true,-1,-1,257,257",
@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.DynamicTest.dynamicTest;
 
+import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.Profile;
 import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.archive.TileArchiveWriter;
@@ -22,11 +23,14 @@ import com.onthegomap.planetiler.util.Gzip;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.Test;
@@ -149,6 +153,29 @@ class FeatureGroupTest {
       )))), getFeatures());
   }
 
+  @Test
+  void testPutSharedAttrsInManyTiles() {
+    Map<String, Object> attrs = new HashMap<>();
+    attrs.put("float", 1.5f);
+    attrs.put("int", 1);
+    attrs.put("bool", false);
+    attrs.put("other", List.of("a"));
+    attrs.put("null", null);
+    put(1, "layer", attrs, newPoint(1, 2));
+    put(2, "layer", attrs, newPoint(1, 2));
+    put(3, "layer", Map.of("int", 2), newPoint(1, 2));
+    put(4, "layer", attrs, newPoint(1, 2));
+    sorter.sort();
+    var expected = List.of(new Feature(Map.of("float", 1.5d, "int", 1L, "bool", false, "other", "[a]"),
+      newPoint(1, 2)));
+    assertEquals(Map.of(
+      1L, Map.of("layer", expected),
+      2L, Map.of("layer", expected),
+      3L, Map.of("layer", List.of(new Feature(Map.of("int", 2L), newPoint(1, 2)))),
+      4L, Map.of("layer", expected)
+    ), getFeatures());
+  }
+
   @Test
   void testShardedRead() {
     put(3, "layer3", Map.of("a", 1.5d, "b", "string"), newPoint(5, 6));
@@ -300,6 +327,99 @@ class FeatureGroupTest {
       )), getFeatures());
   }
 
+  @ParameterizedTest
+  @CsvSource({"0", "2", "100"})
+  void testPostProcessLayersInParallel(int minFeatures) {
+    var parallelConfig = PlanetilerConfig.from(com.onthegomap.planetiler.config.Arguments.of(Map.of(
+      "postprocess_parallel_min_features", Integer.toString(minFeatures),
+      "log_jts_exceptions", "true"
+    )));
+    Map<String, TileCoord> postProcessedTiles = new ConcurrentHashMap<>();
+    features = new FeatureGroup(sorter, TileOrder.TMS, new Profile.NullProfile() {
+      @Override
+      public List<VectorTile.Feature> postProcessLayerFeatures(String layer, int zoom, List<VectorTile.Feature> items) {
+        postProcessedTiles.put(layer, FeatureGroup.getCurrentTileForDebugging());
+        Collections.reverse(items);
+        return layer.equals("c") ? List.of() : items;
+      }
+    }, parallelConfig, Stats.inMemory());
+    featureWriter = features.writerForThread();
+    for (String layer : List.of("a", "b", "c", "d")) {
+      put(1, layer, Map.of("id", 1), newPoint(1, 2));
+      put(1, layer, Map.of("id", 2), newPoint(3, 4));
+    }
+    sorter.sort();
+    var expected = List.of(
+      new Feature(Map.of("id", 2L), newPoint(3, 4)),
+      new Feature(Map.of("id", 1L), newPoint(1, 2))
+    );
+    assertEquals(Map.of(1L, Map.of("a", expected, "b", expected, "d", expected)), getFeatures());
+    var tile = TileCoord.decode(1);
+    assertEquals(Map.of("a", tile, "b", tile, "c", tile, "d", tile), postProcessedTiles);
+  }
+
+  @Test
+  void testPassThroughLayersProfileDoesNotPostProcess() {
+    List<String> postProcessed = new ArrayList<>();
+    features = new FeatureGroup(sorter, TileOrder.TMS, new Profile.NullProfile() {
+      @Override
+      public List<VectorTile.Feature> postProcessLayerFeatures(String layer, int zoom, List<VectorTile.Feature> items) {
+        postProcessed.add(layer);
+        Collections.reverse(items);
+        return items;
+      }
+
+      @Override
+      public boolean postProcessesLayer(String layer) {
+        return layer.equals("b");
+      }
+
+      @Override
+      public boolean postProcessesTiles() {
+        return false;
+      }
+    }, config, Stats.inMemory());
+    featureWriter = features.writerForThread();
+    for (String layer : List.of("a", "b")) {
+      putWithGroup(1, layer, Map.of("id", 2, "layer", layer), newPoint(3, 4), 1, 1, 2);
+      putWithSortKey(1, layer, Map.of("id", 1, "layer", layer), newPoint(1, 2), 0);
+      putWithGroup(1, layer, Map.of("id", 3), newPoint(5, 6), 2, 1, 2);
+    }
+    sorter.sort();
+    assertEquals(Map.of(1L, Map.of(
+      "a", List.of(
+        new Feature(Map.of("id", 1L, "layer", "a"), newPoint(1, 2)),
+        new Feature(Map.of("id", 2L, "layer", "a"), newPoint(3, 4)),
+        new Feature(Map.of("id", 3L), newPoint(5, 6))
+      ),
+      "b", List.of(
+        new Feature(Map.of("id", 3L), newPoint(5, 6)),
+        new Feature(Map.of("id", 2L, "layer", "b"), newPoint(3, 4)),
+        new Feature(Map.of("id", 1L, "layer", "b"), newPoint(1, 2))
+      )
+    )), getFeatures());
+    assertEquals(List.of("b"), postProcessed);
+  }
+
+  @Test
+  void testForwardingProfileOverridingPostProcessLayerFeatures() {
+    features = new FeatureGroup(sorter, TileOrder.TMS, new ForwardingProfile() {
+      @Override
+      public List<VectorTile.Feature> postProcessLayerFeatures(String layer, int zoom, List<VectorTile.Feature> items) {
+        Collections.reverse(items);
+        return items;
+      }
+    }, config, Stats.inMemory());
+    featureWriter = features.writerForThread();
+    putWithSortKey(1, "a", Map.of("id", 1), newPoint(1, 2), 0);
+    putWithSortKey(1, "a", Map.of("id", 2), newPoint(3, 4), 1);
+    sorter.sort();
+    assertEquals(Map.of(1L, Map.of("a", List.of(
+      new Feature(Map.of("id", 2L), newPoint(3, 4)),
+      new Feature(Map.of("id", 1L), newPoint(1, 2))
+    ))), getFeatures());
+  }
+
   @Test
   void testHilbertOrdering() {
     features = new FeatureGroup(sorter, TileOrder.HILBERT, new Profile.NullProfile() {}, config, Stats.inMemory());
@@ -589,6 +709,69 @@ class FeatureGroupTest {
     }
   }
 
+  @Test
+  void testFillRunsExpandToSameTilesAsIndividualFeatures() {
+    var fill = new VectorTile.Feature("water", 1, VectorTile.encodeFill(4), Map.of("natural", "water"));
+    var run = new RenderedFeature.FillRun(3, 1, 2, 5);
+    var otherRun = new RenderedFeature.FillRun(3, 1, 4, 6);
+    var point = new VectorTile.Feature("water", 2, VectorTile.encodeGeometry(newPoint(1, 2)), Map.of());
+    var otherLayer = new VectorTile.Feature("a", 3, VectorTile.encodeGeometry(newPoint(1, 2)), Map.of());
+
+    var expected =
+      new FeatureGroup(FeatureSort.newInMemory(), TileOrder.TMS, new Profile.NullProfile(), config, Stats.inMemory());
+    var actual =
+      new FeatureGroup(FeatureSort.newInMemory(), TileOrder.TMS, new Profile.NullProfile(), config, Stats.inMemory());
+    try (
+      var expectedWriter = expected.writerForThread();
+      var actualWriter = actual.writerForThread();
+      var expectedEncoder = expected.newRenderedFeatureEncoder();
+      var actualEncoder = actual.newRenderedFeatureEncoder();
+    ) {
+      for (var feature : List.of(
+        new RenderedFeature(TileCoord.ofXYZ(1, 3, 3), point, 1, Optional.empty()),
+        new RenderedFeature(TileCoord.ofXYZ(1, 3, 3), otherLayer, 0, Optional.empty()),
+        new RenderedFeature(TileCoord.ofXYZ(1, 7, 3), point, 0, Optional.empty()),
+        new RenderedFeature(TileCoord.ofXYZ(0, 0, 3), point, 0, Optional.empty())
+      )) {
+        expectedWriter.accept(expectedEncoder.apply(feature));
+        actualWriter.accept(actualEncoder.apply(feature));
+      }
+      for (var fillRun : List.of(run, otherRun)) {
+        int sortKey = fillRun == run ? 2 : 0;
+        actualWriter.accept(actualEncoder.apply(RenderedFeature.ofFillRun(fillRun, fill, sortKey)));
+        for (int y = fillRun.minY(); y <= fillRun.maxY(); y++) {
+          expectedWriter.accept(expectedEncoder.apply(
+            new RenderedFeature(TileCoord.ofXYZ(fillRun.x(), y, fillRun.z()), fill, sortKey, Optional.empty())));
+        }
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    assertTrue(actual.supportsFillRuns());
+    assertEquals(5, expected.numFeaturesWritten() - actual.numFeaturesWritten());
+
+    List<String> expectedTiles = new ArrayList<>();
+    List<String> actualTiles = new ArrayList<>();
+    for (var tile : expected) {
+      expectedTiles.add(tile.tileCoord() + " " + Arrays.toString(tile.getVectorTile().encode()));
+    }
+    long processed = 0;
+    for (var tile : actual) {
+      actualTiles.add(tile.tileCoord() + " " + Arrays.toString(tile.getVectorTile().encode()));
+      processed += tile.getNumFeaturesProcessed();
+    }
+    assertEquals(expectedTiles, actualTiles);
+    assertEquals(7, actualTiles.size());
+    assertEquals(actual.numFeaturesWritten(), processed);
+  }
+
+  @Test
+  void testHilbertDoesNotSupportFillRuns() {
+    assertFalse(
+      new FeatureGroup(sorter, TileOrder.HILBERT, new Profile.NullProfile(), config, Stats.inMemory())
+        .supportsFillRuns());
+  }
+
   private static record PuTileArgs(long id, int tile, String layer, Map<String, Object> attrs, Geometry geom,
     int sortKey, boolean hasGroup, long group, int limit) {}
 
@@ -653,6 +653,102 @@ class MultiExpressionTest {
     assertThrows(AssertionError.class, () -> index.getMatches(bad));
   }
 
+  @Test
+  void testOnlyEvaluateWhenTagHasMatchingValue() {
+    Expression dontEvaluate = (input, matchKeys) -> {
+      throw new AssertionError("should not evaluate");
+    };
+    var index = MultiExpression.of(List.of(
+      entry("a", and(dontEvaluate, matchAny("key", "value1", "value2"))),
+      entry("b", and(matchField("other"), matchAny("key", "value3"), dontEvaluate))
+    )).index();
+
+    assertSameElements(List.of(), index.getMatches(featureWithTags("key", "value")));
+    assertSameElements(List.of(), index.getMatches(featureWithTags("key", "value", "other", "value3")));
+    var bad = featureWithTags("key", "value2");
+    assertThrows(AssertionError.class, () -> index.getMatches(bad));
+    var bad2 = featureWithTags("key", "value3", "other", "value");
+    assertThrows(AssertionError.class, () -> index.getMatches(bad2));
+  }
+
+  @Test
+  void testAndWithNotMatchWhenMissing() {
+    var index = MultiExpression.of(List.of(
+      entry("a", and(matchAny("key", "value"), not(matchAny("other", "", "x"))))
+    )).index();
+
+    assertSameElements(List.of(), index.getMatches(featureWithTags("key", "value")));
+    assertSameElements(List.of("a"), index.getMatches(featureWithTags("key", "value", "other", "y")));
+    assertSameElements(List.of(), index.getMatches(featureWithTags("key", "value", "other", "x")));
+    assertSameElements(List.of(), index.getMatches(featureWithTags("other", "y")));
+  }
+
+  @Test
+  void testMatchValueIndexWithNonStringValues() {
+    var index = MultiExpression.of(List.of(
+      entry("a", matchAny("key", "1", "2")),
+      entry("b", matchAnyTyped("key", DataType.GET_STRING, "3")),
+      entry("c", and(matchAny("key", "4"), matchField("other")))
+    )).index();
+
+    assertSameElements(List.of("a"), index.getMatches(WithTags.from(Map.of("key", 1))));
+    assertSameElements(List.of("a"), index.getMatches(WithTags.from(Map.of("key", List.of("0", 2)))));
+    assertSameElements(List.of("b"), index.getMatches(WithTags.from(Map.of("key", 3L))));
+    assertSameElements(List.of("c"), index.getMatches(WithTags.from(Map.of("key", 4, "other", true))));
+    assertSameElements(List.of(), index.getMatches(WithTags.from(Map.of("key", 4))));
+    assertSameElements(List.of(), index.getMatches(WithTags.from(Map.of("key", 5))));
+  }
+
+  @Test
+  void testGetOrElseStopsAtFirstMatch() {
+    Expression dontEvaluate = (input, matchKeys) -> {
+      throw new AssertionError("should not evaluate");
+    };
+    var index = MultiExpression.ofOrdered(List.of(
+      entry("a", matchField("key")),
+      entry("b", and(matchField("key"), dontEvaluate))
+    )).index();
+
+    var feature = featureWithTags("key", "value");
+    assertEquals("a", index.getOrElse(feature, null));
+    assertTrue(index.matches(feature));
+    assertThrows(AssertionError.class, () -> index.getMatches(feature));
+  }
+
+  @Test
+  void testForEachMatch() {
+    var index = MultiExpression.ofOrdered(List.of(
+      entry("a", matchAny("key1", "value1")),
+      entry("b", or(matchField("key2"), matchAny("key1", "value1"))),
+      entry("c", matchField("key3")),
+      entry("d", matchField("key2"))
+    )).index();
+    var feature = featureWithTags("key1", "value1", "key2", "value2");
+
+    List<String> visited = new ArrayList<>();
+    assertTrue(index.forEachMatch(feature, (match, keys) -> visited.add(match + "=" + keys)));
+    assertEquals(List.of("a=[key1]", "b=[key2]", "d=[key2]"), visited);
+
+    visited.clear();
+    assertFalse(index.forEachMatch(feature, (match, keys) -> visited.add(match) && !match.equals("b")));
+    assertEquals(List.of("a", "b"), visited);
+  }
+
+  @Test
+  void testForEachMatchReentrant() {
+    var index = MultiExpression.ofOrdered(List.of(
+      entry("a", matchField("key1")),
+      entry("b", matchField("key2"))
+    )).index();
+    List<String> visited = new ArrayList<>();
+    index.forEachMatch(featureWithTags("key1", "value1", "key2", "value2"), (match, keys) -> {
+      visited.add(match + "=" + keys);
+      visited.add(index.getMatches(featureWithTags("key2", "value2")).toString());
+      return true;
+    });
+    assertEquals(List.of("a=[key1]", "[b]", "b=[key2]", "[b]"), visited);
+  }
+
   @Test
   void testAndOrMatch() {
     var expr = and(
@@ -749,6 +845,51 @@ class MultiExpressionTest {
     ))));
   }
 
+  @Test
+  void testInterestFilter() {
+    var filter = MultiExpression.of(List.of(
+      entry("a", matchAny("highway", "primary", "secondary")),
+      entry("b", and(matchField("building"), not(matchAny("building", "no")))),
+      entry("c", matchAny("nested.key", "value")),
+      entry("d", and(matchType("point"), matchAny("amenity", "cafe")))
+    )).interestFilter();
+
+    assertFalse(filter.acceptsAll());
+    assertFalse(filter.rejectsAll());
+    assertTrue(filter.test(Map.of("highway", "primary")));
+    assertFalse(filter.test(Map.of("highway", "path")));
+    // values might match after conversion
+    assertTrue(filter.test(Map.of("highway", 1)));
+    assertTrue(filter.test(Map.of("building", "no")));
+    assertTrue(filter.test(Map.of("nested", Map.of())));
+    assertTrue(filter.test(Map.of("amenity", "cafe", "name", "x")));
+    assertFalse(filter.test(Map.of("amenity", "bar", "name", "x")));
+    assertFalse(filter.test(Map.of()));
+    assertTrue(filter.caresAboutKey("highway"));
+    assertFalse(filter.caresAboutKey("name"));
+    assertTrue(filter.caresAboutAnyKey(List.of("name", "building")));
+    assertFalse(filter.caresAboutAnyKey(List.of("name", "ref")));
+
+    var anyHighway = filter.withAnyValue(List.of("highway", "name"));
+    assertTrue(anyHighway.test(Map.of("highway", "path")));
+    assertFalse(anyHighway.test(Map.of("name", "path")));
+  }
+
+  @Test
+  void testInterestFilterAcceptsAllWhenExpressionsMustAlwaysBeEvaluated() {
+    assertTrue(MultiExpression.of(List.of(
+      entry("a", matchAny("highway", "primary")),
+      entry("b", not(matchAny("building", "no")))
+    )).interestFilter().acceptsAll());
+    assertTrue(MultiExpression.of(List.of(
+      entry("a", matchSource("source"))
+    )).interestFilter().acceptsAll());
+    assertFalse(MultiExpression.of(List.of(
+      entry("a", matchSource("source"))
+    )).map(e -> e.partialEvaluate(PartialInput.ofSource("other"))).interestFilter().test(Map.of("a", "b")));
+    assertTrue(MultiExpression.<String>of(List.of()).interestFilter().rejectsAll());
+  }
+
   private static <T> void assertSameElements(List<T> a, List<T> b) {
     assertEquals(
       a.stream().sorted(Comparator.comparing(Object::toString)).toList(),
@@ -3,9 +3,14 @@ package com.onthegomap.planetiler.geo;
 import static com.onthegomap.planetiler.TestUtils.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateXY;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Polygonal;
 import org.locationtech.jts.geom.util.AffineTransformation;
@@ -86,4 +91,30 @@ class DouglasPeuckerSimplifierTest {
       20
     );
   }
+
+  @ParameterizedTest
+  @ValueSource(doubles = {0, 0.01, 0.1, 1})
+  void testLongLineMatchesCoordinateListVersion(double tolerance) {
+    // long enough to use the SIMD implementation when it is available
+    Random random = new Random(0);
+    List<Coordinate> coords = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      double angle = Math.PI * 2 * i / 2_000;
+      coords.add(new CoordinateXY(
+        10 * Math.cos(angle) + random.nextGaussian() * 0.05,
+        10 * Math.sin(angle) + random.nextGaussian() * 0.05
+      ));
+    }
+    coords.add(coords.getFirst());
+    Geometry polygon = newPolygon(coords, List.of());
+    Geometry line = newLineString(coords);
+    assertEquals(
+      DouglasPeuckerSimplifier.simplify(coords, tolerance, true),
+      List.of(DouglasPeuckerSimplifier.simplify(polygon, tolerance).getCoordinates())
+    );
+    assertEquals(
+      DouglasPeuckerSimplifier.simplify(coords, tolerance, false),
+      List.of(DouglasPeuckerSimplifier.simplify(line, tolerance).getCoordinates())
+    );
+  }
 }
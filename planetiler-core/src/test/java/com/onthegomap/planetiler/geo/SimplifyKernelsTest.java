@@ -0,0 +1,59 @@
+package com.onthegomap.planetiler.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SimplifyKernelsTest {
+
+  private static double[] randomCoords(Random random, int num) {
+    double[] result = new double[num];
+    for (int i = 0; i < num; i++) {
+      result[i] = random.nextDouble() * 10;
+    }
+    return result;
+  }
+
+  @Test
+  void testFurthestPointScalar() {
+    double[] xs = {0, 1, 2, 3, 4};
+    double[] ys = {0, 1, -2, 2, 0};
+    assertEquals(2, SimplifyKernels.furthestPointScalar(xs, ys, 1, 4, 0, 0, 4, 0, -1));
+    assertEquals(2, SimplifyKernels.furthestPointScalar(xs, ys, 1, 4, 0, 0, 4, 0, 3.9));
+    assertEquals(-1, SimplifyKernels.furthestPointScalar(xs, ys, 1, 4, 0, 0, 4, 0, 4));
+    // ties go to the first point
+    assertEquals(2, SimplifyKernels.furthestPointScalar(xs, ys, 1, 5, 0, 0, 4, 0, -1));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 3, 4, 5, 7, 8, 9, 16, 17, 100, 1001})
+  void testVectorFurthestPointMatchesScalar(int num) {
+    assumeTrue(SimplifyKernels.USE_VECTOR_API, "jdk.incubator.vector module not available");
+    Random random = new Random(num);
+    for (int iter = 0; iter < 100; iter++) {
+      double[] xs = randomCoords(random, num);
+      double[] ys = randomCoords(random, num);
+      int from = random.nextInt(num);
+      int to = from + random.nextInt(num - from + 1);
+      double p1x = random.nextDouble() * 10;
+      double p1y = random.nextDouble() * 10;
+      // include degenerate segments where both endpoints are the same
+      double p2x = iter % 10 == 0 ? p1x : random.nextDouble() * 10;
+      double p2y = iter % 10 == 0 ? p1y : random.nextDouble() * 10;
+      double threshold = iter % 2 == 0 ? -1 : random.nextDouble() * 10;
+      // add ties for furthest point
+      if (to - from > 2) {
+        xs[to - 1] = xs[from + 1];
+        ys[to - 1] = ys[from + 1];
+      }
+      assertEquals(
+        SimplifyKernels.furthestPointScalar(xs, ys, from, to, p1x, p1y, p2x, p2y, threshold),
+        SimplifyKernels.furthestPoint(xs, ys, from, to, p1x, p1y, p2x, p2y, threshold)
+      );
+    }
+  }
+}
@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -96,6 +97,63 @@ class GeoPackageReaderTest {
     }
   }
 
+  @ParameterizedTest
+  @CsvSource({
+    "geopackage.gpkg,false,86",
+    "geopackage.gpkg,true,4",
+    "geopackage-unindexed.gpkg,true,86"
+  })
+  @Timeout(30)
+  void testReadGeoPackageSplits(String dbName, boolean withBounds, int expectedCount) throws Exception {
+    Path path = TestUtils.pathToResource(dbName);
+    var bounds = withBounds ? new Bounds(new Envelope(-77.0306, -77.0192, 38.8894, 38.9014)) : null;
+    List<String> expected = new ArrayList<>();
+    List<Long> expectedIds = new ArrayList<>();
+    List<? extends SimpleReader.Split> splits;
+    try (var reader = new GeoPackageReader("EPSG:4326", "test", path, tmpDir, false, bounds)) {
+      reader.readFeatures(feature -> {
+        expected.add(feature.getTag("name").toString());
+        expectedIds.add(feature.id());
+      });
+      splits = reader.getSplits(10);
+      assertEquals(List.of(), reader.getSplits(100));
+    }
+    assertEquals(9, splits.size());
+    List<String> actual = new ArrayList<>();
+    List<Long> actualIds = new ArrayList<>();
+    for (var split : splits) {
+      try (var reader = new GeoPackageReader("EPSG:4326", "test", path, tmpDir, false, bounds)) {
+        reader.readSplit(split, feature -> {
+          actual.add(feature.getTag("name").toString());
+          actualIds.add(feature.id());
+        });
+      }
+    }
+    assertEquals(expectedCount, actual.size());
+    assertEquals(expectedCount, Set.copyOf(actualIds).size());
+    assertEquals(expected, actual);
+    assertEquals(expectedIds, actualIds);
+  }
+
+  @Test
+  @Timeout(30)
+  void testSameIdsWhenZipped() throws Exception {
+    Path zipPath = TestUtils.pathToResource("geopackage.gpkg.zip");
+    Path pathInZip = FileUtils.walkPathWithPattern(zipPath, "*.gpkg").get(0);
+    List<Long> expected = new ArrayList<>();
+    List<Long> actual = new ArrayList<>();
+    try (var reader = new GeoPackageReader(null, "test", TestUtils.pathToResource("geopackage.gpkg"), tmpDir, false,
+      null)) {
+      reader.readFeatures(feature -> expected.add(feature.id()));
+    }
+    try (var reader = new GeoPackageReader(null, "test", pathInZip, tmpDir, false, null)) {
+      assertEquals(List.of(), reader.getSplits(10));
+      reader.readFeatures(feature -> actual.add(feature.id()));
+    }
+    assertEquals(86, expected.size());
+    assertEquals(expected, actual);
+  }
+
   @Test
   @Timeout(30)
   void testReadEmptyGeoPackage() throws Exception {
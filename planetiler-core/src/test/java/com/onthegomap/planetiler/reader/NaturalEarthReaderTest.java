@@ -4,21 +4,32 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.onthegomap.planetiler.FeatureCollector;
+import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.TestUtils;
 import com.onthegomap.planetiler.collection.IterableOnce;
+import com.onthegomap.planetiler.expression.Expression;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.stats.Stats;
 import com.onthegomap.planetiler.worker.WorkerPipeline;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.DriverManager;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
 
 class NaturalEarthReaderTest {
   @TempDir
@@ -63,4 +74,126 @@ class NaturalEarthReaderTest {
       }
     }
   }
+
+  @Test
+  void testSkipsFeaturesProfileIgnores() throws Exception {
+    Path path = tempDir.resolve("test.sqlite");
+    byte[] point = new WKBWriter().write(TestUtils.newPoint(1, 2));
+    try (
+      var conn = DriverManager.getConnection("jdbc:sqlite:" + path.toAbsolutePath());
+      var statement = conn.createStatement()
+    ) {
+      statement.execute("CREATE TABLE ne_a (name TEXT, GEOMETRY BLOB)");
+      statement.execute("CREATE TABLE ne_b (kind TEXT, GEOMETRY BLOB)");
+      statement.execute("CREATE TABLE ne_c (kind TEXT, GEOMETRY BLOB)");
+      try (var insert = conn.prepareStatement("INSERT INTO ne_a VALUES (?, ?)")) {
+        insert.setString(1, "a1");
+        insert.setBytes(2, point);
+        insert.execute();
+        insert.setString(1, "a2");
+        insert.setBytes(2, null);
+        insert.execute();
+        insert.setString(1, "a3");
+        insert.setBytes(2, point);
+        insert.execute();
+      }
+      for (String table : List.of("ne_b", "ne_c")) {
+        try (var insert = conn.prepareStatement("INSERT INTO %s VALUES (?, ?)".formatted(table))) {
+          for (String kind : List.of("lake", "river")) {
+            insert.setString(1, kind);
+            insert.setBytes(2, point);
+            insert.execute();
+          }
+        }
+      }
+    }
+    Map<Long, Map<String, Object>> all = new TreeMap<>();
+    try (var reader = new NaturalEarthReader("test", path, tempDir, false)) {
+      reader.readFeatures(elem -> all.put(elem.id(), elem.tags()));
+    }
+    assertEquals(6, all.size());
+
+    var profile = new ForwardingProfile() {};
+    profile.registerSourceHandler("test", new ForwardingProfile.FeatureProcessor() {
+      @Override
+      public void processFeature(SourceFeature sourceFeature, FeatureCollector features) {}
+
+      @Override
+      public Expression filter() {
+        return Expression.or(
+          Expression.and(Expression.matchSourceLayer("ne_c"), Expression.matchAny("kind", "river")),
+          Expression.matchSourceLayer("ne_no_such_table")
+        );
+      }
+    });
+    Map<Long, Map<String, Object>> filtered = new TreeMap<>();
+    try (var reader = new NaturalEarthReader("test", path, tempDir, false)) {
+      reader.setProfile(profile);
+      reader.readFeatures(elem -> {
+        assertEquals("ne_c", elem.getSourceLayer());
+        filtered.put(elem.id(), elem.tags());
+      });
+    }
+    // IDs stay the same as when reading every table
+    assertEquals(Map.of(6L, Map.of("kind", "river")), filtered);
+    assertEquals(filtered.get(6L), all.get(6L));
+  }
+
+  @Test
+  void testCacheKeptUnzippedFeatures() throws Exception {
+    Path path = tempDir.resolve("test.sqlite");
+    Path cacheDir = tempDir.resolve("unzipped");
+    byte[] point = new WKBWriter().write(TestUtils.newPoint(1, 2));
+    try (
+      var conn = DriverManager.getConnection("jdbc:sqlite:" + path.toAbsolutePath());
+      var statement = conn.createStatement()
+    ) {
+      statement.execute("CREATE TABLE ne_a (name TEXT, rank INTEGER, scale REAL, GEOMETRY BLOB)");
+      statement.execute("CREATE TABLE ne_b (kind TEXT, GEOMETRY BLOB)");
+      statement.execute("CREATE TABLE ne_no_geometry (kind TEXT)");
+      statement.execute("INSERT INTO ne_a VALUES ('a1', 1, 1.5, x'%s')".formatted(HexFormat.of().formatHex(point)));
+      statement.execute("INSERT INTO ne_a VALUES ('a2', 2, 2.5, NULL)");
+      statement.execute("INSERT INTO ne_a VALUES (NULL, 3, NULL, x'%s')".formatted(HexFormat.of().formatHex(point)));
+      statement.execute("INSERT INTO ne_b VALUES ('lake', x'%s')".formatted(HexFormat.of().formatHex(point)));
+      statement.execute("INSERT INTO ne_no_geometry VALUES ('river')");
+    }
+    Map<Long, SimpleFeature> uncached = new TreeMap<>();
+    try (var reader = new NaturalEarthReader("test", path, tempDir, false)) {
+      reader.readFeatures(elem -> uncached.put(elem.id(), elem));
+    }
+    assertEquals(3, uncached.size());
+
+    for (int i = 1; i <= 2; i++) {
+      Map<Long, SimpleFeature> cached = new TreeMap<>();
+      try (var reader = new NaturalEarthReader("test", path, cacheDir, true)) {
+        assertEquals(3, reader.getFeatureCount());
+        reader.readFeatures(elem -> cached.put(elem.id(), elem));
+      }
+      assertTrue(Files.exists(cacheDir.resolve("test.sqlite.cache")), "iter " + i);
+      assertEquals(uncached.keySet(), cached.keySet(), "iter " + i);
+      for (var entry : uncached.entrySet()) {
+        var expected = entry.getValue();
+        var actual = cached.get(entry.getKey());
+        assertEquals(expected.tags(), actual.tags());
+        assertEquals(expected.getSourceLayer(), actual.getSourceLayer());
+        assertEquals(expected.latLonGeometry(), actual.latLonGeometry());
+      }
+    }
+    assertEquals(Map.of("name", "a1", "rank", 1, "scale", 1.5), uncached.get(1L).tags());
+
+    // a changed input invalidates the cache
+    try (
+      var conn = DriverManager.getConnection("jdbc:sqlite:" + path.toAbsolutePath());
+      var statement = conn.createStatement()
+    ) {
+      statement.execute("INSERT INTO ne_b VALUES ('river', x'%s')".formatted(HexFormat.of().formatHex(point)));
+    }
+    Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    List<Object> kinds = new ArrayList<>();
+    try (var reader = new NaturalEarthReader("test", path, cacheDir, true)) {
+      assertEquals(4, reader.getFeatureCount());
+      reader.readFeatures(elem -> kinds.add(elem.getTag("kind")));
+    }
+    assertEquals(List.of("lake", "river"), kinds.stream().filter(Objects::nonNull).toList());
+  }
 }
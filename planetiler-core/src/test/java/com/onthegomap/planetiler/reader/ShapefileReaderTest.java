@@ -13,6 +13,7 @@ import com.onthegomap.planetiler.worker.WorkerPipeline;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -31,6 +32,8 @@ import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
@@ -92,6 +95,37 @@ class ShapefileReaderTest {
     }
   }
 
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  @Timeout(30)
+  void testReadShapefileSplits(boolean bounded) throws Exception {
+    var dest = tempDir.resolve("shapefile.zip");
+    FileUtils.unzipResource("/shapefile.zip", dest);
+    Path path = dest.resolve("shapefile").resolve("stations.shp");
+    // records outside the bounds get skipped, which must not shift the IDs of later records
+    Bounds bounds = bounded ? new Bounds(env) : Bounds.WORLD;
+    Map<Long, SimpleFeature> expected = new HashMap<>();
+    Map<Long, SimpleFeature> actual = new HashMap<>();
+    try (var reader = new ShapefileReader(null, "test", path, bounds)) {
+      assertEquals(1, reader.getSplits().size());
+      reader.readFeatures(feature -> expected.put(feature.id(), feature));
+      var splits = reader.getSplits(1_000);
+      assertTrue(splits.size() > 1);
+      for (var split : splits) {
+        try (var splitReader = new ShapefileReader(null, "test", path, bounds)) {
+          splitReader.readSplit(split, feature -> actual.put(feature.id(), feature));
+        }
+      }
+    }
+    assertEquals(bounded ? numInEnv : 86, actual.size());
+    assertEquals(expected.keySet(), actual.keySet());
+    for (var entry : expected.entrySet()) {
+      var feature = actual.get(entry.getKey());
+      assertEquals(entry.getValue().tags(), feature.tags());
+      assertEquals(entry.getValue().latLonGeometry(), feature.latLonGeometry());
+    }
+  }
+
   @Test
   void testReadShapefileLeniently(@TempDir Path dir) throws IOException, TransformException, FactoryException {
     var shpPath = dir.resolve("test.shp");
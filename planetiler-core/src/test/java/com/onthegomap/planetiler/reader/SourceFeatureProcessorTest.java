@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.onthegomap.planetiler.Profile;
 import com.onthegomap.planetiler.collection.FeatureGroup;
+import com.onthegomap.planetiler.config.Arguments;
 import com.onthegomap.planetiler.config.PlanetilerConfig;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.TileOrder;
@@ -13,9 +14,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 class SourceFeatureProcessorTest {
 
@@ -47,6 +52,34 @@ class SourceFeatureProcessorTest {
     public void close() {}
   }
 
+  private record MockSplit(int index) implements SimpleReader.Split {}
+
+  private static class MockSplittingReader extends MockReader {
+
+    private final Path path;
+    private final List<SimpleFeature> emittedFeatures;
+
+    public MockSplittingReader(List<SimpleFeature> features, Path path, String sourceName) {
+      super(features, path, sourceName);
+      this.path = path;
+      this.emittedFeatures = features;
+    }
+
+    @Override
+    public List<MockSplit> getSplits() {
+      return IntStream.range(0, path.toString().length()).mapToObj(MockSplit::new).toList();
+    }
+
+    @Override
+    public void readSplit(Split split, Consumer<SimpleFeature> next) {
+      int index = ((MockSplit) split).index();
+      var feature = SimpleFeature.create(GeoUtils.EMPTY_POINT, Map.of(), sourceName, path.toString(), index);
+
+      next.accept(feature);
+      emittedFeatures.add(feature);
+    }
+  }
+
   @Test
   void testCountFeatures() {
     var paths = List.of(
@@ -93,4 +126,32 @@ class SourceFeatureProcessorTest {
       Set.of("a", "b", "c"),
       emittedFeatures.stream().map(SourceFeature::getSourceLayer).collect(Collectors.toSet()));
   }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void testProcessSplitInputs(boolean adaptiveThreads) {
+    var profile = new Profile.NullProfile();
+    var stats = Stats.inMemory();
+    var config = PlanetilerConfig.from(Arguments.of(Map.of("adaptive_threads", Boolean.toString(adaptiveThreads))));
+    var featureGroup = FeatureGroup.newInMemoryFeatureGroup(TileOrder.TMS, profile, config, stats);
+
+    var emittedFeatures = new CopyOnWriteArrayList<SimpleFeature>();
+    var paths = List.of(
+      Path.of("a"),
+      Path.of("bbb")
+    );
+
+    var processor = new SourceFeatureProcessor<>(
+      "sourceName",
+      path -> new MockSplittingReader(emittedFeatures, path, "sourceName"),
+      profile,
+      stats
+    );
+
+    processor.processFiles(paths, featureGroup, config);
+
+    assertEquals(
+      List.of("a:0", "bbb:0", "bbb:1", "bbb:2"),
+      emittedFeatures.stream().map(f -> f.getSourceLayer() + ":" + f.id()).sorted().toList());
+  }
 }
@@ -0,0 +1,106 @@
+package com.onthegomap.planetiler.reader.flatgeobuf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.onthegomap.planetiler.TestUtils;
+import com.onthegomap.planetiler.config.Bounds;
+import com.onthegomap.planetiler.geo.GeoUtils;
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+
+class FlatGeobufReaderTest {
+
+  private static List<SimpleFeature> read(String file, Bounds bounds) throws Exception {
+    List<SimpleFeature> result = new ArrayList<>();
+    try (var reader = new FlatGeobufReader(null, "test", TestUtils.pathToResource(file), bounds)) {
+      // the header of flatgeobuf-unknown-count.fgb has features_count = 0 which means unknown
+      assertEquals(file.contains("unknown-count") ? 0 : 5, reader.getFeatureCount());
+      reader.readFeatures(result::add);
+    }
+    return result;
+  }
+
+  private static List<String> names(List<SimpleFeature> features) {
+    return features.stream().map(f -> f.getString("name")).toList();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"flatgeobuf.fgb", "flatgeobuf-unindexed.fgb", "flatgeobuf-unknown-count.fgb"})
+  void testReadFlatGeobuf(String file) throws Exception {
+    var features = read(file, Bounds.WORLD);
+    assertEquals(List.of("point", "line", "polygon", "multipolygon", "multilinestring"), names(features));
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L), features.stream().map(SimpleFeature::id).toList());
+    for (var feature : features) {
+      assertEquals("test", feature.getSource());
+      assertEquals(file.replace(".fgb", ""), feature.getSourceLayer());
+    }
+    assertEquals(Map.of("name", "point", "value", 1, "flag", true, "score", 1.5), features.get(0).tags());
+    assertEquals(Map.of("name", "line", "value", 2, "flag", false), features.get(1).tags());
+    assertEquals(Map.of("name", "multilinestring", "score", -2.25), features.get(4).tags());
+    assertEquals(List.of(
+      wkt("POINT (1 2)"),
+      wkt("LINESTRING (10 10, 11 11, 12 10)"),
+      wkt("POLYGON ((20 20, 22 20, 22 22, 20 22, 20 20), (20.5 20.5, 21 20.5, 21 21, 20.5 20.5))"),
+      wkt("MULTIPOLYGON (((30 30, 31 30, 31 31, 30 30)), ((32 32, 33 32, 33 33, 32 32)))"),
+      wkt("MULTILINESTRING ((40 40, 41 41), (42 42, 43 43))")
+    ), features.stream().map(SimpleFeature::latLonGeometry).toList());
+  }
+
+  @Test
+  void testUsesSpatialIndexToSkipFeaturesOutsideBounds() throws Exception {
+    var bounds = new Bounds(new Envelope(9, 23, 9, 23));
+    assertEquals(List.of("line", "polygon"), names(read("flatgeobuf.fgb", bounds)));
+    assertEquals(List.of(4L, 5L),
+      read("flatgeobuf.fgb", new Bounds(new Envelope(30.5, 50, 30.5, 50))).stream().map(SimpleFeature::id).toList());
+    // without an index the reader can't skip features, later stages filter them out
+    assertEquals(5, read("flatgeobuf-unindexed.fgb", bounds).size());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void testReadSplits(boolean withBounds) throws Exception {
+    Path path = TestUtils.pathToResource("flatgeobuf.fgb");
+    var bounds = withBounds ? new Bounds(new Envelope(9, 23, 9, 23)) : Bounds.WORLD;
+    List<SimpleFeature> expected = read("flatgeobuf.fgb", bounds);
+    List<FlatGeobufReader.FeatureRange> splits;
+    try (var reader = new FlatGeobufReader(null, "test", path, bounds)) {
+      splits = reader.getSplits(1);
+      assertEquals(List.of(new FlatGeobufReader.FeatureRange(0, 5)), reader.getSplits());
+    }
+    assertEquals(5, splits.size());
+    List<SimpleFeature> actual = new ArrayList<>();
+    for (var split : splits) {
+      try (var reader = new FlatGeobufReader(null, "test", path, bounds)) {
+        reader.readSplit(split, actual::add);
+      }
+    }
+    assertEquals(names(expected), names(actual));
+    assertEquals(expected.stream().map(SimpleFeature::id).toList(), actual.stream().map(SimpleFeature::id).toList());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"flatgeobuf-unindexed.fgb", "flatgeobuf-unknown-count.fgb"})
+  void testNoSplitsWithoutIndex(String file) throws Exception {
+    try (var reader = new FlatGeobufReader(null, "test", TestUtils.pathToResource(file))) {
+      assertTrue(reader.getSplits(1).isEmpty());
+    }
+  }
+
+  private static Geometry wkt(String wkt) {
+    try {
+      return GeoUtils.wktReader().read(wkt);
+    } catch (ParseException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
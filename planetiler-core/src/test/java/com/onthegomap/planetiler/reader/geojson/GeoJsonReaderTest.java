@@ -6,13 +6,18 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.onthegomap.planetiler.TestUtils;
 import com.onthegomap.planetiler.geo.GeoUtils;
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import com.onthegomap.planetiler.reader.SimpleReader;
 import com.onthegomap.planetiler.stats.Stats;
 import com.onthegomap.planetiler.worker.WorkerPipeline;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.locationtech.jts.geom.Geometry;
 
 class GeoJsonReaderTest {
@@ -52,6 +57,30 @@ class GeoJsonReaderTest {
     assertEquals(0.5, centroid.getY(), 1e-5);
   }
 
+  @ParameterizedTest
+  @ValueSource(strings = {"featurecollection", "newlines"})
+  void testReadSplits(String layer) throws Exception {
+    Path path = TestUtils.pathToResource(layer + ".geojson");
+    List<SimpleFeature> expected = new ArrayList<>();
+    List<? extends SimpleReader.Split> splits;
+    try (var reader = new GeoJsonReader("test", path, 1)) {
+      reader.readFeatures(expected::add);
+      splits = reader.getSplits();
+    }
+    assertEquals(3, splits.size());
+    List<SimpleFeature> actual = new ArrayList<>();
+    for (var split : splits) {
+      try (var reader = new GeoJsonReader("test", path, 1)) {
+        reader.readSplit(split, actual::add);
+      }
+    }
+    assertEquals(List.of(0L, 1L, 2L), actual.stream().map(SimpleFeature::id).toList());
+    assertEquals(
+      expected.stream().map(f -> f.getTag("name")).toList(),
+      actual.stream().map(f -> f.getTag("name")).toList()
+    );
+  }
+
   private void readFile(String name, String layer, int expectedFeatures) throws IOException {
     Path path = TestUtils.pathToResource(name);
     try (var reader = new GeoJsonReader("test", path)) {
@@ -4,6 +4,7 @@ import static com.onthegomap.planetiler.TestUtils.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.onthegomap.planetiler.geo.GeoUtils;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -287,6 +288,62 @@ class GeoJsonTest {
     testParse(json, List.of());
   }
 
+  @Test
+  void testStringsWithStructuralCharacters() {
+    testParse("""
+      {"type": "Feature", "geometry": {"type": "Point", "coordinates": [1, 2]}, "properties": {"a": "}]{[\\"", "b": 1}}
+      {"type": "Feature", "properties": {"geometry": "x\\\\", "features": [{"geometry": 1}]}}
+      {"type": "Feature", "geometry": {"type": "Point", "coordinates": [3, 4]}, "properties": {"c": "{"}}
+      """, List.of(
+      new GeoJsonFeature(newPoint(1, 2), Map.of("a", "}]{[\"", "b", 1)),
+      new GeoJsonFeature(newPoint(3, 4), Map.of("c", "{"))
+    ));
+  }
+
+  @Test
+  void testFeatureCollectionWithGeometryIsNotSplit() {
+    var json = """
+      {
+        "type": "FeatureCollection",
+        "features": [
+          {"type": "Feature", "geometry": {"type": "Point", "coordinates": [1, 2]}},
+          {"type": "Feature", "geometry": {"type": "Point", "coordinates": [3, 4]}}
+        ],
+        "geometry": {"type": "Point", "coordinates": [5, 6]}
+      }
+      """;
+    testParse(json, List.of(
+      new GeoJsonFeature(newPoint(1, 2), Map.of()),
+      new GeoJsonFeature(newPoint(3, 4), Map.of()),
+      new GeoJsonFeature(newPoint(5, 6), Map.of())
+    ));
+    assertEquals(List.of(), GeoJson.from(json).index(1).chunks());
+  }
+
+  @Test
+  void testSplitFeatureCollectionAndTopLevelFeatures() {
+    var json = """
+      {"type": "Feature", "geometry": {"type": "Point", "coordinates": [0, 1]}}
+      {"type": "FeatureCollection", "features": [
+        {"type": "Feature", "geometry": {"type": "Point", "coordinates": [1, 2]}},
+        {"type": "Feature", "geometry": {"type": "Point", "coordinates": [3, 4]}},
+        {"type": "Feature", "geometry": {"type": "Point", "coordinates": [5, 6]}}
+      ]}
+      {"type": "Feature", "geometry": {"type": "Point", "coordinates": [7, 8]}}
+      """;
+    var chunks = GeoJson.from(json).index(100).chunks();
+    assertEquals(List.of(0L, 1L, 3L, 4L), chunks.stream().map(GeoJson.Chunk::firstId).toList());
+    assertEquals(List.of(false, true, true, false),
+      chunks.stream().map(GeoJson.Chunk::inFeatureCollection).toList());
+    testParse(json, List.of(
+      new GeoJsonFeature(newPoint(0, 1), Map.of()),
+      new GeoJsonFeature(newPoint(1, 2), Map.of()),
+      new GeoJsonFeature(newPoint(3, 4), Map.of()),
+      new GeoJsonFeature(newPoint(5, 6), Map.of()),
+      new GeoJsonFeature(newPoint(7, 8), Map.of())
+    ));
+  }
+
   private void testParse(String json, List<GeoJsonFeature> expected) {
     testParse(json, expected, expected.size());
   }
@@ -295,5 +352,19 @@ class GeoJsonTest {
     GeoJson wrapper = GeoJson.from(json);
     assertEquals(expected, wrapper.stream().toList());
     assertEquals(numExpected, wrapper.count());
+    for (long chunkBytes : new long[]{1, 100, Long.MAX_VALUE}) {
+      var index = wrapper.index(chunkBytes);
+      assertEquals(numExpected, index.count());
+      if (!index.chunks().isEmpty()) {
+        List<GeoJsonFeature> fromChunks = new ArrayList<>();
+        for (var chunk : index.chunks()) {
+          assertEquals(fromChunks.size(), chunk.firstId());
+          try (var iterator = wrapper.iterator(chunk)) {
+            iterator.forEachRemaining(fromChunks::add);
+          }
+        }
+        assertEquals(expected, fromChunks, "chunkBytes=" + chunkBytes);
+      }
+    }
   }
 }
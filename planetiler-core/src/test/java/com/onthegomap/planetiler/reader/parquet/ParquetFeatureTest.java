@@ -1,9 +1,14 @@
 package com.onthegomap.planetiler.reader.parquet;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.onthegomap.planetiler.geo.GeoUtils;
+import com.onthegomap.planetiler.geo.GeometryException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
@@ -12,6 +17,12 @@ import org.apache.parquet.hadoop.metadata.FileMetaData;
 import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Types;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBWriter;
 
 class ParquetFeatureTest {
   private static ParquetFeature feature(Map<String, Object> tags) throws IOException {
@@ -43,4 +54,45 @@ class ParquetFeatureTest {
     assertTrue(feature.hasTag("names.primary", List.of("name"), "name1"));
     assertTrue(feature.hasTag("names.primary", "name1", List.of("name")));
   }
+
+  @ParameterizedTest
+  @CsvSource(value = {
+    "POINT (1 2); 2",
+    "POINT Z (1 2 3); 3",
+    "LINESTRING (1 2, -3 4, 5 -6); 2",
+    "POLYGON ((0 0, 4 0, 4 3, 0 0), (1 1, 2 1, 2 2, 1 1)); 2",
+    "MULTIPOINT ((1 2), (3 4)); 2",
+    "MULTILINESTRING Z ((1 2 3, 4 5 6), (-1 -2 -3, 0 0 0)); 3",
+    "MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5))); 2",
+    "GEOMETRYCOLLECTION (POINT (10 20), LINESTRING (1 2, 3 4)); 2",
+  }, delimiter = ';')
+  void testLatLonEnvelopeFromWkb(String wkt, int dimension) throws IOException, ParseException, GeometryException {
+    var geometry = GeoUtils.wktReader().read(wkt);
+    for (int byteOrder : List.of(ByteOrderValues.BIG_ENDIAN, ByteOrderValues.LITTLE_ENDIAN)) {
+      for (boolean srid : List.of(false, true)) {
+        var writer = new WKBWriter(dimension, byteOrder, srid);
+        var feature = feature(Map.of("geometry", writer.write(geometry)));
+        assertEquals(geometry.getEnvelopeInternal(), feature.latLonEnvelope());
+        assertEquals(geometry, feature.latLonGeometry());
+        assertEquals(geometry.getEnvelopeInternal(), feature.latLonEnvelope());
+      }
+    }
+  }
+
+  @Test
+  void testLatLonEnvelopeFromIsoWkb() {
+    // ISO WKB linestring with Z and M values
+    var wkb = ByteBuffer.allocate(1 + 4 + 4 + 2 * 4 * 8).order(ByteOrder.LITTLE_ENDIAN)
+      .put((byte) 1).putInt(3002).putInt(2)
+      .putDouble(1).putDouble(2).putDouble(3).putDouble(4)
+      .putDouble(-5).putDouble(6).putDouble(7).putDouble(8)
+      .array();
+    assertEquals(new Envelope(-5, 1, 2, 6), WkbEnvelope.read(wkb));
+  }
+
+  @Test
+  void testLatLonEnvelopeOfEmptyWkb() throws ParseException {
+    assertTrue(WkbEnvelope.read(new WKBWriter().write(GeoUtils.wktReader().read("POINT EMPTY"))).isNull());
+    assertTrue(WkbEnvelope.read(new WKBWriter().write(GeoUtils.wktReader().read("LINESTRING EMPTY"))).isNull());
+  }
 }
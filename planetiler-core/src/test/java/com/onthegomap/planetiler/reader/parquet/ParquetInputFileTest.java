@@ -8,6 +8,9 @@ import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.TestUtils;
 import com.onthegomap.planetiler.config.Bounds;
 import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.InterestFilter;
+import com.onthegomap.planetiler.expression.MultiExpression;
+import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.util.Glob;
 import java.nio.file.Path;
@@ -51,6 +54,20 @@ class ParquetInputFileTest {
     }
   }
 
+  @ParameterizedTest
+  @MethodSource("bostons")
+  void testReadBostonEnvelopes(Path path) throws GeometryException {
+    int count = 0;
+    for (var block : new ParquetInputFile("parquet", "layer", path).get()) {
+      for (var item : block) {
+        var envelope = item.latLonEnvelope();
+        assertEquals(item.latLonGeometry().getEnvelopeInternal(), envelope);
+        count++;
+      }
+    }
+    assertEquals(3, count);
+  }
+
   @Test
   void testReadBostonWithProfileFilter() {
     Path path = TestUtils.pathToResource("parquet").resolve("boston.parquet");
@@ -70,6 +87,73 @@ class ParquetInputFileTest {
     assertTrue(file2.shouldSkip(profile));
   }
 
+  @ParameterizedTest
+  @MethodSource("bostons")
+  void testReadBostonWithInterestFilter(Path path) {
+    var file = new ParquetInputFile("parquet", "layer", path);
+    Set<Object> withHeight = new HashSet<>();
+    for (var block : file.get()) {
+      for (var item : block) {
+        if (item.hasTag("height")) {
+          withHeight.add(item.getString("id"));
+        }
+      }
+    }
+    Set<Object> ids = new HashSet<>();
+    for (var block : file.get(interestFilter(Expression.matchField("height")))) {
+      for (var item : block) {
+        ids.add(item.getString("id"));
+      }
+    }
+    assertEquals(withHeight, ids);
+    // skips row groups without the column
+    assertFalse(file.get(interestFilter(Expression.matchField("missing"))).iterator().hasNext());
+  }
+
+  @ParameterizedTest
+  @MethodSource("bostons")
+  void testReadBostonWithProjection(Path path) throws GeometryException {
+    var file = new ParquetInputFile("parquet", "layer", path, null, Bounds.WORLD, null, fields -> fields.get("id"));
+    assertTrue(file.projection(Set.of("height")).getFieldCount() < file.projection(null).getFieldCount());
+    Set<Object> ids = new HashSet<>();
+    Set<Object> heights = new HashSet<>();
+    for (var block : file.get(InterestFilter.ALL, Set.of("height"))) {
+      for (var item : block) {
+        assertTrue(Set.of("id", "height").containsAll(item.tags().keySet()), item.tags().toString());
+        assertFalse(item.latLonGeometry().isEmpty());
+        ids.add(item.id());
+        heights.add(item.getTag("height"));
+      }
+    }
+    assertEquals(3, ids.size());
+    Set<Object> expectedHeights = new HashSet<>();
+    for (var block : file.get()) {
+      for (var item : block) {
+        expectedHeights.add(item.getTag("height"));
+      }
+    }
+    assertEquals(expectedHeights, heights);
+
+    // still reads the covering bbox columns that the bounds filter needs
+    var bounded = new ParquetInputFile("parquet", "layer", path, null,
+      new Bounds(new Envelope(-71.0747653629, -71.0741656634, 42.3560968301, 42.3564346282)), null, null);
+    int count = 0;
+    for (var block : bounded.get(InterestFilter.ALL, Set.of("height"))) {
+      for (var ignored : block) {
+        count++;
+      }
+    }
+    assertEquals(3, count);
+
+    // can't tell which columns the ID generator uses
+    var unknownIds = new ParquetInputFile("parquet", "layer", path, null, Bounds.WORLD, null, Map::size);
+    assertSame(unknownIds.projection(null), unknownIds.projection(Set.of("height")));
+  }
+
+  private static InterestFilter interestFilter(Expression expression) {
+    return MultiExpression.of(List.of(MultiExpression.entry("layer", expression))).interestFilter();
+  }
+
   @ParameterizedTest
   @MethodSource("bostons")
   void testReadBostonWithBboxFilterCovering(Path path) {
@@ -5,6 +5,7 @@ import static com.onthegomap.planetiler.TestUtils.round;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import com.onthegomap.planetiler.BatchFeatureProcessor;
 import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.Profile;
 import com.onthegomap.planetiler.TestUtils;
@@ -21,6 +22,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -69,6 +71,44 @@ class ParquetReaderTest {
     assertEquals(4.7, profile.height);
   }
 
+  @ParameterizedTest
+  @MethodSource("bostons")
+  @Timeout(30)
+  void testReadOvertureParquetInBatches(Path path) {
+    List<String> ids = new CopyOnWriteArrayList<>();
+    List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    class BatchProfile extends Profile.NullProfile implements BatchFeatureProcessor {
+      @Override
+      public void processFeature(SourceFeature sourceFeature, FeatureCollector features) {
+        throw new AssertionError("should process in batches");
+      }
+
+      @Override
+      public void processFeatureBatch(List<? extends SourceFeature> sourceFeatures,
+        FeatureCollector.Factory featureCollectors, Consumer<FeatureCollector> emit) {
+        batchSizes.add(sourceFeatures.size());
+        for (var sourceFeature : sourceFeatures) {
+          ids.add(sourceFeature.getString("id"));
+          var features = featureCollectors.get(sourceFeature);
+          features.centroid("layer");
+          emit.accept(features);
+        }
+      }
+    }
+    var profile = new BatchProfile();
+    var featureGroup = FeatureGroup.newInMemoryFeatureGroup(TileOrder.TMS, profile, config, stats);
+    var reader = new ParquetReader("source", profile, stats);
+    reader.process(List.of(path), featureGroup, PlanetilerConfig.defaults());
+    assertEquals(List.of(
+      "08b2a306638a0fff02001c5b97636c80",
+      "08b2a306638a0fff0200a75c80c3d54b",
+      "08b2a306638a0fff0200d1814977faca"
+    ), ids.stream().sorted().toList());
+    assertEquals(3, batchSizes.stream().mapToInt(i -> i).sum());
+    // one point per feature at each zoom level
+    assertEquals(3 * 15, featureGroup.numFeaturesWritten());
+  }
 
   @Test
   void testHivePartitionFields() {
@@ -11,6 +11,7 @@ import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.geo.MutableCoordinateSequence;
 import com.onthegomap.planetiler.geo.TileCoord;
 import com.onthegomap.planetiler.geo.TileExtents;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -476,6 +477,46 @@ class TiledGeometryTest {
     );
   }
 
+  @Test
+  void testFilledTileRuns() throws GeometryException {
+    var result = TiledGeometry.sliceIntoTiles(TestUtils.newPolygon(
+      TestUtils.rectangleCoordList(20.5, 30.5),
+      List.of(TestUtils.rectangleCoordList(24.5, 26.5))
+    ), 0, 0, 14, new TileExtents.ForZoom(14, 0, 0, 28, Z14_TILES, null));
+    var runs = result.getFilledTileRuns();
+    assertEquals(List.of(
+      new RenderedFeature.FillRun(14, 21, 21, 29),
+      new RenderedFeature.FillRun(14, 22, 21, 29),
+      new RenderedFeature.FillRun(14, 23, 21, 29),
+      new RenderedFeature.FillRun(14, 24, 21, 23),
+      new RenderedFeature.FillRun(14, 24, 27, 29),
+      new RenderedFeature.FillRun(14, 25, 21, 23),
+      new RenderedFeature.FillRun(14, 25, 27, 29),
+      new RenderedFeature.FillRun(14, 26, 21, 23),
+      new RenderedFeature.FillRun(14, 26, 27, 29),
+      new RenderedFeature.FillRun(14, 27, 21, 29)
+    ), runs);
+
+    Set<TileCoord> fromRuns = new HashSet<>();
+    for (var run : runs) {
+      for (int y = run.minY(); y <= run.maxY(); y++) {
+        fromRuns.add(TileCoord.ofXYZ(run.x(), y, run.z()));
+      }
+    }
+    assertEquals(StreamSupport.stream(result.getFilledTiles().spliterator(), false).collect(Collectors.toSet()),
+      fromRuns);
+  }
+
+  @Test
+  void testFilledTileRunsWithShapeFilter() throws GeometryException {
+    var result = TiledGeometry.sliceIntoTiles(TestUtils.rectangle(20.5, 30.5), 0, 0, 14,
+      new TileExtents.ForZoom(14, 0, 0, Z14_TILES, Z14_TILES, (x, y) -> x != 22 || y != 25));
+    assertEquals(List.of(
+      new RenderedFeature.FillRun(14, 22, 21, 24),
+      new RenderedFeature.FillRun(14, 22, 26, 29)
+    ), result.getFilledTileRuns().stream().filter(run -> run.x() == 22).toList());
+  }
+
   @ParameterizedTest
   @CsvSource({
     "0, 0, 0",
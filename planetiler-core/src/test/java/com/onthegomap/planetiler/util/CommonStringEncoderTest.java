@@ -3,6 +3,7 @@ package com.onthegomap.planetiler.util;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class CommonStringEncoderTest {
@@ -51,4 +52,39 @@ class CommonStringEncoderTest {
     }
     assertThrows(IllegalArgumentException.class, () -> commonStringEncoderInteger.encode("too many"));
   }
+
+  @Test
+  void testForThread() {
+    var forThread = commonStringEncoderInteger.forThread();
+    int a = commonStringEncoderInteger.encode("a");
+    assertEquals(a, forThread.encode("a"));
+    assertEquals(a, forThread.encode("a"));
+    int b = forThread.encode("b");
+    assertEquals(b, commonStringEncoderInteger.encode("b"));
+    assertEquals("b", commonStringEncoderInteger.decode(b));
+  }
+
+  @Test
+  void testRestore() {
+    commonStringEncoderInteger.encode("b");
+    commonStringEncoderInteger.encode("a");
+    var restored = new CommonStringEncoder(100_000);
+    restored.restore(commonStringEncoderInteger.getStringsInOrder());
+    assertEquals(List.of("b", "a"), restored.getStringsInOrder());
+    assertEquals(0, restored.encode("b"));
+    assertEquals("a", restored.decode(1));
+    assertEquals(2, restored.encode("c"));
+    assertThrows(IllegalStateException.class, () -> restored.restore(List.of("d")));
+    assertThrows(IllegalArgumentException.class, () -> new CommonStringEncoder(10).restore(List.of("a", "a")));
+    assertThrows(IllegalArgumentException.class, () -> new CommonStringEncoder(1).restore(List.of("a", "b")));
+  }
+
+  @Test
+  void testRestoreByte() {
+    commonStringEncoderByte.encode("x");
+    var restored = new CommonStringEncoder.AsByte();
+    restored.restore(commonStringEncoderByte.getStringsInOrder());
+    assertEquals("x", restored.decode((byte) 0));
+    assertEquals((byte) 0, restored.encode("x"));
+  }
 }
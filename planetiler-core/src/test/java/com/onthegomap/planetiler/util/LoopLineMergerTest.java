@@ -19,9 +19,11 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.PrecisionModel;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.operation.linemerge.LineMerger;
+import org.locationtech.jts.precision.GeometryPrecisionReducer;
 
 class LoopLineMergerTest {
 
@@ -410,6 +412,54 @@ class LoopLineMergerTest {
     assertEquals(expected, merged.size());
   }
 
+  @ParameterizedTest
+  @CsvSource({
+    "mergelines_1759_point_line.wkb.gz,1,true",
+    "mergelines_200433_lines.wkb.gz,0,false",
+    "mergelines_200433_lines.wkb.gz,0.1,false",
+    "mergelines_200433_lines.wkb.gz,1,true",
+    "mergelines_239823_lines.wkb.gz,1,false",
+    "mergelines_239823_lines.wkb.gz,1,true",
+    "i90.wkb.gz,20,true",
+  })
+  void testGridCoordinatesMatchCoordinateObjects(String file, double minLengths, boolean simplify)
+    throws IOException, ParseException {
+    Geometry geom = new WKBReader(GeoUtils.JTS_FACTORY).read(
+      Gzip.gunzip(Files.readAllBytes(TestUtils.pathToResource("mergelines").resolve(file))));
+    // snap to the grid up front so the floating precision model keeps the same points
+    Geometry snapped = GeometryPrecisionReducer.reducePointwise(geom, GeoUtils.TILE_PRECISION);
+    var gridMerger = new LoopLineMerger()
+      .setPrecisionModel(GeoUtils.TILE_PRECISION);
+    var coordinateMerger = new LoopLineMerger()
+      .setPrecisionModel(new PrecisionModel(PrecisionModel.FLOATING));
+    for (var merger : List.of(gridMerger, coordinateMerger)) {
+      merger.setMinLength(minLengths)
+        .setLoopMinLength(minLengths)
+        .setStubMinLength(minLengths)
+        .setMergeStrokes(true)
+        .setTolerance(simplify ? 1 : -1);
+    }
+    gridMerger.add(geom);
+    coordinateMerger.add(snapped);
+    assertEquals(coordinateMerger.getMergedLineStrings(), gridMerger.getMergedLineStrings());
+  }
+
+  @Test
+  void testFallsBackToCoordinateObjectsForLargeCoordinates() {
+    var merger = new LoopLineMerger()
+      .setMinLength(-1)
+      .setStubMinLength(-1)
+      .setTolerance(-1)
+      .setLoopMinLength(-1);
+
+    merger.add(newLineString(1e9, 1e9, 2e9, 2e9));
+    merger.add(newLineString(2e9, 2e9, 3e9, 3e9));
+    assertEquals(
+      List.of(newLineString(1e9, 1e9, 2e9, 2e9, 3e9, 3e9)),
+      merger.getMergedLineStrings()
+    );
+  }
+
   @Test
   void testMergeStrokesAt3WayIntersectionWithLoop() {
     var merger = new LoopLineMerger()
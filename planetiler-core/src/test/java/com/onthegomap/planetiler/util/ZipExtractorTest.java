@@ -0,0 +1,81 @@
+package com.onthegomap.planetiler.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZipExtractorTest {
+
+  @TempDir
+  Path tmpDir;
+
+  private Path writeZip(Map<String, String> entries) throws IOException {
+    Path zip = tmpDir.resolve("test.zip");
+    try (var fs = FileSystems.newFileSystem(zip, Map.of("create", "true"))) {
+      for (var entry : entries.entrySet()) {
+        Files.writeString(fs.getPath(entry.getKey()), entry.getValue());
+      }
+    }
+    return zip;
+  }
+
+  @Test
+  void testExtractsEachFileOnce() throws IOException {
+    Path zip = writeZip(Map.of("a.txt", "a", "b.txt", "b"));
+    Path plain = tmpDir.resolve("plain.txt");
+    Path dir = tmpDir.resolve("unzipped");
+    try (var fs = FileSystems.newFileSystem(zip)) {
+      Path a = fs.getPath("a.txt");
+      Path b = fs.getPath("b.txt");
+      Path extractedA;
+      Path extractedB;
+      try (var extractor = new ZipExtractor(dir, false, List.of(a, b, plain))) {
+        assertTrue(ZipExtractor.isInZip(a));
+        assertFalse(ZipExtractor.isInZip(plain));
+        assertEquals(plain, extractor.get(plain));
+        extractedB = extractor.get(b);
+        extractedA = extractor.get(a);
+        assertEquals(extractedA, extractor.get(a));
+        assertNotEquals(extractedA, extractedB);
+        assertEquals("a", Files.readString(extractedA));
+        assertEquals("b", Files.readString(extractedB));
+        assertThrows(UncheckedIOException.class, () -> extractor.get(fs.getPath("missing.txt")));
+      }
+      assertFalse(Files.exists(extractedA));
+      assertFalse(Files.exists(extractedB));
+    }
+  }
+
+  @Test
+  void testKeepExtractedFiles() throws IOException {
+    Path zip = writeZip(Map.of("a.txt", "a"));
+    Path dir = tmpDir.resolve("unzipped");
+    Path extracted;
+    try (var fs = FileSystems.newFileSystem(zip)) {
+      Path a = fs.getPath("a.txt");
+      try (var extractor = new ZipExtractor(dir, true, List.of(a))) {
+        extracted = extractor.get(a);
+      }
+      assertEquals("a", Files.readString(extracted));
+
+      // reused when the zip has not changed
+      Files.writeString(extracted, "modified");
+      try (var extractor = new ZipExtractor(dir, true, List.of(a))) {
+        assertEquals(extracted, extractor.get(a));
+      }
+      assertEquals("modified", Files.readString(extracted));
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.onthegomap.planetiler.worker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.onthegomap.planetiler.collection.IterableOnce;
+import com.onthegomap.planetiler.stats.Stats;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class ThreadBalancerTest {
+
+  final Stats stats = Stats.inMemory();
+
+  @Test
+  void testInitialLimits() {
+    var balancer = new ThreadBalancer("test", stats, 2, 6, 100);
+    assertEquals(2, balancer.producers().limit());
+    assertEquals(6, balancer.consumers().limit());
+    assertEquals(7, balancer.producerThreads());
+    assertEquals(7, balancer.consumerThreads());
+
+    // can't use more producers than there are inputs
+    balancer = new ThreadBalancer("test", stats, 4, 4, 2);
+    assertEquals(2, balancer.producers().limit());
+    assertEquals(6, balancer.consumers().limit());
+    assertEquals(2, balancer.producerThreads());
+  }
+
+  @Test
+  void testMovesThreadsAwayFromBlockedSide() {
+    var balancer = new ThreadBalancer("test", stats, 2, 2, 3);
+    long second = Duration.ofSeconds(1).toNanos();
+
+    // producers blocked on a full queue
+    balancer.rebalance(second, 2 * second, 0);
+    assertEquals(1, balancer.producers().limit());
+    assertEquals(3, balancer.consumers().limit());
+    balancer.rebalance(second, second, 0);
+    assertEquals(1, balancer.producers().limit());
+
+    // consumers waiting on an empty queue
+    balancer.rebalance(second, 0, 3 * second);
+    assertEquals(2, balancer.producers().limit());
+    balancer.rebalance(second, 0, 3 * second);
+    assertEquals(3, balancer.producers().limit());
+    assertEquals(1, balancer.consumers().limit());
+    balancer.rebalance(second, 0, 3 * second);
+    assertEquals(3, balancer.producers().limit());
+
+    // neither side blocked enough
+    balancer.rebalance(second, second, second);
+    assertEquals(3, balancer.producers().limit());
+    assertEquals(1, balancer.consumers().limit());
+  }
+
+  @Test
+  @Timeout(10)
+  void testLimitsConcurrency() {
+    var balancer = new ThreadBalancer("test", stats, 1, 1, 1);
+    var queue = new WorkQueue<Integer>("queue", 100, 1, stats);
+    IntStream.range(0, 100).forEach(queue::accept);
+    queue.close();
+    AtomicInteger active = new AtomicInteger(0);
+    Set<Integer> maxActive = new ConcurrentSkipListSet<>();
+    Set<Integer> result = new ConcurrentSkipListSet<>();
+    new Worker("test", stats, 4, () -> {
+      for (int item : balancer.consumers().limit(queue)) {
+        maxActive.add(active.incrementAndGet());
+        result.add(item);
+        active.decrementAndGet();
+      }
+    }).await();
+    assertEquals(Set.of(1), maxActive);
+    assertEquals(100, result.size());
+  }
+
+  @Test
+  void testLimitReleasesPermitAtEnd() {
+    var balancer = new ThreadBalancer("test", stats, 1, 1, 1);
+    Iterator<Integer> items = List.of(1, 2).iterator();
+    IterableOnce<Integer> input = () -> items.hasNext() ? items.next() : null;
+    var limited = balancer.producers().limit(input);
+    assertEquals(1, limited.get());
+    assertEquals(2, limited.get());
+    assertEquals(null, limited.get());
+    // the permit is available again for another thread
+    var again = balancer.producers().limit(() -> 3);
+    assertEquals(3, again.get());
+  }
+}
@@ -88,6 +88,27 @@ class WorkerPipelineTest {
     assertEquals(Set.of(1, 2, 3, 4), result);
   }
 
+  @Test
+  @Timeout(10)
+  void testSinkToVirtualThreads() {
+    Set<Integer> result = new ConcurrentSkipListSet<>();
+    Set<Boolean> virtual = new ConcurrentSkipListSet<>();
+    var pipeline = WorkerPipeline.start("test", stats)
+      .readFrom("reader", List.of(0, 1, 2, 3))
+      .addBuffer("reader_queue", 1)
+      .sinkToVirtualThreads("writer", 4, prev -> {
+        for (Integer item : prev) {
+          virtual.add(Thread.currentThread().isVirtual());
+          result.add(item);
+        }
+      });
+
+    pipeline.await();
+
+    assertEquals(Set.of(0, 1, 2, 3), result);
+    assertEquals(Set.of(true), virtual);
+  }
+
   @ParameterizedTest
   @Timeout(10)
   @ValueSource(ints = {1, 2, 3})
@@ -1,9 +1,12 @@
 package com.onthegomap.planetiler.worker;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.onthegomap.planetiler.ExpectedException;
 import com.onthegomap.planetiler.stats.Stats;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
@@ -21,4 +24,20 @@ class WorkerTest {
     });
     assertThrows(RuntimeException.class, worker::await);
   }
+
+  @Test
+  @Timeout(10)
+  void testVirtualThreads() {
+    Set<Integer> ids = new ConcurrentSkipListSet<>();
+    Set<Boolean> virtual = new ConcurrentSkipListSet<>();
+    Set<String> names = new ConcurrentSkipListSet<>();
+    new Worker("prefix", Stats.inMemory(), 3, true, workerNum -> {
+      ids.add(workerNum);
+      virtual.add(Thread.currentThread().isVirtual());
+      names.add(Thread.currentThread().getName());
+    }).await();
+    assertEquals(Set.of(0, 1, 2), ids);
+    assertEquals(Set.of(true), virtual);
+    assertEquals(Set.of("prefix-1", "prefix-2", "prefix-3"), names);
+  }
 }
@@ -11,13 +11,16 @@ import com.onthegomap.planetiler.custommap.configschema.FeatureGeometry;
 import com.onthegomap.planetiler.custommap.configschema.FeatureItem;
 import com.onthegomap.planetiler.custommap.configschema.FeatureLayer;
 import com.onthegomap.planetiler.custommap.configschema.PointLabelGrid;
+import com.onthegomap.planetiler.custommap.expression.ConfigExpression;
 import com.onthegomap.planetiler.custommap.expression.ScriptEnvironment;
 import com.onthegomap.planetiler.expression.Expression;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.util.ZoomFunction;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -44,6 +47,8 @@ public class ConfiguredFeature {
   private final ScriptEnvironment<Contexts.FeatureAttribute> featureAttributeContext;
   private ScriptEnvironment<Contexts.FeaturePostMatch> featurePostMatchContext;
   private final boolean splitAtIntersections;
+  private final Set<String> usedTags = new HashSet<>();
+  private boolean readsAnyTag = false;
 
 
   public ConfiguredFeature(FeatureLayer layer, TagValueProducer tagValueProducer, FeatureItem feature,
@@ -118,6 +123,7 @@ public class ConfiguredFeature {
 
     featureProcessors = processors.stream().filter(Objects::nonNull).toList();
     splitAtIntersections = feature.geometry() == FeatureGeometry.SPLIT_LINE;
+    trackTags(matchExpression());
   }
 
   /** Consider implications of Post Processing on the feature's processors **/
@@ -174,14 +180,17 @@ public class ConfiguredFeature {
     if (input == null) {
       return null;
     }
-    var expression = ConfigExpressionParser.parse(
+    var expression = trackTags(ConfigExpressionParser.parse(
       input,
       tagValueProducer,
       featurePostMatchContext,
       clazz
-    );
+    ));
     if (expression.equals(constOf(null))) {
       return null;
+    } else if (expression instanceof ConfigExpression.Const<Contexts.FeaturePostMatch, T> constant) {
+      T value = constant.value();
+      return (context, feature) -> consumer.accept(feature, value);
     }
     return (context, feature) -> {
       var result = expression.apply(context);
@@ -262,7 +271,7 @@ public class ConfiguredFeature {
       }
     }
 
-    return ConfigExpressionParser.parse(value, tagValueProducer, featurePostMatchContext, Object.class);
+    return trackTags(ConfigExpressionParser.parse(value, tagValueProducer, featurePostMatchContext, Object.class));
   }
 
   /**
@@ -276,8 +285,8 @@ public class ConfiguredFeature {
   private Function<Contexts.FeatureAttribute, Integer> attributeZoomThreshold(
     Double minTilePercent, Object rawMinZoom, Map<Object, Integer> minZoomByValue) {
 
-    var result = ConfigExpressionParser.parse(rawMinZoom, tagValueProducer,
-      featureAttributeContext, Integer.class);
+    var result = trackTags(ConfigExpressionParser.parse(rawMinZoom, tagValueProducer,
+      featureAttributeContext, Integer.class));
 
     if ((result.equals(constOf(0)) ||
       result.equals(constOf(null))) && minZoomByValue.isEmpty()) {
@@ -320,7 +329,7 @@ public class ConfiguredFeature {
     var attrIncludeWhen = attribute.includeWhen();
     var attrExcludeWhen = attribute.excludeWhen();
 
-    var attributeTest =
+    var attributeTest = trackTags(
       Expression.and(
         attrIncludeWhen == null ? Expression.TRUE :
           BooleanExpressionParser.parse(attrIncludeWhen, tagValueProducer,
@@ -328,7 +337,7 @@ public class ConfiguredFeature {
         attrExcludeWhen == null ? Expression.TRUE :
           not(BooleanExpressionParser.parse(attrExcludeWhen, tagValueProducer,
             featurePostMatchContext))
-      ).simplify();
+      ).simplify());
 
     var minTileCoverage = attrIncludeWhen == null ? null : attribute.minTileCoverSize();
 
@@ -399,4 +408,19 @@ public class ConfiguredFeature {
   public boolean splitAtIntersections() {
     return splitAtIntersections;
   }
+
+  /** Returns the keys of tags that this feature reads from input elements, or {@code null} if it might read any. */
+  public Set<String> usedTags() {
+    return readsAnyTag ? null : Collections.unmodifiableSet(usedTags);
+  }
+
+  private <T extends ConfigExpression<?, ?>> T trackTags(T expression) {
+    readsAnyTag |= !expression.collectTags(usedTags);
+    return expression;
+  }
+
+  private Expression trackTags(Expression expression) {
+    readsAnyTag |= !ConfigExpression.collectTags(expression, usedTags);
+    return expression;
+  }
 }
@@ -10,6 +10,7 @@ import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.custommap.configschema.FeatureLayer;
 import com.onthegomap.planetiler.custommap.configschema.SchemaConfig;
 import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.InterestFilter;
 import com.onthegomap.planetiler.expression.MultiExpression;
 import com.onthegomap.planetiler.expression.MultiExpression.Index;
 import com.onthegomap.planetiler.geo.GeoUtils;
@@ -18,22 +19,29 @@ import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.reader.osm.OsmElement;
 import com.onthegomap.planetiler.reader.osm.OsmReader;
 import com.onthegomap.planetiler.reader.osm.OsmSourceFeature;
+import com.onthegomap.planetiler.util.Format;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.locationtech.jts.geom.Geometry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A profile configured from a yml file.
  */
 public class ConfiguredProfile implements Profile {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfiguredProfile.class);
 
   private final SchemaConfig schema;
   private final Map<String, FeatureLayer> layersById = new HashMap<>();
+  private final MultiExpression<ConfiguredFeature> featureLayerExpressions;
   private final Index<ConfiguredFeature> featureLayerMatcher;
   private final TagValueProducer tagValueProducer;
   private final Contexts.Root rootContext;
@@ -68,7 +76,8 @@ public class ConfiguredProfile implements Profile {
       }
     }
 
-    featureLayerMatcher = MultiExpression.of(configuredFeatureEntries).index();
+    featureLayerExpressions = MultiExpression.of(configuredFeatureEntries);
+    featureLayerMatcher = featureLayerExpressions.index();
 
     splitFeaturesAtWays =
       splitAtIntersectionTests.isEmpty() ? null :
@@ -103,16 +112,58 @@ public class ConfiguredProfile implements Profile {
   @Override
   public void processFeature(SourceFeature sourceFeature, FeatureCollector featureCollector) {
     var context = rootContext.createProcessFeatureContext(sourceFeature, tagValueProducer);
-    var matches = featureLayerMatcher.getMatchesWithTriggers(context);
-    for (var configuredFeature : matches) {
+    featureLayerMatcher.forEachMatch(context, (configuredFeature, keys) -> {
       try {
-        configuredFeature.match().processFeature(
-          context.createPostMatchContext(configuredFeature.keys()),
+        configuredFeature.processFeature(
+          context.createPostMatchContext(new ArrayList<>(keys)),
           featureCollector
         );
       } catch (GeometryException.Uncaught e) {
         e.getCause().log(rootContext.config().arguments().getStats(), "process_feature", "process_feature");
       }
+      return true;
+    });
+  }
+
+  @Override
+  public InterestFilter interestFilter(Expression.PartialInput input) {
+    // match expressions see mapped tags, so can't tell which input tags matter when mappings rename them
+    if (tagValueProducer.renamesKeys()) {
+      return InterestFilter.ALL;
+    }
+    // and mapped values may differ from the input values
+    return featureLayerExpressions.map(expression -> expression.partialEvaluate(input))
+      .interestFilter()
+      .withAnyValue(tagValueProducer.mappedKeys());
+  }
+
+  @Override
+  public Set<String> usedTags(Expression.PartialInput input) {
+    // like interestFilter, can't tell which input tags a mapped tag reads when mappings rename them
+    if (tagValueProducer.renamesKeys()) {
+      return null;
+    }
+    Set<String> result = new HashSet<>(tagValueProducer.mappedKeys());
+    for (var entry : featureLayerExpressions.expressions()) {
+      // only features that could match elements from this input
+      if (!Expression.FALSE.equals(entry.expression().partialEvaluate(input).simplify())) {
+        var featureTags = entry.result().usedTags();
+        if (featureTags == null) {
+          return null;
+        }
+        result.addAll(featureTags);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void release() {
+    long hits = rootContext.scriptCacheHits().get();
+    long misses = rootContext.scriptCacheMisses().get();
+    if (hits + misses > 0) {
+      LOGGER.info("Reused {} of {} script results cached by tag values ({})", hits, hits + misses,
+        Format.defaultInstance().percent(hits * 1d / (hits + misses)));
     }
   }
 
@@ -163,6 +214,17 @@ public class ConfiguredProfile implements Profile {
     return items;
   }
 
+  @Override
+  public boolean postProcessesLayer(String layer) {
+    FeatureLayer featureLayer = findFeatureLayer(layer);
+    return featureLayer != null && featureLayer.postProcess() != null;
+  }
+
+  @Override
+  public boolean postProcessesTiles() {
+    return false;
+  }
+
   @Override
   public String description() {
     return schema.schemaDescription();
@@ -19,6 +19,7 @@ import com.onthegomap.planetiler.reader.WithSourceLayer;
 import com.onthegomap.planetiler.reader.WithTags;
 import com.onthegomap.planetiler.reader.osm.OsmElement;
 import com.onthegomap.planetiler.reader.osm.OsmSourceFeature;
+import com.onthegomap.planetiler.stats.Counter;
 import com.onthegomap.planetiler.util.Try;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -158,11 +159,23 @@ public class Contexts {
     private final Map<String, Val> bindings = new HashMap<>();
     private final Map<String, Object> argumentValues = new HashMap<>();
     public final Set<String> builtInArgs;
+    private final Counter.MultiThreadCounter scriptCacheHits = Counter.newMultiThreadCounter();
+    private final Counter.MultiThreadCounter scriptCacheMisses = Counter.newMultiThreadCounter();
 
     public Arguments arguments() {
       return arguments;
     }
 
+    /** Returns the number of times a script result was reused because the tags it depends on had been seen before. */
+    public Counter.MultiThreadCounter scriptCacheHits() {
+      return scriptCacheHits;
+    }
+
+    /** Returns the number of times a script had to be evaluated because the tags it depends on had not been seen. */
+    public Counter.MultiThreadCounter scriptCacheMisses() {
+      return scriptCacheMisses;
+    }
+
     public PlanetilerConfig config() {
       return config;
     }
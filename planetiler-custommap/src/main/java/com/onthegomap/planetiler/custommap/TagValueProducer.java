@@ -8,6 +8,7 @@ import com.onthegomap.planetiler.reader.WithTags;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
@@ -21,6 +22,8 @@ public class TagValueProducer {
 
   private final Map<String, String> keyType = new HashMap<>();
 
+  private boolean renamesKeys = false;
+
   public TagValueProducer(Map<String, Object> map) {
     if (map == null) {
       return;
@@ -39,6 +42,7 @@ public class TagValueProducer {
           valueRetriever.put(key, getter);
         } else {
           valueRetriever.put(key, (withTags, requestedKey) -> getter.convertFrom(valueForKey(withTags, inputKey)));
+          renamesKeys = true;
         }
         if (renameMap.containsKey("type")) {
           keyType.put(key, renameMap.get("type").toString());
@@ -47,6 +51,16 @@ public class TagValueProducer {
     });
   }
 
+  /** Returns true if any mapped tag gets its value from a different input key. */
+  public boolean renamesKeys() {
+    return renamesKeys;
+  }
+
+  /** Returns the keys whose values get parsed or inferred before expressions see them. */
+  public Set<String> mappedKeys() {
+    return valueRetriever.keySet();
+  }
+
   /**
    * Returns a function that extracts the value for {@code key} from a {@link WithTags} instance.
    */
@@ -9,6 +9,7 @@ import com.onthegomap.planetiler.expression.TypedGetter;
 import com.onthegomap.planetiler.reader.WithTags;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -27,6 +28,37 @@ public interface ConfigExpression<I extends ScriptContext, O>
 
   ScriptEnvironment<I> environment();
 
+  /**
+   * Adds the keys of tags that this expression reads from input features to {@code keys}, and returns false if it might
+   * read tags that can't be determined ahead of time, like a tag with a dynamic key or the entire tag map.
+   */
+  default boolean collectTags(Set<String> keys) {
+    return false;
+  }
+
+  /** Like {@link #collectTags(Set)} but for a boolean {@link Expression} parsed from a schema config. */
+  static boolean collectTags(Expression expression, Set<String> keys) {
+    return switch (expression) {
+      case Expression.And and -> and.children().stream().allMatch(child -> collectTags(child, keys));
+      case Expression.Or or -> or.children().stream().allMatch(child -> collectTags(child, keys));
+      case Expression.Not not -> collectTags(not.child(), keys);
+      case Expression.MatchAny any when any.field() == null ->
+        any.valueGetter() instanceof ConfigExpression<?, ?> getter && getter.collectTags(keys);
+      case Expression.MatchAny any -> {
+        keys.add(any.field());
+        yield true;
+      }
+      case Expression.MatchField field -> {
+        keys.add(field.field());
+        yield true;
+      }
+      case BooleanExpressionScript<?> script -> script.expression().collectTags(keys);
+      // these don't depend on tags, anything else might
+      default -> expression instanceof Expression.Constant || expression instanceof Expression.MatchType ||
+        expression instanceof Expression.MatchSource || expression instanceof Expression.MatchSourceLayer;
+    };
+  }
+
   @Override
   default Object apply(WithTags withTags, String tag) {
     Class<I> clazz = environment().clazz();
@@ -92,6 +124,11 @@ public interface ConfigExpression<I extends ScriptContext, O>
       return value;
     }
 
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return true;
+    }
+
     @Override
     public ScriptEnvironment<I> environment() {
       return signature.in;
@@ -160,6 +197,16 @@ public interface ConfigExpression<I extends ScriptContext, O>
       return new Match<>(signature, newMultiExpression, newFallback);
     }
 
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      for (var entry : multiExpression.expressions()) {
+        if (!ConfigExpression.collectTags(entry.expression(), keys) || !entry.result().collectTags(keys)) {
+          return false;
+        }
+      }
+      return fallback.collectTags(keys);
+    }
+
     public Match<I, O> withDefaultValue(ConfigExpression<I, O> newFallback) {
       return new Match<>(signature, multiExpression, newFallback);
     }
@@ -188,6 +235,11 @@ public interface ConfigExpression<I extends ScriptContext, O>
       return null;
     }
 
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return children.stream().allMatch(child -> child.collectTags(keys));
+    }
+
     @Override
     public ConfigExpression<I, O> simplifyOnce() {
       return switch (children.size()) {
@@ -233,6 +285,12 @@ public interface ConfigExpression<I extends ScriptContext, O>
       return TypeConversion.convert(i.apply(name), signature.out);
     }
 
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      // match_value only reads tags that the match expression already depends on
+      return !"feature.tags".equals(name);
+    }
+
     @Override
     public ScriptEnvironment<I> environment() {
       return signature.in;
@@ -250,6 +308,15 @@ public interface ConfigExpression<I extends ScriptContext, O>
       return TypeConversion.convert(i.tagValueProducer().valueForKey(i, tag.apply(i)), signature.out);
     }
 
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      if (tag instanceof ConfigExpression.Const<I, String> constant && constant.value() != null) {
+        keys.add(constant.value());
+        return true;
+      }
+      return false;
+    }
+
     @Override
     public ConfigExpression<I, O> simplifyOnce() {
       return new GetTag<>(signature, tag.simplifyOnce());
@@ -272,6 +339,11 @@ public interface ConfigExpression<I extends ScriptContext, O>
       return TypeConversion.convert(i.argument(arg.apply(i)), signature.out);
     }
 
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return arg.collectTags(keys);
+    }
+
     @Override
     public ConfigExpression<I, O> simplifyOnce() {
       var key = arg.simplifyOnce();
@@ -302,6 +374,11 @@ public interface ConfigExpression<I extends ScriptContext, O>
       return TypeConversion.convert(output.convertFrom(input.apply(i)), signature.out);
     }
 
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return input.collectTags(keys);
+    }
+
     @Override
     public ConfigExpression<I, O> simplifyOnce() {
       var in = input.simplifyOnce();
@@ -4,9 +4,15 @@ import com.onthegomap.planetiler.custommap.TypeConversion;
 import com.onthegomap.planetiler.custommap.expression.stdlib.GeometryVal;
 import com.onthegomap.planetiler.custommap.expression.stdlib.PlanetilerStdLib;
 import com.onthegomap.planetiler.custommap.expression.stdlib.PlanetilerTypeRegistry;
+import com.onthegomap.planetiler.stats.Counter;
 import com.onthegomap.planetiler.util.Memoized;
 import com.onthegomap.planetiler.util.Try;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Pattern;
 import org.projectnessie.cel.extension.StringsLib;
 import org.projectnessie.cel.tools.Script;
@@ -25,10 +31,17 @@ public class ConfigExpressionScript<I extends ScriptContext, O> implements Confi
   private static final Pattern ESCAPED_EXPRESSION_PATTERN = Pattern.compile("^\\s*\\\\+\\$\\{(.*)}\\s*$");
   private static final Memoized<ConfigExpressionScript<?, ?>, ?> staticEvaluationCache =
     Memoized.memoize(ConfigExpressionScript::doStaticEvaluate);
+  private static final Memoized<ConfigExpressionScript<?, ?>, ConfigExpression<?, ?>> compileCache =
+    Memoized.memoize(ScriptCompiler::compile);
+  // limit on distinct combinations of tag values to remember results for, per script on each thread
+  private static final int MAX_CACHED_RESULTS = 1_000;
+  private static final Object NULL_RESULT = new Object();
   private final Script script;
   private final Class<O> returnType;
   private final String scriptText;
   private final ScriptEnvironment<I> descriptor;
+  private final List<String> tagDependencies;
+  private final ThreadLocal<ResultCache> resultCache;
 
   private ConfigExpressionScript(String scriptText, Script script, ScriptEnvironment<I> descriptor,
     Class<O> returnType) {
@@ -36,6 +49,10 @@ public class ConfigExpressionScript<I extends ScriptContext, O> implements Confi
     this.script = script;
     this.returnType = returnType;
     this.descriptor = descriptor;
+    // when the result only depends on a few tag values, avoid re-evaluating the script for values seen recently
+    this.tagDependencies = ScriptCompiler.tagDependencies(this);
+    this.resultCache = tagDependencies == null || tagDependencies.isEmpty() ? null :
+      ThreadLocal.withInitial(ResultCache::new);
   }
 
   /** Returns true if this is a string expression like {@code "${ ... }"} */
@@ -121,6 +138,10 @@ public class ConfigExpressionScript<I extends ScriptContext, O> implements Confi
 
   @Override
   public O apply(I input) {
+    return resultCache != null ? resultCache.get().apply(input) : evaluate(input);
+  }
+
+  private O evaluate(I input) {
     try {
       return TypeConversion.convert(script.execute(Object.class, input), returnType);
     } catch (ScriptException e) {
@@ -175,7 +196,70 @@ public class ConfigExpressionScript<I extends ScriptContext, O> implements Confi
     } else if (descriptor.containsVariable(scriptText.strip())) {
       return ConfigExpression.variable(ConfigExpression.signature(descriptor, returnType), scriptText.strip());
     }
-    return this;
+    // avoid the overhead of the CEL interpreter for scripts that only use simple operations with native equivalents
+    @SuppressWarnings("unchecked") ConfigExpression<I, O> compiled = (ConfigExpression<I, O>) compileCache.apply(this);
+    return compiled != null ? compiled : this;
+  }
+
+  String scriptText() {
+    return scriptText;
+  }
+
+  Class<O> returnType() {
+    return returnType;
+  }
+
+  /** Returns the tags this script reads, or {@code null} if it depends on anything else from the input. */
+  List<String> tagDependencies() {
+    return tagDependencies;
+  }
+
+  @Override
+  public boolean collectTags(Set<String> keys) {
+    if (tagDependencies != null) {
+      keys.addAll(tagDependencies);
+      return true;
+    }
+    return ScriptCompiler.collectTags(this, keys);
+  }
+
+  /** Most recent results of this script on a single thread, keyed by the values of the tags that it depends on. */
+  private class ResultCache extends LinkedHashMap<Object, Object> {
+    private final Counter hits = descriptor.root().scriptCacheHits().counterForThread();
+    private final Counter misses = descriptor.root().scriptCacheMisses().counterForThread();
+
+    ResultCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+      return size() > MAX_CACHED_RESULTS;
+    }
+
+    O apply(I input) {
+      var tagValueProducer = input.tagValueProducer();
+      Object key;
+      if (tagDependencies.size() == 1) {
+        key = tagValueProducer.valueForKey(input, tagDependencies.getFirst());
+      } else {
+        Object[] values = new Object[tagDependencies.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = tagValueProducer.valueForKey(input, tagDependencies.get(i));
+        }
+        key = Arrays.asList(values);
+      }
+      Object result = get(key);
+      if (result == null) {
+        misses.inc();
+        result = evaluate(input);
+        put(key, result == null ? NULL_RESULT : result);
+      } else {
+        hits.inc();
+      }
+      @SuppressWarnings("unchecked") O value = result == NULL_RESULT ? null : (O) result;
+      return value;
+    }
   }
 
   @Override
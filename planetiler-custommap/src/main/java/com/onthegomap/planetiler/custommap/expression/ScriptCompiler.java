@@ -0,0 +1,490 @@
+package com.onthegomap.planetiler.custommap.expression;
+
+import com.google.api.expr.v1alpha1.Constant;
+import com.google.api.expr.v1alpha1.Decl;
+import com.google.api.expr.v1alpha1.Expr;
+import com.onthegomap.planetiler.custommap.TypeConversion;
+import com.onthegomap.planetiler.custommap.expression.stdlib.GeometryVal;
+import com.onthegomap.planetiler.geo.Unit;
+import com.onthegomap.planetiler.geo.WithGeometry;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.projectnessie.cel.Env;
+
+/**
+ * Compiles common script patterns into a tree of native {@link ConfigExpression ConfigExpressions} so they can be
+ * evaluated without going through the CEL interpreter.
+ * <p>
+ * Only lowers scripts where the native version returns exactly what CEL would: constants, variables, tag lookups like
+ * {@code feature.tags.key}, {@code feature.tags["key"]} or {@code feature.tags.get("key")}, {@code coalesce(...)},
+ * {@code getOrDefault}, {@code string.replace(a, b)}, {@code ==} and {@code !=} against string literals, ternaries on
+ * those comparisons, and {@code feature.area(unit)} or {@code feature.length(unit)} with a constant unit. Anything else
+ * falls back to evaluating the whole script with CEL.
+ * <p>
+ * Also determines which tags a script depends on with {@link #tagDependencies(ConfigExpressionScript)} so that results
+ * of scripts that still need CEL can be cached by those tag values.
+ *
+ * @param <I> Type of the context that the script is expecting
+ */
+final class ScriptCompiler<I extends ScriptContext> {
+  private static final String FEATURE = "feature";
+  private static final String FEATURE_TAGS = "feature.tags";
+  // functions on the tag map that only read the tag named by their first argument
+  private static final Set<String> TAG_LOOKUPS = Set.of("get", "getOrDefault", "getOrKeep", "has");
+  private final ScriptEnvironment<I> environment;
+  private final String scriptText;
+  private final ConfigExpression.Signature<I, Object> signature;
+  // when collecting tags, whether variables other than the tag map are allowed
+  private final boolean allowVariables;
+
+  private ScriptCompiler(ScriptEnvironment<I> environment, String scriptText) {
+    this(environment, scriptText, false);
+  }
+
+  private ScriptCompiler(ScriptEnvironment<I> environment, String scriptText, boolean allowVariables) {
+    this.environment = environment;
+    this.scriptText = scriptText;
+    this.signature = ConfigExpression.signature(environment, Object.class);
+    this.allowVariables = allowVariables;
+  }
+
+  /**
+   * Returns a native expression that evaluates to the same result as {@code script}, or {@code null} if the script
+   * uses features that can only be evaluated by CEL.
+   */
+  static <I extends ScriptContext, O> ConfigExpression<I, O> compile(ConfigExpressionScript<I, O> script) {
+    var parsed = Env.newEnv().parse(script.scriptText());
+    if (parsed.hasIssues()) {
+      return null;
+    }
+    var compiler = new ScriptCompiler<>(script.environment(), script.scriptText());
+    var result = compiler.lower(parsed.getAst().getExpr());
+    return result == null ? null :
+      new ScriptResult<>(ConfigExpression.signature(script.environment(), script.returnType()), result);
+  }
+
+  /**
+   * Returns the keys of tags that {@code script} reads, or {@code null} if the result might depend on anything other
+   * than the values of those tags, like other feature attributes or the entire tag map.
+   */
+  static List<String> tagDependencies(ConfigExpressionScript<?, ?> script) {
+    if (!script.environment().containsVariable(FEATURE_TAGS)) {
+      return null;
+    }
+    var parsed = Env.newEnv().parse(script.scriptText());
+    if (parsed.hasIssues()) {
+      return null;
+    }
+    var compiler = new ScriptCompiler<>(script.environment(), script.scriptText());
+    Set<String> keys = new LinkedHashSet<>();
+    return compiler.collectTags(parsed.getAst().getExpr(), keys) ? List.copyOf(keys) : null;
+  }
+
+  /**
+   * Adds the keys of tags that {@code script} reads to {@code keys}, and returns false if it might read other tags like
+   * the entire tag map. Unlike {@link #tagDependencies(ConfigExpressionScript)}, the script may also read other
+   * variables.
+   */
+  static boolean collectTags(ConfigExpressionScript<?, ?> script, Set<String> keys) {
+    if (!script.environment().containsVariable(FEATURE_TAGS)) {
+      return true;
+    }
+    var parsed = Env.newEnv().parse(script.scriptText());
+    if (parsed.hasIssues()) {
+      return false;
+    }
+    return new ScriptCompiler<>(script.environment(), script.scriptText(), true)
+      .collectTags(parsed.getAst().getExpr(), keys);
+  }
+
+  private boolean collectTags(Expr expr, Set<String> keys) {
+    return switch (expr.getExprKindCase()) {
+      case CONST_EXPR -> true;
+      case IDENT_EXPR, SELECT_EXPR -> collectSelectTags(expr, keys);
+      case CALL_EXPR -> collectCallTags(expr.getCallExpr(), keys);
+      case LIST_EXPR -> collectTags(expr.getListExpr().getElementsList(), keys);
+      case COMPREHENSION_EXPR -> {
+        var comprehension = expr.getComprehensionExpr();
+        yield collectTags(List.of(
+          comprehension.getIterRange(),
+          comprehension.getAccuInit(),
+          comprehension.getLoopCondition(),
+          comprehension.getLoopStep(),
+          comprehension.getResult()
+        ), keys);
+      }
+      default -> false;
+    };
+  }
+
+  private boolean collectTags(List<Expr> exprs, Set<String> keys) {
+    for (var expr : exprs) {
+      if (!collectTags(expr, keys)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean collectSelectTags(Expr expr, Set<String> keys) {
+    if (expr.hasSelectExpr() && isTags(expr.getSelectExpr().getOperand())) {
+      keys.add(expr.getSelectExpr().getField());
+      return true;
+    }
+    String name = dottedName(expr);
+    Decl decl = name == null ? null : declaration(name);
+    if (decl != null) {
+      // constants like command-line arguments are the same for every input, but other variables are not
+      return (decl.hasIdent() && decl.getIdent().hasValue()) || (allowVariables && !FEATURE_TAGS.equals(name));
+    }
+    // undeclared identifiers are local variables bound by macros like map or filter
+    return expr.hasIdentExpr() || collectTags(expr.getSelectExpr().getOperand(), keys);
+  }
+
+  private boolean collectCallTags(Expr.Call call, Set<String> keys) {
+    var args = call.getArgsList();
+    if (call.hasTarget() && isTags(call.getTarget()) && TAG_LOOKUPS.contains(call.getFunction()) &&
+      !args.isEmpty() && stringConstant(args.getFirst()) != null) {
+      keys.add(stringConstant(args.getFirst()));
+      return collectTags(args.subList(1, args.size()), keys);
+    } else if (call.getFunction().equals("_[_]") && args.size() == 2 && isTags(args.get(0)) &&
+      stringConstant(args.get(1)) != null) {
+      keys.add(stringConstant(args.get(1)));
+      return true;
+    }
+    return (!call.hasTarget() || collectTags(call.getTarget(), keys)) && collectTags(args, keys);
+  }
+
+  private ConfigExpression<I, Object> lower(Expr expr) {
+    return switch (expr.getExprKindCase()) {
+      case CONST_EXPR -> lowerConstant(expr.getConstExpr());
+      case IDENT_EXPR, SELECT_EXPR -> lowerSelect(expr);
+      case CALL_EXPR -> lowerCall(expr.getCallExpr());
+      default -> null;
+    };
+  }
+
+  private ConfigExpression<I, Object> lowerConstant(Constant constant) {
+    return switch (constant.getConstantKindCase()) {
+      case NULL_VALUE -> ConfigExpression.constOf(null);
+      case BOOL_VALUE -> ConfigExpression.constOf(constant.getBoolValue());
+      case INT64_VALUE -> ConfigExpression.constOf(constant.getInt64Value());
+      case DOUBLE_VALUE -> ConfigExpression.constOf(constant.getDoubleValue());
+      case STRING_VALUE -> ConfigExpression.constOf(constant.getStringValue());
+      default -> null;
+    };
+  }
+
+  private ConfigExpression<I, Object> lowerSelect(Expr expr) {
+    if (expr.hasSelectExpr() && expr.getSelectExpr().getTestOnly()) {
+      return null;
+    }
+    String name = dottedName(expr);
+    if (name != null && isRuntimeVariable(name)) {
+      return ConfigExpression.variable(signature, name);
+    } else if (expr.hasSelectExpr() && isTags(expr.getSelectExpr().getOperand())) {
+      return tag(expr.getSelectExpr().getField());
+    }
+    return null;
+  }
+
+  private ConfigExpression<I, Object> lowerCall(Expr.Call call) {
+    var args = call.getArgsList();
+    String function = call.getFunction();
+    if (call.hasTarget()) {
+      var target = call.getTarget();
+      if (isTags(target) && function.equals("get") && args.size() == 1 && stringConstant(args.get(0)) != null) {
+        return tag(stringConstant(args.get(0)));
+      } else if (isTags(target) && function.equals("getOrDefault") && args.size() == 2 &&
+        stringConstant(args.get(0)) != null) {
+        var fallback = lower(args.get(1));
+        return fallback == null ? null : ConfigExpression.coalesce(List.of(tag(stringConstant(args.get(0))), fallback));
+      } else if (function.equals("replace") && args.size() == 2 && stringConstant(args.get(0)) != null &&
+        stringConstant(args.get(1)) != null) {
+        var input = lower(target);
+        return input == null ? null :
+          new Replace<>(signature, input, stringConstant(args.get(0)), stringConstant(args.get(1)), scriptText);
+      } else if ((function.equals("area") || function.equals("length")) && environment.containsVariable(FEATURE) &&
+        FEATURE.equals(dottedName(target)) && args.size() == 1 && stringConstant(args.get(0)) != null) {
+        return measure(function.equals("area"), stringConstant(args.get(0)));
+      }
+      return null;
+    }
+    return switch (function) {
+      case "_[_]" -> args.size() == 2 && isTags(args.get(0)) && stringConstant(args.get(1)) != null ?
+        tag(stringConstant(args.get(1))) : null;
+      case "_==_", "_!=_" -> lowerEquals(args.get(0), args.get(1), function.equals("_!=_"));
+      case "_?_:_" -> lowerConditional(args.get(0), args.get(1), args.get(2));
+      case "coalesce" -> {
+        List<ConfigExpression<I, Object>> children = new ArrayList<>(args.size());
+        for (var arg : args) {
+          var child = lower(arg);
+          if (child == null) {
+            yield null;
+          }
+          children.add(child);
+        }
+        yield ConfigExpression.coalesce(children);
+      }
+      default -> null;
+    };
+  }
+
+  private ConfigExpression<I, Object> lowerEquals(Expr left, Expr right, boolean negate) {
+    String literal = stringConstant(right);
+    Expr other = left;
+    if (literal == null) {
+      literal = stringConstant(left);
+      other = right;
+    }
+    if (literal == null) {
+      return null;
+    }
+    var input = lower(other);
+    return input == null ? null : new EqualsString<>(signature, input, literal, negate, scriptText);
+  }
+
+  private ConfigExpression<I, Object> lowerConditional(Expr condition, Expr ifTrue, Expr ifFalse) {
+    var loweredCondition = lower(condition);
+    // only comparisons are guaranteed to return a boolean, anything else CEL would reject at runtime
+    if (!(loweredCondition instanceof EqualsString<I>)) {
+      return null;
+    }
+    var loweredIfTrue = lower(ifTrue);
+    var loweredIfFalse = lower(ifFalse);
+    return loweredIfTrue == null || loweredIfFalse == null ? null :
+      new Conditional<>(signature, loweredCondition, loweredIfTrue, loweredIfFalse);
+  }
+
+  private ConfigExpression<I, Object> tag(String key) {
+    return ConfigExpression.getTag(signature, ConfigExpression.constOf(key));
+  }
+
+  private ConfigExpression<I, Object> measure(boolean area, String unitName) {
+    try {
+      return area ?
+        new Measure<>(signature, Unit.Area.from(unitName), null, scriptText) :
+        new Measure<>(signature, null, Unit.Length.from(unitName), scriptText);
+    } catch (IllegalArgumentException e) {
+      // let CEL report the invalid unit at runtime
+      return null;
+    }
+  }
+
+  private boolean isTags(Expr expr) {
+    return environment.containsVariable(FEATURE_TAGS) && FEATURE_TAGS.equals(dottedName(expr));
+  }
+
+  /**
+   * Returns true if {@code name} is a variable that the input context resolves at runtime, excluding constants like
+   * command-line arguments and the {@code feature} and {@code feature.tags} objects that only CEL can operate on.
+   */
+  private boolean isRuntimeVariable(String name) {
+    if (name.equals(FEATURE) || name.equals(FEATURE_TAGS)) {
+      return false;
+    }
+    Decl decl = declaration(name);
+    return decl != null && decl.hasIdent() && !decl.getIdent().hasValue();
+  }
+
+  private Decl declaration(String name) {
+    for (Decl decl : environment.declarations()) {
+      if (decl.getName().equals(name)) {
+        return decl;
+      }
+    }
+    return null;
+  }
+
+  /** Returns {@code a.b.c} from a chain of field selections, or {@code null} if it is anything else. */
+  private static String dottedName(Expr expr) {
+    if (expr.hasIdentExpr()) {
+      return expr.getIdentExpr().getName();
+    } else if (expr.hasSelectExpr() && !expr.getSelectExpr().getTestOnly()) {
+      String parent = dottedName(expr.getSelectExpr().getOperand());
+      return parent == null ? null : parent + "." + expr.getSelectExpr().getField();
+    }
+    return null;
+  }
+
+  private static String stringConstant(Expr expr) {
+    return expr.hasConstExpr() && expr.getConstExpr().getConstantKindCase() == Constant.ConstantKindCase.STRING_VALUE ?
+      expr.getConstExpr().getStringValue() : null;
+  }
+
+  private static EvaluationException noSuchOverload(String scriptText, String function, Object value) {
+    return new EvaluationException("Error evaluating script '%s'".formatted(scriptText),
+      new IllegalArgumentException("no such overload: %s(%s)".formatted(function,
+        value == null ? "null" : value.getClass().getSimpleName())));
+  }
+
+  /** Converts the result of a compiled script to the same type that CEL would have returned. */
+  private record ScriptResult<I extends ScriptContext, O>(
+    ConfigExpression.Signature<I, O> signature,
+    ConfigExpression<I, Object> input
+  ) implements ConfigExpression<I, O> {
+
+    private static Object widen(Object value) {
+      // CEL only has 64-bit integer and floating point types
+      return switch (value) {
+        case Integer i -> i.longValue();
+        case Short s -> s.longValue();
+        case Byte b -> b.longValue();
+        case Float f -> f.doubleValue();
+        case null, default -> value;
+      };
+    }
+
+    @Override
+    public O apply(I i) {
+      return TypeConversion.convert(widen(input.apply(i)), signature.out());
+    }
+
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return input.collectTags(keys);
+    }
+
+    @Override
+    public ConfigExpression<I, O> simplifyOnce() {
+      var simplified = input.simplifyOnce();
+      if (simplified instanceof ConfigExpression.Const<I, Object> constant) {
+        return ConfigExpression.constOf(TypeConversion.convert(widen(constant.value()), signature.out()));
+      }
+      return new ScriptResult<>(signature, simplified);
+    }
+
+    @Override
+    public ScriptEnvironment<I> environment() {
+      return signature.in();
+    }
+  }
+
+  /** Replaces every occurrence of {@code target} in a string with {@code replacement}, like CEL's string extension. */
+  private record Replace<I extends ScriptContext>(
+    ConfigExpression.Signature<I, Object> signature,
+    ConfigExpression<I, Object> input,
+    String target,
+    String replacement,
+    String scriptText
+  ) implements ConfigExpression<I, Object> {
+
+    @Override
+    public Object apply(I i) {
+      Object value = input.apply(i);
+      if (value instanceof String string) {
+        return string.replace(target, replacement);
+      }
+      throw noSuchOverload(scriptText, "replace", value);
+    }
+
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return input.collectTags(keys);
+    }
+
+    @Override
+    public ConfigExpression<I, Object> simplifyOnce() {
+      return new Replace<>(signature, input.simplifyOnce(), target, replacement, scriptText);
+    }
+
+    @Override
+    public ScriptEnvironment<I> environment() {
+      return signature.in();
+    }
+  }
+
+  /** Compares a value to a string literal, where null is not equal to anything and other types are an error. */
+  private record EqualsString<I extends ScriptContext>(
+    ConfigExpression.Signature<I, Object> signature,
+    ConfigExpression<I, Object> input,
+    String literal,
+    boolean negate,
+    String scriptText
+  ) implements ConfigExpression<I, Object> {
+
+    @Override
+    public Object apply(I i) {
+      Object value = input.apply(i);
+      if (value == null || value instanceof String) {
+        return negate != literal.equals(value);
+      }
+      throw noSuchOverload(scriptText, negate ? "_!=_" : "_==_", value);
+    }
+
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return input.collectTags(keys);
+    }
+
+    @Override
+    public ConfigExpression<I, Object> simplifyOnce() {
+      return new EqualsString<>(signature, input.simplifyOnce(), literal, negate, scriptText);
+    }
+
+    @Override
+    public ScriptEnvironment<I> environment() {
+      return signature.in();
+    }
+  }
+
+  /** Returns {@code ifTrue} when {@code condition} evaluates to true, otherwise {@code ifFalse}. */
+  private record Conditional<I extends ScriptContext>(
+    ConfigExpression.Signature<I, Object> signature,
+    ConfigExpression<I, Object> condition,
+    ConfigExpression<I, Object> ifTrue,
+    ConfigExpression<I, Object> ifFalse
+  ) implements ConfigExpression<I, Object> {
+
+    @Override
+    public Object apply(I i) {
+      return Boolean.TRUE.equals(condition.apply(i)) ? ifTrue.apply(i) : ifFalse.apply(i);
+    }
+
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return condition.collectTags(keys) && ifTrue.collectTags(keys) && ifFalse.collectTags(keys);
+    }
+
+    @Override
+    public ConfigExpression<I, Object> simplifyOnce() {
+      return new Conditional<>(signature, condition.simplifyOnce(), ifTrue.simplifyOnce(), ifFalse.simplifyOnce());
+    }
+
+    @Override
+    public ScriptEnvironment<I> environment() {
+      return signature.in();
+    }
+  }
+
+  /** Returns the area or length of the input feature in a unit that was resolved when the script was compiled. */
+  private record Measure<I extends ScriptContext>(
+    ConfigExpression.Signature<I, Object> signature,
+    Unit.Area areaUnit,
+    Unit.Length lengthUnit,
+    String scriptText
+  ) implements ConfigExpression<I, Object> {
+
+    @Override
+    public Object apply(I i) {
+      if (i.apply(FEATURE) instanceof GeometryVal geometry &&
+        geometry.value() instanceof WithGeometry feature) {
+        return areaUnit != null ? feature.area(areaUnit) : feature.length(lengthUnit);
+      }
+      throw new EvaluationException("Error evaluating script '%s'".formatted(scriptText),
+        new IllegalStateException("no feature geometry available"));
+    }
+
+    @Override
+    public boolean collectTags(Set<String> keys) {
+      return true;
+    }
+
+    @Override
+    public ScriptEnvironment<I> environment() {
+      return signature.in();
+    }
+  }
+}
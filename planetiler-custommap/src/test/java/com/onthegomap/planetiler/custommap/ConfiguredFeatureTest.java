@@ -11,6 +11,7 @@ import com.carrotsearch.hppc.LongArrayList;
 import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.FeatureCollector.Feature;
 import com.onthegomap.planetiler.Profile;
+import com.onthegomap.planetiler.TestUtils;
 import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.config.Arguments;
 import com.onthegomap.planetiler.config.PlanetilerConfig;
@@ -20,16 +21,19 @@ import com.onthegomap.planetiler.custommap.configschema.MergePolygons;
 import com.onthegomap.planetiler.custommap.configschema.PostProcess;
 import com.onthegomap.planetiler.custommap.configschema.SchemaConfig;
 import com.onthegomap.planetiler.custommap.util.TestConfigurableUtils;
+import com.onthegomap.planetiler.expression.Expression;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SimpleFeature;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.reader.osm.OsmElement;
 import com.onthegomap.planetiler.reader.osm.OsmSourceFeature;
+import com.onthegomap.planetiler.reader.parquet.ParquetInputFile;
 import com.onthegomap.planetiler.stats.Stats;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -692,6 +696,132 @@ class ConfiguredFeatureTest {
     }, 1);
   }
 
+  @ParameterizedTest
+  @CsvSource(value = {
+    "''|yes|no",
+    "'tag_mappings: {intermittent: boolean}'|yes|yes",
+    "'tag_mappings: {intermittent: {input: flag}}'|yes|yes",
+  }, delimiter = '|')
+  void testInterestFilter(String mappings, String matchesYes, String matchesOther) {
+    var profile = loadConfig("""
+      sources:
+        osm:
+          type: osm
+          url: geofabrik:rhode-island
+          local_path: data/rhode-island.osm.pbf
+      %s
+      layers:
+      - id: testLayer
+        features:
+        - source: osm
+          geometry: point
+          include_when:
+            intermittent: 'yes'
+      """.formatted(mappings));
+    var filter = profile.interestFilter(Expression.PartialInput.ofSource("osm"));
+    assertEquals("yes".equals(matchesYes), filter.test(Map.of("intermittent", "yes")));
+    assertEquals("yes".equals(matchesOther), filter.test(Map.of("intermittent", "true")));
+  }
+
+  @Test
+  void testUsedTags() {
+    var profile = loadConfig("""
+      sources:
+        osm:
+          type: osm
+          url: geofabrik:rhode-island
+          local_path: data/rhode-island.osm.pbf
+        other:
+          type: osm
+          url: geofabrik:rhode-island
+          local_path: data/rhode-island.osm.pbf
+      tag_mappings:
+        depth: long
+      layers:
+      - id: testLayer
+        features:
+        - source: osm
+          geometry: point
+          include_when:
+            natural: water
+          exclude_when: '${feature.tags.has("intermittent", "yes")}'
+          min_zoom: '${feature.tags.has("tourism") ? 4 : 8}'
+          attributes:
+          - key: name
+          - key: ele
+            value: '${coalesce(feature.tags.ele, feature.tags["height"])}'
+          - key: kind
+            value: '${match_value}'
+            include_when:
+              access: 'yes'
+        - source: other
+          geometry: point
+          attributes:
+          - key: count
+            value: '${size(feature.tags)}'
+      """);
+    assertEquals(
+      Set.of("depth", "natural", "intermittent", "tourism", "name", "ele", "height", "access"),
+      profile.usedTags(Expression.PartialInput.ofSource("osm"))
+    );
+    // can't tell which tags an expression that reads the whole tag map uses
+    assertNull(profile.usedTags(Expression.PartialInput.ofSource("other")));
+  }
+
+  @Test
+  void testUsedTagsWithRenamedKeys() {
+    var profile = loadConfig("""
+      sources:
+        osm:
+          type: osm
+          url: geofabrik:rhode-island
+          local_path: data/rhode-island.osm.pbf
+      tag_mappings:
+        intermittent:
+          input: flag
+      layers:
+      - id: testLayer
+        features:
+        - source: osm
+          geometry: point
+          include_when:
+            intermittent: 'yes'
+      """);
+    assertNull(profile.usedTags(Expression.PartialInput.ofSource("osm")));
+  }
+
+  @Test
+  void testOnlyReadsUsedParquetColumns() throws GeometryException {
+    // the profile only looks at the source name, so any source type works
+    var profile = loadConfig("""
+      sources:
+        buildings:
+          type: geojson
+          local_path: data/buildings.geojson
+      layers:
+      - id: buildings
+        features:
+        - source: buildings
+          geometry: polygon
+          include_when:
+            height: __any__
+          attributes:
+          - key: class
+      """);
+    var file = new ParquetInputFile("buildings", "layer", TestUtils.pathToResource("parquet").resolve("boston.parquet"));
+    Set<String> usedTags = file.usedTags(profile);
+    assertEquals(Set.of("height", "class"), usedTags);
+    int count = 0;
+    for (var block : file.get(file.interestFilter(profile), usedTags)) {
+      for (var item : block) {
+        assertTrue(usedTags.containsAll(item.tags().keySet()), item.tags().toString());
+        assertFalse(item.latLonGeometry().isEmpty());
+        count++;
+      }
+    }
+    assertTrue(count > 0);
+  }
+
   @ParameterizedTest
   @CsvSource(value = {
     "12|12",
@@ -121,6 +121,24 @@ class ConfigExpressionTest {
     );
   }
 
+  @Test
+  void testCachesScriptResultsByTagValues() {
+    var root = Contexts.buildRootContext(Arguments.of(), Map.of());
+    var expression = script(signature(Contexts.ProcessFeature.description(root), Integer.class),
+      "size(feature.tags.ref.split(';'))");
+    for (var ref : List.of("A;B", "C", "A;B", "D;E;F", "C", "A;B")) {
+      var feature = SimpleFeature.create(newPoint(0, 0), Map.of("ref", ref), "source", "source_layer", 1);
+      var context = root.createProcessFeatureContext(feature, new TagValueProducer(Map.of()));
+      assertEquals(ref.split(";").length, expression.apply(context), ref);
+    }
+    var feature = SimpleFeature.create(newPoint(0, 0), Map.of(), "source", "source_layer", 1);
+    var context = root.createProcessFeatureContext(feature, new TagValueProducer(Map.of()));
+    assertThrows(EvaluationException.class, () -> expression.apply(context));
+    assertThrows(EvaluationException.class, () -> expression.apply(context));
+    assertEquals(3, root.scriptCacheHits().get());
+    assertEquals(5, root.scriptCacheMisses().get());
+  }
+
   @Test
   void testSimplifyCelFunctionThatJustAccessesVar() {
     assertEquals(
@@ -129,9 +147,9 @@ class ConfigExpressionTest {
       script(FEATURE_SIGNATURE, "feature.id").simplify()
     );
     assertEquals(
-      script(FEATURE_SIGNATURE, "feature.tags.a"),
+      script(FEATURE_SIGNATURE, "feature.tags.a + 'b'"),
 
-      script(FEATURE_SIGNATURE, "feature.tags.a").simplify()
+      script(FEATURE_SIGNATURE, "feature.tags.a + 'b'").simplify()
     );
   }
 
@@ -0,0 +1,130 @@
+package com.onthegomap.planetiler.custommap.expression;
+
+import static com.onthegomap.planetiler.TestUtils.newPoint;
+import static com.onthegomap.planetiler.TestUtils.rectangle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import com.onthegomap.planetiler.custommap.Contexts;
+import com.onthegomap.planetiler.custommap.TagValueProducer;
+import com.onthegomap.planetiler.custommap.TestContexts;
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ScriptCompilerTest {
+  private static final TagValueProducer TAG_VALUE_PRODUCER = new TagValueProducer(Map.of(
+    "num", "integer",
+    "d", "double"
+  ));
+  private static final List<Contexts.FeaturePostMatch> CONTEXTS = contexts();
+
+  private static List<Contexts.FeaturePostMatch> contexts() {
+    var tags = Map.<String, Object>of(
+      "name", "Main",
+      "highway", "primary_link",
+      "natural", "wood",
+      "ref", "A;B",
+      "num", "12",
+      "d", "1.5"
+    );
+    var features = List.of(
+      SimpleFeature.create(rectangle(0, 0.001), tags, "source", "layer", 1),
+      SimpleFeature.create(newPoint(0, 0), Map.of(), "source", null, 2),
+      SimpleFeature.create(newPoint(0, 0), Map.of("highway", "path"), "other", "layer2", 3)
+    );
+    List<Contexts.FeaturePostMatch> result = new ArrayList<>();
+    for (var feature : features) {
+      var processFeature = TestContexts.ROOT.createProcessFeatureContext(feature, TAG_VALUE_PRODUCER);
+      for (var matchKey : List.of("highway", "natural", "num", "d")) {
+        result.add(processFeature.createPostMatchContext(List.of(matchKey)));
+      }
+      result.add(processFeature.createPostMatchContext(List.of()));
+    }
+    return result;
+  }
+
+  private static Object evaluate(ConfigExpression<Contexts.FeaturePostMatch, ?> expression,
+    Contexts.FeaturePostMatch context) {
+    try {
+      return expression.apply(context);
+    } catch (RuntimeException e) {
+      return e.getClass();
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "feature.tags.name",
+    "feature.tags.num",
+    "feature.tags.d",
+    "feature.tags.missing",
+    "feature.tags['name']",
+    "feature.tags.get('num')",
+    "feature.tags.getOrDefault('name', 'default')",
+    "feature.tags.getOrDefault('missing', 1)",
+    "coalesce(feature.tags.missing, feature.tags.num, 'x')",
+    "coalesce(feature.tags.missing, null)",
+    "coalesce(feature.source_layer, 'none')",
+    "match_value.replace('_link', '')",
+    "feature.tags.name.replace('a', '')",
+    "match_value == 'wood' ? 'forest' : match_value",
+    "'path' != feature.tags.highway ? feature.id : 0",
+    "feature.tags.missing == 'x'",
+    "feature.area('m2')",
+    "feature.length('m')",
+  })
+  void testCompiledScriptMatchesCel(String script) {
+    for (var output : List.of(Object.class, String.class, Integer.class, Long.class, Double.class, Boolean.class)) {
+      var interpreted = ConfigExpressionScript.parse(script, TestContexts.FEATURE_POST_MATCH, output);
+      var compiled = interpreted.simplify();
+      assertFalse(compiled instanceof ConfigExpressionScript<?, ?>, script);
+      for (var context : CONTEXTS) {
+        assertEquals(evaluate(interpreted, context), evaluate(compiled, context), script + " " + output);
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "feature.tags.name + 'x'",
+    "size(feature.tags.ref.split(';'))",
+    "has(feature.tags.name)",
+    "feature.tags.name.replace('a', feature.tags.ref)",
+    "feature.tags.num == 12 ? 1 : 2",
+    "feature.tags.name.contains('M') ? 1 : 2",
+    "feature.area(feature.tags.unit)",
+    "feature.area('invalid')",
+    "feature.tags.name.startsWith('M')",
+  })
+  void testFallBackToCelForOtherScripts(String script) {
+    assertInstanceOf(ConfigExpressionScript.class,
+      ConfigExpressionScript.parse(script, TestContexts.FEATURE_POST_MATCH).simplify(), script);
+  }
+
+  @ParameterizedTest
+  @CsvSource(value = {
+    "feature.tags.name| name",
+    "feature.tags['name'] + feature.tags.get('ref')| name,ref",
+    "size(feature.tags.ref.split(';'))| ref",
+    "max(feature.tags.ref.split(';').map(r, size(r)))| ref",
+    "has(feature.tags.name) ? feature.tags.getOrDefault('ref', feature.tags.name) : ''| name,ref",
+    "feature.tags.has('highway', 'primary', 'secondary')| highway",
+    "feature.tags.name + string(args.threads)| name",
+    "feature.tags.name + feature.source| null",
+    "feature.tags.name + match_value| null",
+    "feature.area('m2') > 1.0 ? feature.tags.name : ''| null",
+    "feature.tags.size()| null",
+    "'name' in feature.tags| null",
+    "feature.tags[feature.tags.key]| null",
+  }, delimiter = '|', quoteCharacter = '"')
+  void testTagDependencies(String script, String expected) {
+    var parsed = ConfigExpressionScript.parse(script, TestContexts.FEATURE_POST_MATCH);
+    assertEquals(expected.equals("null") ? null : List.of(expected.split(",")), parsed.tagDependencies());
+  }
+}